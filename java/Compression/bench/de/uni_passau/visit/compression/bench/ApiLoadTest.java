@@ -0,0 +1,125 @@
+package de.uni_passau.visit.compression.bench;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This load test sends API-requests to a running compression system from
+ * multiple concurrent clients and reports the latency percentiles of each
+ * endpoint. Each client uses keep-alive connections and requests the given
+ * endpoints in turn, so a slow endpoint delaying the others shows up in their
+ * percentiles.
+ * 
+ * Usage: ApiLoadTest [baseUrl] [clients] [requestsPerClient] [endpoints...]
+ * 
+ * By default the server at http://localhost:1613/api/ is loaded by 16 clients
+ * sending 500 requests each to the read-only endpoints used by the dashboard.
+ * 
+ * @author agent
+ *
+ */
+public class ApiLoadTest {
+
+	private static final String[] DEFAULT_ENDPOINTS = { "jobs/queue", "jobs/wait-statistics", "jobs/avoided-work",
+			"archive/jobs", "control", "settings" };
+
+	public static void main(String[] args) throws Exception {
+		String baseUrl = args.length > 0 ? args[0] : "http://localhost:1613/api/";
+		int clients = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+		int requestsPerClient = args.length > 2 ? Integer.parseInt(args[2]) : 500;
+		String[] endpoints = args.length > 3 ? Arrays.copyOfRange(args, 3, args.length) : DEFAULT_ENDPOINTS;
+
+		// warm up the server and the connection pool
+		for (String endpoint : endpoints) {
+			request(baseUrl + endpoint);
+		}
+
+		long[][][] latencies = new long[clients][endpoints.length][];
+		AtomicInteger failures = new AtomicInteger();
+		CountDownLatch start = new CountDownLatch(1);
+		List<Thread> threads = new ArrayList<>();
+
+		for (int c = 0; c < clients; ++c) {
+			final int client = c;
+			Thread thread = new Thread(() -> {
+				long[][] own = latencies[client];
+				int[] counts = new int[endpoints.length];
+				for (int e = 0; e < endpoints.length; ++e) {
+					own[e] = new long[(requestsPerClient + endpoints.length - 1) / endpoints.length];
+				}
+
+				try {
+					start.await();
+				} catch (InterruptedException ex) {
+					return;
+				}
+
+				for (int i = 0; i < requestsPerClient; ++i) {
+					int endpoint = (i + client) % endpoints.length;
+					long begin = System.nanoTime();
+					try {
+						request(baseUrl + endpoints[endpoint]);
+					} catch (IOException ex) {
+						failures.incrementAndGet();
+					}
+					if (counts[endpoint] < own[endpoint].length) {
+						own[endpoint][counts[endpoint]++] = System.nanoTime() - begin;
+					}
+				}
+
+				for (int e = 0; e < endpoints.length; ++e) {
+					own[e] = Arrays.copyOf(own[e], counts[e]);
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+
+		long begin = System.nanoTime();
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		double seconds = (System.nanoTime() - begin) / 1E9;
+
+		System.out.println(String.format("%d clients, %d requests in %.2f s (%.1f requests/s), %d failed:", clients,
+				clients * requestsPerClient, seconds, clients * requestsPerClient / seconds, failures.get()));
+		for (int e = 0; e < endpoints.length; ++e) {
+			long[] merged = new long[0];
+			for (int c = 0; c < clients; ++c) {
+				long[] own = latencies[c][e];
+				merged = Arrays.copyOf(merged, merged.length + own.length);
+				System.arraycopy(own, 0, merged, merged.length - own.length, own.length);
+			}
+			if (merged.length > 0) {
+				QueueBenchmarkData.printLatencies("  " + endpoints[e], merged);
+			}
+		}
+	}
+
+	private static void request(String url) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+		int status = connection.getResponseCode();
+
+		// the response has to be consumed completely to reuse the connection
+		try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+			if (in != null) {
+				byte[] buffer = new byte[8192];
+				while (in.read(buffer) != -1) {
+					// discard
+				}
+			}
+		}
+
+		if (status != 200) {
+			throw new IOException("Unexpected response status " + status + " for " + url);
+		}
+	}
+}
@@ -0,0 +1,379 @@
+package de.uni_passau.visit.compression.bench;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.uni_passau.visit.compression.data.CompressionJob;
+import de.uni_passau.visit.compression.data.JobState;
+import de.uni_passau.visit.compression.data.ProcessingStep;
+import de.uni_passau.visit.compression.data.QueueEntry;
+import de.uni_passau.visit.compression.logic.util.Histogram;
+import de.uni_passau.visit.compression.models.AbstractQueueChangeListener;
+import de.uni_passau.visit.compression.models.CompressionMetrics;
+import de.uni_passau.visit.compression.models.CompressionModel;
+import de.uni_passau.visit.compression.models.ConfigModel;
+import de.uni_passau.visit.compression.models.QueueModel;
+
+/**
+ * This benchmark measures the throughput of complete compression jobs, which
+ * are dispatched to a @see QueueModel and processed by a @see CompressionModel
+ * exactly like in production. The technical meta data are fetched from and sent
+ * to an in-process stand-in of the MetaDB (@see MetaDbStub), whose latency can
+ * be configured, and the media files are created by @see JobFixtures in a
+ * temporary media file root directory.
+ * 
+ * Each configuration is given as count of image workers and count of 3D-model
+ * workers, e.g. "2x1". For each configuration a fresh queue database, media
+ * file root directory and MetaDB stand-in are set up, the jobs are dispatched
+ * as one batch and the benchmark waits until all of them are finished. The
+ * throughput in jobs per hour, the mean duration per job kind, the breakdown of
+ * the workers' busy time into the processing steps recorded by the @see
+ * CompressionMetrics and the peak resident set size of the process are
+ * reported. Before the first configuration one job of each kind is processed
+ * for warming up the JIT compiler.
+ * 
+ * Usage: EndToEndBenchmark [jobs] [kinds,...] [configurations,...] [faces]
+ * [imageWidth] [metaDbLatencyMillis] [resultFile]
+ * 
+ * By default 30 jobs alternating between a textured OBJ-model with 50k faces,
+ * a JPEG- and a PNG-image with 4000x3000 pixels are processed with 2x1 and 4x2
+ * workers and a MetaDB latency of 20 ms. The SQLite JDBC driver has to be on
+ * the classpath and ImageMagick has to be installed like in the container
+ * image, since images and textures are resized by it.
+ * 
+ * @author agent
+ *
+ */
+public class EndToEndBenchmark {
+
+	private static final String MEDIA_UID_PREFIX = "http://127.0.0.1/metadb/";
+	private static final String STATUS_FILE = "/proc/self/status";
+	private static final String CLEAR_REFS_FILE = "/proc/self/clear_refs";
+	private static final long TIMEOUT_MINUTES = 120;
+	private static final String[] WORKER_THREAD_PREFIXES = { "compression-image-worker-",
+			"compression-model-worker-" };
+
+	public static void main(String[] args) throws Exception {
+		int jobs = args.length > 0 ? Integer.parseInt(args[0]) : 30;
+		String[] kinds = (args.length > 1 ? args[1] : "obj,jpeg,png").split(",");
+		String[] configurations = (args.length > 2 ? args[2] : "2x1,4x2").split(",");
+		int faces = args.length > 3 ? Integer.parseInt(args[3]) : 50000;
+		int imageWidth = args.length > 4 ? Integer.parseInt(args[4]) : 4000;
+		long latencyMillis = args.length > 5 ? Long.parseLong(args[5]) : 20;
+		String resultFile = args.length > 6 ? args[6] : null;
+
+		System.out.println("Warming up...");
+		run(kinds.length, kinds, parseConfiguration(configurations[0]), faces, imageWidth, latencyMillis);
+
+		List<Map<String, Object>> results = new ArrayList<>();
+		for (String configuration : configurations) {
+			int[] workers = parseConfiguration(configuration);
+			System.out.println(String.format("%d jobs with %d image and %d model workers:", jobs, workers[0],
+					workers[1]));
+			Map<String, Object> result = run(jobs, kinds, workers, faces, imageWidth, latencyMillis);
+			result.put("configuration", configuration.trim());
+			results.add(result);
+		}
+
+		if (resultFile != null) {
+			Map<String, Object> report = new LinkedHashMap<>();
+			report.put("environment", EngineBenchmark.getEnvironment());
+			report.put("faces", faces);
+			report.put("imageWidth", imageWidth);
+			report.put("metaDbLatencyMillis", latencyMillis);
+			report.put("results", results);
+			new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(new File(resultFile), report);
+			System.out.println("Results written to " + resultFile);
+		}
+	}
+
+	private static int[] parseConfiguration(String configuration) {
+		String[] counts = configuration.trim().split("x");
+		if (counts.length != 2) {
+			throw new IllegalArgumentException("Configurations have to be given as <imageWorkers>x<modelWorkers>");
+		}
+		return new int[] { Integer.parseInt(counts[0]), Integer.parseInt(counts[1]) };
+	}
+
+	/**
+	 * This method processes the given count of jobs with the given count of
+	 * workers and returns the measured results.
+	 * 
+	 * @param jobs
+	 *            The count of jobs
+	 * @param kinds
+	 *            The kinds of the jobs, which are used in turn
+	 * @param workers
+	 *            The count of image workers and of 3D-model workers
+	 * @param faces
+	 *            The approximate count of faces of the OBJ-models
+	 * @param imageWidth
+	 *            The width of the images
+	 * @param latencyMillis
+	 *            The latency of the MetaDB stand-in
+	 * @return Returns the results of the run
+	 * @throws Exception
+	 *             if the run failed
+	 */
+	private static Map<String, Object> run(int jobs, String[] kinds, int[] workers, int faces, int imageWidth,
+			long latencyMillis) throws Exception {
+		File workDirectory = Files.createTempDirectory("endToEndBenchmark").toFile();
+		MetaDbStub metaDb = new MetaDbStub(latencyMillis);
+
+		try {
+			File mediaRoot = new File(workDirectory, "media");
+			ConfigModel config = new ConfigModel(
+					writeConfiguration(workDirectory, mediaRoot, metaDb.getEndpointUrl(), workers).getAbsolutePath());
+
+			JobFixtures fixtures = new JobFixtures(mediaRoot, faces, imageWidth);
+			List<CompressionJob> batch = new ArrayList<>();
+			for (int i = 0; i < jobs; ++i) {
+				JobFixtures.Fixture fixture = fixtures.create(kinds[i % kinds.length].trim(), "bench-object-" + i,
+						"bench-media-" + i);
+				metaDb.putTechnicalMetadata(MEDIA_UID_PREFIX + fixture.getJob().getMediaUid(),
+						fixture.getTechnicalMetadata());
+				batch.add(fixture.getJob());
+			}
+
+			QueueModel queue = new QueueModel(config, new File(workDirectory, "jobQueue.db").getAbsolutePath());
+			CompressionMetrics metrics = new CompressionMetrics();
+			CompressionModel compression = new CompressionModel(queue, config, metrics);
+
+			// the durations of the jobs are measured from their claim until they are finished
+			Map<Integer, Long> claimedAt = new ConcurrentHashMap<>();
+			Map<String, long[]> durationsByKind = new ConcurrentHashMap<>();
+			AtomicInteger failedJobs = new AtomicInteger();
+			CountDownLatch finished = new CountDownLatch(jobs);
+			queue.addQueueChangeListener(new AbstractQueueChangeListener() {
+				@Override
+				public void jobChanged(QueueEntry entry) {
+					if (entry.getState() == JobState.PROCESSING) {
+						claimedAt.put(entry.getId(), System.nanoTime());
+					} else if (entry.getState() == JobState.COMPLETED || entry.getState() == JobState.ERROR) {
+						Long start = claimedAt.remove(entry.getId());
+						if (start != null) {
+							long[] durations = durationsByKind.computeIfAbsent(entry.getJob().getMimeType(),
+									k -> new long[2]);
+							synchronized (durations) {
+								durations[0]++;
+								durations[1] += System.nanoTime() - start;
+							}
+						}
+						if (entry.getState() == JobState.ERROR) {
+							failedJobs.incrementAndGet();
+						}
+						finished.countDown();
+					}
+				}
+
+				@Override
+				public void jobRemoved(int jobId) {
+					finished.countDown();
+				}
+			});
+
+			System.gc();
+			boolean isRssReset = resetPeakRss();
+			resetPeakHeap();
+
+			long start = System.nanoTime();
+			queue.dispatchJobs(batch);
+			compression.start();
+			compression.setPause(false);
+			// a worker terminated by an unexpected exception leaves its job unfinished
+			if (!finished.await(TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+				System.out.println(String.format("  %d jobs haven't been finished within %d minutes", finished.getCount(),
+						TIMEOUT_MINUTES));
+				failedJobs.addAndGet((int) finished.getCount());
+			}
+			double elapsedSeconds = (System.nanoTime() - start) / 1E9;
+
+			long peakRss = isRssReset ? getPeakRss() : -1;
+			long peakHeap = getPeakHeap();
+
+			compression.shutdown(false);
+			joinWorkers();
+			queue.close();
+
+			return report(jobs, elapsedSeconds, failedJobs.get(), durationsByKind, metrics, metaDb, peakRss,
+					peakHeap);
+		} finally {
+			metaDb.stop();
+			FileUtils.deleteQuietly(workDirectory);
+		}
+	}
+
+	private static File writeConfiguration(File workDirectory, File mediaRoot, String metaDbUrl, int[] workers)
+			throws IOException {
+		Properties properties = new Properties();
+		properties.setProperty("mediaFileRootDirectory", mediaRoot.getAbsolutePath());
+		properties.setProperty("metadbApiEndpointFetchUrl", metaDbUrl);
+		properties.setProperty("metadbApiEndpointSendUrl", metaDbUrl);
+		properties.setProperty("metadbApiAuthString", "Basic YmVuY2g6YmVuY2g=");
+		properties.setProperty("metadbApiMediaUidPrefix", MEDIA_UID_PREFIX);
+		properties.setProperty("imageWorkerCount", String.valueOf(workers[0]));
+		properties.setProperty("modelWorkerCount", String.valueOf(workers[1]));
+		properties.setProperty("modelCheckpointing", "false");
+		properties.setProperty("queueMaxLength", "1000000");
+
+		File file = new File(workDirectory, "config.ini");
+		try (OutputStream out = new FileOutputStream(file)) {
+			properties.store(out, "--- ViSIT Compression Benchmark Configuration ---");
+		}
+		return file;
+	}
+
+	private static Map<String, Object> report(int jobs, double elapsedSeconds, int failedJobs,
+			Map<String, long[]> durationsByKind, CompressionMetrics metrics, MetaDbStub metaDb, long peakRss,
+			long peakHeap) {
+		double jobsPerHour = jobs / elapsedSeconds * 3600;
+		System.out.println(String.format("  %.1f s, %.0f jobs/h, %d failed, %d MB peak RSS, %d MB peak heap",
+				elapsedSeconds, jobsPerHour, failedJobs, peakRss >> 20, peakHeap >> 20));
+
+		Map<String, Object> kinds = new LinkedHashMap<>();
+		double busySeconds = 0;
+		for (Map.Entry<String, long[]> entry : durationsByKind.entrySet()) {
+			long[] durations = entry.getValue();
+			busySeconds += durations[1] / 1E9;
+			Map<String, Object> kind = new LinkedHashMap<>();
+			kind.put("jobs", durations[0]);
+			kind.put("meanSeconds", durations[1] / 1E9 / durations[0]);
+			kinds.put(entry.getKey(), kind);
+			System.out.println(String.format("  %-14s %5d jobs %10.2f s mean", entry.getKey(), durations[0],
+					durations[1] / 1E9 / durations[0]));
+		}
+
+		// the steps are reported as share of the accumulated busy time of all workers
+		Map<String, Object> steps = new LinkedHashMap<>();
+		double stepSeconds = 0;
+		for (ProcessingStep step : ProcessingStep.values()) {
+			Histogram histogram = metrics.getStepDurations(step);
+			long count = 0;
+			for (long bucket : histogram.getCounts()) {
+				count += bucket;
+			}
+			stepSeconds += histogram.getSumSeconds();
+			steps.put(step.getLabel(), getStep(count, histogram.getSumSeconds(), busySeconds));
+		}
+		steps.put("other", getStep(jobs, Math.max(0, busySeconds - stepSeconds), busySeconds));
+		for (Map.Entry<String, Object> entry : steps.entrySet()) {
+			@SuppressWarnings("unchecked")
+			Map<String, Object> step = (Map<String, Object>) entry.getValue();
+			System.out.println(String.format("  %-18s %6d x %10.2f s %6.1f %%", entry.getKey(), step.get("count"),
+					step.get("totalSeconds"), step.get("share")));
+		}
+
+		Map<String, Object> result = new LinkedHashMap<>();
+		result.put("jobs", jobs);
+		result.put("failedJobs", failedJobs);
+		result.put("elapsedSeconds", elapsedSeconds);
+		result.put("jobsPerHour", jobsPerHour);
+		result.put("workerBusySeconds", busySeconds);
+		result.put("kinds", kinds);
+		result.put("steps", steps);
+		result.put("edgeCollapses", metrics.getEdgeCollapses());
+		result.put("metaDbFetches", metaDb.getFetchCount());
+		result.put("metaDbUpdates", metaDb.getUpdateCount());
+		result.put("peakRssBytes", peakRss);
+		result.put("peakHeapBytes", peakHeap);
+		return result;
+	}
+
+	private static Map<String, Object> getStep(long count, double totalSeconds, double busySeconds) {
+		Map<String, Object> step = new LinkedHashMap<>();
+		step.put("count", count);
+		step.put("totalSeconds", totalSeconds);
+		step.put("share", busySeconds > 0 ? totalSeconds / busySeconds * 100 : 0.0);
+		return step;
+	}
+
+	/**
+	 * This method waits until all worker threads of the compression model have
+	 * exited, so that the queue model can be closed safely.
+	 * 
+	 * @throws InterruptedException
+	 *             if the current thread has been interrupted while waiting
+	 */
+	private static void joinWorkers() throws InterruptedException {
+		for (Thread thread : Thread.getAllStackTraces().keySet()) {
+			for (String prefix : WORKER_THREAD_PREFIXES) {
+				if (thread.getName().startsWith(prefix)) {
+					thread.join(TimeUnit.MINUTES.toMillis(1));
+				}
+			}
+		}
+	}
+
+	/**
+	 * This method resets the peak resident set size of this process, which is
+	 * supported by Linux only.
+	 * 
+	 * @return Returns true, if the peak has been reset, otherwise false
+	 */
+	private static boolean resetPeakRss() {
+		try (FileWriter writer = new FileWriter(CLEAR_REFS_FILE)) {
+			writer.write("5");
+			return true;
+		} catch (IOException ex) {
+			return false;
+		}
+	}
+
+	/**
+	 * This method returns the peak resident set size of this process since the
+	 * last reset.
+	 * 
+	 * @return Returns the peak resident set size in bytes or -1, if it's unknown
+	 */
+	private static long getPeakRss() {
+		try {
+			for (String line : Files.readAllLines(new File(STATUS_FILE).toPath(), StandardCharsets.UTF_8)) {
+				if (line.startsWith("VmHWM:")) {
+					return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+				}
+			}
+		} catch (IOException | NumberFormatException ex) {
+			// fall through
+		}
+		return -1;
+	}
+
+	private static void resetPeakHeap() {
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				pool.resetPeakUsage();
+			}
+		}
+	}
+
+	private static long getPeakHeap() {
+		long peak = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				peak += pool.getPeakUsage().getUsed();
+			}
+		}
+		return peak;
+	}
+}
@@ -0,0 +1,322 @@
+package de.uni_passau.visit.compression.bench;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.uni_passau.visit.compression.logic.algorithms.quadric5.QuadricAbstractCompressedModelHandler;
+import de.uni_passau.visit.compression.logic.algorithms.quadric5.QuadricEdgeCollapse;
+import de.uni_passau.visit.compression.logic.algorithms.quadric5.QuadricEdgeCollapseDefaultConfig;
+import de.uni_passau.visit.compression.logic.algorithms.quadric5.QuadricUtils;
+import de.uni_passau.visit.compression.logic.data.Face;
+import de.uni_passau.visit.compression.logic.io.AbstractModel;
+import de.uni_passau.visit.compression.logic.io.ObjModel;
+import de.uni_passau.visit.compression.logic.io.ObjReader;
+import de.uni_passau.visit.compression.logic.io.ObjWriter;
+import de.uni_passau.visit.compression.logic.util.OptimizedPriorityQueue;
+
+/**
+ * This benchmark measures the stages of the compression engine on synthetic
+ * meshes (@see SyntheticMeshes) of different sizes. The stages are writing and
+ * reading the mesh as OBJ-file (@see ObjWriter, @see ObjReader), computing the
+ * face quadrics (@see QuadricUtils), a candidate heap workload on @see
+ * OptimizedPriorityQueue and the complete decimation to three compression
+ * levels (@see QuadricEdgeCollapse).
+ * 
+ * Like JMH each stage is run for at least one second for warming up the JIT
+ * compiler, before the measured iterations. Each iteration repeats the stage
+ * for at least 200 ms, so short stages are measured precisely. For each stage
+ * the median throughput, the bytes allocated per item by the benchmark thread
+ * and the peak heap usage (after a full garbage collection before each
+ * iteration, so it includes the mesh itself) are reported.
+ * 
+ * The results can be written to a JSON-file and compared to a baseline written
+ * by an earlier run on the same machine, e.g. bench/baseline/engine.json.
+ * Throughput losses and allocation increases beyond 15 percent are reported as
+ * regressions and let the benchmark exit with status 2.
+ * 
+ * Usage: EngineBenchmark [faces,...] [meshes,...] [warmups] [iterations]
+ * [resultFile] [baselineFile]
+ * 
+ * By default the sphere, the terrain and the textured grid with 10k and 100k
+ * faces are measured. Meshes with up to 10M faces need a correspondingly large
+ * heap (about 8 GB), which can be passed via bench.jvmargs.
+ * 
+ * @author agent
+ *
+ */
+public class EngineBenchmark {
+
+	private static final double REGRESSION_TOLERANCE = 0.15;
+	private static final long MIN_WARMUP_NANOS = 1000000000L;
+	private static final long MIN_ITERATION_NANOS = 200000000L;
+
+	public static void main(String[] args) throws Exception {
+		String[] sizes = (args.length > 0 ? args[0] : "10000,100000").split(",");
+		String[] meshes = (args.length > 1 ? args[1] : "sphere,terrain,texturedGrid").split(",");
+		int warmups = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+		int iterations = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+		String resultFile = args.length > 4 ? args[4] : null;
+		String baselineFile = args.length > 5 ? args[5] : null;
+
+		List<Map<String, Object>> results = new ArrayList<>();
+		File objFile = File.createTempFile("engineBenchmark", ".obj");
+		objFile.deleteOnExit();
+
+		for (String mesh : meshes) {
+			for (String size : sizes) {
+				int requestedFaces = Integer.parseInt(size.trim());
+				ObjModel model = SyntheticMeshes.create(mesh, requestedFaces);
+				int faces = model.getFaces().size();
+				boolean hasTexture = !model.getTextureCoords().isEmpty();
+				System.out.println(String.format("%s with %d faces and %d vertices:", mesh, faces,
+						model.getVertices().size()));
+
+				Measurement measurement = new Measurement(mesh, requestedFaces, faces, warmups, iterations);
+				String objPath = objFile.getAbsolutePath();
+				results.add(measurement.run("objWrite", faces, () -> ObjWriter.write(objPath, model)));
+				results.add(measurement.run("objRead", faces, () -> ObjReader.read(objPath, ".")));
+				results.add(measurement.run("quadrics", faces, () -> computeQuadrics(model, hasTexture)));
+				results.add(measurement.run("priorityQueue", faces, () -> runPriorityQueue(faces)));
+				results.add(measurement.run("decimate", faces, () -> decimate(model)));
+			}
+		}
+
+		Map<String, Object> report = new LinkedHashMap<>();
+		report.put("environment", getEnvironment());
+		report.put("results", results);
+
+		ObjectMapper mapper = new ObjectMapper();
+		if (resultFile != null) {
+			mapper.writerWithDefaultPrettyPrinter().writeValue(new File(resultFile), report);
+			System.out.println("Results written to " + resultFile);
+		}
+
+		if (baselineFile != null && compare(results, mapper.readTree(new File(baselineFile)))) {
+			System.exit(2);
+		}
+	}
+
+	private static void computeQuadrics(AbstractModel model, boolean hasTexture) {
+		double[] sum = new double[hasTexture ? 21 : 10];
+		for (Face face : model.getFaces()) {
+			double[] quadric = hasTexture ? QuadricUtils.computeQuadric5ForFace(face)
+					: QuadricUtils.computeQuadric3ForFace(face);
+			sum = QuadricUtils.sumQuadrics(sum, quadric);
+		}
+	}
+
+	/**
+	 * This method simulates the heap workload of a decimation: Candidates are
+	 * added for roughly every edge, a quarter of them is removed again, since they
+	 * became invalid, and the remaining ones are polled.
+	 * 
+	 * @param faces
+	 *            The count of faces determining the count of candidates
+	 */
+	private static void runPriorityQueue(int faces) {
+		int candidates = faces * 3 / 2;
+		Candidate[] all = new Candidate[candidates];
+		OptimizedPriorityQueue<Candidate> heap = new OptimizedPriorityQueue<>();
+
+		// a multiplicative hash yields reproducible, well spread costs
+		for (int i = 0; i < candidates; ++i) {
+			all[i] = new Candidate(((i * 2654435761L) & 0xffffffffL) / (double) 0x100000000L);
+			heap.add(all[i]);
+		}
+
+		for (int i = 0; i < candidates; i += 4) {
+			heap.remove(all[i]);
+		}
+
+		while (heap.poll() != null) {
+			// drain
+		}
+	}
+
+	private static void decimate(AbstractModel model) throws Exception {
+		int vertices = model.getVertices().size();
+		Integer[] levels = { Math.max(4, vertices / 2), Math.max(4, vertices / 10), Math.max(4, vertices / 100) };
+		QuadricAbstractCompressedModelHandler discard = (AbstractModel compressed, int vertexCount) -> true;
+		new QuadricEdgeCollapse(new QuadricEdgeCollapseDefaultConfig()).compute(model, levels, discard);
+	}
+
+	static Map<String, Object> getEnvironment() {
+		Map<String, Object> environment = new LinkedHashMap<>();
+		environment.put("javaVersion", System.getProperty("java.version"));
+		environment.put("javaVm", System.getProperty("java.vm.name"));
+		environment.put("os", System.getProperty("os.name") + " " + System.getProperty("os.arch"));
+		environment.put("processors", Runtime.getRuntime().availableProcessors());
+		environment.put("maxHeapBytes", Runtime.getRuntime().maxMemory());
+		return environment;
+	}
+
+	/**
+	 * This method compares the given results to the given baseline and prints
+	 * the relative change of each stage contained in both.
+	 * 
+	 * @param results
+	 *            The results of this run
+	 * @param baseline
+	 *            The report of an earlier run
+	 * @return Returns true, if a regression has been detected, otherwise false
+	 */
+	private static boolean compare(List<Map<String, Object>> results, JsonNode baseline) {
+		Map<String, JsonNode> baselineResults = new HashMap<>();
+		for (JsonNode result : baseline.path("results")) {
+			baselineResults.put(getKey(result.path("mesh").asText(), result.path("requestedFaces").asInt(),
+					result.path("stage").asText()), result);
+		}
+
+		boolean regression = false;
+		System.out.println("Comparison to baseline:");
+		for (Map<String, Object> result : results) {
+			String key = getKey((String) result.get("mesh"), (Integer) result.get("requestedFaces"),
+					(String) result.get("stage"));
+			JsonNode reference = baselineResults.get(key);
+			if (reference == null) {
+				continue;
+			}
+
+			double throughput = (Double) result.get("throughput") / reference.path("throughput").asDouble();
+			double allocation = ((Double) result.get("allocatedBytesPerItem") + 1)
+					/ (reference.path("allocatedBytesPerItem").asDouble() + 1);
+			boolean isRegression = throughput < 1 - REGRESSION_TOLERANCE || allocation > 1 + REGRESSION_TOLERANCE;
+			regression |= isRegression;
+			System.out.println(String.format("  %-40s throughput %+6.1f %%, allocation %+6.1f %%%s", key,
+					(throughput - 1) * 100, (allocation - 1) * 100, isRegression ? "  REGRESSION" : ""));
+		}
+
+		return regression;
+	}
+
+	private static String getKey(String mesh, int requestedFaces, String stage) {
+		return mesh + "/" + requestedFaces + "/" + stage;
+	}
+
+	/**
+	 * This interface represents a benchmarked stage.
+	 */
+	private interface Stage {
+		void run() throws Exception;
+	}
+
+	/**
+	 * This class runs the stages for a single mesh and collects their results.
+	 */
+	private static class Measurement {
+		private final String mesh;
+		private final int requestedFaces;
+		private final int faces;
+		private final int warmups;
+		private final int iterations;
+		private final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+
+		private Measurement(String mesh, int requestedFaces, int faces, int warmups, int iterations) {
+			this.mesh = mesh;
+			this.requestedFaces = requestedFaces;
+			this.faces = faces;
+			this.warmups = warmups;
+			this.iterations = iterations;
+		}
+
+		private Map<String, Object> run(String stage, int items, Stage task) throws Exception {
+			long warmupStart = System.nanoTime();
+			for (int i = 0; i < warmups || System.nanoTime() - warmupStart < MIN_WARMUP_NANOS; ++i) {
+				task.run();
+			}
+
+			long[] nanos = new long[iterations];
+			long allocated = 0;
+			long runs = 0;
+			long peakHeap = 0;
+			long threadId = Thread.currentThread().getId();
+
+			for (int i = 0; i < iterations; ++i) {
+				System.gc();
+				resetPeakHeap();
+
+				long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+				long start = System.nanoTime();
+				long elapsed;
+				int repetitions = 0;
+				do {
+					task.run();
+					++repetitions;
+					elapsed = System.nanoTime() - start;
+				} while (elapsed < MIN_ITERATION_NANOS);
+
+				nanos[i] = elapsed / repetitions;
+				allocated += threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+				runs += repetitions;
+				peakHeap = Math.max(peakHeap, getPeakHeap());
+			}
+
+			Arrays.sort(nanos);
+			double medianSeconds = nanos[iterations / 2] / 1E9;
+			double allocatedPerItem = (double) allocated / runs / items;
+
+			Map<String, Object> result = new LinkedHashMap<>();
+			result.put("mesh", mesh);
+			result.put("requestedFaces", requestedFaces);
+			result.put("faces", faces);
+			result.put("stage", stage);
+			result.put("iterations", iterations);
+			result.put("medianMillis", medianSeconds * 1E3);
+			result.put("throughput", items / medianSeconds);
+			result.put("allocatedBytesPerItem", allocatedPerItem);
+			result.put("peakHeapBytes", peakHeap);
+
+			System.out.println(String.format("  %-14s %10.1f ms %14.0f items/s %10.1f B/item %8d MB peak heap",
+					stage, medianSeconds * 1E3, items / medianSeconds, allocatedPerItem, peakHeap >> 20));
+			return result;
+		}
+
+		private static void resetPeakHeap() {
+			for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+				if (pool.getType() == MemoryType.HEAP) {
+					pool.resetPeakUsage();
+				}
+			}
+		}
+
+		private static long getPeakHeap() {
+			long peak = 0;
+			for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+				if (pool.getType() == MemoryType.HEAP) {
+					peak += pool.getPeakUsage().getUsed();
+				}
+			}
+			return peak;
+		}
+	}
+
+	/**
+	 * This class represents a candidate of the priority queue workload, which is
+	 * compared by its cost and identified by its reference like the collapse
+	 * candidates of the decimation.
+	 */
+	private static class Candidate implements Comparable<Candidate> {
+		private final double cost;
+
+		private Candidate(double cost) {
+			this.cost = cost;
+		}
+
+		@Override
+		public int compareTo(Candidate other) {
+			return Double.compare(cost, other.cost);
+		}
+	}
+}
@@ -0,0 +1,259 @@
+package de.uni_passau.visit.compression.bench;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.uni_passau.visit.compression.data.CompressionJob;
+import de.uni_passau.visit.compression.logic.io.ObjModel;
+import de.uni_passau.visit.compression.logic.io.ObjWriter;
+import de.uni_passau.visit.compression.models.CompressionModel;
+
+/**
+ * This class creates the media files and the technical meta data of synthetic
+ * compression jobs within a media file root directory, so that they can be
+ * processed by the @see CompressionModel like uploaded media files. Three kinds
+ * of jobs are available: "obj" (a textured OBJ-model with MTL-file and PNG
+ * texture), "jpeg" and "png" (a photo-like image).
+ * 
+ * Like uploaded files, the OBJ-file and the MTL-file reference the original
+ * names of the MTL-file and the texture, so the references are updated by the
+ * compression system before the model is decimated. The source files of each
+ * kind are created once and copied for each job, since a processed job
+ * modifies its files and adds its compression levels to the same directory.
+ * 
+ * @author agent
+ *
+ */
+public class JobFixtures {
+
+	private static final String UPLOADED_MTL_FILENAME = "upload.mtl";
+	private static final String UPLOADED_TEXTURE_FILENAME = "upload.png";
+	private static final int TEXTURE_SIZE = 2048;
+
+	private final File mediaRoot;
+	private final File sourceDirectory;
+	private final int faces;
+	private final int imageWidth;
+	private final int imageHeight;
+	private final ObjectMapper mapper = new ObjectMapper();
+	private final Map<String, File[]> sources = new LinkedHashMap<>();
+	private int vertexCount;
+
+	/**
+	 * This constructor creates a new fixture generator for the given media file
+	 * root directory.
+	 * 
+	 * @param mediaRoot
+	 *            The media file root directory, which the jobs' directories are
+	 *            created in
+	 * @param faces
+	 *            The approximate count of faces of the OBJ-models
+	 * @param imageWidth
+	 *            The width of the images in pixels, whose height is three
+	 *            quarters of it
+	 */
+	public JobFixtures(File mediaRoot, int faces, int imageWidth) {
+		this.mediaRoot = mediaRoot;
+		this.sourceDirectory = new File(mediaRoot, "sources");
+		this.faces = faces;
+		this.imageWidth = imageWidth;
+		this.imageHeight = imageWidth * 3 / 4;
+	}
+
+	/**
+	 * This method creates the media files of a new job of the given kind and
+	 * returns the job together with its technical meta data.
+	 * 
+	 * @param kind
+	 *            The kind of the job, either "obj", "jpeg" or "png"
+	 * @param objectUid
+	 *            The object UID of the job
+	 * @param mediaUid
+	 *            The media UID of the job without prefix
+	 * @return Returns the created job and the JSON-string of its technical meta
+	 *         data
+	 * @throws IOException
+	 *             if a file could not be written
+	 */
+	public Fixture create(String kind, String objectUid, String mediaUid) throws IOException {
+		File[] files = getSources(kind);
+		String basePath = objectUid;
+		File directory = new File(mediaRoot, basePath);
+		directory.mkdirs();
+
+		String prefix = objectUid + "." + mediaUid + "." + CompressionModel.ORIGINAL_FILE_INDICATOR + ".";
+		String[] paths = new String[files.length];
+		long fileSize = 0;
+		for (int i = 0; i < files.length; ++i) {
+			String filename = prefix + getExtension(files[i]);
+			Files.copy(files[i].toPath(), new File(directory, filename).toPath(), StandardCopyOption.REPLACE_EXISTING);
+			paths[i] = basePath + "/" + filename;
+			fileSize += files[i].length();
+		}
+
+		String mimeType;
+		String[] levels;
+		switch (kind) {
+		case "obj":
+			mimeType = CompressionModel.MIME_TYPE_OBJ;
+			levels = new String[] { String.valueOf(Math.max(4, vertexCount / 2)),
+					String.valueOf(Math.max(4, vertexCount / 10)), String.valueOf(Math.max(4, vertexCount / 100)) };
+			break;
+		case "jpeg":
+			mimeType = "image/jpeg";
+			levels = new String[0];
+			break;
+		default:
+			mimeType = "image/png";
+			levels = new String[0];
+		}
+
+		Map<String, Object> origin = new LinkedHashMap<>();
+		origin.put("uploadDate", String.valueOf(System.currentTimeMillis() / 1000L));
+		origin.put("accessLevel", "public");
+		origin.put("license", "CC BY 4.0");
+		origin.put("fileTypeSpecificMeta", new LinkedHashMap<String, Object>());
+		origin.put("fileSize", fileSize);
+		origin.put("paths", paths);
+
+		Map<String, Object> levelsByIdentifier = new LinkedHashMap<>();
+		levelsByIdentifier.put(CompressionModel.ORIGINAL_FILE_INDICATOR, origin);
+		Map<String, Object> technicalMetadata = new LinkedHashMap<>();
+		technicalMetadata.put("files", levelsByIdentifier);
+
+		CompressionJob job = new CompressionJob(basePath, objectUid, mediaUid, kind + " " + mediaUid, mimeType,
+				levels, 0);
+		return new Fixture(job, mapper.writeValueAsString(technicalMetadata));
+	}
+
+	private File[] getSources(String kind) throws IOException {
+		File[] files = sources.get(kind);
+		if (files == null) {
+			sourceDirectory.mkdirs();
+			switch (kind) {
+			case "obj":
+				files = createModelSources();
+				break;
+			case "jpeg":
+				files = new File[] { createImage("jpg") };
+				break;
+			case "png":
+				files = new File[] { createImage("png") };
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown job kind " + kind);
+			}
+			sources.put(kind, files);
+		}
+		return files;
+	}
+
+	private File[] createModelSources() throws IOException {
+		ObjModel grid = SyntheticMeshes.texturedGrid(faces, 4);
+		ObjModel model = new ObjModel(grid.getVertices(), grid.getNormals(), grid.getTextureCoords(),
+				grid.getFaces(), ObjModel.MTL_DECLARATION_PREFIX + " " + UPLOADED_MTL_FILENAME);
+		vertexCount = model.getVertices().size();
+
+		File obj = new File(sourceDirectory, "model.obj");
+		ObjWriter.write(obj.getAbsolutePath(), model);
+
+		File mtl = new File(sourceDirectory, "model.mtl");
+		try (PrintWriter writer = new PrintWriter(mtl, StandardCharsets.UTF_8.name())) {
+			writer.println("newmtl default");
+			writer.println("Kd 1.0 1.0 1.0");
+			writer.println(ObjModel.MTL_TEXTURE_IMPORT_PREFIX + " " + UPLOADED_TEXTURE_FILENAME);
+		}
+
+		File texture = new File(sourceDirectory, "texture.png");
+		ImageIO.write(createPicture(TEXTURE_SIZE, TEXTURE_SIZE, 17L), "png", texture);
+
+		return new File[] { obj, mtl, texture };
+	}
+
+	private File createImage(String extension) throws IOException {
+		File image = new File(sourceDirectory, "image." + extension);
+		ImageIO.write(createPicture(imageWidth, imageHeight, 42L), "jpg".equals(extension) ? "jpeg" : extension,
+				image);
+		return image;
+	}
+
+	/**
+	 * This method creates a photo-like picture consisting of smooth gradients and
+	 * some noise, so that it neither compresses unrealistically well nor badly.
+	 * 
+	 * @param width
+	 *            The width of the picture
+	 * @param height
+	 *            The height of the picture
+	 * @param seed
+	 *            The seed of the noise
+	 * @return Returns the created picture
+	 */
+	private static BufferedImage createPicture(int width, int height, long seed) {
+		BufferedImage picture = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		Random random = new Random(seed);
+		for (int y = 0; y < height; ++y) {
+			for (int x = 0; x < width; ++x) {
+				double u = (double) x / width;
+				double v = (double) y / height;
+				int r = clamp(128 + 100 * Math.sin(u * 7 + v * 3) + random.nextInt(24) - 12);
+				int g = clamp(128 + 100 * Math.cos(v * 5 - u * 2) + random.nextInt(24) - 12);
+				int b = clamp(96 + 80 * Math.sin((u + v) * 11) + random.nextInt(24) - 12);
+				picture.setRGB(x, y, (r << 16) | (g << 8) | b);
+			}
+		}
+		return picture;
+	}
+
+	private static int clamp(double value) {
+		return Math.max(0, Math.min(255, (int) value));
+	}
+
+	private static String getExtension(File file) {
+		String name = file.getName();
+		return name.substring(name.lastIndexOf('.') + 1);
+	}
+
+	/**
+	 * This class represents a created job together with its technical meta data.
+	 */
+	public static class Fixture {
+		private final CompressionJob job;
+		private final String technicalMetadata;
+
+		private Fixture(CompressionJob job, String technicalMetadata) {
+			this.job = job;
+			this.technicalMetadata = technicalMetadata;
+		}
+
+		/**
+		 * This method returns the created job.
+		 * 
+		 * @return Returns the job
+		 */
+		public CompressionJob getJob() {
+			return job;
+		}
+
+		/**
+		 * This method returns the technical meta data of the created job.
+		 * 
+		 * @return Returns the JSON-string of the technical meta data
+		 */
+		public String getTechnicalMetadata() {
+			return technicalMetadata;
+		}
+	}
+}
@@ -0,0 +1,185 @@
+package de.uni_passau.visit.compression.bench;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.IOUtils;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * This class represents an in-process stand-in for the REST-API of the MetaDB,
+ * which the compression system fetches the technical meta data from and sends
+ * the updated technical meta data to (@see TechnicalMetadataCommunicator). The
+ * technical meta data are kept in memory per media UID. A media UID, whose meta
+ * data haven't been registered, is answered with status 404 like the MetaDB
+ * does.
+ * 
+ * The stand-in listens on an ephemeral port of the loopback interface. An
+ * artificial latency can be added to each request to simulate the round trip
+ * to the remote MetaDB.
+ * 
+ * @author agent
+ *
+ */
+public class MetaDbStub {
+
+	private static final String ENDPOINT_PATH = "/metadb-rest-api/digrep/media";
+	private static final String MEDIA_ID_PARAM = "id";
+
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final long latencyMillis;
+	private final Map<String, String> technicalMetadata = new ConcurrentHashMap<>();
+	private final AtomicInteger fetchCount = new AtomicInteger();
+	private final AtomicInteger updateCount = new AtomicInteger();
+
+	/**
+	 * This constructor creates and starts a new MetaDB stand-in.
+	 * 
+	 * @param latencyMillis
+	 *            The artificial latency added to each request in milliseconds
+	 * @throws IOException
+	 *             if the server socket could not be bound
+	 */
+	public MetaDbStub(long latencyMillis) throws IOException {
+		this.latencyMillis = latencyMillis;
+		this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		this.executor = Executors.newCachedThreadPool();
+		server.createContext(ENDPOINT_PATH, this::handle);
+		server.setExecutor(executor);
+		server.start();
+	}
+
+	/**
+	 * This method returns the URL of the endpoint of this stand-in, which has to
+	 * be configured as fetch and send URL of the MetaDB-API.
+	 * 
+	 * @return Returns the URL of the endpoint
+	 */
+	public String getEndpointUrl() {
+		return "http://127.0.0.1:" + server.getAddress().getPort() + ENDPOINT_PATH;
+	}
+
+	/**
+	 * This method registers the given technical meta data for the given media
+	 * UID, which has to include the configured prefix.
+	 * 
+	 * @param mediaUid
+	 *            The full media UID
+	 * @param json
+	 *            The technical meta data as JSON-string
+	 */
+	public void putTechnicalMetadata(String mediaUid, String json) {
+		technicalMetadata.put(mediaUid, json);
+	}
+
+	/**
+	 * This method returns the technical meta data currently stored for the given
+	 * media UID.
+	 * 
+	 * @param mediaUid
+	 *            The full media UID
+	 * @return Returns the technical meta data as JSON-string or null, if none are
+	 *         stored
+	 */
+	public String getTechnicalMetadata(String mediaUid) {
+		return technicalMetadata.get(mediaUid);
+	}
+
+	/**
+	 * This method returns the count of requests fetching technical meta data.
+	 * 
+	 * @return Returns the count of GET-requests
+	 */
+	public int getFetchCount() {
+		return fetchCount.get();
+	}
+
+	/**
+	 * This method returns the count of requests updating technical meta data.
+	 * 
+	 * @return Returns the count of PUT-requests
+	 */
+	public int getUpdateCount() {
+		return updateCount.get();
+	}
+
+	/**
+	 * This method stops this stand-in.
+	 */
+	public void stop() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+	private void handle(HttpExchange he) throws IOException {
+		try {
+			if (latencyMillis > 0) {
+				Thread.sleep(latencyMillis);
+			}
+
+			String mediaUid = getMediaUid(he.getRequestURI().getRawQuery());
+			switch (he.getRequestMethod().toUpperCase()) {
+			case "GET":
+				fetchCount.incrementAndGet();
+				String json = mediaUid == null ? null : technicalMetadata.get(mediaUid);
+				if (json == null) {
+					respond(he, 404, "{\"error\":\"not found\"}");
+				} else {
+					respond(he, 200, json);
+				}
+				break;
+			case "PUT":
+				updateCount.incrementAndGet();
+				try (InputStream in = he.getRequestBody()) {
+					String body = IOUtils.toString(in, StandardCharsets.UTF_8);
+					if (mediaUid == null) {
+						respond(he, 400, "{\"error\":\"missing id\"}");
+					} else {
+						technicalMetadata.put(mediaUid, body);
+						respond(he, 200, "{}");
+					}
+				}
+				break;
+			default:
+				respond(he, 405, "{}");
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		} finally {
+			he.close();
+		}
+	}
+
+	private static String getMediaUid(String query) throws IOException {
+		if (query == null) {
+			return null;
+		}
+
+		for (String parameter : query.split("&")) {
+			int separator = parameter.indexOf('=');
+			if (separator > 0 && parameter.substring(0, separator).equals(MEDIA_ID_PARAM)) {
+				return URLDecoder.decode(parameter.substring(separator + 1), "UTF-8");
+			}
+		}
+
+		return null;
+	}
+
+	private static void respond(HttpExchange he, int status, String body) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		he.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		he.sendResponseHeaders(status, bytes.length);
+		he.getResponseBody().write(bytes);
+	}
+}
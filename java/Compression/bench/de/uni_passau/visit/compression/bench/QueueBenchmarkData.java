@@ -0,0 +1,93 @@
+package de.uni_passau.visit.compression.bench;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.util.Arrays;
+
+/**
+ * This class offers static helper methods shared by the job queue benchmarks
+ * for generating synthetic queue contents and for reporting latencies.
+ * 
+ * @author agent
+ *
+ */
+public class QueueBenchmarkData {
+
+	private static final int INSERT_BATCH_SIZE = 10000;
+
+	/**
+	 * This static method fills the job queue database at the given path with
+	 * synthetic jobs. The database structure has to be set up already, e.g. by
+	 * creating a @see QueueModel for it. Half of the jobs are 3D-model jobs and
+	 * each job has two compression levels.
+	 * 
+	 * @param dbFile
+	 *            The job queue database file
+	 * @param archivedJobs
+	 *            The count of finished jobs that shall be inserted
+	 * @param pendingJobs
+	 *            The count of pending jobs that shall be inserted
+	 * @throws Exception
+	 *             if the database could not be filled
+	 */
+	public static void fill(File dbFile, int archivedJobs, int pendingJobs) throws Exception {
+		try (Connection con = DriverManager.getConnection("jdbc:sqlite:" + dbFile.getAbsolutePath())) {
+			con.setAutoCommit(false);
+			PreparedStatement s1 = con.prepareStatement(
+					"INSERT INTO jobs (id, state, receivedOn, lastStateChange, basePath, objectUid, mediaUid, fileTitle, mimeType, schedulingKey) VALUES (?, ?, ?, ?, '', ?, ?, ?, ?, ?)");
+			PreparedStatement s2 = con
+					.prepareStatement("INSERT INTO jobCompressionLevels (jobId, compressionLevel) VALUES (?, ?)");
+
+			int total = archivedJobs + pendingJobs;
+			for (int id = 1; id <= total; ++id) {
+				boolean pending = id > archivedJobs;
+				s1.setInt(1, id);
+				s1.setInt(2, pending ? 0 : 2 + id % 2);
+				s1.setLong(3, id);
+				s1.setLong(4, id);
+				s1.setString(5, "object" + id);
+				s1.setString(6, "media" + id);
+				s1.setString(7, "Job " + id);
+				s1.setString(8, id % 2 == 0 ? "text/plain" : "image/jpeg");
+				s1.setDouble(9, id);
+				s1.addBatch();
+
+				s2.setInt(1, id);
+				s2.setString(2, "thumbnail");
+				s2.addBatch();
+				s2.setInt(1, id);
+				s2.setString(2, "medium");
+				s2.addBatch();
+
+				if (id % INSERT_BATCH_SIZE == 0 || id == total) {
+					s1.executeBatch();
+					s2.executeBatch();
+				}
+			}
+
+			con.commit();
+		}
+	}
+
+	/**
+	 * This static method prints the percentiles of the given latencies.
+	 * 
+	 * @param label
+	 *            The label printed in front of the percentiles
+	 * @param nanos
+	 *            The measured latencies in nanoseconds, which will be sorted
+	 */
+	public static void printLatencies(String label, long[] nanos) {
+		Arrays.sort(nanos);
+		System.out.println(String.format("%s: p50 %.3f ms, p95 %.3f ms, p99 %.3f ms, max %.3f ms", label,
+				percentile(nanos, 0.5), percentile(nanos, 0.95), percentile(nanos, 0.99),
+				nanos[nanos.length - 1] / 1E6));
+	}
+
+	private static double percentile(long[] sortedNanos, double p) {
+		int index = (int) Math.min(sortedNanos.length - 1, Math.round(p * (sortedNanos.length - 1)));
+		return sortedNanos[index] / 1E6;
+	}
+}
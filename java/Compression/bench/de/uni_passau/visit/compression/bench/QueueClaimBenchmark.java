@@ -0,0 +1,68 @@
+package de.uni_passau.visit.compression.bench;
+
+import java.io.File;
+
+import de.uni_passau.visit.compression.data.QueueEntry;
+import de.uni_passau.visit.compression.models.ConfigModel;
+import de.uni_passau.visit.compression.models.QueueModel;
+
+/**
+ * This benchmark measures the latency of claiming the next pending job from a
+ * job queue database containing a large number of archived jobs. The database
+ * is created in a temporary file and filled directly via JDBC, before the
+ * queue is reopened and the claims are executed through @see QueueModel.
+ * 
+ * Usage: QueueClaimBenchmark [archivedJobs] [pendingJobs] [claims]
+ * 
+ * The SQLite JDBC driver has to be on the classpath.
+ * 
+ * @author agent
+ *
+ */
+public class QueueClaimBenchmark {
+
+	private static final String[] MODEL_MIME_TYPES = new String[] { "text/plain" };
+
+	public static void main(String[] args) throws Exception {
+		int archivedJobs = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		int pendingJobs = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+		int claims = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+
+		File dbFile = File.createTempFile("jobQueueBenchmark", ".db");
+		dbFile.deleteOnExit();
+
+		QueueModel queue = new QueueModel(new ConfigModel(), dbFile.getAbsolutePath());
+
+		long fillStart = System.nanoTime();
+		QueueBenchmarkData.fill(dbFile, archivedJobs, pendingJobs);
+		System.out.println(String.format("Inserted %d archived and %d pending jobs in %.1f s", archivedJobs,
+				pendingJobs, (System.nanoTime() - fillStart) / 1E9));
+
+		// the queue is reopened, so its in-memory index is rebuilt from the filled database
+		queue.close();
+		long loadStart = System.nanoTime();
+		queue = new QueueModel(new ConfigModel(), dbFile.getAbsolutePath());
+		System.out.println(String.format("Loaded queue in %.1f ms", (System.nanoTime() - loadStart) / 1E6));
+
+		// warm up
+		for (int i = 0; i < Math.min(100, claims); ++i) {
+			queue.claimNextEnqueuedJob(MODEL_MIME_TYPES, i % 2 == 0);
+		}
+
+		long[] latencies = new long[claims];
+		int claimed = 0;
+		for (int i = 0; i < claims; ++i) {
+			long start = System.nanoTime();
+			QueueEntry entry = queue.claimNextEnqueuedJob(MODEL_MIME_TYPES, i % 2 == 0);
+			latencies[i] = System.nanoTime() - start;
+
+			if (entry != null) {
+				claimed++;
+			}
+		}
+
+		QueueBenchmarkData.printLatencies("Claimed " + claimed + " of " + claims + " jobs", latencies);
+
+		queue.close();
+	}
+}
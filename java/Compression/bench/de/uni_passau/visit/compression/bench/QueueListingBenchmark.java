@@ -0,0 +1,87 @@
+package de.uni_passau.visit.compression.bench;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import de.uni_passau.visit.compression.data.QueueEntry;
+import de.uni_passau.visit.compression.models.ConfigModel;
+import de.uni_passau.visit.compression.models.QueueModel;
+
+/**
+ * This benchmark measures the latency of the dashboard listings, i.e. the
+ * listing of all unfinished jobs and the paging through the archive, for job
+ * queue databases of different sizes.
+ * 
+ * Usage: QueueListingBenchmark [unfinishedJobs] [iterations] [totalJobs...]
+ * 
+ * By default queues with 10k and 1M jobs are measured. The SQLite JDBC driver
+ * has to be on the classpath.
+ * 
+ * @author agent
+ *
+ */
+public class QueueListingBenchmark {
+
+	private static final int ARCHIVE_PAGE_SIZE = 50;
+
+	public static void main(String[] args) throws Exception {
+		int unfinishedJobs = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+		int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+		List<Integer> totals = new ArrayList<>();
+		for (int i = 2; i < args.length; ++i) {
+			totals.add(Integer.parseInt(args[i]));
+		}
+		if (totals.isEmpty()) {
+			totals.add(10000);
+			totals.add(1000000);
+		}
+
+		for (int total : totals) {
+			run(Math.max(0, total - unfinishedJobs), Math.min(total, unfinishedJobs), iterations);
+		}
+	}
+
+	private static void run(int archivedJobs, int unfinishedJobs, int iterations) throws Exception {
+		File dbFile = File.createTempFile("jobQueueBenchmark", ".db");
+		dbFile.deleteOnExit();
+
+		QueueModel queue = new QueueModel(new ConfigModel(), dbFile.getAbsolutePath());
+		QueueBenchmarkData.fill(dbFile, archivedJobs, unfinishedJobs);
+		queue.close();
+		queue = new QueueModel(new ConfigModel(), dbFile.getAbsolutePath());
+		System.out.println(String.format("Queue with %d archived and %d unfinished jobs:", archivedJobs,
+				unfinishedJobs));
+
+		long[] unfinished = new long[iterations];
+		long[] firstPage = new long[iterations];
+		long[] deepPage = new long[iterations];
+
+		for (int i = 0; i < iterations; ++i) {
+			long start = System.nanoTime();
+			queue.getAllUnfinishedJobs();
+			unfinished[i] = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			Collection<QueueEntry> page = queue.getProcessedJobs(ARCHIVE_PAGE_SIZE);
+			firstPage[i] = System.nanoTime() - start;
+
+			// continue from the middle of the archive
+			int middle = Math.max(1, archivedJobs / 2);
+			start = System.nanoTime();
+			page = queue.getProcessedJobsBefore(ARCHIVE_PAGE_SIZE, middle, middle);
+			deepPage[i] = System.nanoTime() - start;
+
+			if (page.isEmpty() && archivedJobs > 1) {
+				throw new IllegalStateException("Archive page unexpectedly empty.");
+			}
+		}
+
+		QueueBenchmarkData.printLatencies("  all unfinished jobs", unfinished);
+		QueueBenchmarkData.printLatencies("  first archive page", firstPage);
+		QueueBenchmarkData.printLatencies("  archive page in the middle", deepPage);
+
+		queue.close();
+	}
+}
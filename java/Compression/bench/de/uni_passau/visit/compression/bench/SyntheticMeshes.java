@@ -0,0 +1,249 @@
+package de.uni_passau.visit.compression.bench;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import de.uni_passau.visit.compression.logic.data.Face;
+import de.uni_passau.visit.compression.logic.data.Normal;
+import de.uni_passau.visit.compression.logic.data.TextureCoords;
+import de.uni_passau.visit.compression.logic.data.Vertex;
+import de.uni_passau.visit.compression.logic.io.ObjModel;
+
+/**
+ * This class offers static generators of synthetic triangle meshes used by the
+ * engine benchmarks. The generators are deterministic, so repeated runs and
+ * different machines benchmark exactly the same meshes. The face count of a
+ * generated mesh is close to, but not necessarily equal to the requested one.
+ *
+ * Three kinds of meshes are available: a closed sphere subdivided uniformly,
+ * an open terrain with noisy heights and a textured grid, whose texture atlas
+ * consists of several charts, so the vertices on the chart borders are
+ * texture seams.
+ *
+ * @author agent
+ *
+ */
+public class SyntheticMeshes {
+
+	private static final String MATERIAL = "default";
+	private static final String[] NO_ADDITIONALS = new String[0];
+
+	/**
+	 * This static method creates the mesh of the given kind.
+	 *
+	 * @param kind
+	 *            The kind of the mesh, either "sphere", "terrain" or "texturedGrid"
+	 * @param faces
+	 *            The approximate count of faces of the mesh
+	 * @return Returns the generated mesh
+	 */
+	public static ObjModel create(String kind, int faces) {
+		switch (kind) {
+		case "sphere":
+			return sphere(faces);
+		case "terrain":
+			return terrain(faces, 4711L);
+		case "texturedGrid":
+			return texturedGrid(faces, 4);
+		default:
+			throw new IllegalArgumentException("Unknown mesh kind " + kind);
+		}
+	}
+
+	/**
+	 * This static method creates a closed sphere, whose surface is created by
+	 * subdividing each side of a cube into a regular grid and projecting the grid
+	 * points onto the unit sphere. The vertices on the cube's edges are shared by
+	 * the adjacent sides, so the mesh is manifold.
+	 *
+	 * @param faces
+	 *            The approximate count of faces of the sphere
+	 * @return Returns the generated sphere without texture coordinates
+	 */
+	public static ObjModel sphere(int faces) {
+		int n = Math.max(1, (int) Math.round(Math.sqrt(faces / 12.0)));
+		ArrayList<Vertex> vertices = new ArrayList<>();
+		ArrayList<Face> faceList = new ArrayList<>();
+		Map<Long, Vertex> lattice = new HashMap<>();
+
+		// each side is given by the axis it's orthogonal to and its direction
+		for (int axis = 0; axis < 3; ++axis) {
+			for (int sign = -1; sign <= 1; sign += 2) {
+				Vertex[][] grid = new Vertex[n + 1][n + 1];
+				for (int i = 0; i <= n; ++i) {
+					for (int j = 0; j <= n; ++j) {
+						int[] point = new int[3];
+						point[axis] = sign * n;
+						point[(axis + 1) % 3] = 2 * i - n;
+						point[(axis + 2) % 3] = 2 * j - n;
+						grid[i][j] = getLatticeVertex(lattice, vertices, point, n);
+					}
+				}
+
+				for (int i = 0; i < n; ++i) {
+					for (int j = 0; j < n; ++j) {
+						// keep the faces oriented outwards on both sides of an axis
+						if (sign > 0) {
+							addFace(faceList, grid[i][j], grid[i + 1][j], grid[i + 1][j + 1], null);
+							addFace(faceList, grid[i][j], grid[i + 1][j + 1], grid[i][j + 1], null);
+						} else {
+							addFace(faceList, grid[i][j], grid[i + 1][j + 1], grid[i + 1][j], null);
+							addFace(faceList, grid[i][j], grid[i][j + 1], grid[i + 1][j + 1], null);
+						}
+					}
+				}
+			}
+		}
+
+		return new ObjModel(vertices, new ArrayList<Normal>(), new ArrayList<TextureCoords>(), faceList, "");
+	}
+
+	private static Vertex getLatticeVertex(Map<Long, Vertex> lattice, ArrayList<Vertex> vertices, int[] point,
+			int n) {
+		long size = 2L * n + 1;
+		long key = ((point[0] + n) * size + (point[1] + n)) * size + (point[2] + n);
+		Vertex vertex = lattice.get(key);
+		if (vertex == null) {
+			double length = Math.sqrt(
+					(double) point[0] * point[0] + (double) point[1] * point[1] + (double) point[2] * point[2]);
+			vertex = new Vertex(vertices.size(),
+					new double[] { point[0] / length, point[1] / length, point[2] / length }, NO_ADDITIONALS);
+			vertices.add(vertex);
+			lattice.put(key, vertex);
+		}
+		return vertex;
+	}
+
+	/**
+	 * This static method creates an open terrain, whose heights are given by
+	 * value noise of several octaves using random values of the given seed.
+	 *
+	 * @param faces
+	 *            The approximate count of faces of the terrain
+	 * @param seed
+	 *            The seed of the random heights
+	 * @return Returns the generated terrain without texture coordinates
+	 */
+	public static ObjModel terrain(int faces, long seed) {
+		int n = Math.max(1, (int) Math.round(Math.sqrt(faces / 2.0)));
+		Random random = new Random(seed);
+		int octaves = 5;
+		double[][][] noise = new double[octaves][][];
+		for (int o = 0; o < octaves; ++o) {
+			int cells = 4 << o;
+			noise[o] = new double[cells + 1][cells + 1];
+			for (int i = 0; i <= cells; ++i) {
+				for (int j = 0; j <= cells; ++j) {
+					noise[o][i][j] = random.nextDouble();
+				}
+			}
+		}
+
+		ArrayList<Vertex> vertices = new ArrayList<>();
+		Vertex[][] grid = new Vertex[n + 1][n + 1];
+		for (int i = 0; i <= n; ++i) {
+			for (int j = 0; j <= n; ++j) {
+				double x = (double) i / n;
+				double y = (double) j / n;
+				double height = 0;
+				for (int o = 0; o < octaves; ++o) {
+					height += interpolate(noise[o], x, y) / (1 << o);
+				}
+
+				// some jitter on the finest scale avoids perfectly planar regions
+				height += (random.nextDouble() - 0.5) * 0.002;
+				grid[i][j] = new Vertex(vertices.size(), new double[] { x, y, height * 0.25 }, NO_ADDITIONALS);
+				vertices.add(grid[i][j]);
+			}
+		}
+
+		ArrayList<Face> faceList = new ArrayList<>();
+		for (int i = 0; i < n; ++i) {
+			for (int j = 0; j < n; ++j) {
+				addFace(faceList, grid[i][j], grid[i + 1][j], grid[i + 1][j + 1], null);
+				addFace(faceList, grid[i][j], grid[i + 1][j + 1], grid[i][j + 1], null);
+			}
+		}
+
+		return new ObjModel(vertices, new ArrayList<Normal>(), new ArrayList<TextureCoords>(), faceList, "");
+	}
+
+	private static double interpolate(double[][] noise, double x, double y) {
+		int cells = noise.length - 1;
+		double gx = x * cells;
+		double gy = y * cells;
+		int i = Math.min((int) gx, cells - 1);
+		int j = Math.min((int) gy, cells - 1);
+		double fx = gx - i;
+		double fy = gy - j;
+		double a = noise[i][j] * (1 - fx) + noise[i + 1][j] * fx;
+		double b = noise[i][j + 1] * (1 - fx) + noise[i + 1][j + 1] * fx;
+		return a * (1 - fy) + b * fy;
+	}
+
+	/**
+	 * This static method creates a gently curved grid with texture coordinates.
+	 * The grid is divided into the given count of charts per direction, which are
+	 * placed apart from each other in the texture atlas. Hence each vertex on the
+	 * border between two charts has a separate texture coordinate per chart.
+	 *
+	 * @param faces
+	 *            The approximate count of faces of the grid
+	 * @param charts
+	 *            The count of charts per direction
+	 * @return Returns the generated grid with texture coordinates
+	 */
+	public static ObjModel texturedGrid(int faces, int charts) {
+		int n = Math.max(charts, (int) Math.round(Math.sqrt(faces / 2.0)) / charts * charts);
+		int chartSize = n / charts;
+
+		ArrayList<Vertex> vertices = new ArrayList<>();
+		Vertex[][] grid = new Vertex[n + 1][n + 1];
+		for (int i = 0; i <= n; ++i) {
+			for (int j = 0; j <= n; ++j) {
+				double x = (double) i / n;
+				double y = (double) j / n;
+				double height = 0.05 * Math.sin(x * 2 * Math.PI) * Math.cos(y * 3 * Math.PI);
+				grid[i][j] = new Vertex(vertices.size(), new double[] { x, y, height }, NO_ADDITIONALS);
+				vertices.add(grid[i][j]);
+			}
+		}
+
+		// each chart occupies its own cell of the atlas with a margin of 10 percent
+		ArrayList<TextureCoords> textureCoords = new ArrayList<>();
+		ArrayList<Face> faceList = new ArrayList<>();
+		double cellSize = 1.0 / charts;
+		for (int ci = 0; ci < charts; ++ci) {
+			for (int cj = 0; cj < charts; ++cj) {
+				TextureCoords[][] chart = new TextureCoords[chartSize + 1][chartSize + 1];
+				for (int i = 0; i <= chartSize; ++i) {
+					for (int j = 0; j <= chartSize; ++j) {
+						double u = (ci + 0.1 + 0.8 * i / chartSize) * cellSize;
+						double v = (cj + 0.1 + 0.8 * j / chartSize) * cellSize;
+						chart[i][j] = new TextureCoords(textureCoords.size(), u, v);
+						textureCoords.add(chart[i][j]);
+					}
+				}
+
+				for (int i = 0; i < chartSize; ++i) {
+					for (int j = 0; j < chartSize; ++j) {
+						int gi = ci * chartSize + i;
+						int gj = cj * chartSize + j;
+						addFace(faceList, grid[gi][gj], grid[gi + 1][gj], grid[gi + 1][gj + 1],
+								new TextureCoords[] { chart[i][j], chart[i + 1][j], chart[i + 1][j + 1] });
+						addFace(faceList, grid[gi][gj], grid[gi + 1][gj + 1], grid[gi][gj + 1],
+								new TextureCoords[] { chart[i][j], chart[i + 1][j + 1], chart[i][j + 1] });
+					}
+				}
+			}
+		}
+
+		return new ObjModel(vertices, new ArrayList<Normal>(), textureCoords, faceList, "");
+	}
+
+	private static void addFace(ArrayList<Face> faces, Vertex a, Vertex b, Vertex c, TextureCoords[] textureCoords) {
+		faces.add(new Face(faces.size(), new Vertex[] { a, b, c }, null, textureCoords, new String[1], MATERIAL));
+	}
+}
@@ -10,8 +10,9 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 /**
  * This class represents a compression job that can be sent to the compression
  * system. It consists of the file's the base path, the object-UID, the media-
- * UID and MIME-type as well as an arbitrary title and the desired levels of
- * compression in case of 3D-models. All properties are read-only.
+ * UID and MIME-type as well as an arbitrary title, the desired levels of
+ * compression in case of 3D-models and an optional scheduling priority. All
+ * properties are read-only.
  * 
  * The class implements the Serializable-interface enabling easy object
  * serialization and contains Jackson-annotations for the conversion of
@@ -26,6 +27,7 @@ public class CompressionJob implements Serializable {
 
 	private final String basePath, objectUid, mediaUid, title, mimeType;
 	private final String[] levels;
+	private final int priority;
 
 	/**
 	 * This constructor initializes all object fields with the given arguments.
@@ -46,11 +48,16 @@ public class CompressionJob implements Serializable {
 	 * @param levels
 	 *            An array containing the identifiers for all desired compression
 	 *            levels.
+	 * @param priority
+	 *            The scheduling priority of the job. Jobs with a higher priority
+	 *            are preferred, the default priority is 0. If null, the default
+	 *            priority will be used.
 	 */
 	@JsonCreator
 	public CompressionJob(@JsonProperty("basePath") String basePath, @JsonProperty("objectUid") String objectUid,
 			@JsonProperty("mediaUid") String mediaUid, @JsonProperty("title") String title,
-			@JsonProperty("mimeType") String mimeType, @JsonProperty("levels") String[] levels) {
+			@JsonProperty("mimeType") String mimeType, @JsonProperty("levels") String[] levels,
+			@JsonProperty("priority") Integer priority) {
 		super();
 		this.basePath = basePath;
 		this.objectUid = objectUid;
@@ -58,6 +65,7 @@ public class CompressionJob implements Serializable {
 		this.title = title;
 		this.mimeType = mimeType;
 		this.levels = levels;
+		this.priority = priority == null ? 0 : priority;
 	}
 
 	/**
@@ -135,6 +143,16 @@ public class CompressionJob implements Serializable {
 		return levels;
 	}
 
+	/**
+	 * This method returns the scheduling priority of this compression job.
+	 * 
+	 * @return Returns the scheduling priority of this compression job, which is 0
+	 *         by default
+	 */
+	public int getPriority() {
+		return priority;
+	}
+
 	/**
 	 * This method returns String representation of the object containing all
 	 * arguments given to the constructor.
@@ -144,6 +162,7 @@ public class CompressionJob implements Serializable {
 	@Override
 	public String toString() {
 		return "CompressionJob [basePath=" + basePath + ", objectUid=" + objectUid + ", mediaUid=" + mediaUid
-				+ ", title=" + title + ", mimeType=" + mimeType + ", levels=" + Arrays.toString(levels) + "]";
+				+ ", title=" + title + ", mimeType=" + mimeType + ", levels=" + Arrays.toString(levels) + ", priority="
+				+ priority + "]";
 	}
 }
@@ -0,0 +1,20 @@
+package de.uni_passau.visit.compression.data;
+
+/**
+ * This enumeration represents the phase of a compression job, which is being
+ * processed. The different options are
+ * 
+ * - WAITING (the job waits for heap budget to become available),
+ * - METADATA (the technical meta data are retrieved or updated),
+ * - READ (the original model is read),
+ * - INIT (the data structures of the decimation are initialized),
+ * - DECIMATE (the model is decimated),
+ * - WRITE (a compression level is written) and
+ * - TEXTURES (the textures of the compression levels are created).
+ * 
+ * @author agent
+ *
+ */
+public enum JobPhase {
+	WAITING, METADATA, READ, INIT, DECIMATE, WRITE, TEXTURES
+}
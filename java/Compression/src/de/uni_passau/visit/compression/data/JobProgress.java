@@ -0,0 +1,150 @@
+package de.uni_passau.visit.compression.data;
+
+import java.io.Serializable;
+
+/**
+ * This class represents the progress of a compression job, which is being
+ * processed. It is updated by the worker processing the job and can be read
+ * concurrently by any other thread, e.g. for the job listings of the API.
+ * 
+ * The progress is lock-free: All fields are volatile and written by the
+ * processing worker only, so updates from the decimation loop cost no more than
+ * a few memory writes. Since the fields are read independently, a reader may
+ * see the progress in a slightly inconsistent state, which is harmless for
+ * reporting purposes.
+ * 
+ * The class implements the Serializable-interface enabling easy object
+ * serialization. Since @see JobProgress instances are only created at server
+ * side, no Jackson annotations for the conversion of json strings to this
+ * class' instances are necessary.
+ * 
+ * @author agent
+ *
+ */
+public class JobProgress implements Serializable {
+
+	private static final long serialVersionUID = -6129837501648927262L;
+
+	private volatile JobPhase phase = JobPhase.METADATA;
+	private volatile String level = null;
+	private volatile int vertexCount = -1;
+	private volatile int targetVertexCount = -1;
+	private volatile int decimationStartVertexCount = -1;
+	private volatile long decimationStartNanos = 0;
+
+	/**
+	 * This method sets the current phase of the job.
+	 * 
+	 * @param phase
+	 *            The current phase
+	 */
+	public void setPhase(JobPhase phase) {
+		this.phase = phase;
+	}
+
+	/**
+	 * This method sets the compression level, which is currently being created.
+	 * 
+	 * @param level
+	 *            The title of the current compression level
+	 */
+	public void setLevel(String level) {
+		this.level = level;
+	}
+
+	/**
+	 * This method marks the start of the decimation of a model and switches to
+	 * the decimation phase. The decimation rate and the remaining time are
+	 * computed relative to this moment.
+	 * 
+	 * @param vertexCount
+	 *            The vertex count of the model at the start of the decimation
+	 * @param targetVertexCount
+	 *            The vertex count of the smallest compression level
+	 */
+	public void startDecimation(int vertexCount, int targetVertexCount) {
+		this.decimationStartNanos = System.nanoTime();
+		this.decimationStartVertexCount = vertexCount;
+		this.targetVertexCount = targetVertexCount;
+		this.vertexCount = vertexCount;
+		this.phase = JobPhase.DECIMATE;
+	}
+
+	/**
+	 * This method updates the current vertex count of the model being decimated.
+	 * 
+	 * @param vertexCount
+	 *            The current vertex count
+	 */
+	public void setVertexCount(int vertexCount) {
+		this.vertexCount = vertexCount;
+	}
+
+	/**
+	 * This method returns the current phase of the job.
+	 * 
+	 * @return Returns the current phase
+	 */
+	public JobPhase getPhase() {
+		return phase;
+	}
+
+	/**
+	 * This method returns the title of the compression level, which is currently
+	 * being created.
+	 * 
+	 * @return Returns the title of the current compression level or null, if no
+	 *         level is being created
+	 */
+	public String getLevel() {
+		return level;
+	}
+
+	/**
+	 * This method returns the count of vertices, which remain to be removed until
+	 * the smallest compression level has been reached.
+	 * 
+	 * @return Returns the count of remaining vertices or -1, if the decimation
+	 *         hasn't been started
+	 */
+	public int getVerticesRemaining() {
+		int current = vertexCount;
+		return current < 0 ? -1 : Math.max(0, current - targetVertexCount);
+	}
+
+	/**
+	 * This method returns the average count of edge collapses per second since
+	 * the start of the decimation. Each edge collapse removes one vertex.
+	 * 
+	 * @return Returns the decimation rate or 0, if the decimation hasn't been
+	 *         started
+	 */
+	public double getCollapsesPerSecond() {
+		long start = decimationStartNanos;
+		int collapses = decimationStartVertexCount - vertexCount;
+		long elapsed = System.nanoTime() - start;
+		if (start == 0 || collapses <= 0 || elapsed <= 0) {
+			return 0;
+		}
+
+		return collapses * 1E9 / elapsed;
+	}
+
+	/**
+	 * This method returns the estimated time until the decimation has been
+	 * finished based on the decimation rate so far. The time needed for writing
+	 * the compression levels and creating their textures isn't included.
+	 * 
+	 * @return Returns the estimated remaining time in seconds or -1, if no
+	 *         estimate is available yet
+	 */
+	public long getEtaSeconds() {
+		double rate = getCollapsesPerSecond();
+		int remaining = getVerticesRemaining();
+		if (rate <= 0 || remaining < 0) {
+			return -1;
+		}
+
+		return Math.round(remaining / rate);
+	}
+}
@@ -0,0 +1,39 @@
+package de.uni_passau.visit.compression.data;
+
+/**
+ * This enumeration represents a step of the procession of a compression job,
+ * whose duration is measured. The different options are
+ * 
+ * - OBJ_PARSE (the original OBJ-file is read),
+ * - QUADRIC_INIT (the vertices, faces and quadrics are initialized),
+ * - CANDIDATE_BUILD (the boundary and the valid pairs are computed),
+ * - DECIMATION (the model is decimated, excluding the level writes),
+ * - LEVEL_WRITE (a single compression level is written),
+ * - TEXTURE_RESIZE (the textures of the compression levels are created),
+ * - IMAGE_COMPRESSION (the levels of an image are created),
+ * - METADATA_GET (the technical meta data are retrieved) and
+ * - METADATA_PUT (the technical meta data are updated).
+ * 
+ * @author agent
+ *
+ */
+public enum ProcessingStep {
+	OBJ_PARSE("obj_parse"), QUADRIC_INIT("quadric_init"), CANDIDATE_BUILD("candidate_build"), DECIMATION(
+			"decimation"), LEVEL_WRITE("level_write"), TEXTURE_RESIZE("texture_resize"), IMAGE_COMPRESSION(
+					"image_compression"), METADATA_GET("metadata_get"), METADATA_PUT("metadata_put");
+
+	private final String label;
+
+	private ProcessingStep(String label) {
+		this.label = label;
+	}
+
+	/**
+	 * This method returns the label identifying this step in exported metrics.
+	 * 
+	 * @return Returns the label of this step
+	 */
+	public String getLabel() {
+		return label;
+	}
+}
@@ -6,8 +6,11 @@ import java.io.Serializable;
  * This class represents a specific entry in the queue of all unfinished
  * compression jobs and therefore particularly contains a reference to this
  * job's @see CompressionJob object. Further data stored along with the job in
- * this object are the job's current state, its id and timestamps of job receipt
- * and last state modification. All properties of this class are read-only.
+ * this object are the job's current state, its id, timestamps of job receipt
+ * and last state modification as well as its estimated processing cost and its
+ * scheduling key. All properties of this class are read-only, except for the
+ * progress of a job being processed (@see JobProgress), which is updated by the
+ * processing worker.
  * 
  * The class implements the Serializable-interface enabling easy object
  * serialization. Since @see QueueEntry instances are only created at server
@@ -25,6 +28,9 @@ public class QueueEntry implements Serializable {
 	private final int id;
 	private final JobState state;
 	private final long lastStateChange;
+	private final double estimatedCost;
+	private final double schedulingKey;
+	private final JobProgress progress;
 
 	/**
 	 * This constructor initializes all fields of the object with the given
@@ -43,11 +49,69 @@ public class QueueEntry implements Serializable {
 	 *            The UNIX-timestamp of the last state modification
 	 */
 	public QueueEntry(CompressionJob job, long receivedOn, int id, JobState state, long lastStateChange) {
+		this(job, receivedOn, id, state, lastStateChange, 0, receivedOn);
+	}
+
+	/**
+	 * This constructor initializes all fields of the object with the given
+	 * arguments
+	 * 
+	 * @param job
+	 *            The compression job that shall be referenced by this queue entry
+	 *            item
+	 * @param receivedOn
+	 *            The UNIX-timestamp representing the moment of job receipt
+	 * @param id
+	 *            The unique id of this queue entry / its compression job
+	 * @param state
+	 *            The initial / current state of this queue entry's compression job
+	 * @param lastStateChange
+	 *            The UNIX-timestamp of the last state modification
+	 * @param estimatedCost
+	 *            The estimated processing time of the compression job in seconds
+	 * @param schedulingKey
+	 *            The key determining the order in which pending jobs are processed
+	 *            (lower keys first)
+	 */
+	public QueueEntry(CompressionJob job, long receivedOn, int id, JobState state, long lastStateChange,
+			double estimatedCost, double schedulingKey) {
+		this(job, receivedOn, id, state, lastStateChange, estimatedCost, schedulingKey, null);
+	}
+
+	/**
+	 * This constructor initializes all fields of the object with the given
+	 * arguments
+	 * 
+	 * @param job
+	 *            The compression job that shall be referenced by this queue entry
+	 *            item
+	 * @param receivedOn
+	 *            The UNIX-timestamp representing the moment of job receipt
+	 * @param id
+	 *            The unique id of this queue entry / its compression job
+	 * @param state
+	 *            The initial / current state of this queue entry's compression job
+	 * @param lastStateChange
+	 *            The UNIX-timestamp of the last state modification
+	 * @param estimatedCost
+	 *            The estimated processing time of the compression job in seconds
+	 * @param schedulingKey
+	 *            The key determining the order in which pending jobs are processed
+	 *            (lower keys first)
+	 * @param progress
+	 *            The progress of the compression job, if it is being processed,
+	 *            otherwise null
+	 */
+	public QueueEntry(CompressionJob job, long receivedOn, int id, JobState state, long lastStateChange,
+			double estimatedCost, double schedulingKey, JobProgress progress) {
 		this.job = job;
 		this.receivedOn = receivedOn;
 		this.id = id;
 		this.state = state;
 		this.lastStateChange = lastStateChange;
+		this.estimatedCost = estimatedCost;
+		this.schedulingKey = schedulingKey;
+		this.progress = progress;
 	}
 
 	/**
@@ -61,7 +125,8 @@ public class QueueEntry implements Serializable {
 	 *         state and modified timestamp of last state change
 	 */
 	public QueueEntry getModifiedState(JobState state) {
-		return new QueueEntry(this.job, this.receivedOn, this.id, state, System.currentTimeMillis());
+		return new QueueEntry(this.job, this.receivedOn, this.id, state, System.currentTimeMillis(), this.estimatedCost,
+				this.schedulingKey);
 	}
 
 	/**
@@ -108,4 +173,34 @@ public class QueueEntry implements Serializable {
 	public long getLastStateChange() {
 		return lastStateChange;
 	}
+
+	/**
+	 * This method returns the estimated processing time of this queue entry's
+	 * compression job.
+	 * 
+	 * @return Returns the estimated processing time in seconds
+	 */
+	public double getEstimatedCost() {
+		return estimatedCost;
+	}
+
+	/**
+	 * This method returns the key determining the order in which pending jobs are
+	 * processed. Jobs with lower keys are processed first.
+	 * 
+	 * @return Returns the scheduling key of this queue entry
+	 */
+	public double getSchedulingKey() {
+		return schedulingKey;
+	}
+
+	/**
+	 * This method returns the progress of this queue entry's compression job.
+	 * 
+	 * @return Returns the progress of the compression job, if it is being
+	 *         processed, otherwise null
+	 */
+	public JobProgress getProgress() {
+		return progress;
+	}
 }
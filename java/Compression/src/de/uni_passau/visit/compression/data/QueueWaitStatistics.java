@@ -0,0 +1,108 @@
+package de.uni_passau.visit.compression.data;
+
+import java.io.Serializable;
+
+/**
+ * This class represents the statistics of the time compression jobs of one
+ * priority class have been waiting in the queue until their processing
+ * started. The percentiles are computed from the most recently started jobs of
+ * the class. All properties are read-only.
+ * 
+ * The class implements the Serializable-interface enabling easy object
+ * serialization. Since @see QueueWaitStatistics instances are only created at
+ * server side, no Jackson annotations for the conversion of json strings to
+ * this class' instances are necessary.
+ * 
+ * @author agent
+ *
+ */
+public class QueueWaitStatistics implements Serializable {
+
+	private static final long serialVersionUID = 2902446173035290171L;
+
+	private final int priority;
+	private final long jobCount;
+	private final long p50, p90, p99, max;
+
+	/**
+	 * This constructor initializes all fields of the object with the given
+	 * arguments.
+	 * 
+	 * @param priority
+	 *            The priority class the statistics refer to
+	 * @param jobCount
+	 *            The count of jobs of the class, which have been started since the
+	 *            compression system has been started
+	 * @param p50
+	 *            The median waiting time in seconds
+	 * @param p90
+	 *            The 90th percentile of the waiting time in seconds
+	 * @param p99
+	 *            The 99th percentile of the waiting time in seconds
+	 * @param max
+	 *            The maximum waiting time in seconds
+	 */
+	public QueueWaitStatistics(int priority, long jobCount, long p50, long p90, long p99, long max) {
+		this.priority = priority;
+		this.jobCount = jobCount;
+		this.p50 = p50;
+		this.p90 = p90;
+		this.p99 = p99;
+		this.max = max;
+	}
+
+	/**
+	 * This method returns the priority class the statistics refer to.
+	 * 
+	 * @return Returns the priority class
+	 */
+	public int getPriority() {
+		return priority;
+	}
+
+	/**
+	 * This method returns the count of jobs of the class, which have been started
+	 * since the compression system has been started.
+	 * 
+	 * @return Returns the count of started jobs
+	 */
+	public long getJobCount() {
+		return jobCount;
+	}
+
+	/**
+	 * This method returns the median waiting time.
+	 * 
+	 * @return Returns the median waiting time in seconds
+	 */
+	public long getP50() {
+		return p50;
+	}
+
+	/**
+	 * This method returns the 90th percentile of the waiting time.
+	 * 
+	 * @return Returns the 90th percentile of the waiting time in seconds
+	 */
+	public long getP90() {
+		return p90;
+	}
+
+	/**
+	 * This method returns the 99th percentile of the waiting time.
+	 * 
+	 * @return Returns the 99th percentile of the waiting time in seconds
+	 */
+	public long getP99() {
+		return p99;
+	}
+
+	/**
+	 * This method returns the maximum waiting time.
+	 * 
+	 * @return Returns the maximum waiting time in seconds
+	 */
+	public long getMax() {
+		return max;
+	}
+}
@@ -0,0 +1,32 @@
+package de.uni_passau.visit.compression.exceptions;
+
+/**
+ * This runtime exception is thrown by a running compression, if its job has
+ * been cancelled or preempted. It unwinds the processing of the job up to the
+ * worker, which decides about the further state of the job.
+ * 
+ * @author agent
+ *
+ */
+public class JobCancelledException extends RuntimeException {
+
+	private static final long serialVersionUID = 6012386637541783624L;
+
+	/**
+	 * This constructor creates an instance of the exception without any further
+	 * information.
+	 */
+	public JobCancelledException() {
+		super();
+	}
+
+	/**
+	 * This constructor creates an instance of the exception with the given message.
+	 * 
+	 * @param message
+	 *            A message describing the reason for the cancellation
+	 */
+	public JobCancelledException(String message) {
+		super(message);
+	}
+}
@@ -3,6 +3,7 @@ package de.uni_passau.visit.compression.logic.algorithms.image;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 import javax.imageio.ImageIO;
 
@@ -12,7 +13,9 @@ import org.apache.logging.log4j.Logger;
 
 import de.uni_passau.visit.compression.data.ImageCompressionLevel;
 import de.uni_passau.visit.compression.exceptions.ImageCompressionException;
+import de.uni_passau.visit.compression.exceptions.JobCancelledException;
 import de.uni_passau.visit.compression.exceptions.TextureCompressionException;
+import de.uni_passau.visit.compression.logic.util.CancellationToken;
 import de.uni_passau.visit.compression.models.AbstractCompressionLevelFilter;
 
 /**
@@ -27,6 +30,29 @@ import de.uni_passau.visit.compression.models.AbstractCompressionLevelFilter;
 public class ImageCompressor {
 
 	private static final Logger log = LogManager.getLogger(ImageCompressor.class);
+	private static final int DEFAULT_QUALITY = 0;
+	private static final long CANCELLATION_CHECK_INTERVAL = 200;
+
+	private final CancellationToken cancellationToken;
+
+	/**
+	 * This constructor creates a new image compressor, which can't be cancelled.
+	 */
+	public ImageCompressor() {
+		this(new CancellationToken());
+	}
+
+	/**
+	 * This constructor creates a new image compressor, which stops as soon as the
+	 * given token has been cancelled. A running ImageMagick-process will be
+	 * terminated in this case.
+	 * 
+	 * @param cancellationToken
+	 *            The token used to cancel the compression
+	 */
+	public ImageCompressor(CancellationToken cancellationToken) {
+		this.cancellationToken = cancellationToken;
+	}
 
 	/**
 	 * This method creates one or several compression versions of a given texture
@@ -55,10 +81,43 @@ public class ImageCompressor {
 	 */
 	public void compressTextureFile(File inputFilename, File[] outputFilenames, int[] upperBounds)
 			throws TextureCompressionException {
+		compressTextureFile(inputFilename, outputFilenames, upperBounds, DEFAULT_QUALITY);
+	}
+
+	/**
+	 * This method creates one or several compression versions of a given texture
+	 * file like @see compressTextureFile(File, File[], int[]), but additionally
+	 * passes the given encoder quality to the ImageMagick-backend. The image format
+	 * of each output file is derived from its extension, so this method can also be
+	 * used to transcode a texture into a more efficient format like WebP or AVIF,
+	 * as long as the installed ImageMagick version supports it.
+	 * 
+	 * @param inputFilename
+	 *            The filename of the texture file that shall be compressed (with
+	 *            extension) including the path to that file
+	 * @param outputFilenames
+	 *            An array containing the filenames for each of the compressed
+	 *            versions generated by this method. Its length has to be equal to
+	 *            the length of the {@code upperBounds}-array.
+	 * @param upperBounds
+	 *            An array containing the upper bounds for each of the compressed
+	 *            versions that shall be generated by this method
+	 * @param quality
+	 *            The encoder quality between 1 and 100, or a value less than 1 to
+	 *            use the encoder's default quality
+	 * @throws TextureCompressionException
+	 *             Will be thrown, if an error in the ImageMagick-backend occurs
+	 *             during the compression of the texture file
+	 * @throws JobCancelledException
+	 *             if the compression has been cancelled
+	 */
+	public void compressTextureFile(File inputFilename, File[] outputFilenames, int[] upperBounds, int quality)
+			throws TextureCompressionException {
 
 		for (int i = 0; i < upperBounds.length; ++i) {
+			cancellationToken.throwIfCancelled();
 			try {
-				executeResize(inputFilename, outputFilenames[i], upperBounds[i], upperBounds[i]);
+				executeResize(inputFilename, outputFilenames[i], upperBounds[i], upperBounds[i], quality);
 			} catch (IOException | InterruptedException ex) {
 				throw new TextureCompressionException(ex);
 			}
@@ -92,6 +151,8 @@ public class ImageCompressor {
 	 *             Will be thrown, if the image file could not be read or if an
 	 *             error in the ImageMagick-backend occurs during the compression of
 	 *             the image file
+	 * @throws JobCancelledException
+	 *             if the compression has been cancelled
 	 */
 	public void compressImageFile(File inputFilename, File[] outputFilenames, ImageCompressionLevel[] levels,
 			AbstractCompressionLevelFilter filter) throws ImageCompressionException {
@@ -100,11 +161,12 @@ public class ImageCompressor {
 			int width = bimg.getWidth();
 			int height = bimg.getHeight();
 			for (int i = 0; i < levels.length; ++i) {
+				cancellationToken.throwIfCancelled();
 				if (filter.filterCompressionLevel(levels[i].getTitle())) {
 					if (width > levels[i].getMaxWidth() || height > levels[i].getMaxHeight()) {
 						try {
 							executeResize(inputFilename, outputFilenames[i], levels[i].getMaxWidth(),
-									levels[i].getMaxHeight());
+									levels[i].getMaxHeight(), DEFAULT_QUALITY);
 						} catch (IOException | InterruptedException ex) {
 							throw new ImageCompressionException(ex);
 						}
@@ -116,24 +178,33 @@ public class ImageCompressor {
 		}
 	}
 
-	private void executeResize(File inputPath, File outputPath, int sizeXUpperBound, int sizeYUpperBound)
+	private void executeResize(File inputPath, File outputPath, int sizeXUpperBound, int sizeYUpperBound, int quality)
 			throws IOException, InterruptedException {
 		Runtime rt = Runtime.getRuntime();
 		Process pr;
+		String arguments = " convert " + inputPath + " -resize " + sizeXUpperBound + "x" + sizeYUpperBound + "> "
+				+ (quality > 0 ? "-quality " + quality + " " : "") + outputPath;
 
 		if (SystemUtils.IS_OS_WINDOWS) {
-			log.debug("magick.exe convert " + inputPath + " -resize " + sizeXUpperBound + "x" + sizeYUpperBound + "> "
-					+ outputPath);
-			pr = rt.exec("magick.exe convert " + inputPath + " -resize " + sizeXUpperBound + "x" + sizeYUpperBound
-					+ "> " + outputPath);
+			log.debug("magick.exe" + arguments);
+			pr = rt.exec("magick.exe" + arguments);
 
 		} else {
-			log.debug(
-					"convert " + inputPath + " -resize " + sizeXUpperBound + "x" + sizeYUpperBound + "> " + outputPath);
-			pr = rt.exec(
-					"convert " + inputPath + " -resize " + sizeXUpperBound + "x" + sizeYUpperBound + "> " + outputPath);
+			log.debug(arguments.trim());
+			pr = rt.exec(arguments.trim());
 		}
 
-		pr.waitFor();
+		// wait in short intervals, so a cancellation terminates the process quickly
+		while (!pr.waitFor(CANCELLATION_CHECK_INTERVAL, TimeUnit.MILLISECONDS)) {
+			if (cancellationToken.isCancelled()) {
+				pr.destroyForcibly();
+				cancellationToken.throwIfCancelled();
+			}
+		}
+
+		if (pr.exitValue() != 0) {
+			throw new IOException(
+					"ImageMagick failed to create " + outputPath + " (exit status " + pr.exitValue() + ")");
+		}
 	}
 }
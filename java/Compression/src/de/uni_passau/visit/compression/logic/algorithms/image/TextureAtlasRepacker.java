@@ -0,0 +1,445 @@
+package de.uni_passau.visit.compression.logic.algorithms.image;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import de.uni_passau.visit.compression.exceptions.TextureCompressionException;
+import de.uni_passau.visit.compression.logic.data.Face;
+import de.uni_passau.visit.compression.logic.data.TextureCoords;
+import de.uni_passau.visit.compression.logic.io.AbstractModel;
+import de.uni_passau.visit.compression.logic.io.ObjModel;
+
+/**
+ * Instances of this class can be used to repack the texture of a (compressed)
+ * 3D-model into a smaller texture atlas. The texture coordinates of the model
+ * are split into charts, i.e. connected regions in texture space. Each chart is
+ * scaled according to its texel density, so that all charts get approximately
+ * the same texture resolution per surface area, and placed into the new atlas
+ * using a shelf packing strategy. Texture regions, which are no longer
+ * referenced by the model, are dropped completely.
+ * 
+ * Usage: After calling @see pack(int, int, int) successfully, the model with
+ * updated texture coordinates can be retrieved by @see getRepackedModel() and
+ * the corresponding atlas can be written by @see writeAtlas(BufferedImage,
+ * File, String). Models with texture coordinates outside the unit square
+ * (tiled textures) are not supported and will be rejected by the pack method.
+ * 
+ * @author agent
+ *
+ */
+public class TextureAtlasRepacker {
+
+	private static final Logger log = LogManager.getLogger(TextureAtlasRepacker.class);
+
+	private static final double UV_EPSILON = 1E-6;
+	private static final int SCALE_SEARCH_ITERATIONS = 32;
+
+	private final AbstractModel model;
+	private final int padding;
+	private final double maxUsedFraction;
+
+	private List<Chart> charts;
+	private int[] chartOfTextureCoord;
+	private int sourceWidth, sourceHeight, atlasWidth, atlasHeight;
+
+	/**
+	 * This constructor creates a new texture atlas repacker for the given model.
+	 * 
+	 * @param model
+	 *            The model whose texture shall be repacked. Its texture coordinate
+	 *            indices are expected to be equal to their positions in the
+	 *            model's texture coordinate list.
+	 * @param padding
+	 *            The count of pixels added around each chart in the new atlas to
+	 *            avoid texture bleeding
+	 * @param maxUsedFraction
+	 *            If the charts cover more than this fraction of the original
+	 *            texture, no repacking will be performed, since the gain would be
+	 *            too small
+	 */
+	public TextureAtlasRepacker(AbstractModel model, int padding, double maxUsedFraction) {
+		this.model = model;
+		this.padding = padding;
+		this.maxUsedFraction = maxUsedFraction;
+	}
+
+	/**
+	 * This method computes the layout of the new texture atlas. The atlas will be
+	 * at most {@code atlasSize} pixels in width and height, but charts will never
+	 * be scaled up beyond the resolution of the original texture.
+	 * 
+	 * @param sourceWidth
+	 *            The width of the original texture in pixels
+	 * @param sourceHeight
+	 *            The height of the original texture in pixels
+	 * @param atlasSize
+	 *            The upper bound for the width and the height of the new atlas
+	 * @return Returns true, if a layout has been computed and the model can be
+	 *         repacked, otherwise false (e.g. because of tiled textures or since
+	 *         nearly the whole texture is still in use)
+	 */
+	public boolean pack(int sourceWidth, int sourceHeight, int atlasSize) {
+		this.sourceWidth = sourceWidth;
+		this.sourceHeight = sourceHeight;
+
+		if (!buildCharts()) {
+			return false;
+		}
+
+		long usedArea = 0;
+		for (Chart c : charts) {
+			usedArea += (long) c.sourceWidth * c.sourceHeight;
+		}
+
+		double usedFraction = (double) usedArea / ((long) sourceWidth * sourceHeight);
+		if (usedFraction > maxUsedFraction) {
+			log.debug("Texture atlas repacking skipped: " + Math.round(usedFraction * 100)
+					+ "% of the texture are still in use.");
+			return false;
+		}
+
+		// find the largest uniform density factor, for which all charts fit into the
+		// atlas
+		double lower = 0.0;
+		double upper = 0.0;
+		for (Chart c : charts) {
+			upper = Math.max(upper, 1.0 / c.density);
+		}
+
+		if (!(upper > 0.0) || Double.isInfinite(upper)) {
+			return false;
+		}
+
+		if (layout(upper, atlasSize)) {
+			lower = upper;
+		} else {
+			for (int i = 0; i < SCALE_SEARCH_ITERATIONS; ++i) {
+				double mid = (lower + upper) / 2;
+				if (layout(mid, atlasSize)) {
+					lower = mid;
+				} else {
+					upper = mid;
+				}
+			}
+		}
+
+		if (!(lower > 0.0) || !layout(lower, atlasSize)) {
+			return false;
+		}
+
+		log.debug("Repacked " + charts.size() + " texture charts into an atlas of " + atlasWidth + "x" + atlasHeight
+				+ " pixels.");
+		return true;
+	}
+
+	/**
+	 * This method splits the model's texture coordinates into charts and computes
+	 * the bounds and texel density of each chart.
+	 * 
+	 * @return Returns false, if the model can't be repacked, otherwise true
+	 */
+	private boolean buildCharts() {
+		List<TextureCoords> textureCoords = model.getTextureCoords();
+		if (textureCoords == null || textureCoords.isEmpty()) {
+			return false;
+		}
+
+		for (int i = 0; i < textureCoords.size(); ++i) {
+			TextureCoords t = textureCoords.get(i);
+			if (t.getIndex() != i) {
+				return false;
+			}
+
+			for (double coord : t.getCoords()) {
+				if (coord < -UV_EPSILON || coord > 1.0 + UV_EPSILON) {
+					return false;
+				}
+			}
+		}
+
+		// union find over all texture coordinates sharing a face
+		int[] parent = new int[textureCoords.size()];
+		for (int i = 0; i < parent.length; ++i) {
+			parent[i] = i;
+		}
+
+		for (Face f : model.getFaces()) {
+			if (!f.hasTexture()) {
+				return false;
+			}
+
+			int[] indices = f.getTextureCoordIndices();
+			union(parent, indices[0], indices[1]);
+			union(parent, indices[0], indices[2]);
+		}
+
+		chartOfTextureCoord = new int[textureCoords.size()];
+		Arrays.fill(chartOfTextureCoord, -1);
+		charts = new ArrayList<>();
+
+		for (Face f : model.getFaces()) {
+			int root = find(parent, f.getTextureCoordIndices()[0]);
+			if (chartOfTextureCoord[root] < 0) {
+				chartOfTextureCoord[root] = charts.size();
+				charts.add(new Chart());
+			}
+
+			Chart chart = charts.get(chartOfTextureCoord[root]);
+			double[][] uv = new double[3][];
+			double[][] xyz = new double[3][];
+			for (int i = 0; i < 3; ++i) {
+				uv[i] = f.getTextureCoords()[i].getCoords();
+				xyz[i] = f.getVertices()[i].getCoords();
+				chart.include(uv[i][0], uv[i][1]);
+			}
+
+			chart.surfaceArea += triangleArea3D(xyz[0], xyz[1], xyz[2]);
+			chart.textureArea += triangleArea2D(uv[0], uv[1], uv[2]) * sourceWidth * sourceHeight;
+		}
+
+		for (int i = 0; i < chartOfTextureCoord.length; ++i) {
+			int root = find(parent, i);
+			chartOfTextureCoord[i] = chartOfTextureCoord[root];
+		}
+
+		double totalSurface = 0.0;
+		double totalTexture = 0.0;
+		for (Chart c : charts) {
+			c.computeSourceRect(sourceWidth, sourceHeight);
+			totalSurface += c.surfaceArea;
+			totalTexture += c.textureArea;
+		}
+
+		if (!(totalSurface > 0.0) || !(totalTexture > 0.0)) {
+			return false;
+		}
+
+		// texel density relative to the average density of the model; charts with
+		// degenerated texture or surface area keep the average density
+		double averageDensity = Math.sqrt(totalTexture / totalSurface);
+		for (Chart c : charts) {
+			if (c.surfaceArea > 0.0 && c.textureArea > 0.0) {
+				c.density = Math.sqrt(c.textureArea / c.surfaceArea) / averageDensity;
+			} else {
+				c.density = 1.0;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * This method places all charts into an atlas of at most the given size using
+	 * the given density factor. Each chart is scaled by the factor divided by its
+	 * texel density, but never beyond its original resolution.
+	 * 
+	 * @param factor
+	 *            The uniform density factor
+	 * @param atlasSize
+	 *            The upper bound for the atlas' width and height
+	 * @return Returns true, if all charts fit into the atlas
+	 */
+	private boolean layout(double factor, int atlasSize) {
+		for (Chart c : charts) {
+			c.scale = Math.min(1.0, factor / c.density);
+			c.targetWidth = Math.max(1, (int) Math.ceil(c.sourceWidth * c.scale)) + 2 * padding;
+			c.targetHeight = Math.max(1, (int) Math.ceil(c.sourceHeight * c.scale)) + 2 * padding;
+
+			if (c.targetWidth > atlasSize || c.targetHeight > atlasSize) {
+				return false;
+			}
+		}
+
+		List<Chart> sorted = new ArrayList<>(charts);
+		sorted.sort(Comparator.comparingInt((Chart c) -> c.targetHeight).reversed());
+
+		int shelfY = 0, shelfHeight = 0, cursorX = 0, usedWidth = 0;
+		for (Chart c : sorted) {
+			if (cursorX + c.targetWidth > atlasSize) {
+				shelfY += shelfHeight;
+				shelfHeight = 0;
+				cursorX = 0;
+			}
+
+			if (shelfY + c.targetHeight > atlasSize) {
+				return false;
+			}
+
+			c.targetX = cursorX;
+			c.targetY = shelfY;
+			cursorX += c.targetWidth;
+			shelfHeight = Math.max(shelfHeight, c.targetHeight);
+			usedWidth = Math.max(usedWidth, cursorX);
+		}
+
+		atlasWidth = usedWidth;
+		atlasHeight = shelfY + shelfHeight;
+		return true;
+	}
+
+	/**
+	 * This method returns a copy of the model, whose texture coordinates have been
+	 * updated according to the computed atlas layout. Vertices and faces are
+	 * shared with the original model.
+	 * 
+	 * @return Returns the model referencing the new texture atlas
+	 */
+	public ObjModel getRepackedModel() {
+		ArrayList<TextureCoords> newTextureCoords = new ArrayList<>(model.getTextureCoords().size());
+
+		for (TextureCoords t : model.getTextureCoords()) {
+			int chartIndex = chartOfTextureCoord[t.getIndex()];
+			if (chartIndex < 0) {
+				// texture coordinates not referenced by any face are kept untouched
+				newTextureCoords.add(t);
+			} else {
+				Chart c = charts.get(chartIndex);
+				double x = (t.getCoords()[0] * sourceWidth - c.sourceX) * c.scale + c.targetX + padding;
+				double y = ((1.0 - t.getCoords()[1]) * sourceHeight - c.sourceY) * c.scale + c.targetY + padding;
+				newTextureCoords.add(new TextureCoords(t.getIndex(), x / atlasWidth, 1.0 - y / atlasHeight));
+			}
+		}
+
+		return new ObjModel(model.getVertices(), model.getNormals(), newTextureCoords, model.getFaces(),
+				model.getHeader());
+	}
+
+	/**
+	 * This method renders the new texture atlas from the given original texture
+	 * and writes it to the given file.
+	 * 
+	 * @param source
+	 *            The original texture image
+	 * @param outputFile
+	 *            The file the atlas shall be written to
+	 * @param formatName
+	 *            The informal name of the image format used for the atlas (e.g.
+	 *            "png" or "jpg")
+	 * @throws TextureCompressionException
+	 *             if the atlas could not be written
+	 */
+	public void writeAtlas(BufferedImage source, File outputFile, String formatName)
+			throws TextureCompressionException {
+		boolean hasAlpha = source.getColorModel().hasAlpha() && !formatName.equalsIgnoreCase("jpg")
+				&& !formatName.equalsIgnoreCase("jpeg");
+		BufferedImage atlas = new BufferedImage(atlasWidth, atlasHeight,
+				hasAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = atlas.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+		g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+
+		for (Chart c : charts) {
+			// copy the padding from the surrounding of the chart in the original texture
+			int sourcePadding = (int) Math.ceil(padding / c.scale);
+			int sx1 = Math.max(0, c.sourceX - sourcePadding);
+			int sy1 = Math.max(0, c.sourceY - sourcePadding);
+			int sx2 = Math.min(sourceWidth, c.sourceX + c.sourceWidth + sourcePadding);
+			int sy2 = Math.min(sourceHeight, c.sourceY + c.sourceHeight + sourcePadding);
+
+			int dx1 = c.targetX + padding - (int) Math.round((c.sourceX - sx1) * c.scale);
+			int dy1 = c.targetY + padding - (int) Math.round((c.sourceY - sy1) * c.scale);
+			int dx2 = c.targetX + padding + (int) Math.round((sx2 - c.sourceX) * c.scale);
+			int dy2 = c.targetY + padding + (int) Math.round((sy2 - c.sourceY) * c.scale);
+
+			g.setClip(c.targetX, c.targetY, c.targetWidth, c.targetHeight);
+			g.drawImage(source, dx1, dy1, dx2, dy2, sx1, sy1, sx2, sy2, null);
+		}
+
+		g.dispose();
+
+		try {
+			if (!ImageIO.write(atlas, formatName, outputFile)) {
+				throw new TextureCompressionException("No image writer available for format '" + formatName + "'.");
+			}
+		} catch (IOException ex) {
+			throw new TextureCompressionException(ex);
+		}
+	}
+
+	/**
+	 * This method returns the width of the computed atlas in pixels.
+	 * 
+	 * @return Returns the width of the computed atlas
+	 */
+	public int getAtlasWidth() {
+		return atlasWidth;
+	}
+
+	/**
+	 * This method returns the height of the computed atlas in pixels.
+	 * 
+	 * @return Returns the height of the computed atlas
+	 */
+	public int getAtlasHeight() {
+		return atlasHeight;
+	}
+
+	private static int find(int[] parent, int i) {
+		while (parent[i] != i) {
+			parent[i] = parent[parent[i]];
+			i = parent[i];
+		}
+		return i;
+	}
+
+	private static void union(int[] parent, int a, int b) {
+		int rootA = find(parent, a);
+		int rootB = find(parent, b);
+		if (rootA != rootB) {
+			parent[rootA] = rootB;
+		}
+	}
+
+	private static double triangleArea2D(double[] a, double[] b, double[] c) {
+		return Math.abs((b[0] - a[0]) * (c[1] - a[1]) - (c[0] - a[0]) * (b[1] - a[1])) / 2.0;
+	}
+
+	private static double triangleArea3D(double[] a, double[] b, double[] c) {
+		double abX = b[0] - a[0], abY = b[1] - a[1], abZ = b[2] - a[2];
+		double acX = c[0] - a[0], acY = c[1] - a[1], acZ = c[2] - a[2];
+		double x = abY * acZ - abZ * acY;
+		double y = abZ * acX - abX * acZ;
+		double z = abX * acY - abY * acX;
+		return Math.sqrt(x * x + y * y + z * z) / 2.0;
+	}
+
+	/**
+	 * This class represents a connected region in texture space and stores its
+	 * bounds in the original texture as well as its placement in the new atlas.
+	 */
+	private static class Chart {
+		double minU = Double.MAX_VALUE, minV = Double.MAX_VALUE;
+		double maxU = -Double.MAX_VALUE, maxV = -Double.MAX_VALUE;
+		double surfaceArea, textureArea, density, scale;
+		int sourceX, sourceY, sourceWidth, sourceHeight;
+		int targetX, targetY, targetWidth, targetHeight;
+
+		void include(double u, double v) {
+			minU = Math.min(minU, u);
+			maxU = Math.max(maxU, u);
+			minV = Math.min(minV, v);
+			maxV = Math.max(maxV, v);
+		}
+
+		void computeSourceRect(int width, int height) {
+			// texture space has its origin in the lower left corner, images in the upper
+			// left corner
+			sourceX = Math.max(0, (int) Math.floor(minU * width));
+			sourceY = Math.max(0, (int) Math.floor((1.0 - maxV) * height));
+			sourceWidth = Math.max(1, Math.min(width, (int) Math.ceil(maxU * width)) - sourceX);
+			sourceHeight = Math.max(1, Math.min(height, (int) Math.ceil((1.0 - minV) * height)) - sourceY);
+		}
+	}
+}
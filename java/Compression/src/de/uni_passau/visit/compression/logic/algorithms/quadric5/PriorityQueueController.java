@@ -1,5 +1,6 @@
 package de.uni_passau.visit.compression.logic.algorithms.quadric5;
 
+import java.util.Collection;
 import java.util.HashMap;
 
 import org.apache.commons.math3.util.Pair;
@@ -109,6 +110,40 @@ public class PriorityQueueController {
 		heap.remove(candidate);
 	}
 
+	/**
+	 * This method returns all candidates contained in the heap in the order of the
+	 * underlying array. Adding them to an empty heap in this order restores the
+	 * same heap.
+	 * 
+	 * @return Returns the candidates contained in the heap
+	 */
+	public Iterable<QuadricCollapseInfo> getHeapCandidates() {
+		return heap;
+	}
+
+	/**
+	 * This method returns all candidates, which have been found invalid when
+	 * polling and have not become valid since.
+	 * 
+	 * @return Returns the candidates held back as invalid
+	 */
+	public Collection<QuadricCollapseInfo> getInvalidCandidates() {
+		return invalidCandidates.values();
+	}
+
+	/**
+	 * This method adds the given collapse candidate as an invalid candidate, which
+	 * will only be added to the heap, if it becomes valid due to an adjacent
+	 * collapse.
+	 * 
+	 * @param candidate
+	 *            The candidate that shall be held back as invalid
+	 */
+	public void addInvalid(QuadricCollapseInfo candidate) {
+		invalidCandidates.put(
+				getPairByIndices(candidate.getVertexA().getIndex(), candidate.getVertexB().getIndex()), candidate);
+	}
+
 	private Pair<Integer, Integer> getPairByIndices(int vertexIndex1, int vertexIndex2) {
 		return vertexIndex1 <= vertexIndex2 ? new Pair<Integer, Integer>(vertexIndex1, vertexIndex2)
 				: new Pair<Integer, Integer>(vertexIndex2, vertexIndex1);
@@ -0,0 +1,499 @@
+package de.uni_passau.visit.compression.logic.algorithms.quadric5;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import de.uni_passau.visit.compression.logic.data.TextureCoords;
+import de.uni_passau.visit.compression.logic.data.Vertex;
+
+/**
+ * This class represents the state of the quadric edge collapse decimation
+ * after a compression level has been created. It contains the remaining mesh
+ * including the accumulated quadrics of all vertices, their connectivity and
+ * the collapse candidates, so that the decimation can be resumed from this
+ * state to create further compression levels with a lower vertex count.
+ * 
+ * The state is serialized in a compact binary format. The collapse candidates
+ * are stored as pairs of vertex indices only, since their costs and targets are
+ * determined by the stored quadrics and will be recomputed when the heap is
+ * restored. The order of the heap and the candidates held back as invalid by
+ * the heap are restored as well.
+ * 
+ * @author agent
+ *
+ */
+public class QuadricCheckpoint {
+
+	private static final int MAGIC = 0x51434b50;
+	private static final int VERSION = 1;
+
+	private final int vertexCount;
+	private final HashMap<Integer, QuadricVertex> vertices;
+	private final Collection<QuadricFace> faces;
+	private final HashMap<Integer, TextureCoords> textureCoords;
+	private final PriorityQueueController heap;
+	private final int nextVertexIndex, nextTextureIndex;
+	private final boolean hasTexture;
+	private final double scale;
+	private final double[] mins;
+
+	/**
+	 * This constructor creates a new checkpoint of the given decimation state.
+	 * 
+	 * @param vertexCount
+	 *            The vertex count of the compression level, after which the
+	 *            checkpoint has been taken
+	 * @param vertices
+	 *            The remaining vertices mapped by their indices
+	 * @param faces
+	 *            The remaining faces
+	 * @param textureCoords
+	 *            The remaining texture coordinates mapped by their indices or null
+	 *            for an untextured model
+	 * @param heap
+	 *            The heap of collapse candidates
+	 * @param nextVertexIndex
+	 *            The index of the next vertex created by a collapse
+	 * @param nextTextureIndex
+	 *            The index of the next texture coordinates created by a collapse
+	 * @param hasTexture
+	 *            A boolean indicating if the model is textured (true) or not
+	 *            (false)
+	 * @param scale
+	 *            The scaling factor used to normalize the vertex coordinates
+	 * @param mins
+	 *            The offset used to normalize the vertex coordinates
+	 */
+	public QuadricCheckpoint(int vertexCount, HashMap<Integer, QuadricVertex> vertices, Collection<QuadricFace> faces,
+			HashMap<Integer, TextureCoords> textureCoords, PriorityQueueController heap, int nextVertexIndex,
+			int nextTextureIndex, boolean hasTexture, double scale, double[] mins) {
+		this.vertexCount = vertexCount;
+		this.vertices = vertices;
+		this.faces = faces;
+		this.textureCoords = textureCoords;
+		this.heap = heap;
+		this.nextVertexIndex = nextVertexIndex;
+		this.nextTextureIndex = nextTextureIndex;
+		this.hasTexture = hasTexture;
+		this.scale = scale;
+		this.mins = mins;
+	}
+
+	/**
+	 * This method serializes the checkpoint to the given stream.
+	 * 
+	 * @param out
+	 *            The stream the checkpoint shall be written to
+	 * @param fingerprint
+	 *            A string identifying the original model, which is checked when
+	 *            the checkpoint is read
+	 * @throws IOException
+	 *             if the checkpoint could not be written
+	 */
+	public void writeTo(DataOutputStream out, String fingerprint) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeUTF(fingerprint);
+		out.writeInt(vertexCount);
+		out.writeBoolean(hasTexture);
+		out.writeDouble(scale);
+		writeDoubles(out, mins);
+		out.writeInt(nextVertexIndex);
+		out.writeInt(nextTextureIndex);
+
+		// texture coordinates may still be referenced after they have been removed
+		// from the map of current texture coordinates, so all referenced ones are
+		// written and flagged
+		Map<Integer, TextureCoords> allTextureCoords = hasTexture ? getReferencedTextureCoords() : new HashMap<>();
+		out.writeInt(allTextureCoords.size());
+		for (TextureCoords tex : allTextureCoords.values()) {
+			out.writeInt(tex.getIndex());
+			writeDoubles(out, tex.getCoords());
+			out.writeBoolean(textureCoords.containsKey(tex.getIndex()));
+		}
+
+		out.writeInt(vertices.size());
+		for (QuadricVertex v : vertices.values()) {
+			out.writeInt(v.getIndex());
+			writeDoubles(out, v.getCoords());
+			writeStrings(out, v.getAdditionals());
+			writeDoubles(out, v.getQuadric3());
+			out.writeBoolean(v.isAtBoundary());
+			out.writeInt(v.getAdjacentTexturePartitions());
+		}
+
+		out.writeInt(faces.size());
+		for (QuadricFace f : faces) {
+			out.writeInt(f.getIndex());
+			writeInts(out, f.getVertexIndices());
+			if (hasTexture) {
+				writeInts(out, f.getTextureCoordIndices());
+			}
+			writeStrings(out, f.getAdditionals());
+			writeNullableString(out, f.getMaterial());
+		}
+
+		for (QuadricVertex v : vertices.values()) {
+			out.writeInt(v.getIndex());
+			out.writeInt(v.getAdjacentFaces().size());
+			for (QuadricFace f : v.getAdjacentFaces()) {
+				out.writeInt(f.getIndex());
+			}
+
+			if (hasTexture) {
+				out.writeInt(v.getFaceToTexture().size());
+				for (Map.Entry<QuadricFace, TextureCoords> e : v.getFaceToTexture().entrySet()) {
+					out.writeInt(e.getKey().getIndex());
+					out.writeInt(e.getValue().getIndex());
+				}
+
+				out.writeInt(v.getTexToQuadric5().size());
+				for (Map.Entry<TextureCoords, double[]> e : v.getTexToQuadric5().entrySet()) {
+					out.writeInt(e.getKey().getIndex());
+					writeDoubles(out, e.getValue());
+				}
+			}
+		}
+
+		// the candidates of the heap are written in the order of its array, so adding
+		// them in the same order restores the order of equally cheap candidates as well
+		List<QuadricCollapseInfo> heapCandidates = new ArrayList<>();
+		heap.getHeapCandidates().forEach(heapCandidates::add);
+		writeCandidates(out, heapCandidates);
+		writeCandidates(out, heap.getInvalidCandidates());
+	}
+
+	/**
+	 * This method reads a checkpoint from the given stream and restores the
+	 * decimation state including the heap of collapse candidates.
+	 * 
+	 * @param in
+	 *            The stream the checkpoint shall be read from
+	 * @param fingerprint
+	 *            The string identifying the original model, which has to match
+	 *            the fingerprint stored in the checkpoint
+	 * @param config
+	 *            The configuration used for computing the costs of the collapse
+	 *            candidates
+	 * @return Returns the restored checkpoint
+	 * @throws IOException
+	 *             if the checkpoint could not be read, is invalid or belongs to
+	 *             another model
+	 */
+	public static QuadricCheckpoint readFrom(DataInputStream in, String fingerprint,
+			QuadricEdgeCollapseConfig config) throws IOException {
+		if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+			throw new IOException("Unsupported checkpoint format");
+		}
+		if (!in.readUTF().equals(fingerprint)) {
+			throw new IOException("Checkpoint belongs to another version of the model");
+		}
+
+		int vertexCount = in.readInt();
+		boolean hasTexture = in.readBoolean();
+		double scale = in.readDouble();
+		double[] mins = readDoubles(in);
+		int nextVertexIndex = in.readInt();
+		int nextTextureIndex = in.readInt();
+
+		HashMap<Integer, TextureCoords> allTextureCoords = new HashMap<>();
+		HashMap<Integer, TextureCoords> textureCoords = hasTexture ? new HashMap<>() : null;
+		int textureCount = in.readInt();
+		for (int i = 0; i < textureCount; ++i) {
+			TextureCoords tex = new TextureCoords(in.readInt(), readDoubles(in));
+			allTextureCoords.put(tex.getIndex(), tex);
+			if (in.readBoolean()) {
+				textureCoords.put(tex.getIndex(), tex);
+			}
+		}
+
+		HashMap<Integer, QuadricVertex> vertices = new HashMap<>();
+		int vertexTotal = in.readInt();
+		for (int i = 0; i < vertexTotal; ++i) {
+			int index = in.readInt();
+			double[] coords = readDoubles(in);
+			String[] additionals = readStrings(in);
+			double[] quadric3 = readDoubles(in);
+			boolean isAtBoundary = in.readBoolean();
+			int partitions = in.readInt();
+
+			vertices.put(index, new QuadricVertex(index, coords, additionals, quadric3, new HashMap<>(),
+					new HashMap<>(), new LinkedList<>(), partitions, isAtBoundary));
+		}
+
+		HashMap<Integer, QuadricFace> faces = new HashMap<>();
+		int faceTotal = in.readInt();
+		for (int i = 0; i < faceTotal; ++i) {
+			int index = in.readInt();
+			int[] vertexIndices = readInts(in);
+			Vertex[] faceVertices = new Vertex[vertexIndices.length];
+			for (int j = 0; j < vertexIndices.length; ++j) {
+				faceVertices[j] = require(vertices, vertexIndices[j]);
+			}
+
+			TextureCoords[] faceTextureCoords = null;
+			if (hasTexture) {
+				int[] textureIndices = readInts(in);
+				faceTextureCoords = new TextureCoords[textureIndices.length];
+				for (int j = 0; j < textureIndices.length; ++j) {
+					faceTextureCoords[j] = require(allTextureCoords, textureIndices[j]);
+				}
+			}
+
+			faces.put(index,
+					new QuadricFace(index, faceVertices, null, faceTextureCoords, readStrings(in), readNullableString(in)));
+		}
+
+		for (int i = 0; i < vertexTotal; ++i) {
+			QuadricVertex v = require(vertices, in.readInt());
+
+			int adjacentFaceCount = in.readInt();
+			for (int j = 0; j < adjacentFaceCount; ++j) {
+				v.getAdjacentFaces().add(require(faces, in.readInt()));
+			}
+
+			if (hasTexture) {
+				int faceToTextureCount = in.readInt();
+				for (int j = 0; j < faceToTextureCount; ++j) {
+					v.getFaceToTexture().put(require(faces, in.readInt()), require(allTextureCoords, in.readInt()));
+				}
+
+				int quadric5Count = in.readInt();
+				for (int j = 0; j < quadric5Count; ++j) {
+					v.getTexToQuadric5().put(require(allTextureCoords, in.readInt()), readDoubles(in));
+				}
+			}
+		}
+
+		PriorityQueueController heap = new PriorityQueueController();
+		for (QuadricCollapseInfo c : readCandidates(in, vertices, hasTexture, config)) {
+			heap.add(c);
+		}
+		for (QuadricCollapseInfo c : readCandidates(in, vertices, hasTexture, config)) {
+			heap.addInvalid(c);
+		}
+
+		return new QuadricCheckpoint(vertexCount, vertices, new HashSet<>(faces.values()), textureCoords, heap,
+				nextVertexIndex, nextTextureIndex, hasTexture, scale, mins);
+	}
+
+	private static void writeCandidates(DataOutputStream out, Collection<QuadricCollapseInfo> candidates)
+			throws IOException {
+		out.writeInt(candidates.size());
+		for (QuadricCollapseInfo c : candidates) {
+			out.writeInt(c.getVertexA().getIndex());
+			out.writeInt(c.getVertexB().getIndex());
+			out.writeBoolean(c.isAtBoundary());
+		}
+	}
+
+	private static List<QuadricCollapseInfo> readCandidates(DataInputStream in, Map<Integer, QuadricVertex> vertices,
+			boolean hasTexture, QuadricEdgeCollapseConfig config) throws IOException {
+		int count = in.readInt();
+		List<QuadricCollapseInfo> candidates = new ArrayList<>(count);
+		for (int i = 0; i < count; ++i) {
+			QuadricVertex a = require(vertices, in.readInt());
+			QuadricVertex b = require(vertices, in.readInt());
+			QuadricCollapseInfo c = new QuadricCollapseInfo(a, b, in.readBoolean(), hasTexture, config);
+			a.addCollapseCandidate(c);
+			b.addCollapseCandidate(c);
+			candidates.add(c);
+		}
+		return candidates;
+	}
+
+	private static <T> T require(Map<Integer, T> map, int index) throws IOException {
+		T value = map.get(index);
+		if (value == null) {
+			throw new IOException("Checkpoint references unknown element " + index);
+		}
+		return value;
+	}
+
+	private static void writeDoubles(DataOutputStream out, double[] values) throws IOException {
+		out.writeInt(values.length);
+		for (double value : values) {
+			out.writeDouble(value);
+		}
+	}
+
+	private static double[] readDoubles(DataInputStream in) throws IOException {
+		double[] values = new double[in.readInt()];
+		for (int i = 0; i < values.length; ++i) {
+			values[i] = in.readDouble();
+		}
+		return values;
+	}
+
+	private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+		out.writeInt(values.length);
+		for (int value : values) {
+			out.writeInt(value);
+		}
+	}
+
+	private static int[] readInts(DataInputStream in) throws IOException {
+		int[] values = new int[in.readInt()];
+		for (int i = 0; i < values.length; ++i) {
+			values[i] = in.readInt();
+		}
+		return values;
+	}
+
+	private static void writeStrings(DataOutputStream out, String[] values) throws IOException {
+		out.writeInt(values == null ? -1 : values.length);
+		if (values != null) {
+			for (String value : values) {
+				writeNullableString(out, value);
+			}
+		}
+	}
+
+	private static String[] readStrings(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+
+		String[] values = new String[length];
+		for (int i = 0; i < length; ++i) {
+			values[i] = readNullableString(in);
+		}
+		return values;
+	}
+
+	private static void writeNullableString(DataOutputStream out, String value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeUTF(value);
+		}
+	}
+
+	private static String readNullableString(DataInputStream in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+
+	private Map<Integer, TextureCoords> getReferencedTextureCoords() {
+		Map<Integer, TextureCoords> referenced = new HashMap<>(textureCoords);
+
+		for (QuadricFace f : faces) {
+			for (TextureCoords tex : f.getTextureCoords()) {
+				referenced.put(tex.getIndex(), tex);
+			}
+		}
+
+		for (QuadricVertex v : vertices.values()) {
+			for (TextureCoords tex : v.getFaceToTexture().values()) {
+				referenced.put(tex.getIndex(), tex);
+			}
+			for (TextureCoords tex : v.getTexToQuadric5().keySet()) {
+				referenced.put(tex.getIndex(), tex);
+			}
+		}
+
+		return referenced;
+	}
+
+	/**
+	 * This method returns the vertex count of the compression level, after which
+	 * the checkpoint has been taken.
+	 * 
+	 * @return Returns the vertex count of the checkpoint
+	 */
+	public int getVertexCount() {
+		return vertexCount;
+	}
+
+	/**
+	 * This method returns the remaining vertices mapped by their indices.
+	 * 
+	 * @return Returns the remaining vertices
+	 */
+	public HashMap<Integer, QuadricVertex> getVertices() {
+		return vertices;
+	}
+
+	/**
+	 * This method returns the remaining faces.
+	 * 
+	 * @return Returns the remaining faces
+	 */
+	public Collection<QuadricFace> getFaces() {
+		return faces;
+	}
+
+	/**
+	 * This method returns the remaining texture coordinates mapped by their
+	 * indices.
+	 * 
+	 * @return Returns the remaining texture coordinates or null for an untextured
+	 *         model
+	 */
+	public HashMap<Integer, TextureCoords> getTextureCoords() {
+		return textureCoords;
+	}
+
+	/**
+	 * This method returns the heap of collapse candidates.
+	 * 
+	 * @return Returns the heap of collapse candidates
+	 */
+	public PriorityQueueController getHeap() {
+		return heap;
+	}
+
+	/**
+	 * This method returns the index of the next vertex created by a collapse.
+	 * 
+	 * @return Returns the next vertex index
+	 */
+	public int getNextVertexIndex() {
+		return nextVertexIndex;
+	}
+
+	/**
+	 * This method returns the index of the next texture coordinates created by a
+	 * collapse.
+	 * 
+	 * @return Returns the next texture coordinates index
+	 */
+	public int getNextTextureIndex() {
+		return nextTextureIndex;
+	}
+
+	/**
+	 * This method returns a boolean indicating if the model is textured.
+	 * 
+	 * @return Returns true, if the model is textured, otherwise false
+	 */
+	public boolean hasTexture() {
+		return hasTexture;
+	}
+
+	/**
+	 * This method returns the scaling factor used to normalize the vertex
+	 * coordinates.
+	 * 
+	 * @return Returns the scaling factor
+	 */
+	public double getScale() {
+		return scale;
+	}
+
+	/**
+	 * This method returns the offset used to normalize the vertex coordinates.
+	 * 
+	 * @return Returns the offset as array of length 3
+	 */
+	public double[] getMins() {
+		return mins;
+	}
+}
@@ -0,0 +1,231 @@
+package de.uni_passau.visit.compression.logic.algorithms.quadric5;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * This class stores the checkpoints (@see QuadricCheckpoint) of the decimation
+ * of one model in a directory on the hard drive. A checkpoint is stored after
+ * each created compression level, so a later request for lower compression
+ * levels of the same model can resume the decimation from the nearest
+ * checkpoint with a higher vertex count instead of starting with the original
+ * model.
+ * 
+ * While the decimation proceeds between two compression levels, periodic
+ * checkpoints are stored as well, so an interrupted decimation can be resumed
+ * from its last checkpoint. The time spent on storing checkpoints is bounded to
+ * a configurable fraction of the time elapsed since the creation of the store.
+ * Only the most recent periodic checkpoint is kept.
+ * 
+ * Each checkpoint is identified by the name of the model and its vertex count.
+ * Additionally a fingerprint of the original model and the settings of the
+ * algorithm is stored in each checkpoint, so checkpoints of a modified model or
+ * of a decimation using other settings are never used.
+ * 
+ * @author agent
+ *
+ */
+public class QuadricCheckpointStore {
+
+	private static final Logger log = LogManager.getLogger(QuadricCheckpointStore.class);
+
+	private static final String FILE_EXTENSION = ".qcp";
+	private static final String PERIODIC_FILE_EXTENSION = ".partial" + FILE_EXTENSION;
+	private static final String TEMPORARY_FILE_EXTENSION = ".tmp";
+
+	private final File directory;
+	private final String modelName;
+	private final String fingerprint;
+	private final QuadricEdgeCollapseConfig config;
+	private final long intervalNanos;
+	private final double timeFraction;
+	private final long createdAt;
+	private long lastStoredAt;
+	private long lastStoreDuration = 0;
+	private long totalStoreDuration = 0;
+	private File lastPeriodicFile = null;
+
+	/**
+	 * This constructor creates a new checkpoint store for the given model.
+	 * 
+	 * @param directory
+	 *            The directory the checkpoints shall be stored in
+	 * @param modelName
+	 *            A name uniquely identifying the model
+	 * @param modelFingerprint
+	 *            A string identifying the current version of the original model,
+	 *            e.g. based on its file size and modification date
+	 * @param config
+	 *            The configuration of the decimation algorithm
+	 * @param intervalMillis
+	 *            The minimum time between two periodic checkpoints in milliseconds
+	 * @param timeFraction
+	 *            The maximum fraction of the elapsed time, which may be spent on
+	 *            storing checkpoints
+	 */
+	public QuadricCheckpointStore(File directory, String modelName, String modelFingerprint,
+			QuadricEdgeCollapseConfig config, long intervalMillis, double timeFraction) {
+		this.directory = directory;
+		this.modelName = modelName;
+		this.config = config;
+		this.intervalNanos = intervalMillis * 1000000L;
+		this.timeFraction = timeFraction;
+		this.createdAt = System.nanoTime();
+		this.lastStoredAt = createdAt;
+		this.fingerprint = modelFingerprint + "|" + config.getTargetsizeBoundaryPenalty() + "|"
+				+ config.getTargetsizeNormalDifferenceThreshold() + "|" + config.getTargetsizeQualityThreshold() + "|"
+				+ config.getTargetsizeNormalPenalization() + "|" + config.getTargetsizePartitionPenalizationFactor();
+	}
+
+	/**
+	 * This method loads the checkpoint with the lowest vertex count, which is not
+	 * lower than the given vertex count. Checkpoints that cannot be read or belong
+	 * to another version of the model are ignored.
+	 * 
+	 * @param vertexCount
+	 *            The highest vertex count of the compression levels that shall be
+	 *            created
+	 * @return Returns the restored checkpoint or null, if no suitable checkpoint
+	 *         exists
+	 */
+	public QuadricCheckpoint load(int vertexCount) {
+		File[] files = directory.listFiles();
+		if (files == null) {
+			return null;
+		}
+
+		File nearest = null;
+		int nearestVertexCount = Integer.MAX_VALUE;
+		for (File file : files) {
+			int checkpointVertexCount = getVertexCount(file.getName());
+			if (checkpointVertexCount >= vertexCount && checkpointVertexCount < nearestVertexCount) {
+				nearest = file;
+				nearestVertexCount = checkpointVertexCount;
+			}
+		}
+
+		if (nearest == null) {
+			return null;
+		}
+
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(new InflaterInputStream(new FileInputStream(nearest))))) {
+			return QuadricCheckpoint.readFrom(in, fingerprint, config);
+		} catch (IOException ex) {
+			log.warn("Could not restore checkpoint " + nearest.getName() + ": " + ex.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * This method returns whether a periodic checkpoint shall be stored now. This
+	 * is the case, if the minimum interval since the last checkpoint has passed
+	 * and storing another checkpoint, which is expected to take as long as the
+	 * last one, does not exceed the fraction of the elapsed time available for
+	 * checkpoints.
+	 * 
+	 * @return Returns true, if a periodic checkpoint is due, otherwise false
+	 */
+	public boolean isCheckpointDue() {
+		long now = System.nanoTime();
+		return now - lastStoredAt >= intervalNanos
+				&& totalStoreDuration + lastStoreDuration <= timeFraction * (now - createdAt);
+	}
+
+	/**
+	 * This method stores the given checkpoint. The checkpoint is written to a
+	 * temporary file first, which is renamed afterwards, so an interrupted write
+	 * never leaves an incomplete checkpoint. A periodic checkpoint replaces the
+	 * periodic checkpoint stored before.
+	 * 
+	 * @param checkpoint
+	 *            The checkpoint that shall be stored
+	 * @param periodic
+	 *            A boolean indicating if the checkpoint has been taken between two
+	 *            compression levels (true) or after a compression level has been
+	 *            created (false)
+	 * @throws IOException
+	 *             if the checkpoint could not be written
+	 */
+	public void store(QuadricCheckpoint checkpoint, boolean periodic) throws IOException {
+		long start = System.nanoTime();
+
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Could not create checkpoint directory " + directory.getAbsolutePath());
+		}
+
+		File file = new File(directory, modelName + "_" + checkpoint.getVertexCount()
+				+ (periodic ? PERIODIC_FILE_EXTENSION : FILE_EXTENSION));
+		File temporaryFile = new File(directory, file.getName() + TEMPORARY_FILE_EXTENSION);
+
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new DeflaterOutputStream(new FileOutputStream(temporaryFile), deflater)))) {
+			checkpoint.writeTo(out, fingerprint);
+		} finally {
+			deflater.end();
+		}
+
+		Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+
+		if (periodic) {
+			if (lastPeriodicFile != null && !lastPeriodicFile.equals(file)) {
+				Files.deleteIfExists(lastPeriodicFile.toPath());
+			}
+			lastPeriodicFile = file;
+		}
+
+		lastStoredAt = System.nanoTime();
+		lastStoreDuration = lastStoredAt - start;
+		totalStoreDuration += lastStoreDuration;
+	}
+
+	/**
+	 * This method deletes all periodic checkpoints of the model. It should be
+	 * called after the decimation has been completed, since the periodic
+	 * checkpoints are only needed for resuming an interrupted decimation.
+	 */
+	public void discardPeriodicCheckpoints() {
+		File[] files = directory.listFiles();
+		if (files == null) {
+			return;
+		}
+
+		for (File file : files) {
+			if (file.getName().endsWith(PERIODIC_FILE_EXTENSION) && getVertexCount(file.getName()) >= 0
+					&& !file.delete()) {
+				log.warn("Could not delete periodic checkpoint " + file.getName());
+			}
+		}
+		lastPeriodicFile = null;
+	}
+
+	private int getVertexCount(String filename) {
+		String prefix = modelName + "_";
+		String extension = filename.endsWith(PERIODIC_FILE_EXTENSION) ? PERIODIC_FILE_EXTENSION : FILE_EXTENSION;
+		if (!filename.startsWith(prefix) || !filename.endsWith(extension)) {
+			return -1;
+		}
+
+		try {
+			return Integer.parseInt(filename.substring(prefix.length(), filename.length() - extension.length()));
+		} catch (NumberFormatException ex) {
+			return -1;
+		}
+	}
+}
@@ -1,16 +1,25 @@
 package de.uni_passau.visit.compression.logic.algorithms.quadric5;
 
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
 
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.logging.log4j.LogManager;
@@ -22,9 +31,11 @@ import de.uni_passau.visit.compression.data.TechnicalMetadataCompressionLevel;
 import de.uni_passau.visit.compression.data.TechnicalMetadataFileTypeSpecific3D;
 import de.uni_passau.visit.compression.exceptions.TextureCompressionException;
 import de.uni_passau.visit.compression.logic.algorithms.image.ImageCompressor;
+import de.uni_passau.visit.compression.logic.algorithms.image.TextureAtlasRepacker;
 import de.uni_passau.visit.compression.logic.io.AbstractModel;
 import de.uni_passau.visit.compression.logic.io.ObjModel;
 import de.uni_passau.visit.compression.logic.io.ObjWriter;
+import de.uni_passau.visit.compression.logic.util.CancellationToken;
 import de.uni_passau.visit.compression.models.AbstractCompressionLevelFilter;
 import de.uni_passau.visit.compression.models.CompressionModel;
 import de.uni_passau.visit.compression.models.FilenameGenerator3D;
@@ -45,6 +56,9 @@ import de.uni_passau.visit.compression.models.FilenameGenerator3D;
 public class QuadricCompressedModelHandler implements QuadricAbstractCompressedModelHandler {
 
 	private static final Logger log = LogManager.getLogger(QuadricCompressedModelHandler.class);
+	private static final int TEXTURE_ATLAS_PADDING = 4;
+	private static final double TEXTURE_ATLAS_MAX_USED_FRACTION = 0.85;
+
 	private final List<Integer> vertexCounts;
 	private final Map<Integer, EditableTechnicalMetadataCompressionLevel> newTechMetaCompressionLevels;
 	private final String header;
@@ -55,6 +69,12 @@ public class QuadricCompressedModelHandler implements QuadricAbstractCompressedM
 	private final FilenameGenerator3D filenameGen;
 	private final String textureSuffix;
 	private final boolean hasMaterial, hasTexture;
+	private final String[] additionalTextureFormats;
+	private final int additionalTextureQuality;
+	private final boolean textureAtlasRepacking;
+	private final Map<Integer, TextureAtlasRepacker> textureAtlasRepackers;
+	private final CancellationToken cancellationToken;
+	private Dimension originalTextureSize;
 
 	/**
 	 * This constructor initializes the object with the given arguments.
@@ -77,14 +97,31 @@ public class QuadricCompressedModelHandler implements QuadricAbstractCompressedM
 	 * @param filenameGen
 	 *            The filename generator that shall be used for reading the input
 	 *            files and for writing the output files
+	 * @param additionalTextureFormats
+	 *            The extensions of all image formats the textures shall be stored
+	 *            in additionally to the original texture format. The first format
+	 *            available for a compression level will be referenced by its
+	 *            MTL-file. Use an empty array to keep the original format only.
+	 * @param additionalTextureQuality
+	 *            The encoder quality used for the additional texture formats
+	 * @param textureAtlasRepacking
+	 *            If true, the texture of each compression level will be repacked
+	 *            into a new texture atlas containing only the regions still
+	 *            referenced by the compressed model. Levels, for which no atlas can
+	 *            be created, fall back to resizing the original texture.
+	 * @param cancellationToken
+	 *            The token used to cancel the storage of compressed models and the
+	 *            compression of their textures
 	 * @throws FileNotFoundException
 	 *             If one of the MTL-files referenced by the OBJ-file could not be
 	 *             found
 	 */
 	public QuadricCompressedModelHandler(AbstractCompressionLevelFilter filter, String originalHeader,
 			int[] textureCompressionLevelLimits, int[] textureCompressionLevelSizes, TechnicalMetadata techMeta,
-			FilenameGenerator3D filenameGen) throws FileNotFoundException {
+			FilenameGenerator3D filenameGen, String[] additionalTextureFormats, int additionalTextureQuality,
+			boolean textureAtlasRepacking, CancellationToken cancellationToken) throws FileNotFoundException {
 		this.header = originalHeader;
+		this.cancellationToken = cancellationToken;
 		this.vertexCounts = new LinkedList<>();
 		this.newTechMetaCompressionLevels = new HashMap<>();
 		this.textureCompressionLevelLimits = textureCompressionLevelLimits;
@@ -111,6 +148,94 @@ public class QuadricCompressedModelHandler implements QuadricAbstractCompressedM
 		this.hasTexture = hasTexture;
 		this.hasMaterial = hasMaterial;
 		this.textureSuffix = textureSuffix;
+		this.additionalTextureQuality = additionalTextureQuality;
+
+		// the original format is always written, so it mustn't be generated twice
+		final String originalSuffix = textureSuffix;
+		this.additionalTextureFormats = Arrays.stream(additionalTextureFormats)
+				.filter(format -> !format.equalsIgnoreCase(originalSuffix)).toArray(String[]::new);
+
+		// the atlas is rendered in Java, so the original format has to be supported by
+		// ImageIO
+		this.textureAtlasRepacking = textureAtlasRepacking && hasTexture
+				&& ImageIO.getImageWritersBySuffix(textureSuffix).hasNext();
+		this.textureAtlasRepackers = new HashMap<>();
+	}
+
+	/**
+	 * This method returns the dimension of the original texture file without
+	 * decoding the whole image. The result is cached for subsequent calls.
+	 * 
+	 * @return Returns the dimension of the original texture, or null if it could
+	 *         not be determined
+	 */
+	private Dimension getOriginalTextureSize() {
+		if (originalTextureSize == null) {
+			try (ImageInputStream in = ImageIO.createImageInputStream(filenameGen.getTextureFilePath(textureSuffix))) {
+				Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+				if (readers != null && readers.hasNext()) {
+					ImageReader reader = readers.next();
+					try {
+						reader.setInput(in);
+						originalTextureSize = new Dimension(reader.getWidth(0), reader.getHeight(0));
+					} finally {
+						reader.dispose();
+					}
+				}
+			} catch (IOException ex) {
+				log.warn("Could not determine the size of the original texture: " + ex.getMessage());
+			}
+		}
+
+		return originalTextureSize;
+	}
+
+	/**
+	 * This method returns the upper bound for the texture size of the compression
+	 * level with the given vertex count.
+	 * 
+	 * @param vertexCount
+	 *            The vertex count of the compression level
+	 * @return Returns the maximum width and height of the level's texture
+	 */
+	private int getTextureBound(int vertexCount) {
+		int currentSizeIndex = 0;
+
+		while (currentSizeIndex < textureCompressionLevelLimits.length
+				&& vertexCount > textureCompressionLevelLimits[currentSizeIndex]) {
+			currentSizeIndex++;
+		}
+
+		return textureCompressionLevelSizes[currentSizeIndex];
+	}
+
+	/**
+	 * This method tries to repack the texture of the given compressed model into a
+	 * new texture atlas. If successful, the repacker is stored for the later
+	 * texture compression and the model with updated texture coordinates is
+	 * returned.
+	 * 
+	 * @param model
+	 *            The compressed model
+	 * @param vertexCount
+	 *            The vertex count of the compressed model
+	 * @return Returns the model referencing the new atlas, or the given model if no
+	 *         atlas could be created
+	 */
+	private AbstractModel repackTexture(AbstractModel model, int vertexCount) {
+		Dimension size = getOriginalTextureSize();
+		if (size == null) {
+			return model;
+		}
+
+		TextureAtlasRepacker repacker = new TextureAtlasRepacker(model, TEXTURE_ATLAS_PADDING,
+				TEXTURE_ATLAS_MAX_USED_FRACTION);
+		if (repacker.pack(size.width, size.height, getTextureBound(vertexCount))) {
+			textureAtlasRepackers.put(vertexCount, repacker);
+			return repacker.getRepackedModel();
+		}
+
+		return model;
 	}
 
 	/**
@@ -181,10 +306,13 @@ public class QuadricCompressedModelHandler implements QuadricAbstractCompressedM
 	 * @param vertexCount
 	 *            The count of vertices of the model, for which the MTL-file shall
 	 *            be generated
+	 * @param referencedTextureSuffix
+	 *            The extension of the texture file that shall be referenced by the
+	 *            MTL-file without leading dot
 	 * @throws IOException
 	 *             If the MTL-file could not be written
 	 */
-	private void writeMtlFile(int vertexCount) throws IOException {
+	private void writeMtlFile(int vertexCount, String referencedTextureSuffix) throws IOException {
 		Scanner s = new Scanner(filenameGen.getMtlFilePath());
 		StringBuilder mtlBuilder = new StringBuilder();
 
@@ -193,7 +321,7 @@ public class QuadricCompressedModelHandler implements QuadricAbstractCompressedM
 			String[] tokens = line.split(" ");
 
 			if (tokens.length >= 2 && tokens[0].equals(ObjModel.MTL_TEXTURE_IMPORT_PREFIX)) {
-				tokens[1] = filenameGen.getTextureFilename(String.valueOf(vertexCount), textureSuffix);
+				tokens[1] = filenameGen.getTextureFilename(String.valueOf(vertexCount), referencedTextureSuffix);
 				mtlBuilder.append(String.join(" ", tokens));
 			} else {
 				mtlBuilder.append(line);
@@ -214,9 +342,15 @@ public class QuadricCompressedModelHandler implements QuadricAbstractCompressedM
 
 	@Override
 	public boolean handleCompressedModel(AbstractModel model, int vertexCount) {
+		cancellationToken.throwIfCancelled();
+
 		if (filter.filterCompressionLevel(String.valueOf(vertexCount))) {
 			log.info("Storing compressed version with " + vertexCount + " vertices.");
 			try {
+				if (textureAtlasRepacking) {
+					model = repackTexture(model, vertexCount);
+				}
+
 				registerTechMetaDataCompressionLevel(model, vertexCount);
 				ObjWriter.write(filenameGen.getObjFilePath(String.valueOf(vertexCount)).getAbsolutePath(), model,
 						getModifiedHeader(vertexCount));
@@ -226,8 +360,10 @@ public class QuadricCompressedModelHandler implements QuadricAbstractCompressedM
 						filenameGen.getObjFilename(String.valueOf(vertexCount)),
 						FileUtils.sizeOf(filenameGen.getObjFilePath(String.valueOf(vertexCount))));
 
-				if (hasMaterial) {
-					writeMtlFile(vertexCount);
+				// textured models get their MTL-file after the texture compression, since
+				// the referenced texture format is not known before
+				if (hasMaterial && !hasTexture) {
+					writeMtlFile(vertexCount, textureSuffix);
 				}
 				return true;
 			} catch (IOException e) {
@@ -289,7 +425,12 @@ public class QuadricCompressedModelHandler implements QuadricAbstractCompressedM
 	/**
 	 * The call to this method triggers the compression of the textures for each of
 	 * the created compressed models. Therefore it should be called after all
-	 * desired compression levels of the original models have been generated.
+	 * desired compression levels of the original models have been generated. For
+	 * textured models this method also writes the MTL-files of all compression
+	 * levels, which reference the first additional texture format available for
+	 * the respective level or the original texture format otherwise. Levels with a
+	 * repacked texture atlas get their atlas rendered instead of a resized copy of
+	 * the original texture.
 	 * 
 	 * @return Returns false, if an error during the texture compression occurred,
 	 *         otherwise true
@@ -301,19 +442,11 @@ public class QuadricCompressedModelHandler implements QuadricAbstractCompressedM
 		if (hasTexture) {
 			int index = 0;
 			for (Integer currentVertexCount : vertexCounts) {
-				int currentSizeIndex = 0;
-
-				while (currentSizeIndex < textureCompressionLevelLimits.length
-						&& currentVertexCount > textureCompressionLevelLimits[currentSizeIndex]) {
-					currentSizeIndex++;
-				}
-
-				textureBounds[index] = textureCompressionLevelSizes[currentSizeIndex];
-
+				textureBounds[index] = getTextureBound(currentVertexCount);
 				++index;
 			}
 
-			ImageCompressor compressor = new ImageCompressor();
+			ImageCompressor compressor = new ImageCompressor(cancellationToken);
 
 			File[] filePaths = new File[textureBounds.length];
 			String[] fileNames = new String[textureBounds.length];
@@ -325,24 +458,171 @@ public class QuadricCompressedModelHandler implements QuadricAbstractCompressedM
 				++index;
 			}
 
-			try {
-				compressor.compressTextureFile(filenameGen.getTextureFilePath(textureSuffix), filePaths, textureBounds);
-			} catch (TextureCompressionException ex) {
-				log.error(ex.getMessage());
+			if (!writeTextureAtlases(filePaths)) {
 				success = false;
 			}
 
+			index = 0;
+			for (Integer currentVertexCount : vertexCounts) {
+				if (!textureAtlasRepackers.containsKey(currentVertexCount)) {
+					try {
+						compressor.compressTextureFile(filenameGen.getTextureFilePath(textureSuffix),
+								new File[] { filePaths[index] }, new int[] { textureBounds[index] });
+					} catch (TextureCompressionException ex) {
+						log.error(ex.getMessage());
+						success = false;
+					}
+				}
+				++index;
+			}
+
 			index = 0;
 			for (Integer currentVertexCount : vertexCounts) {
 				long fileSize = FileUtils.sizeOf(filePaths[index]);
 				addTechMetaDataCompressionLevelFile(currentVertexCount, fileNames[index], fileSize);
 				++index;
 			}
+
+			String[] referencedTextureSuffixes = new String[textureBounds.length];
+			Arrays.fill(referencedTextureSuffixes, textureSuffix);
+
+			for (String format : additionalTextureFormats) {
+				compressTexturesToAdditionalFormat(compressor, format, textureBounds, filePaths,
+						referencedTextureSuffixes);
+			}
+
+			if (hasMaterial) {
+				index = 0;
+				for (Integer currentVertexCount : vertexCounts) {
+					try {
+						writeMtlFile(currentVertexCount, referencedTextureSuffixes[index]);
+					} catch (IOException ex) {
+						log.error("Error while writing material file to disk: " + ex.getMessage());
+						success = false;
+					}
+					++index;
+				}
+			}
 		}
 
 		return success;
 	}
 
+	/**
+	 * This method renders the texture atlases of all compression levels, whose
+	 * texture has been repacked. The original texture is decoded only once for all
+	 * levels.
+	 * 
+	 * @param filePaths
+	 *            The texture file paths in the original format for each created
+	 *            compressed model
+	 * @return Returns false, if an atlas could not be written, otherwise true
+	 */
+	private boolean writeTextureAtlases(File[] filePaths) {
+		if (textureAtlasRepackers.isEmpty()) {
+			return true;
+		}
+
+		BufferedImage original;
+		try {
+			original = ImageIO.read(filenameGen.getTextureFilePath(textureSuffix));
+		} catch (IOException ex) {
+			log.error("Could not read original texture for atlas repacking: " + ex.getMessage());
+			return false;
+		}
+
+		if (original == null) {
+			log.error("Could not decode original texture for atlas repacking.");
+			return false;
+		}
+
+		boolean success = true;
+		int index = 0;
+		for (Integer currentVertexCount : vertexCounts) {
+			cancellationToken.throwIfCancelled();
+			TextureAtlasRepacker repacker = textureAtlasRepackers.get(currentVertexCount);
+			if (repacker != null) {
+				try {
+					repacker.writeAtlas(original, filePaths[index], textureSuffix);
+				} catch (TextureCompressionException ex) {
+					log.error("Error while writing texture atlas to disk: " + ex.getMessage());
+					success = false;
+				}
+			}
+			++index;
+		}
+
+		return success;
+	}
+
+	/**
+	 * This method stores the textures of all created compressed models in the given
+	 * additional image format and registers the resulting files in the technical
+	 * meta data. Since additional formats are optional, failures are only logged.
+	 * 
+	 * @param compressor
+	 *            The image compressor used for resizing and transcoding
+	 * @param format
+	 *            The extension of the additional image format without leading dot
+	 * @param textureBounds
+	 *            The texture size upper bound for each created compressed model
+	 * @param originalFormatPaths
+	 *            The texture file paths in the original format for each created
+	 *            compressed model. Levels with a repacked texture atlas are
+	 *            transcoded from these files, since their texture coordinates
+	 *            don't match the original texture anymore.
+	 * @param referencedTextureSuffixes
+	 *            The texture extensions that shall be referenced by the MTL-file
+	 *            of each created compressed model. Entries still referencing the
+	 *            original format will be replaced by the given format, if the
+	 *            respective texture could be created.
+	 */
+	private void compressTexturesToAdditionalFormat(ImageCompressor compressor, String format, int[] textureBounds,
+			File[] originalFormatPaths, String[] referencedTextureSuffixes) {
+		File[] filePaths = new File[textureBounds.length];
+		String[] fileNames = new String[textureBounds.length];
+		boolean[] created = new boolean[textureBounds.length];
+
+		int index = 0;
+		for (Integer currentVertexCount : vertexCounts) {
+			filePaths[index] = filenameGen.getTextureFilePath(String.valueOf(currentVertexCount), format);
+			fileNames[index] = filenameGen.getTextureFilename(String.valueOf(currentVertexCount), format);
+			++index;
+		}
+
+		index = 0;
+		for (Integer currentVertexCount : vertexCounts) {
+			File source = textureAtlasRepackers.containsKey(currentVertexCount) ? originalFormatPaths[index]
+					: filenameGen.getTextureFilePath(textureSuffix);
+			try {
+				// a file remaining from a former run must not be taken for the result
+				Files.deleteIfExists(filePaths[index].toPath());
+				compressor.compressTextureFile(source, new File[] { filePaths[index] },
+						new int[] { textureBounds[index] }, additionalTextureQuality);
+				created[index] = filePaths[index].length() > 0;
+			} catch (IOException | TextureCompressionException ex) {
+				log.warn("Could not store textures in additional format '" + format + "': " + ex.getMessage());
+			}
+			++index;
+		}
+
+		index = 0;
+		for (Integer currentVertexCount : vertexCounts) {
+			if (created[index]) {
+				addTechMetaDataCompressionLevelFile(currentVertexCount, fileNames[index],
+						FileUtils.sizeOf(filePaths[index]));
+
+				if (referencedTextureSuffixes[index].equals(textureSuffix)) {
+					referencedTextureSuffixes[index] = format;
+				}
+			} else {
+				log.warn("Texture for compressed version with " + currentVertexCount
+						+ " vertices could not be stored in additional format '" + format + "'.");
+			}
+			++index;
+		}
+	}
+
 	/**
 	 * This method writes the technical meta data collected during the compression
 	 * process in the @see TechnicalMetadata-object passed to the constructor. After
@@ -1,5 +1,6 @@
 package de.uni_passau.visit.compression.logic.algorithms.quadric5;
 
+import java.io.IOException;
 import java.security.InvalidAlgorithmParameterException;
 import java.util.Arrays;
 import java.util.Collection;
@@ -15,12 +16,18 @@ import org.apache.commons.math3.util.Pair;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import de.uni_passau.visit.compression.data.JobPhase;
+import de.uni_passau.visit.compression.data.JobProgress;
+import de.uni_passau.visit.compression.data.ProcessingStep;
+import de.uni_passau.visit.compression.exceptions.JobCancelledException;
 import de.uni_passau.visit.compression.exceptions.NonManifoldModelException;
 import de.uni_passau.visit.compression.logic.data.Face;
 import de.uni_passau.visit.compression.logic.data.TextureCoords;
 import de.uni_passau.visit.compression.logic.data.Vertex;
 import de.uni_passau.visit.compression.logic.data.VertexIndexComparator;
 import de.uni_passau.visit.compression.logic.io.AbstractModel;
+import de.uni_passau.visit.compression.logic.util.CancellationToken;
+import de.uni_passau.visit.compression.models.CompressionMetrics;
 
 /**
  * This is the main class of the quadric edge collapse compression algorithm for
@@ -44,7 +51,12 @@ public class QuadricEdgeCollapse {
 
 	private static final Logger log = LogManager.getLogger(QuadricEdgeCollapse.class);
 
+	private static final int CHECKPOINT_CHECK_INTERVAL = 1024;
+
 	private final QuadricEdgeCollapseConfig config;
+	private final CancellationToken cancellationToken;
+	private final JobProgress progress;
+	private final CompressionMetrics metrics;
 
 	/**
 	 * This constructor creates a new quadric edge collapse algorithm compressor
@@ -54,7 +66,45 @@ public class QuadricEdgeCollapse {
 	 *               compressor
 	 */
 	public QuadricEdgeCollapse(QuadricEdgeCollapseConfig config) {
+		this(config, new CancellationToken());
+	}
+
+	/**
+	 * This constructor creates a new quadric edge collapse algorithm compressor
+	 * using the settings specified in the given configuration object, which stops
+	 * as soon as the given token has been cancelled. If the token has been
+	 * preempted, a checkpoint is stored before stopping, as long as a checkpoint
+	 * store is used.
+	 * 
+	 * @param config            The configuration object specifying the settings
+	 *                          used for the compressor
+	 * @param cancellationToken The token used to cancel the compression
+	 */
+	public QuadricEdgeCollapse(QuadricEdgeCollapseConfig config, CancellationToken cancellationToken) {
+		this(config, cancellationToken, new JobProgress(), new CompressionMetrics());
+	}
+
+	/**
+	 * This constructor creates a new quadric edge collapse algorithm compressor
+	 * using the settings specified in the given configuration object, which stops
+	 * as soon as the given token has been cancelled, reports its progress to the
+	 * given progress object and records the durations of its steps in the given
+	 * metrics.
+	 * 
+	 * @param config            The configuration object specifying the settings
+	 *                          used for the compressor
+	 * @param cancellationToken The token used to cancel the compression
+	 * @param progress          The progress object updated during the
+	 *                          compression
+	 * @param metrics           The metrics the durations of the steps and the
+	 *                          edge collapses are recorded in
+	 */
+	public QuadricEdgeCollapse(QuadricEdgeCollapseConfig config, CancellationToken cancellationToken,
+			JobProgress progress, CompressionMetrics metrics) {
 		this.config = config;
+		this.cancellationToken = cancellationToken;
+		this.progress = progress;
+		this.metrics = metrics;
 	}
 
 	/**
@@ -78,9 +128,72 @@ public class QuadricEdgeCollapse {
 	public boolean compute(AbstractModel inputModel, Integer[] desiredVertexCount,
 			QuadricAbstractCompressedModelHandler compressedModelHandler)
 			throws InvalidAlgorithmParameterException, NonManifoldModelException {
+		return compute(inputModel, desiredVertexCount, compressedModelHandler, null);
+	}
+
+	/**
+	 * This class initiates the compression of a given model to the given vertex
+	 * counts using the quadric edge collapse algorithm. The resulting models are
+	 * treated by the given @see QuadricAbstractCompressedModelHandler. If a
+	 * checkpoint store is given, the decimation is resumed from the nearest stored
+	 * checkpoint, whose vertex count is not lower than all desired compression
+	 * levels. A new checkpoint is stored after each created compression level and
+	 * periodically in between, whenever the checkpoint store considers a
+	 * checkpoint to be due.
+	 * 
+	 * @param inputModel             The original model that shall be compressed
+	 * @param desiredVertexCount     An array containing the vertex counts of all
+	 *                               desired compression levels
+	 * @param compressedModelHandler The handler responsible for the treatment of
+	 *                               the resulting compressed models
+	 * @param checkpointStore        The store holding the checkpoints of the
+	 *                               decimation of the given model or null, if no
+	 *                               checkpoints shall be used
+	 * @return Returns false, if an error occurred while storing the resulting
+	 *         models
+	 * @throws InvalidAlgorithmParameterException if the given model contains
+	 *                                            non-triangular faces
+	 * @throws NonManifoldModelException          will not be thrown, since the
+	 *                                            current implementation supports
+	 *                                            non-manifold models
+	 * @throws JobCancelledException              if the compression has been
+	 *                                            cancelled or preempted
+	 */
+	public boolean compute(AbstractModel inputModel, Integer[] desiredVertexCount,
+			QuadricAbstractCompressedModelHandler compressedModelHandler, QuadricCheckpointStore checkpointStore)
+			throws InvalidAlgorithmParameterException, NonManifoldModelException {
 
 		String header = inputModel.getHeader();
+		progress.setPhase(JobPhase.INIT);
+
+		QuadricCheckpoint checkpoint = checkpointStore == null ? null
+				: checkpointStore.load(Collections.max(Arrays.asList(desiredVertexCount)));
+		if (checkpoint != null) {
+			log.debug("Resuming decimation from checkpoint with " + checkpoint.getVertexCount() + " vertices...");
+
+			QuadricAbstractCompressedModelCollector compressedModelCollector = new QuadricCompressedModelCollector(
+					header, compressedModelHandler, checkpoint.getScale(), checkpoint.getMins(),
+					checkpoint.hasTexture());
+
+			// a checkpoint taken after a compression level has been created contains this
+			// level, which needs to be stored again after an interrupted job
+			boolean success = true;
+			if (Arrays.asList(desiredVertexCount).contains(checkpoint.getVertexCount())) {
+				progress.setPhase(JobPhase.WRITE);
+				progress.setLevel(String.valueOf(checkpoint.getVertexCount()));
+				long writeStart = System.nanoTime();
+				success = compressedModelCollector.storeCompressedModel(checkpoint.getVertices(),
+						checkpoint.getFaces(), checkpoint.getTextureCoords(), checkpoint.getVertexCount());
+				metrics.recordStepSince(ProcessingStep.LEVEL_WRITE, writeStart);
+			}
+
+			return success & decimateMesh(checkpoint.getVertices(), checkpoint.getFaces(), checkpoint.getTextureCoords(),
+					checkpoint.getHeap(), desiredVertexCount, compressedModelCollector, checkpoint.hasTexture(),
+					checkpoint.getNextVertexIndex(), checkpoint.getNextTextureIndex(), checkpoint.getScale(),
+					checkpoint.getMins(), checkpointStore);
+		}
 
+		long initStart = System.nanoTime();
 		double mins[] = inputModel.getVertices().get(0).getCoords().clone();
 		double maxs[] = inputModel.getVertices().get(0).getCoords().clone();
 		for (Vertex v : inputModel.getVertices()) {
@@ -107,6 +220,7 @@ public class QuadricEdgeCollapse {
 			vertices.put(v.getIndex(), quadricVertex);
 		}
 
+		cancellationToken.throwIfCancelled();
 		log.debug("Initializing faces...");
 		boolean hasTexture = true;
 		Collection<QuadricFace> faces = new HashSet<>();
@@ -115,6 +229,7 @@ public class QuadricEdgeCollapse {
 			hasTexture &= f.hasTexture();
 		}
 
+		cancellationToken.throwIfCancelled();
 		log.debug("Initializing texture coords...");
 		HashMap<Integer, TextureCoords> textureCoords = null;
 		if (hasTexture) {
@@ -124,17 +239,24 @@ public class QuadricEdgeCollapse {
 			}
 		}
 
+		cancellationToken.throwIfCancelled();
 		log.debug("Initializing quadrics...");
 		computeInitialQuadricEntries(faces, vertices, hasTexture);
+		metrics.recordStepSince(ProcessingStep.QUADRIC_INIT, initStart);
 
+		cancellationToken.throwIfCancelled();
+		long candidateStart = System.nanoTime();
 		log.debug("Computing boundary...");
 		HashMap<Pair<Integer, Integer>, QuadricEdgeBoundaryInfo> edgeMultiplicities = new HashMap<>();
 		boolean modelHasBoundary = computeBoundary(edgeMultiplicities, vertices, faces);
 
+		cancellationToken.throwIfCancelled();
 		log.debug("Computing valid pairs...");
 		PriorityQueueController heap = addEdgePairs(faces, vertices, modelHasBoundary, edgeMultiplicities, hasTexture);
 		edgeMultiplicities.clear(); // clear the object, since is isn't needed any more
+		metrics.recordStepSince(ProcessingStep.CANDIDATE_BUILD, candidateStart);
 
+		cancellationToken.throwIfCancelled();
 		log.debug("Decimating mesh...");
 
 		QuadricAbstractCompressedModelCollector compressedModelCollector = new QuadricCompressedModelCollector(header,
@@ -144,7 +266,7 @@ public class QuadricEdgeCollapse {
 
 		// iteratively remove vertices
 		return decimateMesh(vertices, faces, textureCoords, heap, desiredVertexCount, compressedModelCollector,
-				hasTexture);
+				hasTexture, vertices.size(), hasTexture ? textureCoords.size() : 0, scale, mins, checkpointStore);
 	}
 
 	private boolean computeBoundary(HashMap<Pair<Integer, Integer>, QuadricEdgeBoundaryInfo> edgeMultiplicity,
@@ -221,10 +343,9 @@ public class QuadricEdgeCollapse {
 
 	private boolean decimateMesh(HashMap<Integer, QuadricVertex> vertices, Collection<QuadricFace> faces,
 			HashMap<Integer, TextureCoords> textureCoords, PriorityQueueController heap, Integer[] desiredVertexCount,
-			QuadricAbstractCompressedModelCollector compressedModelCollector, boolean hasTexture)
+			QuadricAbstractCompressedModelCollector compressedModelCollector, boolean hasTexture, int nextVertexIndex,
+			int nextTextureIndex, double scale, double[] mins, QuadricCheckpointStore checkpointStore)
 			throws NonManifoldModelException {
-		int nextVertexIndex = vertices.size();
-		int nextTextureIndex = hasTexture ? textureCoords.size() : 0;
 		boolean success = true;
 
 		log.debug(Arrays.toString(desiredVertexCount));
@@ -237,171 +358,220 @@ public class QuadricEdgeCollapse {
 				++currentTargetVerticesIndex;
 			}
 
-			for (int i = vertices.size(); i > desiredVertexCount[desiredVertexCount.length - 1]; --i) {
-				QuadricCollapseInfo collapse = heap.pollValid();
+			progress.setLevel(String.valueOf(desiredVertexCount[currentTargetVerticesIndex]));
+			progress.startDecimation(vertices.size(), desiredVertexCount[desiredVertexCount.length - 1]);
 
-				if (collapse == null || !(collapse.getCost() < Double.MAX_VALUE)) {
-					return success;
-				}
+			long decimationStart = System.nanoTime();
+			long writeNanos = 0;
+			int countedVertexCount = vertices.size();
+			try {
+				for (int i = vertices.size(); i > desiredVertexCount[desiredVertexCount.length - 1]; --i) {
+					QuadricCollapseInfo collapse = heap.pollValid();
 
-				if (i % 10000 == 0) {
-					log.debug("Reduced to " + i + " vertices (" + vertices.size() + ", " + collapse.getCost() + ")");
-				}
+					if (collapse == null || !(collapse.getCost() < Double.MAX_VALUE)) {
+						return success;
+					}
 
-				Collection<QuadricFace> remainingFaces = collapse.getRemainingFaces();
-
-				// create new texture coords
-				int newTexturePartitionCount = 0;
-				HashMap<TextureCoords, double[]> texToQuadric = null;
-				HashMap<QuadricFace, TextureCoords> faceToTexture = null;
-
-				if (hasTexture) {
-					collapse.removeDeletedTextureCoords(textureCoords);
-
-					texToQuadric = collapse.getRemainingTexToQuadric();
-					newTexturePartitionCount = 1 + texToQuadric.size(); // add 1 as there is at least one new texture
-																		// coord
-
-					--newTexturePartitionCount;
-					TextureCoords[] newTextureCoords = new TextureCoords[collapse.getNewTextureCoords().length];
-					for (int j = 0; j < newTextureCoords.length; ++j) {
-						newTextureCoords[j] = new TextureCoords(nextTextureIndex, collapse.getNewTextureCoords()[j]);
-						texToQuadric.put(newTextureCoords[j],
-								collapse.getQuadricForNewTexture(collapse.getNewTextureCoords()[j]));
-						textureCoords.put(nextTextureIndex, newTextureCoords[j]);
-						++nextTextureIndex;
-						++newTexturePartitionCount;
+					if (i % 10000 == 0) {
+						log.debug("Reduced to " + i + " vertices (" + vertices.size() + ", " + collapse.getCost() + ")");
 					}
 
-					faceToTexture = collapse.getRemainingFaceToTexture();
-					for (QuadricFace f : remainingFaces) {
-						double[] newRemainingTextureCoords = collapse.getTextureCoordForFaceIfNew(f);
-						if (newRemainingTextureCoords != null) {
-							boolean found = false;
-							for (int j = 0; j < collapse.getNewTextureCoords().length && !found; ++j) {
-								if (newRemainingTextureCoords == collapse.getNewTextureCoords()[j]) {
-									faceToTexture.put(f, newTextureCoords[j]);
-									found = true;
+					Collection<QuadricFace> remainingFaces = collapse.getRemainingFaces();
+					int storedVertexCount = -1;
+
+					// create new texture coords
+					int newTexturePartitionCount = 0;
+					HashMap<TextureCoords, double[]> texToQuadric = null;
+					HashMap<QuadricFace, TextureCoords> faceToTexture = null;
+
+					if (hasTexture) {
+						collapse.removeDeletedTextureCoords(textureCoords);
+
+						texToQuadric = collapse.getRemainingTexToQuadric();
+						newTexturePartitionCount = 1 + texToQuadric.size(); // add 1 as there is at least one new texture
+																			// coord
+
+						--newTexturePartitionCount;
+						TextureCoords[] newTextureCoords = new TextureCoords[collapse.getNewTextureCoords().length];
+						for (int j = 0; j < newTextureCoords.length; ++j) {
+							newTextureCoords[j] = new TextureCoords(nextTextureIndex, collapse.getNewTextureCoords()[j]);
+							texToQuadric.put(newTextureCoords[j],
+									collapse.getQuadricForNewTexture(collapse.getNewTextureCoords()[j]));
+							textureCoords.put(nextTextureIndex, newTextureCoords[j]);
+							++nextTextureIndex;
+							++newTexturePartitionCount;
+						}
+
+						faceToTexture = collapse.getRemainingFaceToTexture();
+						for (QuadricFace f : remainingFaces) {
+							double[] newRemainingTextureCoords = collapse.getTextureCoordForFaceIfNew(f);
+							if (newRemainingTextureCoords != null) {
+								boolean found = false;
+								for (int j = 0; j < collapse.getNewTextureCoords().length && !found; ++j) {
+									if (newRemainingTextureCoords == collapse.getNewTextureCoords()[j]) {
+										faceToTexture.put(f, newTextureCoords[j]);
+										found = true;
+									}
 								}
-							}
 
-							if (!found) {
-								throw new IllegalStateException();
+								if (!found) {
+									throw new IllegalStateException();
+								}
 							}
 						}
 					}
-				}
 
-				// create new vertex
-				QuadricVertex vertexA = collapse.getVertexA();
-				QuadricVertex vertexB = collapse.getVertexB();
-				QuadricVertex newVertex = new QuadricVertex(nextVertexIndex, collapse.getContractionTarget(),
-						vertexA.getAdditionals(), collapse.getQuadric3(), texToQuadric, faceToTexture, remainingFaces,
-						newTexturePartitionCount, vertexA.isAtBoundary() || vertexB.isAtBoundary());
+					// create new vertex
+					QuadricVertex vertexA = collapse.getVertexA();
+					QuadricVertex vertexB = collapse.getVertexB();
+					QuadricVertex newVertex = new QuadricVertex(nextVertexIndex, collapse.getContractionTarget(),
+							vertexA.getAdditionals(), collapse.getQuadric3(), texToQuadric, faceToTexture, remainingFaces,
+							newTexturePartitionCount, vertexA.isAtBoundary() || vertexB.isAtBoundary());
 
-				++nextVertexIndex;
+					++nextVertexIndex;
 
-				for (QuadricFace edgeFace : collapse.getEdgeFaces()) {
-					edgeFace.unregisterFromAdjacentVertices(vertices);
-				}
+					for (QuadricFace edgeFace : collapse.getEdgeFaces()) {
+						edgeFace.unregisterFromAdjacentVertices(vertices);
+					}
 
-				vertices.put(newVertex.getIndex(), newVertex);
+					vertices.put(newVertex.getIndex(), newVertex);
 
-				vertices.remove(vertexA.getIndex());
-				vertices.remove(vertexB.getIndex());
+					vertices.remove(vertexA.getIndex());
+					vertices.remove(vertexB.getIndex());
 
-				// update faces
-				faces.removeAll(collapse.getEdgeFaces());
+					// update faces
+					faces.removeAll(collapse.getEdgeFaces());
 
-				for (QuadricFace f : collapse.getRemainingFaces()) {
-					f.registerVertexContraction(vertexA.getIndex(), newVertex.getIndex(), newVertex);
-					f.registerVertexContraction(vertexB.getIndex(), newVertex.getIndex(), newVertex);
+					for (QuadricFace f : collapse.getRemainingFaces()) {
+						f.registerVertexContraction(vertexA.getIndex(), newVertex.getIndex(), newVertex);
+						f.registerVertexContraction(vertexB.getIndex(), newVertex.getIndex(), newVertex);
 
-					if (hasTexture) {
-						TextureCoords texCoordA = vertexA.getTextureCoordForFace(f);
-						TextureCoords texCoordB = vertexB.getTextureCoordForFace(f);
-
-						if (texCoordA != null) {
-							f.registerTextureContraction(texCoordA.getIndex(), faceToTexture.get(f));
-						} else if (texCoordB != null) {
-							f.registerTextureContraction(texCoordB.getIndex(), faceToTexture.get(f));
-						} else {
-							throw new IllegalStateException();
+						if (hasTexture) {
+							TextureCoords texCoordA = vertexA.getTextureCoordForFace(f);
+							TextureCoords texCoordB = vertexB.getTextureCoordForFace(f);
+
+							if (texCoordA != null) {
+								f.registerTextureContraction(texCoordA.getIndex(), faceToTexture.get(f));
+							} else if (texCoordB != null) {
+								f.registerTextureContraction(texCoordB.getIndex(), faceToTexture.get(f));
+							} else {
+								throw new IllegalStateException();
+							}
 						}
 					}
-				}
 
-				List<QuadricCollapseInfo> temp = new LinkedList<>();
+					List<QuadricCollapseInfo> temp = new LinkedList<>();
 
-				// update collapse candidates
-				HashMap<Integer, QuadricCollapseInfo> addedPartners = new HashMap<>();
+					// update collapse candidates
+					HashMap<Integer, QuadricCollapseInfo> addedPartners = new HashMap<>();
 
-				for (QuadricCollapseInfo c : vertexA.getCollapseCandidates()) {
-					QuadricVertex otherVertex = (vertexA == c.getVertexA()) ? c.getVertexB() : c.getVertexA();
-					if (otherVertex != vertexB) {
-						QuadricCollapseInfo newCandidate = new QuadricCollapseInfo(otherVertex, newVertex,
-								c.isAtBoundary(), hasTexture, config);
-						temp.add(newCandidate);
-						newVertex.addCollapseCandidate(newCandidate);
-						otherVertex.replaceCollapseCandidate(c, newCandidate);
+					for (QuadricCollapseInfo c : vertexA.getCollapseCandidates()) {
+						QuadricVertex otherVertex = (vertexA == c.getVertexA()) ? c.getVertexB() : c.getVertexA();
+						if (otherVertex != vertexB) {
+							QuadricCollapseInfo newCandidate = new QuadricCollapseInfo(otherVertex, newVertex,
+									c.isAtBoundary(), hasTexture, config);
+							temp.add(newCandidate);
+							newVertex.addCollapseCandidate(newCandidate);
+							otherVertex.replaceCollapseCandidate(c, newCandidate);
 
-						heap.remove(c);
-						c.untieRelations();
+							heap.remove(c);
+							c.untieRelations();
 
-						heap.add(newCandidate);
-						addedPartners.put(otherVertex.getIndex(), newCandidate);
+							heap.add(newCandidate);
+							addedPartners.put(otherVertex.getIndex(), newCandidate);
+						}
 					}
-				}
 
-				for (QuadricCollapseInfo c : vertexB.getCollapseCandidates()) {
-					QuadricVertex otherVertex = (vertexB == c.getVertexB()) ? c.getVertexA() : c.getVertexB();
-					if (otherVertex != vertexA) {
+					for (QuadricCollapseInfo c : vertexB.getCollapseCandidates()) {
+						QuadricVertex otherVertex = (vertexB == c.getVertexB()) ? c.getVertexA() : c.getVertexB();
+						if (otherVertex != vertexA) {
+
+							QuadricCollapseInfo newCandidate;
+							if (!addedPartners.containsKey(otherVertex.getIndex())) {
+								newCandidate = new QuadricCollapseInfo(otherVertex, newVertex, c.isAtBoundary(), hasTexture,
+										config);
+								temp.add(newCandidate);
+								heap.add(newCandidate);
+							} else {
+								newCandidate = addedPartners.get(otherVertex.getIndex());
+							}
 
-						QuadricCollapseInfo newCandidate;
-						if (!addedPartners.containsKey(otherVertex.getIndex())) {
-							newCandidate = new QuadricCollapseInfo(otherVertex, newVertex, c.isAtBoundary(), hasTexture,
-									config);
-							temp.add(newCandidate);
-							heap.add(newCandidate);
-						} else {
-							newCandidate = addedPartners.get(otherVertex.getIndex());
+							otherVertex.replaceCollapseCandidate(c, newCandidate);
+							newVertex.addCollapseCandidate(newCandidate);
+							heap.remove(c);
+							c.untieRelations();
 						}
+					}
 
-						otherVertex.replaceCollapseCandidate(c, newCandidate);
-						newVertex.addCollapseCandidate(newCandidate);
-						heap.remove(c);
-						c.untieRelations();
+					// if current size is contained in desired compression levels store the current
+					// intermediate result
+					if (i - 1 == desiredVertexCount[currentTargetVerticesIndex]) {
+						progress.setPhase(JobPhase.WRITE);
+						long writeStart = System.nanoTime();
+						success &= compressedModelCollector.storeCompressedModel(vertices, faces, textureCoords,
+								desiredVertexCount[currentTargetVerticesIndex]);
+						long writeDuration = System.nanoTime() - writeStart;
+						metrics.recordStep(ProcessingStep.LEVEL_WRITE, writeDuration);
+						writeNanos += writeDuration;
+						storedVertexCount = desiredVertexCount[currentTargetVerticesIndex];
+						++currentTargetVerticesIndex;
+
+						progress.setVertexCount(i - 1);
+						if (currentTargetVerticesIndex < desiredVertexCount.length) {
+							progress.setLevel(String.valueOf(desiredVertexCount[currentTargetVerticesIndex]));
+							progress.setPhase(JobPhase.DECIMATE);
+						}
 					}
-				}
 
-				// if current size is contained in desired compression levels store the current
-				// intermediate result
-				if (i - 1 == desiredVertexCount[currentTargetVerticesIndex]) {
-					success &= compressedModelCollector.storeCompressedModel(vertices, faces, textureCoords,
-							desiredVertexCount[currentTargetVerticesIndex]);
-					++currentTargetVerticesIndex;
-				}
+					vertexA.untieRelations();
+					vertexB.untieRelations();
 
-				vertexA.untieRelations();
-				vertexB.untieRelations();
+					collapse.untieRelations();
 
-				collapse.untieRelations();
+					HashSet<Integer> newNeighbourVertices = new HashSet<>();
+					for (QuadricFace f : newVertex.getAdjacentFaces()) {
+						newNeighbourVertices.add(f.getVertexIndices()[0]);
+						newNeighbourVertices.add(f.getVertexIndices()[1]);
+						newNeighbourVertices.add(f.getVertexIndices()[2]);
+					}
 
-				HashSet<Integer> newNeighbourVertices = new HashSet<>();
-				for (QuadricFace f : newVertex.getAdjacentFaces()) {
-					newNeighbourVertices.add(f.getVertexIndices()[0]);
-					newNeighbourVertices.add(f.getVertexIndices()[1]);
-					newNeighbourVertices.add(f.getVertexIndices()[2]);
-				}
+					newNeighbourVertices.remove(newVertex.getIndex());
+					for (Integer v1 : newNeighbourVertices) {
+						for (Integer v2 : newNeighbourVertices) {
+							if (v1 != v2) {
+								heap.checkCandidate(v1, v2);
+							}
+						}
+					}
 
-				newNeighbourVertices.remove(newVertex.getIndex());
-				for (Integer v1 : newNeighbourVertices) {
-					for (Integer v2 : newNeighbourVertices) {
-						if (v1 != v2) {
-							heap.checkCandidate(v1, v2);
+					// store a checkpoint of the completely updated state after each created level
+					// and periodically in between, which includes the preemption of the compression
+					boolean periodic = storedVertexCount < 0;
+					boolean isCheckIteration = i % CHECKPOINT_CHECK_INTERVAL == 0;
+					boolean cancelled = isCheckIteration && cancellationToken.isCancelled();
+					if (isCheckIteration) {
+						progress.setVertexCount(i - 1);
+						metrics.countEdgeCollapses(countedVertexCount - (i - 1));
+						countedVertexCount = i - 1;
+					}
+					if (checkpointStore != null && (!periodic || (cancelled ? cancellationToken.isPreempted()
+							: isCheckIteration && checkpointStore.isCheckpointDue()))) {
+						try {
+							checkpointStore.store(new QuadricCheckpoint(vertices.size(), vertices, faces, textureCoords,
+									heap, nextVertexIndex, nextTextureIndex, hasTexture, scale, mins), periodic);
+						} catch (IOException ex) {
+							log.warn("Could not store checkpoint for " + vertices.size() + " vertices: "
+									+ ex.getMessage());
 						}
 					}
+
+					if (cancelled) {
+						cancellationToken.throwIfCancelled();
+					}
 				}
+			} finally {
+				metrics.countEdgeCollapses(countedVertexCount - vertices.size());
+				metrics.recordStep(ProcessingStep.DECIMATION, System.nanoTime() - decimationStart - writeNanos);
 			}
 		}
 
@@ -442,6 +612,7 @@ public class QuadricEdgeCollapse {
 
 			if (i % 10000 == 0) {
 				log.debug(i + " / " + faces.size());
+				cancellationToken.throwIfCancelled();
 			}
 
 			Vertex[] faceVertices = f.getVertices().clone();
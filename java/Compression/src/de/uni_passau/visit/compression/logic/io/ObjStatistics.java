@@ -0,0 +1,185 @@
+package de.uni_passau.visit.compression.logic.io;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * This class represents the counts of the elements of an OBJ-file, which are
+ * determined by a fast pre-scan without parsing any numbers or creating any
+ * objects per element. Hence the size of the model read by the @see ObjReader
+ * can be estimated, before the file is actually read.
+ * 
+ * Like the @see ObjReader, faces of higher degree are counted as the count of
+ * triangles they will be split into.
+ * 
+ * @author agent
+ *
+ */
+public class ObjStatistics {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private static final int LINE_START = 0;
+	private static final int KEYWORD = 1;
+	private static final int FACE = 2;
+	private static final int SKIP_LINE = 3;
+
+	private long vertexCount = 0;
+	private long textureCoordCount = 0;
+	private long normalCount = 0;
+	private long faceCount = 0;
+
+	private ObjStatistics() {
+	}
+
+	/**
+	 * This method can be accessed in a static way and scans the given OBJ-file
+	 * for the counts of its elements.
+	 * 
+	 * @param file
+	 *            The OBJ-file that shall be scanned
+	 * @return Returns the counts of the elements of the OBJ-file
+	 * @throws IOException
+	 *             if the file could not be read
+	 */
+	public static ObjStatistics scan(File file) throws IOException {
+		ObjStatistics statistics = new ObjStatistics();
+		byte[] buffer = new byte[BUFFER_SIZE];
+		int state = LINE_START;
+		int keywordLength = 0;
+		byte first = 0;
+		byte second = 0;
+		int faceVertices = 0;
+		boolean inToken = false;
+
+		try (InputStream in = new FileInputStream(file)) {
+			int read;
+			while ((read = in.read(buffer)) > 0) {
+				for (int i = 0; i < read; ++i) {
+					byte b = buffer[i];
+					boolean isLineEnd = b == '\n';
+					boolean isSpace = b == ' ' || b == '\t' || b == '\r';
+
+					switch (state) {
+					case LINE_START:
+						if (!isLineEnd && !isSpace) {
+							state = b == '#' ? SKIP_LINE : KEYWORD;
+							first = b;
+							second = 0;
+							keywordLength = 1;
+						}
+						break;
+					case KEYWORD:
+						if (isLineEnd || isSpace || b == '#') {
+							if (statistics.count(first, second, keywordLength)) {
+								state = FACE;
+								faceVertices = 0;
+								inToken = false;
+							} else {
+								state = SKIP_LINE;
+							}
+						} else {
+							second = keywordLength == 1 ? b : second;
+							++keywordLength;
+						}
+						break;
+					case FACE:
+						if (isLineEnd || b == '#') {
+							statistics.addFace(faceVertices);
+							state = SKIP_LINE;
+						} else if (isSpace) {
+							inToken = false;
+						} else if (!inToken) {
+							inToken = true;
+							++faceVertices;
+						}
+						break;
+					default:
+						break;
+					}
+
+					if (isLineEnd) {
+						state = LINE_START;
+					}
+				}
+			}
+		}
+
+		if (state == KEYWORD) {
+			statistics.count(first, second, keywordLength);
+		} else if (state == FACE) {
+			statistics.addFace(faceVertices);
+		}
+
+		return statistics;
+	}
+
+	/**
+	 * This method counts the element declared by the keyword of a line.
+	 * 
+	 * @return Returns true, if the keyword declares a face, whose vertices still
+	 *         have to be counted, otherwise false
+	 */
+	private boolean count(byte first, byte second, int keywordLength) {
+		if (first == 'v' && keywordLength == 1) {
+			++vertexCount;
+		} else if (first == 'v' && second == 't' && keywordLength == 2) {
+			++textureCoordCount;
+		} else if (first == 'v' && second == 'n' && keywordLength == 2) {
+			++normalCount;
+		} else if (first == 'f' && keywordLength == 1) {
+			return true;
+		}
+		return false;
+	}
+
+	private void addFace(int vertices) {
+		faceCount += Math.max(1, vertices - 2);
+	}
+
+	/**
+	 * This method returns the count of vertices declared in the OBJ-file.
+	 * 
+	 * @return Returns the count of vertices
+	 */
+	public long getVertexCount() {
+		return vertexCount;
+	}
+
+	/**
+	 * This method returns the count of texture coordinates declared in the
+	 * OBJ-file.
+	 * 
+	 * @return Returns the count of texture coordinates
+	 */
+	public long getTextureCoordCount() {
+		return textureCoordCount;
+	}
+
+	/**
+	 * This method returns the count of normals declared in the OBJ-file.
+	 * 
+	 * @return Returns the count of normals
+	 */
+	public long getNormalCount() {
+		return normalCount;
+	}
+
+	/**
+	 * This method returns the count of triangles declared in the OBJ-file, where
+	 * faces of higher degree are counted as the triangles they will be split into.
+	 * 
+	 * @return Returns the count of triangular faces
+	 */
+	public long getFaceCount() {
+		return faceCount;
+	}
+
+	@Override
+	public String toString() {
+		return vertexCount + " vertices, " + textureCoordCount + " texture coordinates, " + normalCount
+				+ " normals, " + faceCount + " faces";
+	}
+}
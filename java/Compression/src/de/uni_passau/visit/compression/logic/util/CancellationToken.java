@@ -0,0 +1,69 @@
+package de.uni_passau.visit.compression.logic.util;
+
+import de.uni_passau.visit.compression.exceptions.JobCancelledException;
+
+/**
+ * This class represents a token used for the cooperative cancellation of a
+ * running compression. The compression checks the token regularly at points,
+ * where it can stop safely, and throws a @see JobCancelledException, if the
+ * token has been cancelled or preempted meanwhile. A preempted compression
+ * shall be continued later, so it may store a checkpoint before stopping,
+ * whereas a cancelled compression shall just stop as soon as possible.
+ * 
+ * @author agent
+ *
+ */
+public class CancellationToken {
+
+	private volatile boolean cancelled = false;
+	private volatile boolean preempted = false;
+
+	/**
+	 * This method requests the cancellation of the compression using this token.
+	 * A cancellation overrides a former preemption.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * This method requests the preemption of the compression using this token.
+	 */
+	public void preempt() {
+		preempted = true;
+	}
+
+	/**
+	 * This method returns whether the compression using this token shall stop.
+	 * 
+	 * @return Returns true, if the token has been cancelled or preempted,
+	 *         otherwise false
+	 */
+	public boolean isCancelled() {
+		return cancelled || preempted;
+	}
+
+	/**
+	 * This method returns whether the compression using this token shall stop to
+	 * be continued later.
+	 * 
+	 * @return Returns true, if the token has been preempted and not cancelled,
+	 *         otherwise false
+	 */
+	public boolean isPreempted() {
+		return preempted && !cancelled;
+	}
+
+	/**
+	 * This method throws a @see JobCancelledException, if the compression using
+	 * this token shall stop.
+	 * 
+	 * @throws JobCancelledException
+	 *             if the token has been cancelled or preempted
+	 */
+	public void throwIfCancelled() throws JobCancelledException {
+		if (isCancelled()) {
+			throw new JobCancelledException(isPreempted() ? "Compression preempted" : "Compression cancelled");
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package de.uni_passau.visit.compression.logic.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This class represents a histogram of durations with fixed bucket bounds,
+ * which can be recorded concurrently by multiple threads. Recording a duration
+ * neither allocates memory nor acquires a lock, it only increments the counter
+ * of the matching bucket and adds the duration to the sum of all durations.
+ * Hence durations may be recorded even within the decimation loop.
+ * 
+ * Durations are recorded in nanoseconds, whereas the bucket bounds are given in
+ * seconds, which is the unit commonly used by monitoring systems.
+ * 
+ * @author agent
+ *
+ */
+public class Histogram {
+
+	private final double[] bounds;
+	private final long[] boundNanos;
+	private final AtomicLongArray counts;
+	private final AtomicLong sumNanos = new AtomicLong();
+
+	/**
+	 * This constructor creates a new histogram using the given upper bounds of its
+	 * buckets. An additional bucket holds all durations exceeding the largest
+	 * bound.
+	 * 
+	 * @param bounds
+	 *            The inclusive upper bounds of the buckets in seconds in ascending
+	 *            order
+	 */
+	public Histogram(double... bounds) {
+		this.bounds = bounds.clone();
+		this.boundNanos = new long[bounds.length];
+		for (int i = 0; i < bounds.length; ++i) {
+			boundNanos[i] = (long) (bounds[i] * 1E9);
+		}
+		this.counts = new AtomicLongArray(bounds.length + 1);
+	}
+
+	/**
+	 * This method records the given duration.
+	 * 
+	 * @param nanos
+	 *            The duration in nanoseconds
+	 */
+	public void record(long nanos) {
+		int bucket = 0;
+		while (bucket < boundNanos.length && nanos > boundNanos[bucket]) {
+			++bucket;
+		}
+
+		counts.incrementAndGet(bucket);
+		sumNanos.addAndGet(nanos);
+	}
+
+	/**
+	 * This method records the duration from the given start time until now.
+	 * 
+	 * @param startNanos
+	 *            The start time as returned by @see System#nanoTime()
+	 */
+	public void recordSince(long startNanos) {
+		record(System.nanoTime() - startNanos);
+	}
+
+	/**
+	 * This method returns the upper bounds of the buckets of this histogram.
+	 * 
+	 * @return Returns the upper bounds in seconds
+	 */
+	public double[] getBounds() {
+		return bounds.clone();
+	}
+
+	/**
+	 * This method returns the count of recorded durations per bucket. The last
+	 * element contains the count of durations exceeding the largest bound.
+	 * Since durations may be recorded concurrently, the counts may not refer to
+	 * exactly the same moment.
+	 * 
+	 * @return Returns the counts of all buckets
+	 */
+	public long[] getCounts() {
+		long[] result = new long[counts.length()];
+		for (int i = 0; i < result.length; ++i) {
+			result[i] = counts.get(i);
+		}
+		return result;
+	}
+
+	/**
+	 * This method returns the sum of all recorded durations.
+	 * 
+	 * @return Returns the sum in seconds
+	 */
+	public double getSumSeconds() {
+		return sumNanos.get() / 1E9;
+	}
+}
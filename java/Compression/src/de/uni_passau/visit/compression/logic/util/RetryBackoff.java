@@ -0,0 +1,38 @@
+package de.uni_passau.visit.compression.logic.util;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * This class computes the delays between repeated attempts of failing
+ * operations like requests to the meta database. The backoff doubles with
+ * each failed attempt up to a maximum. The delay is drawn uniformly from the
+ * upper half of the backoff, so operations failing at the same time don't
+ * retry in lockstep, while each delay is still at least half the backoff.
+ * 
+ * @author agent
+ *
+ */
+public final class RetryBackoff {
+
+	private static final int MAX_DOUBLINGS = 20;
+
+	private RetryBackoff() {
+	}
+
+	/**
+	 * This method returns the delay before the next attempt after the given
+	 * count of failed attempts.
+	 * 
+	 * @param failedAttempts
+	 *            The count of attempts, which have failed so far, at least one
+	 * @param initialDelay
+	 *            The backoff after the first failed attempt in milliseconds
+	 * @param maxDelay
+	 *            The maximum backoff in milliseconds
+	 * @return Returns the delay in milliseconds
+	 */
+	public static long getDelay(int failedAttempts, long initialDelay, long maxDelay) {
+		long backoff = Math.min(maxDelay, initialDelay << Math.min(Math.max(failedAttempts - 1, 0), MAX_DOUBLINGS));
+		return backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+	}
+}
@@ -0,0 +1,32 @@
+package de.uni_passau.visit.compression.models;
+
+import java.sql.SQLException;
+
+import de.uni_passau.visit.compression.models.QueueDatabase.CachedConnection;
+
+/**
+ * This interface represents an operation on the job queue database, which is
+ * executed by the @see QueueDatabase on one of its connections.
+ * 
+ * @author agent
+ *
+ * @param <T>
+ *            The type of the operation's result
+ */
+public interface AbstractDatabaseOperation<T> {
+
+	/**
+	 * An implementation of this method performs the operation using the given
+	 * connection. Statements should be retrieved from the connection's statement
+	 * cache and must not be closed by the operation, whereas result sets have to
+	 * be closed.
+	 * 
+	 * @param con
+	 *            The connection the operation shall be performed on
+	 * @return Returns the operation's result
+	 * @throws SQLException
+	 *             if a database error occurred
+	 */
+	public T execute(CachedConnection con) throws SQLException;
+
+}
@@ -0,0 +1,33 @@
+package de.uni_passau.visit.compression.models;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+
+/**
+ * This interface represents the recipient of the technical meta data updates,
+ * which are delivered by the @see MetadataOutbox, usually the ViSIT meta
+ * database.
+ * 
+ * @author agent
+ *
+ */
+public interface AbstractMetadataSender {
+
+	/**
+	 * An implementation of this method stores the given technical meta data for
+	 * the media file with the given media UID. Since an update may be delivered
+	 * more than once, it has to replace the technical meta data as a whole.
+	 * 
+	 * @param mediaUid
+	 *            The media UID of the media file the technical meta data refer to
+	 * @param json
+	 *            The JSON-serialization of the technical meta data
+	 * @throws IOException
+	 *             if the technical meta data could not be stored
+	 * @throws URISyntaxException
+	 *             if the URI combined by the API end point and the given media UID
+	 *             is invalid
+	 */
+	public void send(String mediaUid, String json) throws IOException, URISyntaxException;
+
+}
@@ -0,0 +1,36 @@
+package de.uni_passau.visit.compression.models;
+
+import de.uni_passau.visit.compression.data.QueueEntry;
+
+/**
+ * This interface represents a listener that gets notified by the @see
+ * QueueModel about each change of an unfinished queue entry, e.g. to keep the
+ * job listings of connected clients up to date without polling.
+ * 
+ * @author agent
+ *
+ */
+public interface AbstractQueueChangeListener {
+
+	/**
+	 * An implementation of this method reacts on a queue entry, which has been
+	 * added to the queue or whose state or compression levels have changed.
+	 * Implementations should return quickly, since they are called by the thread
+	 * causing the change, e.g. a compression worker.
+	 * 
+	 * @param entry
+	 *            The queue entry in its new state
+	 */
+	public void jobChanged(QueueEntry entry);
+
+	/**
+	 * An implementation of this method reacts on a queue entry, which has been
+	 * removed from the queue due to its cancellation. Implementations should return
+	 * quickly, since they are called by the cancelling thread.
+	 * 
+	 * @param jobId
+	 *            The id of the removed queue entry
+	 */
+	public void jobRemoved(int jobId);
+
+}
@@ -0,0 +1,39 @@
+package de.uni_passau.visit.compression.models;
+
+import de.uni_passau.visit.compression.data.CompressionJob;
+
+/**
+ * This interface represents a listener that gets notified by the @see
+ * QueueModel about changes of the compression job queue.
+ * 
+ * @author agent
+ *
+ */
+public interface AbstractQueueListener {
+
+	/**
+	 * An implementation of this method reacts on a new compression job, which has
+	 * been added to the queue. It is called after the job has been stored, so it
+	 * can already be retrieved from the queue. Implementations should return
+	 * quickly, since they are called by the dispatching thread.
+	 * 
+	 * @param jobId
+	 *            The id of the new queue entry
+	 * @param job
+	 *            The compression job that has been added to the queue
+	 */
+	public void jobDispatched(int jobId, CompressionJob job);
+
+	/**
+	 * An implementation of this method reacts on the cancellation of a compression
+	 * job, which is being processed. The job remains in the queue, until the
+	 * processing has been stopped and @see QueueModel.removeCancelledJob(int) has
+	 * been called. Implementations should return quickly, since they are called by
+	 * the cancelling thread.
+	 * 
+	 * @param jobId
+	 *            The id of the queue entry, whose processing shall be stopped
+	 */
+	public void jobCancelled(int jobId);
+
+}
@@ -0,0 +1,24 @@
+package de.uni_passau.visit.compression.models;
+
+import de.uni_passau.visit.compression.data.SystemState;
+
+/**
+ * This interface represents a listener that gets notified by the @see
+ * ControlModel about changes of the system state.
+ * 
+ * @author agent
+ *
+ */
+public interface AbstractSystemStateListener {
+
+	/**
+	 * An implementation of this method reacts on a change of the system state.
+	 * Implementations should return quickly, since they are called by the thread
+	 * changing the state.
+	 * 
+	 * @param state
+	 *            The new system state
+	 */
+	public void systemStateChanged(SystemState state);
+
+}
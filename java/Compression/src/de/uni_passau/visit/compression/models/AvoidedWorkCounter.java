@@ -0,0 +1,82 @@
+package de.uni_passau.visit.compression.models;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class counts the compression work, which has been avoided since the
+ * compression system has been started. Work is avoided by coalescing a
+ * dispatched job with a pending job for the same media file and by skipping
+ * compression levels, which already exist according to the technical meta
+ * data of a media file. Existing levels are skipped when a worker starts the
+ * job, before it reads the media file, since the technical meta data are only
+ * retrieved at that point.
+ * 
+ * @author agent
+ *
+ */
+public class AvoidedWorkCounter {
+
+	private final AtomicLong coalescedJobs = new AtomicLong();
+	private final AtomicLong skippedJobs = new AtomicLong();
+	private final AtomicLong skippedLevels = new AtomicLong();
+
+	/**
+	 * This method counts dispatched jobs, which have been coalesced with a pending
+	 * job for the same media file.
+	 * 
+	 * @param count
+	 *            The count of coalesced jobs
+	 */
+	public void countCoalescedJobs(int count) {
+		coalescedJobs.addAndGet(count);
+	}
+
+	/**
+	 * This method counts a job, which has been finished without any compression,
+	 * since all its compression levels already exist.
+	 */
+	public void countSkippedJob() {
+		skippedJobs.incrementAndGet();
+	}
+
+	/**
+	 * This method counts compression levels, which have been skipped, since they
+	 * already exist.
+	 * 
+	 * @param count
+	 *            The count of skipped compression levels
+	 */
+	public void countSkippedLevels(int count) {
+		skippedLevels.addAndGet(count);
+	}
+
+	/**
+	 * This method returns the count of dispatched jobs, which have been coalesced
+	 * with a pending job for the same media file.
+	 * 
+	 * @return Returns the count of coalesced jobs
+	 */
+	public long getCoalescedJobs() {
+		return coalescedJobs.get();
+	}
+
+	/**
+	 * This method returns the count of jobs, which have been finished without any
+	 * compression.
+	 * 
+	 * @return Returns the count of skipped jobs
+	 */
+	public long getSkippedJobs() {
+		return skippedJobs.get();
+	}
+
+	/**
+	 * This method returns the count of compression levels, which have been skipped
+	 * since they already existed.
+	 * 
+	 * @return Returns the count of skipped compression levels
+	 */
+	public long getSkippedLevels() {
+		return skippedLevels.get();
+	}
+}
@@ -0,0 +1,269 @@
+package de.uni_passau.visit.compression.models;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import de.uni_passau.visit.compression.data.ProcessingStep;
+import de.uni_passau.visit.compression.logic.util.Histogram;
+
+/**
+ * This class collects the metrics of the compression system, which are
+ * exported by the metrics endpoint of the API. It holds a histogram of the
+ * durations of each processing step (@see ProcessingStep), a histogram of the
+ * latency of claiming jobs from the queue, a histogram of the pauses of the
+ * garbage collector, the count of edge collapses performed, the durations,
+ * retries and failures of the requests to the meta database and the hits and
+ * misses of the prefetched technical meta data.
+ * 
+ * All histograms and counters are created up front, so recording a metric
+ * never allocates memory or acquires a lock (@see Histogram). The state of the
+ * queue and the heap isn't recorded, but read when the metrics are exported.
+ * 
+ * @author agent
+ *
+ */
+public class CompressionMetrics {
+
+	private static final double[] STEP_BOUNDS = { 0.001, 0.005, 0.01, 0.05, 0.1, 0.5, 1, 5, 10, 30, 60, 300, 600,
+			1800, 3600 };
+	private static final double[] CLAIM_BOUNDS = { 0.00001, 0.00005, 0.0001, 0.0005, 0.001, 0.005, 0.01, 0.05, 0.1,
+			0.5, 1 };
+	private static final double[] GC_PAUSE_BOUNDS = { 0.0001, 0.0005, 0.001, 0.005, 0.01, 0.05, 0.1, 0.5, 1, 5, 10 };
+	private static final double[] METADB_REQUEST_BOUNDS = { 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10,
+			30 };
+
+	private final Map<ProcessingStep, Histogram> stepDurations = new EnumMap<>(ProcessingStep.class);
+	private final Histogram claimLatency = new Histogram(CLAIM_BOUNDS);
+	private final Histogram gcPauses = new Histogram(GC_PAUSE_BOUNDS);
+	private final AtomicLong edgeCollapses = new AtomicLong();
+	private final Histogram metadbRequests = new Histogram(METADB_REQUEST_BOUNDS);
+	private final AtomicLong metadbRetries = new AtomicLong();
+	private final AtomicLong metadbFailures = new AtomicLong();
+	private final AtomicLong prefetchHits = new AtomicLong();
+	private final AtomicLong prefetchMisses = new AtomicLong();
+
+	/**
+	 * This constructor creates a new metrics collection without any recorded
+	 * metrics. The pauses of the garbage collector are only recorded after @see
+	 * #monitorGarbageCollection() has been called.
+	 */
+	public CompressionMetrics() {
+		for (ProcessingStep step : ProcessingStep.values()) {
+			stepDurations.put(step, new Histogram(STEP_BOUNDS));
+		}
+	}
+
+	/**
+	 * This method subscribes to the notifications of all garbage collectors of the
+	 * Java runtime, so the duration of each collection is recorded. It shall be
+	 * called only once, since the subscriptions can't be cancelled.
+	 */
+	public void monitorGarbageCollection() {
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			if (collector instanceof NotificationEmitter) {
+				((NotificationEmitter) collector).addNotificationListener(
+						(Notification notification, Object handback) -> recordGarbageCollection(notification),
+						null, null);
+			}
+		}
+	}
+
+	private void recordGarbageCollection(Notification notification) {
+		if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+			GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo
+					.from((CompositeData) notification.getUserData());
+
+			// concurrent collection cycles run alongside the application and don't pause it
+			String name = info.getGcName();
+			if (!name.contains("Concurrent") && !name.contains("Cycles")) {
+				gcPauses.record(info.getGcInfo().getDuration() * 1000000L);
+			}
+		}
+	}
+
+	/**
+	 * This method records the duration of the given processing step.
+	 * 
+	 * @param step
+	 *            The processing step, which has been finished
+	 * @param nanos
+	 *            The duration of the step in nanoseconds
+	 */
+	public void recordStep(ProcessingStep step, long nanos) {
+		stepDurations.get(step).record(nanos);
+	}
+
+	/**
+	 * This method records the duration of the given processing step, which has
+	 * been started at the given time and has been finished just now.
+	 * 
+	 * @param step
+	 *            The processing step, which has been finished
+	 * @param startNanos
+	 *            The start time of the step as returned by @see
+	 *            System#nanoTime()
+	 */
+	public void recordStepSince(ProcessingStep step, long startNanos) {
+		stepDurations.get(step).recordSince(startNanos);
+	}
+
+	/**
+	 * This method records the latency of claiming a job from the queue.
+	 * 
+	 * @param nanos
+	 *            The latency in nanoseconds
+	 */
+	public void recordClaimLatency(long nanos) {
+		claimLatency.record(nanos);
+	}
+
+	/**
+	 * This method counts edge collapses, which have been performed by a
+	 * decimation.
+	 * 
+	 * @param count
+	 *            The count of performed edge collapses
+	 */
+	public void countEdgeCollapses(long count) {
+		edgeCollapses.addAndGet(count);
+	}
+
+	/**
+	 * This method records the duration of a single request to the meta database.
+	 * Each retry of a request is recorded separately.
+	 * 
+	 * @param nanos
+	 *            The duration of the request in nanoseconds
+	 */
+	public void recordMetadbRequest(long nanos) {
+		metadbRequests.record(nanos);
+	}
+
+	/**
+	 * This method counts a request to the meta database, which is repeated after
+	 * it has failed.
+	 */
+	public void countMetadbRetry() {
+		metadbRetries.incrementAndGet();
+	}
+
+	/**
+	 * This method counts a request to the meta database, which has failed
+	 * finally, since all retries have failed as well.
+	 */
+	public void countMetadbFailure() {
+		metadbFailures.incrementAndGet();
+	}
+
+	/**
+	 * This method counts a job starting its procession, whose technical meta data
+	 * either have been prefetched or have to be retrieved first.
+	 * 
+	 * @param hit
+	 *            True, if the technical meta data have been prefetched, otherwise
+	 *            false
+	 */
+	public void countPrefetch(boolean hit) {
+		(hit ? prefetchHits : prefetchMisses).incrementAndGet();
+	}
+
+	/**
+	 * This method returns the histogram of the durations of the given processing
+	 * step.
+	 * 
+	 * @param step
+	 *            The processing step
+	 * @return Returns the histogram of the step's durations
+	 */
+	public Histogram getStepDurations(ProcessingStep step) {
+		return stepDurations.get(step);
+	}
+
+	/**
+	 * This method returns the histogram of the latencies of claiming jobs from the
+	 * queue.
+	 * 
+	 * @return Returns the histogram of the claim latencies
+	 */
+	public Histogram getClaimLatency() {
+		return claimLatency;
+	}
+
+	/**
+	 * This method returns the histogram of the pauses of the garbage collector.
+	 * 
+	 * @return Returns the histogram of the garbage collection pauses
+	 */
+	public Histogram getGcPauses() {
+		return gcPauses;
+	}
+
+	/**
+	 * This method returns the count of edge collapses performed since the
+	 * compression system has been started.
+	 * 
+	 * @return Returns the count of edge collapses
+	 */
+	public long getEdgeCollapses() {
+		return edgeCollapses.get();
+	}
+
+	/**
+	 * This method returns the histogram of the durations of the single requests to
+	 * the meta database.
+	 * 
+	 * @return Returns the histogram of the request durations
+	 */
+	public Histogram getMetadbRequests() {
+		return metadbRequests;
+	}
+
+	/**
+	 * This method returns the count of retried requests to the meta database since
+	 * the compression system has been started.
+	 * 
+	 * @return Returns the count of retries
+	 */
+	public long getMetadbRetries() {
+		return metadbRetries.get();
+	}
+
+	/**
+	 * This method returns the count of requests to the meta database, which have
+	 * failed despite all retries, since the compression system has been started.
+	 * 
+	 * @return Returns the count of failed requests
+	 */
+	public long getMetadbFailures() {
+		return metadbFailures.get();
+	}
+
+	/**
+	 * This method returns the count of jobs, whose technical meta data have been
+	 * prefetched.
+	 * 
+	 * @return Returns the count of prefetch hits
+	 */
+	public long getPrefetchHits() {
+		return prefetchHits.get();
+	}
+
+	/**
+	 * This method returns the count of jobs, whose technical meta data haven't
+	 * been prefetched.
+	 * 
+	 * @return Returns the count of prefetch misses
+	 */
+	public long getPrefetchMisses() {
+		return prefetchMisses.get();
+	}
+}
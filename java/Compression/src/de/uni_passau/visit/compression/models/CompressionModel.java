@@ -1,5 +1,6 @@
 package de.uni_passau.visit.compression.models;
 
+import java.awt.Dimension;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
@@ -7,11 +8,21 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.security.InvalidAlgorithmParameterException;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
@@ -19,9 +30,13 @@ import org.apache.commons.lang3.tuple.Pair;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import de.uni_passau.visit.compression.data.CompressionJob;
 import de.uni_passau.visit.compression.data.EditableTechnicalMetadataCompressionLevel;
 import de.uni_passau.visit.compression.data.ImageCompressionLevel;
+import de.uni_passau.visit.compression.data.JobPhase;
+import de.uni_passau.visit.compression.data.JobProgress;
 import de.uni_passau.visit.compression.data.JobState;
+import de.uni_passau.visit.compression.data.ProcessingStep;
 import de.uni_passau.visit.compression.data.QueueEntry;
 import de.uni_passau.visit.compression.data.TechnicalMetadata;
 import de.uni_passau.visit.compression.data.TechnicalMetadataCompressionLevel;
@@ -29,16 +44,20 @@ import de.uni_passau.visit.compression.data.TechnicalMetadataFileTypeSpecific3D;
 import de.uni_passau.visit.compression.data.TechnicalMetadataFileTypeSpecificImage;
 import de.uni_passau.visit.compression.exceptions.ImageCompressionException;
 import de.uni_passau.visit.compression.exceptions.InvalidTechnicalMetaDataException;
+import de.uni_passau.visit.compression.exceptions.JobCancelledException;
 import de.uni_passau.visit.compression.exceptions.ModelReadException;
 import de.uni_passau.visit.compression.exceptions.NonManifoldModelException;
 import de.uni_passau.visit.compression.exceptions.TechnicalMetadataNotFoundException;
 import de.uni_passau.visit.compression.exceptions.UnsupportedModelException;
 import de.uni_passau.visit.compression.logic.algorithms.image.ImageCompressor;
+import de.uni_passau.visit.compression.logic.algorithms.quadric5.QuadricCheckpointStore;
 import de.uni_passau.visit.compression.logic.algorithms.quadric5.QuadricCompressedModelHandler;
 import de.uni_passau.visit.compression.logic.algorithms.quadric5.QuadricEdgeCollapse;
 import de.uni_passau.visit.compression.logic.io.ObjModel;
 import de.uni_passau.visit.compression.logic.io.ObjReader;
+import de.uni_passau.visit.compression.logic.io.ObjStatistics;
 import de.uni_passau.visit.compression.logic.io.ObjWriter;
+import de.uni_passau.visit.compression.logic.util.CancellationToken;
 import de.uni_passau.visit.compression.network.TechnicalMetadataCommunicator;
 
 /**
@@ -56,19 +75,25 @@ public class CompressionModel {
 	public static final String ORIGINAL_FILE_INDICATOR = "origin";
 	private static final String MIME_TYPE_JPEG = "image/jpeg";
 	private static final String MIME_TYPE_PNG = "image/png";
-	private static final String MIME_TYPE_OBJ = "text/plain";
+	public static final String MIME_TYPE_OBJ = "text/plain";
+	private static final String[] MODEL_MIME_TYPES = new String[] { MIME_TYPE_OBJ };
 	private static final String PNG_EXTENSION = "png";
 
-	private static final int IDLE_SLEEP_TIME = 2000;
-
 	private static final Logger log = LogManager.getLogger(CompressionModel.class);
 
 	private final QueueModel queue;
 	private final ConfigModel configModel;
+	private final CompressionMetrics metrics;
 	private final TechnicalMetadataCommunicator techMetaCommunicator;
-	private boolean isShutDown = false;
-	private boolean isPaused = true;
-	private boolean shutdownProcessRemaning = false;
+	private final HeapAdmissionController heapAdmission;
+	private final JobPrefetcher prefetcher;
+	private final AtomicInteger activeWorkers = new AtomicInteger();
+	private final Map<Integer, CancellationToken> runningJobs = new ConcurrentHashMap<>();
+	private final Object wakeupLock = new Object();
+	private long wakeupGeneration = 0;
+	private volatile boolean isShutDown = false;
+	private volatile boolean isPaused = true;
+	private volatile boolean shutdownProcessRemaning = false;
 
 	/**
 	 * This constructor creates a new compression model fetch its jobs from the
@@ -80,35 +105,97 @@ public class CompressionModel {
 	 * @param configModel
 	 *            The configuration model from which this compression model shall
 	 *            fetch its configuration
+	 * @param metrics
+	 *            The metrics in which this compression model shall record the
+	 *            durations of the processing steps
 	 */
-	public CompressionModel(QueueModel queue, ConfigModel configModel) {
+	public CompressionModel(QueueModel queue, ConfigModel configModel, CompressionMetrics metrics) {
 		this.queue = queue;
 		this.configModel = configModel;
-		this.techMetaCommunicator = new TechnicalMetadataCommunicator(configModel);
+		this.metrics = metrics;
+		this.techMetaCommunicator = new TechnicalMetadataCommunicator(configModel, metrics);
+		this.prefetcher = new JobPrefetcher(queue, configModel, techMetaCommunicator, metrics);
+		long maxHeap = Runtime.getRuntime().maxMemory();
+		this.heapAdmission = new HeapAdmissionController((long) (maxHeap * configModel.getModelHeapBudgetFraction()),
+				(long) (maxHeap * configModel.getModelHeapLimitFraction()), configModel.getModelHeapEstimateFactor());
+
+		queue.addQueueListener(new AbstractQueueListener() {
+			@Override
+			public void jobDispatched(int jobId, CompressionJob job) {
+				wakeUpWorkers();
+			}
+
+			@Override
+			public void jobCancelled(int jobId) {
+				// a job may have been claimed without its token having been registered yet,
+				// so the token is registered by the first of both
+				CancellationToken token = runningJobs.computeIfAbsent(jobId, id -> new CancellationToken());
+				token.cancel();
+
+				// the job may have been finished meanwhile, so its worker won't remove the token
+				if (queue.getProcessingJobs().stream().noneMatch(entry -> entry.getId() == jobId)) {
+					runningJobs.remove(jobId, token);
+				}
+			}
+		});
 	}
 
 	/**
-	 * This method starts the asynchronous procession of the queue.
+	 * This method starts the asynchronous procession of the queue. Image and
+	 * 3D-model compression jobs are processed by separate pools of worker threads,
+	 * whose sizes are taken from the configuration. Hence long running 3D-model
+	 * jobs never block the procession of image jobs and vice versa.
 	 */
 	public void start() {
+		log.info("Compression handler started.");
+
+		queue.getMetadataOutbox().start(techMetaCommunicator::putTechnicalMetadata);
+		prefetcher.start();
+
+		for (int i = 1; i <= configModel.getImageWorkerCount(); ++i) {
+			startWorker("compression-image-worker-" + i, MODEL_MIME_TYPES, false);
+		}
+
+		for (int i = 1; i <= configModel.getModelWorkerCount(); ++i) {
+			startWorker("compression-model-worker-" + i, MODEL_MIME_TYPES, true);
+		}
+	}
+
+	/**
+	 * This method starts a worker thread, which processes jobs from the queue
+	 * until the compression model is shut down. Each worker claims one job at a
+	 * time, so a job will never be processed by more than one worker.
+	 * 
+	 * @param name
+	 *            The name of the worker thread
+	 * @param mimeTypes
+	 *            The MIME-types used to filter the jobs processed by this worker
+	 * @param includeMimeTypes
+	 *            If true, this worker only processes jobs with one of the given
+	 *            MIME-types, otherwise only jobs with none of them
+	 */
+	private void startWorker(String name, String[] mimeTypes, boolean includeMimeTypes) {
+		activeWorkers.incrementAndGet();
+
 		new Thread((new Runnable() {
 			@Override
 			public void run() {
-
-				log.info("Compression handler started.");
-
 				boolean isRunning = true;
 
 				while (isRunning) {
-					if (!isPaused && queue.getEnqueuedJobCount() > 0) {
-						processJob(queue.getNextEnqueuedJob());
+					// remember the generation before looking for jobs, so that no wake up signal
+					// sent in between gets lost
+					long generation = getWakeupGeneration();
+					QueueEntry job = isPaused ? null : claimNextEnqueuedJob(mimeTypes, includeMimeTypes);
+
+					if (job != null) {
+						processJob(job);
 					} else {
 						if (isShutDown) {
 							isRunning = false;
 						} else {
-							// log.info("Queue empty. Waiting...");
 							try {
-								Thread.sleep(IDLE_SLEEP_TIME);
+								awaitWakeup(generation);
 							} catch (InterruptedException e) {
 								isRunning = false;
 							}
@@ -120,14 +207,63 @@ public class CompressionModel {
 					}
 				}
 
-				log.info("Compression handler exiting.");
+				if (activeWorkers.decrementAndGet() == 0) {
+					prefetcher.close();
+					// the state writer and the outbox are daemon threads, so they have to be
+					// flushed before the last worker exits
+					queue.close();
+					techMetaCommunicator.close();
+					log.info("Compression handler exiting.");
+				}
 			}
-		})).start();
+		}), name).start();
+	}
+
+	private QueueEntry claimNextEnqueuedJob(String[] mimeTypes, boolean includeMimeTypes) {
+		long start = System.nanoTime();
+		QueueEntry job = queue.claimNextEnqueuedJob(mimeTypes, includeMimeTypes);
+		metrics.recordClaimLatency(System.nanoTime() - start);
+		return job;
+	}
+
+	/**
+	 * This method wakes up all idle workers, so that they look for new jobs
+	 * immediately. It is called whenever a job has been dispatched or the
+	 * procession state has changed.
+	 */
+	private void wakeUpWorkers() {
+		synchronized (wakeupLock) {
+			wakeupGeneration++;
+			wakeupLock.notifyAll();
+		}
+	}
+
+	private long getWakeupGeneration() {
+		synchronized (wakeupLock) {
+			return wakeupGeneration;
+		}
+	}
+
+	/**
+	 * This method blocks the calling worker until @see wakeUpWorkers() has been
+	 * called after the given generation has been retrieved.
+	 * 
+	 * @param generation
+	 *            The wake up generation retrieved before the worker found no job
+	 * @throws InterruptedException
+	 *             if the waiting worker has been interrupted
+	 */
+	private void awaitWakeup(long generation) throws InterruptedException {
+		synchronized (wakeupLock) {
+			while (wakeupGeneration == generation) {
+				wakeupLock.wait();
+			}
+		}
 	}
 
 	/**
 	 * This method shuts down the processing of the compression job queue and closes
-	 * the compression model. The current compression job will be finished, however.
+	 * the compression model. The current compression jobs will be finished, however.
 	 * Depending on the given parameter the whole remaining queue will be processed
 	 * or the procession will be shut down after the current job.
 	 * 
@@ -138,19 +274,27 @@ public class CompressionModel {
 	public void shutdown(boolean processRemainingQueue) {
 		this.shutdownProcessRemaning = processRemainingQueue;
 		this.isShutDown = true;
+		wakeUpWorkers();
 	}
 
 	/**
 	 * This method pauses or unpauses the procession of the compression job queue
-	 * depending on the given parameter. If the procession shall be paused, this
-	 * will happen only after finishing the current job.
+	 * depending on the given parameter. If the procession shall be paused, the
+	 * running jobs are preempted at their next checkpoint and enqueued again, so
+	 * they are continued after the procession has been unpaused.
 	 * 
 	 * @param isPaused
-	 *            If true, the procession will be paused after to current job,
-	 *            otherwise the queue procession will be unpaused.
+	 *            If true, the procession will be paused and the current jobs will
+	 *            be preempted, otherwise the queue procession will be unpaused.
 	 */
 	public void setPause(boolean isPaused) {
 		this.isPaused = isPaused;
+		if (isPaused) {
+			for (CancellationToken token : runningJobs.values()) {
+				token.preempt();
+			}
+		}
+		wakeUpWorkers();
 	}
 
 	/**
@@ -160,47 +304,100 @@ public class CompressionModel {
 	 *            The queue entry of the compression job that shall be compressed.
 	 */
 	private void processJob(QueueEntry job) {
-		queue.setJobState(job.getId(), JobState.PROCESSING);
 		log.info("Started processing job " + job.getId() + " (" + job.getJob().getTitle() + ")");
 
-		log.info("Fetching technical meta data...");
-		TechnicalMetadata techMeta = getTechnicalMetadata(job.getJob().getMediaUid());
-		boolean success = techMeta != null;
-
-		if (success) {
-			switch (job.getJob().getMimeType().toLowerCase()) {
-			case MIME_TYPE_JPEG:
-			case MIME_TYPE_PNG:
-				success = processJobPicture(job, techMeta);
-				break;
-			case MIME_TYPE_OBJ:
-				success = processJobModel(job, techMeta);
-				break;
-			default:
-				log.error("Error while compressing job " + job.getId() + ": Mime type not supported");
-				success = false;
-			}
+		CancellationToken cancellationToken = runningJobs.computeIfAbsent(job.getId(), id -> new CancellationToken());
+
+		// the procession may have been paused after the job has been claimed
+		if (isPaused) {
+			cancellationToken.preempt();
 		}
 
-		if (success) {
-			success = updateTechnicalMetadata(job.getJob().getMediaUid(), techMeta);
+		try {
+			// the job may have been cancelled after it has been claimed
+			cancellationToken.throwIfCancelled();
+
+			log.info("Fetching technical meta data...");
+			getProgress(job).setPhase(JobPhase.METADATA);
+			TechnicalMetadata techMeta = getTechnicalMetadata(job, cancellationToken);
+			boolean success = techMeta != null;
+
+			if (success) {
+				switch (job.getJob().getMimeType().toLowerCase()) {
+				case MIME_TYPE_JPEG:
+				case MIME_TYPE_PNG:
+					success = processJobPicture(job, techMeta, cancellationToken);
+					break;
+				case MIME_TYPE_OBJ:
+					success = processJobModelWithinHeapBudget(job, techMeta, cancellationToken);
+					break;
+				default:
+					log.error("Error while compressing job " + job.getId() + ": Mime type not supported");
+					success = false;
+				}
+			}
+
+			if (success) {
+				getProgress(job).setPhase(JobPhase.METADATA);
+				success = updateTechnicalMetadata(job.getJob().getMediaUid(), techMeta);
+			}
+
+			queue.setJobState(job.getId(), success ? JobState.COMPLETED : JobState.ERROR);
+			log.info("Finished processing job " + job.getId() + " (" + job.getJob().getTitle() + ")");
+		} catch (JobCancelledException ex) {
+			if (cancellationToken.isPreempted()) {
+				queue.setJobState(job.getId(), JobState.ENQUEUED);
+				log.info("Preempted job " + job.getId() + " (" + job.getJob().getTitle() + ")");
+			} else {
+				queue.removeCancelledJob(job.getId());
+				log.info("Stopped cancelled job " + job.getId() + " (" + job.getJob().getTitle() + ")");
+			}
+		} finally {
+			runningJobs.remove(job.getId());
+			// a pending job for the same media file may be claimed now
+			wakeUpWorkers();
 		}
+	}
 
-		queue.setJobState(job.getId(), success ? JobState.COMPLETED : JobState.ERROR);
-		log.info("Finished processing job " + job.getId() + " (" + job.getJob().getTitle() + ")");
+	/**
+	 * This method returns the progress of the given queue entry's compression
+	 * job, which is updated while the job is being processed.
+	 * 
+	 * @param job
+	 *            The queue entry of the compression job being processed
+	 * @return Returns the progress of the job or a detached progress object, if
+	 *         the queue entry doesn't carry one
+	 */
+	private static JobProgress getProgress(QueueEntry job) {
+		return job.getProgress() != null ? job.getProgress() : new JobProgress();
 	}
 
 	/**
-	 * This method retrieves the technical meta data for the given media file.
+	 * This method retrieves the technical meta data for the media file of the
+	 * given job. If an update of them hasn't been delivered to the meta database
+	 * yet, the pending technical meta data are returned instead. Technical meta
+	 * data, which have been prefetched for the job, are used without contacting
+	 * the meta database.
 	 * 
-	 * @param mediaUid
-	 *            The UID of the media file, whose technical meta data shall be
-	 *            retrieved
+	 * @param job
+	 *            The queue entry of the compression job, whose technical meta data
+	 *            shall be retrieved
+	 * @param cancellationToken
+	 *            The token used to stop waiting for retries of the retrieval
 	 * @return The technical meta data, if they could be retrieved, otherwise null
 	 */
-	private TechnicalMetadata getTechnicalMetadata(String mediaUid) {
+	private TechnicalMetadata getTechnicalMetadata(QueueEntry job, CancellationToken cancellationToken) {
+		String mediaUid = job.getJob().getMediaUid();
+		long start = System.nanoTime();
 		try {
-			return techMetaCommunicator.getTechnicalMetadata(mediaUid);
+			TechnicalMetadata prefetched = prefetcher.take(job);
+			String pendingJson = queue.getMetadataOutbox().getPending(mediaUid);
+			if (pendingJson != null) {
+				return new TechnicalMetadata(pendingJson);
+			} else if (prefetched != null) {
+				return prefetched;
+			}
+			return techMetaCommunicator.getTechnicalMetadata(mediaUid, cancellationToken);
 		} catch (URISyntaxException ex) {
 			log.error("Error during technical meta data retrieval: The URI built with given media uid '" + mediaUid
 					+ "' is invalid: " + ex.getMessage());
@@ -213,26 +410,40 @@ public class CompressionModel {
 							+ ex.getMessage());
 		} catch (TechnicalMetadataNotFoundException ex) {
 			log.error("Error during technical meta data retrieval: " + ex.getMessage());
+		} finally {
+			metrics.recordStepSince(ProcessingStep.METADATA_GET, start);
 		}
 
 		return null;
 	}
 
 	/**
-	 * This method uploads the given technical meta data for the given media file.
+	 * This method stores the given technical meta data for the given media file in
+	 * the outbox, from where they are delivered to the meta database in the
+	 * background. Only if they can't be stored in the outbox, they are uploaded
+	 * directly.
 	 * 
 	 * @param mediaUid
 	 *            The UID of the media file, whose technical meta data shall be
 	 *            updated
 	 * @param techMeta
 	 *            The new technical meta data for the media file with the given UID
-	 * @return Returns true, if the meta data upload was successful, otherwise false
+	 * @return Returns true, if the meta data have been stored or uploaded
+	 *         successfully, otherwise false
 	 */
 	private boolean updateTechnicalMetadata(String mediaUid, TechnicalMetadata techMeta) {
 		boolean success = true;
+		long start = System.nanoTime();
 
 		try {
-			techMetaCommunicator.putTechnicalMetadata(mediaUid, techMeta);
+			String json = techMeta.getJson();
+			try {
+				queue.getMetadataOutbox().enqueue(mediaUid, json);
+			} catch (SQLException ex) {
+				log.error("Could not store technical meta data update in the outbox, uploading it directly: "
+						+ ex.getMessage());
+				techMetaCommunicator.putTechnicalMetadata(mediaUid, json);
+			}
 		} catch (URISyntaxException ex) {
 			log.error("Error during technical meta data update: The URI built with given media uid '" + mediaUid
 					+ "' is invalid: " + ex.getMessage());
@@ -246,6 +457,8 @@ public class CompressionModel {
 					"Error during technical meta data update: The built technical meta data serialization is invalid: "
 							+ ex.getMessage());
 			success = false;
+		} finally {
+			metrics.recordStepSince(ProcessingStep.METADATA_PUT, start);
 		}
 
 		return success;
@@ -259,9 +472,12 @@ public class CompressionModel {
 	 *            The queue entry enclosing compression job that shall be processed
 	 * @param techMeta
 	 *            The technical meta data for the media file that shall be processed
+	 * @param cancellationToken
+	 *            The token used to stop the compression
 	 * @return Returns true if the compression was successful, otherwise false
 	 */
-	private boolean processJobPicture(QueueEntry job, TechnicalMetadata techMeta) {
+	private boolean processJobPicture(QueueEntry job, TechnicalMetadata techMeta,
+			CancellationToken cancellationToken) {
 		String extension = getPictureFilenameExtension(job, techMeta);
 		FilenameGeneratorImage filenameGen = new FilenameGeneratorImage(configModel, job.getJob(), extension, ORIGINAL_FILE_INDICATOR);
 
@@ -270,9 +486,23 @@ public class CompressionModel {
 			return false;
 		}
 
-		ImageCompressor compressor = new ImageCompressor();
+		ImageCompressor compressor = new ImageCompressor(cancellationToken);
 		ImageCompressionLevel[] levels = configModel.getImageCompressionLevels();
 
+		// skip decoding the image, if all compression levels exist already
+		int existingLevels = 0;
+		for (ImageCompressionLevel level : levels) {
+			if (techMeta.hasCompressionLevel(level.getTitle())) {
+				existingLevels++;
+			}
+		}
+		queue.getAvoidedWorkCounter().countSkippedLevels(existingLevels);
+		if (levels.length > 0 && existingLevels == levels.length) {
+			log.info("All compression levels of job " + job.getId() + " exist already.");
+			queue.getAvoidedWorkCounter().countSkippedJob();
+			return true;
+		}
+
 		File[] outputPaths = new File[levels.length];
 		String[] outputFilenames = new String[levels.length];
 		for (int i = 0; i < levels.length; ++i) {
@@ -289,7 +519,10 @@ public class CompressionModel {
 		};
 
 		try {
+			getProgress(job).setPhase(JobPhase.WRITE);
+			long start = System.nanoTime();
 			compressor.compressImageFile(filenameGen.getImageFilePath(), outputPaths, levels, filter);
+			metrics.recordStepSince(ProcessingStep.IMAGE_COMPRESSION, start);
 		} catch (ImageCompressionException e) {
 			log.error("Could not compress image '" + filenameGen.getImageFilename() + "': " + e.getMessage());
 			return false;
@@ -339,6 +572,108 @@ public class CompressionModel {
 		}
 	}
 
+	/**
+	 * This method processes the compression job enclosed in the given queue entry,
+	 * which has to be an 3D-model compression job, as soon as its estimated heap
+	 * need fits into the heap budget shared by all 3D-model workers. The heap need
+	 * is estimated from a pre-scan of the OBJ-file. A job, which would run out of
+	 * memory even if processed alone, is refused before its model is read.
+	 * 
+	 * @param job
+	 *            The queue entry enclosing compression job that shall be processed
+	 * @param techMeta
+	 *            The technical meta data for the media file that shall be processed
+	 * @param cancellationToken
+	 *            The token used to stop the compression
+	 * @return Returns true if the compression was successful, otherwise false
+	 */
+	private boolean processJobModelWithinHeapBudget(QueueEntry job, TechnicalMetadata techMeta,
+			CancellationToken cancellationToken) {
+		HashSet<Integer> levels = getModelCompressionLevels(job);
+		if (!removeExistingModelCompressionLevels(job, levels, techMeta)) {
+			return true;
+		}
+
+		FilenameGenerator3D filenameGen = new FilenameGenerator3D(configModel.getMediaFileRoot(),
+				job.getJob().getBasePath(), job.getJob().getObjectUid(), job.getJob().getMediaUid(),
+				ORIGINAL_FILE_INDICATOR);
+		ObjStatistics statistics;
+		try {
+			getProgress(job).setPhase(JobPhase.READ);
+			statistics = ObjStatistics.scan(filenameGen.getObjFilePath());
+		} catch (IOException ex) {
+			log.error("Error while compressing job " + job.getId() + ": Could not scan model file: " + ex.getMessage());
+			return false;
+		}
+
+		long estimatedHeap = heapAdmission.estimate(statistics, getRepackedTextureSize(techMeta));
+		if (!heapAdmission.isAdmissible(estimatedHeap)) {
+			log.error("Refused job " + job.getId() + ": Compressing its model (" + statistics + ") needs an estimated "
+					+ (estimatedHeap >> 20) + " MB heap, but a single job may use at most "
+					+ (heapAdmission.getLimit() >> 20)
+					+ " MB. The maximum heap size of the compression system has to be raised to process it.");
+			return false;
+		}
+		log.info("Estimated heap need of job " + job.getId() + " (" + statistics + "): " + (estimatedHeap >> 20)
+				+ " MB" + (heapAdmission.isExclusive(estimatedHeap) ? ", processing it alone" : ""));
+
+		long reservedHeap;
+		try {
+			getProgress(job).setPhase(JobPhase.WAITING);
+			reservedHeap = heapAdmission.acquire(estimatedHeap, cancellationToken);
+		} catch (InterruptedException ex) {
+			log.error("Interrupted while waiting for heap budget for job " + job.getId());
+			Thread.currentThread().interrupt();
+			return false;
+		}
+
+		try {
+			return processJobModel(job, techMeta, levels, cancellationToken);
+		} finally {
+			heapAdmission.release(reservedHeap);
+		}
+	}
+
+	/**
+	 * This method returns the size of the original texture of a 3D-model, if the
+	 * texture will be decoded in the heap for repacking it into texture atlases.
+	 * Only the header of the texture file is read.
+	 * 
+	 * @param techMeta
+	 *            The technical meta data referencing the texture file
+	 * @return Returns the size of the texture or null, if textures aren't
+	 *         repacked or the size could not be determined
+	 */
+	private Dimension getRepackedTextureSize(TechnicalMetadata techMeta) {
+		TechnicalMetadataCompressionLevel origin = techMeta.getCompressionLevel(ORIGINAL_FILE_INDICATOR);
+		if (!configModel.getTextureAtlasRepacking() || origin == null || origin.getPaths() == null) {
+			return null;
+		}
+
+		for (String path : origin.getPaths()) {
+			if (path.endsWith(FilenameGenerator3D.OBJ_EXTENSION) || path.endsWith(FilenameGenerator3D.MTL_EXTENSION)) {
+				continue;
+			}
+
+			try (ImageInputStream in = ImageIO.createImageInputStream(new File(configModel.getMediaFileRoot(), path))) {
+				Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+				if (readers != null && readers.hasNext()) {
+					ImageReader reader = readers.next();
+					try {
+						reader.setInput(in);
+						return new Dimension(reader.getWidth(0), reader.getHeight(0));
+					} finally {
+						reader.dispose();
+					}
+				}
+			} catch (IOException ex) {
+				log.warn("Could not determine the size of texture " + path + ": " + ex.getMessage());
+			}
+		}
+
+		return null;
+	}
+
 	/**
 	 * This method processes the compression job enclosed in the given queue entry,
 	 * which has to be an 3D-model compression job.
@@ -347,16 +682,24 @@ public class CompressionModel {
 	 *            The queue entry enclosing compression job that shall be processed
 	 * @param techMeta
 	 *            The technical meta data for the media file that shall be processed
+	 * @param levels
+	 *            The vertex counts of the compression levels that shall be created
+	 * @param cancellationToken
+	 *            The token used to stop the compression
 	 * @return Returns true if the compression was successful, otherwise false
 	 */
-	private boolean processJobModel(QueueEntry job, TechnicalMetadata techMeta) {
+	private boolean processJobModel(QueueEntry job, TechnicalMetadata techMeta, HashSet<Integer> levels,
+			CancellationToken cancellationToken) {
 		boolean success = true;
 		FilenameGenerator3D filenameGen = new FilenameGenerator3D(configModel.getMediaFileRoot(), job.getJob().getBasePath(), job.getJob().getObjectUid(), job.getJob().getMediaUid(), ORIGINAL_FILE_INDICATOR);
 		String filename = filenameGen.getObjFilename();
-		HashSet<Integer> levels = getModelCompressionLevels(job);
+		JobProgress progress = getProgress(job);
 
 		try {
+			progress.setPhase(JobPhase.READ);
+			long parseStart = System.nanoTime();
 			ObjModel in = ObjReader.read(filenameGen.getObjFilePath().getAbsolutePath(), ".");
+			metrics.recordStepSince(ProcessingStep.OBJ_PARSE, parseStart);
 			Pair<ObjModel, TechnicalMetadataCompressionLevel> updatedModelAndTechData = updateInitialReferences(job, in,
 					techMeta.getCompressionLevel(ORIGINAL_FILE_INDICATOR), filenameGen);
 
@@ -373,19 +716,44 @@ public class CompressionModel {
 
 					QuadricCompressedModelHandler compressedModelHandler = new QuadricCompressedModelHandler(filter,
 							updatedModelAndTechData.getLeft().getHeader(), configModel.getTextureLevelLimits(),
-							configModel.getTextureLevelSizes(), techMeta, filenameGen);
-
-					QuadricEdgeCollapse decimator = new QuadricEdgeCollapse(configModel);
+							configModel.getTextureLevelSizes(), techMeta, filenameGen,
+							configModel.getTextureAdditionalFormats(), configModel.getTextureAdditionalFormatQuality(),
+							configModel.getTextureAtlasRepacking(), cancellationToken);
+
+					QuadricEdgeCollapse decimator = new QuadricEdgeCollapse(configModel, cancellationToken, progress,
+							metrics);
+
+					// checkpoints are identified by the size and modification date of the OBJ-file
+					// after its references have been updated
+					QuadricCheckpointStore checkpointStore = null;
+					if (configModel.getModelCheckpointing()) {
+						File objFile = filenameGen.getObjFilePath();
+						checkpointStore = new QuadricCheckpointStore(new File(configModel.getModelCheckpointDirectory()),
+								job.getJob().getObjectUid() + "_" + job.getJob().getMediaUid(),
+								objFile.length() + "_" + objFile.lastModified(), configModel,
+								configModel.getModelCheckpointInterval() * 1000L,
+								configModel.getModelCheckpointTimeFraction());
+					}
 
 					try {
-						success &= decimator.compute(in, levels.toArray(new Integer[] {}), compressedModelHandler);
+						success &= decimator.compute(in, levels.toArray(new Integer[] {}), compressedModelHandler,
+								checkpointStore);
 					} catch (NonManifoldModelException ex) {
 						log.error(
 								"Error while processing non-manifold OBJ-file (" + filename + "): " + ex.getMessage());
 						success = false;
 					}
 
+					// periodic checkpoints are only needed to resume an interrupted decimation
+					if (checkpointStore != null) {
+						checkpointStore.discardPeriodicCheckpoints();
+					}
+
+					progress.setPhase(JobPhase.TEXTURES);
+					progress.setLevel(null);
+					long textureStart = System.nanoTime();
 					compressedModelHandler.compressTextures();
+					metrics.recordStepSince(ProcessingStep.TEXTURE_RESIZE, textureStart);
 					compressedModelHandler.updateTechnicalMetadata();
 				}
 			}
@@ -609,6 +977,34 @@ public class CompressionModel {
 		return Pair.of(filenameGen.getMtlFilename(), FileUtils.sizeOf(filenameGen.getMtlFilePath()));
 	}
 
+	/**
+	 * This method removes all compression levels from the given set, which exist
+	 * already according to the given technical meta data, so that the OBJ-file
+	 * doesn't have to be read for them.
+	 * 
+	 * @param job
+	 *            The queue entry encapsulating the compression job
+	 * @param levels
+	 *            The vertex counts of the desired compression levels
+	 * @param techMeta
+	 *            The technical meta data for the media file
+	 * @return Returns false, if compression levels have been desired, but all of
+	 *         them exist already, otherwise true
+	 */
+	private boolean removeExistingModelCompressionLevels(QueueEntry job, Set<Integer> levels,
+			TechnicalMetadata techMeta) {
+		int desiredLevels = levels.size();
+		levels.removeIf(level -> techMeta.hasCompressionLevel(String.valueOf(level)));
+		queue.getAvoidedWorkCounter().countSkippedLevels(desiredLevels - levels.size());
+
+		if (desiredLevels > 0 && levels.isEmpty()) {
+			log.info("All compression levels of job " + job.getId() + " exist already.");
+			queue.getAvoidedWorkCounter().countSkippedJob();
+			return false;
+		}
+		return true;
+	}
+
 	/**
 	 * This method returns a set containing the vertex counts of all desired
 	 * compression levels of the given compression job.
@@ -71,6 +71,22 @@ public class ConfigModel implements QuadricEdgeCollapseConfig {
 	private static final String METADB_API_AUTH_STRING_VALUE = "Basic XXXXXXXXXXXXXXXXXXXXXXXXXXXXXX==";
 	private static final String METADB_API_MEDIA_UID_PREFIX_KEY = "metadbApiMediaUidPrefix";
 	private static final String METADB_API_MEDIA_UID_PREFIX_VALUE = "http://DOMAIN/metadb/";
+	private static final String METADB_API_CONNECT_TIMEOUT_KEY = "metadbApiConnectTimeout";
+	private static final String METADB_API_CONNECT_TIMEOUT_VALUE = "5000";
+	private static final String METADB_API_SOCKET_TIMEOUT_KEY = "metadbApiSocketTimeout";
+	private static final String METADB_API_SOCKET_TIMEOUT_VALUE = "30000";
+	private static final String METADB_API_MAX_CONNECTIONS_KEY = "metadbApiMaxConnections";
+	private static final String METADB_API_MAX_CONNECTIONS_VALUE = "8";
+	private static final String METADB_API_MAX_RETRIES_KEY = "metadbApiMaxRetries";
+	private static final String METADB_API_MAX_RETRIES_VALUE = "3";
+	private static final String METADB_API_RETRY_BACKOFF_KEY = "metadbApiRetryBackoff";
+	private static final String METADB_API_RETRY_BACKOFF_VALUE = "500";
+	private static final String METADATA_OUTBOX_BATCH_SIZE_KEY = "metadataOutboxBatchSize";
+	private static final String METADATA_OUTBOX_BATCH_SIZE_VALUE = "50";
+	private static final String METADATA_OUTBOX_RETRY_DELAY_KEY = "metadataOutboxRetryDelay";
+	private static final String METADATA_OUTBOX_RETRY_DELAY_VALUE = "10000";
+	private static final String METADATA_OUTBOX_MAX_RETRY_DELAY_KEY = "metadataOutboxMaxRetryDelay";
+	private static final String METADATA_OUTBOX_MAX_RETRY_DELAY_VALUE = "600000";
 	private static final String TARGETSIZE_BOUNDARY_PENALTY_KEY = "targetSizeBoundaryPenalty";
 	private static final String TARGETSIZE_BOUNDARY_PENALTY_VALUE = "100.0";
 	private static final String TARGETSIZE_NORMAL_DIFFERENCE_THRESHOLD_KEY = "targetSizeNormalDifferenceThreshold";
@@ -81,10 +97,45 @@ public class ConfigModel implements QuadricEdgeCollapseConfig {
 	private static final String TARGETSIZE_NORMAL_PENALIZATION_VALUE = "1000.0";
 	private static final String TARGETSIZE_PARTITION_PENALIZATION_FACTOR_KEY = "targetSizePartitionPenalization";
 	private static final String TARGETSIZE_PARTITION_PENALIZATION_FACTOR_VALUE = "10.0";
+	private static final String TEXTURE_ADDITIONAL_FORMATS_KEY = "textureAdditionalFormats";
+	private static final String TEXTURE_ADDITIONAL_FORMATS_VALUE = "[]";
+	private static final String TEXTURE_ADDITIONAL_FORMAT_QUALITY_KEY = "textureAdditionalFormatQuality";
+	private static final String TEXTURE_ADDITIONAL_FORMAT_QUALITY_VALUE = "80";
+	private static final String TEXTURE_ATLAS_REPACKING_KEY = "textureAtlasRepacking";
+	private static final String TEXTURE_ATLAS_REPACKING_VALUE = "false";
+	private static final String IMAGE_WORKER_COUNT_KEY = "imageWorkerCount";
+	private static final String IMAGE_WORKER_COUNT_VALUE = "2";
+	private static final String MODEL_WORKER_COUNT_KEY = "modelWorkerCount";
+	private static final String MODEL_WORKER_COUNT_VALUE = "1";
+	private static final String MODEL_HEAP_FACTOR_KEY = "modelHeapEstimateFactor";
+	private static final String MODEL_HEAP_FACTOR_VALUE = "1.0";
+	private static final String MODEL_HEAP_BUDGET_FRACTION_KEY = "modelHeapBudgetFraction";
+	private static final String MODEL_HEAP_BUDGET_FRACTION_VALUE = "0.75";
+	private static final String MODEL_HEAP_LIMIT_FRACTION_KEY = "modelHeapLimitFraction";
+	private static final String MODEL_HEAP_LIMIT_FRACTION_VALUE = "0.9";
+	private static final String MODEL_CHECKPOINTING_KEY = "modelCheckpointing";
+	private static final String MODEL_CHECKPOINTING_VALUE = "false";
+	private static final String MODEL_CHECKPOINT_DIRECTORY_KEY = "modelCheckpointDirectory";
+	private static final String MODEL_CHECKPOINT_DIRECTORY_VALUE = RootModel.DATA_ROOT + "/checkpoints";
+	private static final String MODEL_CHECKPOINT_INTERVAL_KEY = "modelCheckpointInterval";
+	private static final String MODEL_CHECKPOINT_INTERVAL_VALUE = "300";
+	private static final String MODEL_CHECKPOINT_TIME_FRACTION_KEY = "modelCheckpointTimeFraction";
+	private static final String MODEL_CHECKPOINT_TIME_FRACTION_VALUE = "0.05";
+	private static final String MAX_JOB_RESUMES_KEY = "maxJobResumes";
+	private static final String MAX_JOB_RESUMES_VALUE = "3";
+	private static final String PREFETCH_JOB_COUNT_KEY = "prefetchJobCount";
+	private static final String PREFETCH_JOB_COUNT_VALUE = "4";
+	private static final String PREFETCH_MAX_FILE_SIZE_KEY = "prefetchMaxFileSize";
+	private static final String PREFETCH_MAX_FILE_SIZE_VALUE = "1024";
+	private static final String HTTP_WORKER_THREADS_KEY = "httpWorkerThreads";
+	private static final String HTTP_WORKER_THREADS_VALUE = "16";
+	private static final String HTTP_VIRTUAL_THREADS_KEY = "httpVirtualThreads";
+	private static final String HTTP_VIRTUAL_THREADS_VALUE = "true";
 
 	private static final Logger log = LogManager.getLogger(ConfigModel.class);
 	private static final String IMAGE_COMPRESSION_LEVEL_PATTERN = "[A-Za-z0-9_\\-]+";
 
+	private final String configFile;
 	private final Properties currentConfiguration;
 
 	/**
@@ -92,12 +143,25 @@ public class ConfigModel implements QuadricEdgeCollapseConfig {
 	 * configuration from the INI-file.
 	 */
 	public ConfigModel() {
-		File f = new File(CONFIG_FILE);
+		this(CONFIG_FILE);
+	}
+
+	/**
+	 * This constructor creates a new configuration model and reads the current
+	 * configuration from the INI-file at the given path. If the file doesn't exist,
+	 * it will be created containing the default configuration.
+	 * 
+	 * @param configFile
+	 *            The path of the INI-file storing the configuration
+	 */
+	public ConfigModel(String configFile) {
+		File f = new File(configFile);
+		this.configFile = configFile;
 		currentConfiguration = getDefaultConfiguration();
 
 		if (f.exists()) {
 			try {
-				FileInputStream in = new FileInputStream(CONFIG_FILE);
+				FileInputStream in = new FileInputStream(configFile);
 				currentConfiguration.load(in);
 				in.close();
 			} catch (IOException ex) {
@@ -124,6 +188,14 @@ public class ConfigModel implements QuadricEdgeCollapseConfig {
 		defaultProps.setProperty(METADB_API_ENDPOINT_SEND_URL_KEY, METADB_API_ENDPOINT_SEND_URL_VALUE);
 		defaultProps.setProperty(METADB_API_AUTH_STRING_KEY, METADB_API_AUTH_STRING_VALUE);
 		defaultProps.setProperty(METADB_API_MEDIA_UID_PREFIX_KEY, METADB_API_MEDIA_UID_PREFIX_VALUE);
+		defaultProps.setProperty(METADB_API_CONNECT_TIMEOUT_KEY, METADB_API_CONNECT_TIMEOUT_VALUE);
+		defaultProps.setProperty(METADB_API_SOCKET_TIMEOUT_KEY, METADB_API_SOCKET_TIMEOUT_VALUE);
+		defaultProps.setProperty(METADB_API_MAX_CONNECTIONS_KEY, METADB_API_MAX_CONNECTIONS_VALUE);
+		defaultProps.setProperty(METADB_API_MAX_RETRIES_KEY, METADB_API_MAX_RETRIES_VALUE);
+		defaultProps.setProperty(METADB_API_RETRY_BACKOFF_KEY, METADB_API_RETRY_BACKOFF_VALUE);
+		defaultProps.setProperty(METADATA_OUTBOX_BATCH_SIZE_KEY, METADATA_OUTBOX_BATCH_SIZE_VALUE);
+		defaultProps.setProperty(METADATA_OUTBOX_RETRY_DELAY_KEY, METADATA_OUTBOX_RETRY_DELAY_VALUE);
+		defaultProps.setProperty(METADATA_OUTBOX_MAX_RETRY_DELAY_KEY, METADATA_OUTBOX_MAX_RETRY_DELAY_VALUE);
 		defaultProps.setProperty(TARGETSIZE_BOUNDARY_PENALTY_KEY, TARGETSIZE_BOUNDARY_PENALTY_VALUE);
 		defaultProps.setProperty(TARGETSIZE_NORMAL_DIFFERENCE_THRESHOLD_KEY,
 				TARGETSIZE_NORMAL_DIFFERENCE_THRESHOLD_VALUE);
@@ -131,12 +203,29 @@ public class ConfigModel implements QuadricEdgeCollapseConfig {
 		defaultProps.setProperty(TARGETSIZE_NORMAL_PENALIZATION_KEY, TARGETSIZE_NORMAL_PENALIZATION_VALUE);
 		defaultProps.setProperty(TARGETSIZE_PARTITION_PENALIZATION_FACTOR_KEY,
 				TARGETSIZE_PARTITION_PENALIZATION_FACTOR_VALUE);
+		defaultProps.setProperty(TEXTURE_ADDITIONAL_FORMATS_KEY, TEXTURE_ADDITIONAL_FORMATS_VALUE);
+		defaultProps.setProperty(TEXTURE_ADDITIONAL_FORMAT_QUALITY_KEY, TEXTURE_ADDITIONAL_FORMAT_QUALITY_VALUE);
+		defaultProps.setProperty(TEXTURE_ATLAS_REPACKING_KEY, TEXTURE_ATLAS_REPACKING_VALUE);
+		defaultProps.setProperty(IMAGE_WORKER_COUNT_KEY, IMAGE_WORKER_COUNT_VALUE);
+		defaultProps.setProperty(MODEL_WORKER_COUNT_KEY, MODEL_WORKER_COUNT_VALUE);
+		defaultProps.setProperty(PREFETCH_JOB_COUNT_KEY, PREFETCH_JOB_COUNT_VALUE);
+		defaultProps.setProperty(PREFETCH_MAX_FILE_SIZE_KEY, PREFETCH_MAX_FILE_SIZE_VALUE);
+		defaultProps.setProperty(MODEL_HEAP_FACTOR_KEY, MODEL_HEAP_FACTOR_VALUE);
+		defaultProps.setProperty(MODEL_HEAP_BUDGET_FRACTION_KEY, MODEL_HEAP_BUDGET_FRACTION_VALUE);
+		defaultProps.setProperty(MODEL_HEAP_LIMIT_FRACTION_KEY, MODEL_HEAP_LIMIT_FRACTION_VALUE);
+		defaultProps.setProperty(MODEL_CHECKPOINTING_KEY, MODEL_CHECKPOINTING_VALUE);
+		defaultProps.setProperty(MODEL_CHECKPOINT_DIRECTORY_KEY, MODEL_CHECKPOINT_DIRECTORY_VALUE);
+		defaultProps.setProperty(MODEL_CHECKPOINT_INTERVAL_KEY, MODEL_CHECKPOINT_INTERVAL_VALUE);
+		defaultProps.setProperty(MODEL_CHECKPOINT_TIME_FRACTION_KEY, MODEL_CHECKPOINT_TIME_FRACTION_VALUE);
+		defaultProps.setProperty(MAX_JOB_RESUMES_KEY, MAX_JOB_RESUMES_VALUE);
+		defaultProps.setProperty(HTTP_WORKER_THREADS_KEY, HTTP_WORKER_THREADS_VALUE);
+		defaultProps.setProperty(HTTP_VIRTUAL_THREADS_KEY, HTTP_VIRTUAL_THREADS_VALUE);
 		return defaultProps;
 	}
 
 	private void writeCurrentConfiguration() {
 		try {
-			FileOutputStream out = new FileOutputStream(CONFIG_FILE);
+			FileOutputStream out = new FileOutputStream(configFile);
 			currentConfiguration.store(out, "--- ViSIT Compression Configuration ---");
 			out.close();
 		} catch (IOException ex) {
@@ -170,7 +259,7 @@ public class ConfigModel implements QuadricEdgeCollapseConfig {
 	 * @throws InvalidConfigurationException
 	 *             If the given configuration data are invalid
 	 */
-	public void updateConfiguration(ConfigTransfer transferObject)
+	public synchronized void updateConfiguration(ConfigTransfer transferObject)
 			throws JsonProcessingException, InvalidConfigurationException {
 		if (!checkConfigurationValidity(transferObject)) {
 			throw new InvalidConfigurationException();
@@ -424,6 +513,97 @@ public class ConfigModel implements QuadricEdgeCollapseConfig {
 		return currentConfiguration.getProperty(METADB_API_MEDIA_UID_PREFIX_KEY);
 	}
 
+	/**
+	 * This method returns the time in milliseconds to wait for a connection to the
+	 * meta database being established. This setting can only be modified directly
+	 * in the configuration file.
+	 * 
+	 * @return Returns the connect timeout in milliseconds
+	 */
+	public int getMetadbApiConnectTimeout() {
+		return Math.max(1, getParsedIntOrDefault(METADB_API_CONNECT_TIMEOUT_KEY, METADB_API_CONNECT_TIMEOUT_VALUE));
+	}
+
+	/**
+	 * This method returns the time in milliseconds to wait for data from the meta
+	 * database, after a request has been sent. This setting can only be modified
+	 * directly in the configuration file.
+	 * 
+	 * @return Returns the socket timeout in milliseconds
+	 */
+	public int getMetadbApiSocketTimeout() {
+		return Math.max(1, getParsedIntOrDefault(METADB_API_SOCKET_TIMEOUT_KEY, METADB_API_SOCKET_TIMEOUT_VALUE));
+	}
+
+	/**
+	 * This method returns the maximum count of connections to the meta database,
+	 * which are kept open and reused by all workers. This setting can only be
+	 * modified directly in the configuration file.
+	 * 
+	 * @return Returns the maximum count of pooled connections
+	 */
+	public int getMetadbApiMaxConnections() {
+		return Math.max(1, getParsedIntOrDefault(METADB_API_MAX_CONNECTIONS_KEY, METADB_API_MAX_CONNECTIONS_VALUE));
+	}
+
+	/**
+	 * This method returns how often a request to the meta database will be
+	 * repeated, if it failed due to a network error or an error of the server.
+	 * This setting can only be modified directly in the configuration file.
+	 * 
+	 * @return Returns the maximum count of retries per request (0 disables
+	 *         retries)
+	 */
+	public int getMetadbApiMaxRetries() {
+		return Math.max(0, getParsedIntOrDefault(METADB_API_MAX_RETRIES_KEY, METADB_API_MAX_RETRIES_VALUE));
+	}
+
+	/**
+	 * This method returns the base delay in milliseconds before a failed request
+	 * to the meta database is repeated. The delay is doubled for each further
+	 * retry. This setting can only be modified directly in the configuration file.
+	 * 
+	 * @return Returns the base delay of retries in milliseconds
+	 */
+	public int getMetadbApiRetryBackoff() {
+		return Math.max(0, getParsedIntOrDefault(METADB_API_RETRY_BACKOFF_KEY, METADB_API_RETRY_BACKOFF_VALUE));
+	}
+
+	/**
+	 * This method returns the maximum count of technical meta data updates, which
+	 * are delivered from the outbox to the meta database in one pass. This setting
+	 * can only be modified directly in the configuration file.
+	 * 
+	 * @return Returns the maximum count of updates delivered per pass
+	 */
+	public int getMetadataOutboxBatchSize() {
+		return Math.max(1, getParsedIntOrDefault(METADATA_OUTBOX_BATCH_SIZE_KEY, METADATA_OUTBOX_BATCH_SIZE_VALUE));
+	}
+
+	/**
+	 * This method returns the delay in milliseconds before the delivery of a
+	 * technical meta data update is attempted again, after it failed for the
+	 * first time. The delay is doubled for each further failure. This setting can
+	 * only be modified directly in the configuration file.
+	 * 
+	 * @return Returns the base delay of redeliveries in milliseconds
+	 */
+	public int getMetadataOutboxRetryDelay() {
+		return Math.max(0, getParsedIntOrDefault(METADATA_OUTBOX_RETRY_DELAY_KEY, METADATA_OUTBOX_RETRY_DELAY_VALUE));
+	}
+
+	/**
+	 * This method returns the maximum delay in milliseconds between two attempts
+	 * to deliver a technical meta data update. This setting can only be modified
+	 * directly in the configuration file.
+	 * 
+	 * @return Returns the maximum delay of redeliveries in milliseconds
+	 */
+	public int getMetadataOutboxMaxRetryDelay() {
+		return Math.max(getMetadataOutboxRetryDelay(),
+				getParsedIntOrDefault(METADATA_OUTBOX_MAX_RETRY_DELAY_KEY, METADATA_OUTBOX_MAX_RETRY_DELAY_VALUE));
+	}
+
 	public double getTargetsizeBoundaryPenalty() {
 		return getParsedDoubleOrDefault(TARGETSIZE_BOUNDARY_PENALTY_KEY, TARGETSIZE_BOUNDARY_PENALTY_VALUE);
 	}
@@ -446,6 +626,211 @@ public class ConfigModel implements QuadricEdgeCollapseConfig {
 				TARGETSIZE_PARTITION_PENALIZATION_FACTOR_VALUE);
 	}
 
+	/**
+	 * This method returns the file extensions of all image formats, in which the
+	 * textures of compressed 3D-models shall be stored additionally to the format
+	 * of the original texture (e.g. "webp"). The first of these formats will be
+	 * referenced by the generated MTL-files. This setting can only be modified
+	 * directly in the configuration file.
+	 * 
+	 * @return Returns the extensions of the additional texture formats without
+	 *         leading dot, or an empty array if no additional formats shall be
+	 *         generated
+	 */
+	public String[] getTextureAdditionalFormats() {
+		String strVal = currentConfiguration.getProperty(TEXTURE_ADDITIONAL_FORMATS_KEY).trim();
+		strVal = strVal.substring(1, strVal.length() - 1); // crop brackets
+		return Arrays.stream(strVal.split(",")).map(String::trim).filter(token -> !token.isEmpty())
+				.map(String::toLowerCase).toArray(String[]::new);
+	}
+
+	/**
+	 * This method returns the encoder quality (1 - 100) used for textures stored in
+	 * one of the additional texture formats. This setting can only be modified
+	 * directly in the configuration file.
+	 * 
+	 * @return Returns the encoder quality used for additional texture formats
+	 */
+	public int getTextureAdditionalFormatQuality() {
+		return getParsedIntOrDefault(TEXTURE_ADDITIONAL_FORMAT_QUALITY_KEY, TEXTURE_ADDITIONAL_FORMAT_QUALITY_VALUE);
+	}
+
+	/**
+	 * This method returns whether the textures of compressed 3D-models shall be
+	 * repacked into a new texture atlas, which only contains the texture regions
+	 * still referenced by the respective compression level. This setting can only
+	 * be modified directly in the configuration file.
+	 * 
+	 * @return Returns true, if texture atlas repacking is enabled, otherwise false
+	 */
+	public boolean getTextureAtlasRepacking() {
+		return Boolean.parseBoolean(currentConfiguration.getProperty(TEXTURE_ATLAS_REPACKING_KEY));
+	}
+
+	/**
+	 * This method returns the count of worker threads processing image compression
+	 * jobs concurrently. This setting can only be modified directly in the
+	 * configuration file.
+	 * 
+	 * @return Returns the count of image compression workers (at least 1)
+	 */
+	public int getImageWorkerCount() {
+		return Math.max(1, getParsedIntOrDefault(IMAGE_WORKER_COUNT_KEY, IMAGE_WORKER_COUNT_VALUE));
+	}
+
+	/**
+	 * This method returns the count of worker threads processing 3D-model
+	 * compression jobs concurrently. This setting can only be modified directly in
+	 * the configuration file.
+	 * 
+	 * @return Returns the count of 3D-model compression workers (at least 1)
+	 */
+	public int getModelWorkerCount() {
+		return Math.max(1, getParsedIntOrDefault(MODEL_WORKER_COUNT_KEY, MODEL_WORKER_COUNT_VALUE));
+	}
+
+	/**
+	 * This method returns the count of pending jobs, whose technical meta data and
+	 * media files are prefetched while the current jobs are being processed. This
+	 * setting can only be modified directly in the configuration file.
+	 * 
+	 * @return Returns the count of prefetched jobs (0 disables prefetching)
+	 */
+	public int getPrefetchJobCount() {
+		return Math.max(0, getParsedIntOrDefault(PREFETCH_JOB_COUNT_KEY, PREFETCH_JOB_COUNT_VALUE));
+	}
+
+	/**
+	 * This method returns the maximum size of the media files of a single job,
+	 * which are read ahead into the cache of the operating system. This setting
+	 * can only be modified directly in the configuration file.
+	 * 
+	 * @return Returns the maximum size of read ahead media files per job in
+	 *         megabytes
+	 */
+	public int getPrefetchMaxFileSize() {
+		return Math.max(0, getParsedIntOrDefault(PREFETCH_MAX_FILE_SIZE_KEY, PREFETCH_MAX_FILE_SIZE_VALUE));
+	}
+
+	/**
+	 * This method returns the factor, which the estimated heap need of a 3D-model
+	 * job is multiplied with. The estimation has been calibrated for the default
+	 * garbage collector, so the factor has to be raised, if jobs run out of memory
+	 * nevertheless. This setting can only be modified directly in the
+	 * configuration file.
+	 * 
+	 * @return Returns the factor of the estimated heap need
+	 */
+	public double getModelHeapEstimateFactor() {
+		return Math.max(0, getParsedDoubleOrDefault(MODEL_HEAP_FACTOR_KEY, MODEL_HEAP_FACTOR_VALUE));
+	}
+
+	/**
+	 * This method returns the fraction of the maximum heap size, which may be
+	 * reserved by concurrently processed 3D-model jobs. This setting can only be
+	 * modified directly in the configuration file.
+	 * 
+	 * @return Returns the fraction of the maximum heap available for 3D-model jobs
+	 */
+	public double getModelHeapBudgetFraction() {
+		return getParsedDoubleOrDefault(MODEL_HEAP_BUDGET_FRACTION_KEY, MODEL_HEAP_BUDGET_FRACTION_VALUE);
+	}
+
+	/**
+	 * This method returns the fraction of the maximum heap size, which a single
+	 * 3D-model job may need at most. Jobs exceeding it are refused before their
+	 * model is read, since they would run out of memory. This setting can only be
+	 * modified directly in the configuration file.
+	 * 
+	 * @return Returns the fraction of the maximum heap available for a single
+	 *         3D-model job
+	 */
+	public double getModelHeapLimitFraction() {
+		return getParsedDoubleOrDefault(MODEL_HEAP_LIMIT_FRACTION_KEY, MODEL_HEAP_LIMIT_FRACTION_VALUE);
+	}
+
+	/**
+	 * This method returns whether the state of the 3D-model decimation shall be
+	 * stored at each created compression level, so that a later job for the same
+	 * model can resume the decimation instead of starting from the original model.
+	 * This setting can only be modified directly in the configuration file.
+	 * 
+	 * @return Returns true, if decimation checkpoints are enabled, otherwise false
+	 */
+	public boolean getModelCheckpointing() {
+		return Boolean.parseBoolean(currentConfiguration.getProperty(MODEL_CHECKPOINTING_KEY));
+	}
+
+	/**
+	 * This method returns the directory storing the decimation checkpoints of
+	 * 3D-models. This setting can only be modified directly in the configuration
+	 * file.
+	 * 
+	 * @return Returns the directory storing the decimation checkpoints
+	 */
+	public String getModelCheckpointDirectory() {
+		return currentConfiguration.getProperty(MODEL_CHECKPOINT_DIRECTORY_KEY);
+	}
+
+	/**
+	 * This method returns the minimum time between two periodic checkpoints of a
+	 * running 3D-model decimation. This setting can only be modified directly in
+	 * the configuration file.
+	 * 
+	 * @return Returns the minimum time between two periodic checkpoints in seconds
+	 */
+	public int getModelCheckpointInterval() {
+		return Math.max(1, getParsedIntOrDefault(MODEL_CHECKPOINT_INTERVAL_KEY, MODEL_CHECKPOINT_INTERVAL_VALUE));
+	}
+
+	/**
+	 * This method returns the maximum fraction of the processing time of a
+	 * 3D-model job, which may be spent on storing checkpoints. This setting can
+	 * only be modified directly in the configuration file.
+	 * 
+	 * @return Returns the maximum fraction of the processing time spent on
+	 *         checkpoints
+	 */
+	public double getModelCheckpointTimeFraction() {
+		return getParsedDoubleOrDefault(MODEL_CHECKPOINT_TIME_FRACTION_KEY, MODEL_CHECKPOINT_TIME_FRACTION_VALUE);
+	}
+
+	/**
+	 * This method returns how often a job, which has been interrupted by a forced
+	 * stop of the compression system, will be enqueued again on startup before it
+	 * is marked as failed. This setting can only be modified directly in the
+	 * configuration file.
+	 * 
+	 * @return Returns the maximum count of resumes per job (0 disables resuming)
+	 */
+	public int getMaxJobResumes() {
+		return Math.max(0, getParsedIntOrDefault(MAX_JOB_RESUMES_KEY, MAX_JOB_RESUMES_VALUE));
+	}
+
+	/**
+	 * This method returns the count of threads handling requests to the web server
+	 * in parallel, if no virtual threads are used. This setting can only be
+	 * modified directly in the configuration file.
+	 * 
+	 * @return Returns the count of web server worker threads
+	 */
+	public int getHttpWorkerThreads() {
+		return Math.max(1, getParsedIntOrDefault(HTTP_WORKER_THREADS_KEY, HTTP_WORKER_THREADS_VALUE));
+	}
+
+	/**
+	 * This method returns whether each request to the web server shall be handled
+	 * by its own virtual thread, if the Java runtime supports virtual threads.
+	 * Otherwise a fixed count of worker threads is used (@see
+	 * #getHttpWorkerThreads()). This setting can only be modified directly in the
+	 * configuration file.
+	 * 
+	 * @return Returns true, if virtual threads shall be used, otherwise false
+	 */
+	public boolean getHttpVirtualThreads() {
+		return Boolean.parseBoolean(currentConfiguration.getProperty(HTTP_VIRTUAL_THREADS_KEY));
+	}
+
 	private int[] getParsedIntArrayOrDefault(final String key, final String defaultValue) {
 		try {
 			return parseIntArray(currentConfiguration.getProperty(key));
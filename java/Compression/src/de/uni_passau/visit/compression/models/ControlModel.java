@@ -1,5 +1,8 @@
 package de.uni_passau.visit.compression.models;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -19,10 +22,11 @@ public class ControlModel {
 	private final CompressionModel compressionModel;
 	private final QueueModel queueModel;
 	private final Server server;
+	private final List<AbstractSystemStateListener> listeners = new CopyOnWriteArrayList<>();
 
 	private static final Logger log = LogManager.getLogger(ControlModel.class);
 
-	private SystemState currentSystemState = SystemState.STARTUP;
+	private volatile SystemState currentSystemState = SystemState.STARTUP;
 
 	/**
 	 * This constructor creates a new control model managing the state of the given
@@ -63,6 +67,24 @@ public class ControlModel {
 		return currentSystemState;
 	}
 
+	/**
+	 * This method registers the given listener, which will be notified about all
+	 * changes of the system state from now on.
+	 * 
+	 * @param listener
+	 *            The listener that shall be registered
+	 */
+	public void addSystemStateListener(AbstractSystemStateListener listener) {
+		listeners.add(listener);
+	}
+
+	private void setSystemState(SystemState state) {
+		currentSystemState = state;
+		for (AbstractSystemStateListener listener : listeners) {
+			listener.systemStateChanged(state);
+		}
+	}
+
 	/**
 	 * This method sets the current system state to RUNNING. A call to this method
 	 * is legal, if the previous system state is either PAUSED or STARTUP.
@@ -70,9 +92,9 @@ public class ControlModel {
 	 * @throws IllegalStateModificationException
 	 *             if the previous system state renders this state change invalid
 	 */
-	public void setRunning() throws IllegalStateModificationException {
+	public synchronized void setRunning() throws IllegalStateModificationException {
 		if (currentSystemState == SystemState.PAUSED || currentSystemState == SystemState.STARTUP) {
-			currentSystemState = SystemState.RUNNING;
+			setSystemState(SystemState.RUNNING);
 			log.info("System is running.");
 			compressionModel.setPause(false);
 		} else {
@@ -87,9 +109,9 @@ public class ControlModel {
 	 * @throws IllegalStateModificationException
 	 *             if the previous system state renders this state change invalid
 	 */
-	public void setPaused() throws IllegalStateModificationException {
+	public synchronized void setPaused() throws IllegalStateModificationException {
 		if (currentSystemState == SystemState.RUNNING) {
-			currentSystemState = SystemState.PAUSED;
+			setSystemState(SystemState.PAUSED);
 			log.info("System is paused.");
 			compressionModel.setPause(true);
 		} else {
@@ -120,10 +142,10 @@ public class ControlModel {
 	 * @throws IllegalStateModificationException
 	 *             if the previous system state renders this state change invalid
 	 */
-	public void shutdown(boolean processRemainingQueue) throws IllegalStateModificationException {
+	public synchronized void shutdown(boolean processRemainingQueue) throws IllegalStateModificationException {
 		if (currentSystemState == SystemState.STARTUP || currentSystemState == SystemState.RUNNING
 				|| currentSystemState == SystemState.PAUSED) {
-			currentSystemState = SystemState.SHUTTINGDOWN;
+			setSystemState(SystemState.SHUTTINGDOWN);
 			log.info("System was shut down, remaining queue will " + (processRemainingQueue ? "" : "not ")
 					+ "be processed");
 			queueModel.shutDown();
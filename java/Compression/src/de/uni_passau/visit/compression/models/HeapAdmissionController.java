@@ -0,0 +1,202 @@
+package de.uni_passau.visit.compression.models;
+
+import java.awt.Dimension;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import de.uni_passau.visit.compression.exceptions.JobCancelledException;
+import de.uni_passau.visit.compression.logic.io.ObjStatistics;
+import de.uni_passau.visit.compression.logic.util.CancellationToken;
+
+/**
+ * This class limits the heap memory reserved by concurrently processed
+ * 3D-model compression jobs. Before a job is processed, its heap need is
+ * estimated from the counts of the elements of its OBJ-file (@see
+ * ObjStatistics) and reserved. If the reservation would exceed the heap budget,
+ * the calling worker waits until enough memory has been released by other
+ * jobs. Waiting workers are admitted in the order of their arrival, so a job
+ * needing a large part of the budget can't be starved by a stream of smaller
+ * jobs. In turn, smaller jobs arriving later wait behind it, even if they would
+ * fit into the remaining budget.
+ * 
+ * A job, whose estimated heap need exceeds the whole budget, is admitted as soon
+ * as no other job holds a reservation. Hence such a job runs alone instead of
+ * being rejected. Only a job, whose estimated heap need exceeds the limit of a
+ * single job, has to be refused, since it would run out of memory even if it
+ * ran alone.
+ * 
+ * @author agent
+ *
+ */
+public class HeapAdmissionController {
+
+	private static final Logger log = LogManager.getLogger(HeapAdmissionController.class);
+	private static final long CANCELLATION_CHECK_INTERVAL = 1000;
+
+	// peak heap need of reading and decimating a model per element, determined by
+	// the smallest maximum heap size, with which synthetic models could be
+	// compressed (about 1.75 KB per face of closed meshes, 2 KB per texture
+	// coordinate)
+	private static final double BYTES_PER_VERTEX = 1000;
+	private static final double BYTES_PER_FACE = 1270;
+	private static final double BYTES_PER_TEXTURE_COORD = 2000;
+	private static final double BYTES_PER_NORMAL = 150;
+	// the decoded original texture and the rendered atlas
+	private static final double BYTES_PER_TEXTURE_PIXEL = 8;
+	private static final long BASE_BYTES = 4L << 20;
+
+	private final long budget;
+	private final long limit;
+	private final double estimateFactor;
+	private final Deque<Object> waiting = new ArrayDeque<>();
+	private long reserved = 0;
+
+	/**
+	 * This constructor creates a new admission controller with the given heap
+	 * budget.
+	 * 
+	 * @param budget
+	 *            The count of heap bytes that may be reserved concurrently
+	 * @param limit
+	 *            The count of heap bytes a single job may need at most
+	 * @param estimateFactor
+	 *            The factor the estimated heap need of each job is multiplied with
+	 */
+	public HeapAdmissionController(long budget, long limit, double estimateFactor) {
+		this.budget = budget;
+		this.limit = limit;
+		this.estimateFactor = estimateFactor;
+	}
+
+	/**
+	 * This method returns the estimated peak heap need for compressing an
+	 * OBJ-file with the given counts of elements.
+	 * 
+	 * @param statistics
+	 *            The counts of the elements of the OBJ-file that shall be
+	 *            compressed
+	 * @param textureSize
+	 *            The size of the texture, which is decoded in the heap for
+	 *            repacking it, or null, if no texture is decoded
+	 * @return Returns the estimated heap need in bytes
+	 */
+	public long estimate(ObjStatistics statistics, Dimension textureSize) {
+		double bytes = BASE_BYTES + statistics.getVertexCount() * BYTES_PER_VERTEX
+				+ statistics.getFaceCount() * BYTES_PER_FACE
+				+ statistics.getTextureCoordCount() * BYTES_PER_TEXTURE_COORD
+				+ statistics.getNormalCount() * BYTES_PER_NORMAL;
+		if (textureSize != null) {
+			bytes += (double) textureSize.width * textureSize.height * BYTES_PER_TEXTURE_PIXEL;
+		}
+		return (long) (bytes * estimateFactor);
+	}
+
+	/**
+	 * This method returns whether a job with the given heap need may be processed
+	 * at all.
+	 * 
+	 * @param bytes
+	 *            The estimated heap need of the job
+	 * @return Returns true, if the heap need doesn't exceed the limit of a single
+	 *         job, otherwise false
+	 */
+	public boolean isAdmissible(long bytes) {
+		return bytes <= limit;
+	}
+
+	/**
+	 * This method returns whether a job with the given heap need will be
+	 * processed while no other 3D-model job is being processed.
+	 * 
+	 * @param bytes
+	 *            The estimated heap need of the job
+	 * @return Returns true, if the heap need exceeds the heap budget, otherwise
+	 *         false
+	 */
+	public boolean isExclusive(long bytes) {
+		return bytes > budget;
+	}
+
+	/**
+	 * This method returns the count of heap bytes a single job may need at most.
+	 * 
+	 * @return Returns the heap limit of a single job in bytes
+	 */
+	public long getLimit() {
+		return limit;
+	}
+
+	/**
+	 * This method reserves the given count of heap bytes and blocks until the
+	 * reservation fits into the heap budget and all workers, which have been
+	 * waiting before, have been admitted. Every successful call has to be followed
+	 * by a call to @see release(long) with the returned value.
+	 * 
+	 * @param bytes
+	 *            The count of heap bytes that shall be reserved
+	 * @param cancellationToken
+	 *            The token of the job, which stops waiting when cancelled
+	 * @return Returns the count of actually reserved bytes, which is the given
+	 *         value limited to the budget
+	 * @throws InterruptedException
+	 *             if the waiting thread has been interrupted
+	 * @throws JobCancelledException
+	 *             if the job has been cancelled while waiting
+	 */
+	public synchronized long acquire(long bytes, CancellationToken cancellationToken) throws InterruptedException {
+		long granted = Math.max(0, Math.min(bytes, budget));
+
+		if (waiting.isEmpty() && !exceedsBudget(granted)) {
+			reserved += granted;
+			return granted;
+		}
+
+		log.info("Waiting for " + (granted >> 20) + " MB heap budget (" + (reserved >> 20) + " of "
+				+ (budget >> 20) + " MB reserved, " + waiting.size() + " jobs waiting before).");
+
+		Object ticket = new Object();
+		waiting.addLast(ticket);
+		try {
+			while (waiting.peekFirst() != ticket || exceedsBudget(granted)) {
+				cancellationToken.throwIfCancelled();
+				wait(CANCELLATION_CHECK_INTERVAL);
+			}
+
+			reserved += granted;
+			return granted;
+		} finally {
+			// the next waiting worker may fit into the remaining budget as well
+			waiting.remove(ticket);
+			notifyAll();
+		}
+	}
+
+	private boolean exceedsBudget(long bytes) {
+		return reserved > 0 && reserved + bytes > budget;
+	}
+
+	/**
+	 * This method releases the given count of heap bytes reserved by a former call
+	 * to @see acquire(long, CancellationToken) and wakes up waiting workers.
+	 * 
+	 * @param bytes
+	 *            The count of bytes returned by @see acquire(long,
+	 *            CancellationToken)
+	 */
+	public synchronized void release(long bytes) {
+		reserved -= bytes;
+		notifyAll();
+	}
+
+	/**
+	 * This method returns the count of currently reserved heap bytes.
+	 * 
+	 * @return Returns the count of currently reserved heap bytes
+	 */
+	public synchronized long getReservedBytes() {
+		return reserved;
+	}
+}
@@ -0,0 +1,260 @@
+package de.uni_passau.visit.compression.models;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import de.uni_passau.visit.compression.data.QueueEntry;
+import de.uni_passau.visit.compression.data.TechnicalMetadata;
+import de.uni_passau.visit.compression.data.TechnicalMetadataCompressionLevel;
+import de.uni_passau.visit.compression.network.TechnicalMetadataCommunicator;
+
+/**
+ * This class prepares the next pending jobs of the queue while the current
+ * jobs are being processed, so a worker can start its next job without
+ * waiting for the network. The technical meta data of the next jobs are
+ * retrieved from the meta database in advance and their original media files
+ * are read once sequentially, so they are served from the cache of the
+ * operating system instead of the (possibly remote) media file root directory
+ * when the job is started.
+ * 
+ * Prefetched technical meta data are handed out only once, only to the job
+ * they have been retrieved for and only within a limited time, since they
+ * might be outdated otherwise. The technical meta data of a media file, which
+ * is being processed by a job, aren't prefetched, since this job will update
+ * them.
+ * 
+ * @author agent
+ *
+ */
+public class JobPrefetcher {
+
+	private static final Logger log = LogManager.getLogger(JobPrefetcher.class);
+
+	private static final long MAX_AGE_MILLIS = 600000;
+	private static final int READ_BUFFER_SIZE = 1 << 20;
+
+	private final QueueModel queue;
+	private final ConfigModel config;
+	private final TechnicalMetadataCommunicator communicator;
+	private final CompressionMetrics metrics;
+	private final Map<String, PrefetchedMetadata> prefetched = new ConcurrentHashMap<>();
+	private final Set<Integer> warmedJobs = new HashSet<>();
+	private boolean isWakeupPending = false;
+	private boolean isClosed = false;
+	private Thread thread;
+
+	/**
+	 * This constructor creates a new prefetcher for the given queue.
+	 * 
+	 * @param queue
+	 *            The queue, whose next pending jobs shall be prefetched
+	 * @param config
+	 *            The configuration model determining the count of prefetched jobs
+	 *            and the media file root directory
+	 * @param communicator
+	 *            The communicator used to retrieve the technical meta data
+	 * @param metrics
+	 *            The metrics in which the hits and misses shall be counted
+	 */
+	public JobPrefetcher(QueueModel queue, ConfigModel config, TechnicalMetadataCommunicator communicator,
+			CompressionMetrics metrics) {
+		this.queue = queue;
+		this.config = config;
+		this.communicator = communicator;
+		this.metrics = metrics;
+	}
+
+	/**
+	 * This method starts prefetching, unless it has been disabled in the
+	 * configuration. The next jobs are determined again on each change of the
+	 * queue.
+	 */
+	public synchronized void start() {
+		if (thread != null || isClosed || config.getPrefetchJobCount() == 0) {
+			return;
+		}
+
+		queue.addQueueChangeListener(new AbstractQueueChangeListener() {
+			@Override
+			public void jobChanged(QueueEntry entry) {
+				wakeUp();
+			}
+
+			@Override
+			public void jobRemoved(int jobId) {
+				// technical meta data of cancelled jobs expire
+			}
+		});
+
+		thread = new Thread(this::run, "Job prefetcher");
+		thread.setDaemon(true);
+		thread.start();
+		wakeUp();
+	}
+
+	/**
+	 * This method stops prefetching and waits for the current request or read to
+	 * finish.
+	 */
+	public void close() {
+		Thread prefetchThread;
+		synchronized (this) {
+			isClosed = true;
+			prefetchThread = thread;
+			notifyAll();
+		}
+
+		if (prefetchThread != null) {
+			try {
+				prefetchThread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * This method returns and removes the prefetched technical meta data of the
+	 * media file of the given job.
+	 * 
+	 * @param job
+	 *            The queue entry of the job being started
+	 * @return Returns the prefetched technical meta data or null, if they haven't
+	 *         been prefetched for this job or have expired
+	 */
+	public TechnicalMetadata take(QueueEntry job) {
+		PrefetchedMetadata entry = prefetched.remove(job.getJob().getMediaUid());
+		boolean hit = entry != null && entry.jobId == job.getId() && !entry.isExpired(System.currentTimeMillis());
+		metrics.countPrefetch(hit);
+		return hit ? entry.techMeta : null;
+	}
+
+	private synchronized void wakeUp() {
+		isWakeupPending = true;
+		notifyAll();
+	}
+
+	private void run() {
+		while (awaitWakeup()) {
+			List<QueueEntry> next = queue.getNextEnqueuedJobs(config.getPrefetchJobCount());
+			removeExpired();
+
+			Set<String> processingMediaUids = new HashSet<>();
+			for (QueueEntry entry : queue.getProcessingJobs()) {
+				processingMediaUids.add(entry.getJob().getMediaUid());
+			}
+
+			// the technical meta data of all jobs are retrieved first, since they are
+			// needed at the start of a job, but the media files only later
+			for (QueueEntry entry : next) {
+				String mediaUid = entry.getJob().getMediaUid();
+				if (!isClosed() && !prefetched.containsKey(mediaUid) && !processingMediaUids.contains(mediaUid)) {
+					prefetchTechnicalMetadata(entry);
+				}
+			}
+
+			warmedJobs.removeIf(id -> next.stream().noneMatch(entry -> entry.getId() == id));
+			for (QueueEntry entry : next) {
+				PrefetchedMetadata metadata = prefetched.get(entry.getJob().getMediaUid());
+				if (!isClosed() && metadata != null && warmedJobs.add(entry.getId())) {
+					warmMediaFiles(metadata.originPaths);
+				}
+			}
+		}
+	}
+
+	private synchronized boolean awaitWakeup() {
+		while (!isWakeupPending && !isClosed) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				// check whether the prefetcher has been closed
+			}
+		}
+
+		isWakeupPending = false;
+		return !isClosed;
+	}
+
+	private synchronized boolean isClosed() {
+		return isClosed;
+	}
+
+	private void removeExpired() {
+		long now = System.currentTimeMillis();
+		prefetched.values().removeIf(entry -> entry.isExpired(now));
+	}
+
+	private void prefetchTechnicalMetadata(QueueEntry job) {
+		String mediaUid = job.getJob().getMediaUid();
+		try {
+			TechnicalMetadata techMeta = communicator.getTechnicalMetadata(mediaUid);
+			// the paths are copied, since the worker modifies the technical meta data
+			TechnicalMetadataCompressionLevel origin = techMeta
+					.getCompressionLevel(CompressionModel.ORIGINAL_FILE_INDICATOR);
+			String[] originPaths = origin == null || origin.getPaths() == null ? new String[0]
+					: origin.getPaths().clone();
+			// an update stored in the meantime supersedes the retrieved technical meta data
+			if (queue.getMetadataOutbox().getPending(mediaUid) == null) {
+				prefetched.put(mediaUid, new PrefetchedMetadata(job.getId(), techMeta, originPaths,
+						System.currentTimeMillis()));
+			}
+		} catch (Exception ex) {
+			// the job will retrieve the technical meta data itself and report the error
+			log.debug("Could not prefetch technical meta data of media " + mediaUid + ": " + ex.getMessage());
+		}
+	}
+
+	/**
+	 * This method reads the given original media files sequentially without
+	 * keeping their content, so they will be cached by the operating system.
+	 * Reading stops as soon as the configured size has been read.
+	 * 
+	 * @param paths
+	 *            The paths of the media files relative to the media file root
+	 *            directory
+	 */
+	private void warmMediaFiles(String[] paths) {
+		long remaining = (long) config.getPrefetchMaxFileSize() << 20;
+		byte[] buffer = new byte[READ_BUFFER_SIZE];
+		for (String path : paths) {
+			File file = new File(config.getMediaFileRoot(), path);
+			try (InputStream in = new FileInputStream(file)) {
+				int read;
+				while (remaining > 0 && !isClosed() && (read = in.read(buffer)) > 0) {
+					remaining -= read;
+				}
+			} catch (IOException ex) {
+				log.debug("Could not prefetch media file " + file.getPath() + ": " + ex.getMessage());
+			}
+		}
+	}
+
+	private static class PrefetchedMetadata {
+		private final int jobId;
+		private final TechnicalMetadata techMeta;
+		private final String[] originPaths;
+		private final long prefetchedOn;
+
+		private PrefetchedMetadata(int jobId, TechnicalMetadata techMeta, String[] originPaths, long prefetchedOn) {
+			this.jobId = jobId;
+			this.techMeta = techMeta;
+			this.originPaths = originPaths;
+			this.prefetchedOn = prefetchedOn;
+		}
+
+		private boolean isExpired(long now) {
+			return now - prefetchedOn > MAX_AGE_MILLIS;
+		}
+	}
+}
@@ -0,0 +1,393 @@
+package de.uni_passau.visit.compression.models;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import de.uni_passau.visit.compression.logic.util.RetryBackoff;
+
+/**
+ * This class delivers the updated technical meta data of processed jobs to the
+ * meta database in the background (transactional outbox). The workers only
+ * store an update in the queue database and continue with the next job at
+ * once, so neither a slow nor an unavailable meta database delays the
+ * compression or lets a successfully compressed job fail. Updates survive a
+ * restart of the system and are delivered on the next start.
+ * 
+ * Updates are delivered by a separate thread, which sends all due updates in
+ * one pass and records the results of the pass within a single transaction.
+ * There is at most one pending update per media file, since a newer update
+ * replaces the technical meta data as a whole anyway. An update, whose
+ * delivery failed, is attempted again after an exponentially growing,
+ * randomized delay. After a failed delivery the whole outbox waits as well, so
+ * an unavailable meta database isn't flooded with requests.
+ * 
+ * @author agent
+ *
+ */
+public class MetadataOutbox {
+
+	private static final Logger log = LogManager.getLogger(MetadataOutbox.class);
+
+	private static final int MAX_ERROR_LENGTH = 1000;
+
+	private final QueueDatabase db;
+	private final ConfigModel config;
+	private final Map<String, PendingUpdate> pending = new HashMap<>();
+	private long lastRevision = 0;
+	private int consecutiveFailures = 0;
+	private long pausedUntil = 0;
+	private boolean isClosed = false;
+	private AbstractMetadataSender sender;
+	private Thread thread;
+
+	/**
+	 * This constructor creates a new outbox for the given database and loads all
+	 * updates, which haven't been delivered by a former instance. The delivery
+	 * doesn't start until @see start is called.
+	 * 
+	 * @param db
+	 *            The database the pending updates are stored in
+	 * @param config
+	 *            The configuration model determining the batch size and the
+	 *            delays of redeliveries
+	 */
+	public MetadataOutbox(QueueDatabase db, ConfigModel config) {
+		this.db = db;
+		this.config = config;
+		load();
+	}
+
+	private void load() {
+		try {
+			List<PendingUpdate> updates = db.read(con -> {
+				List<PendingUpdate> result = new ArrayList<>();
+				final String sql1 = "SELECT mediaUid, json, enqueuedOn, attempts, nextAttempt, revision FROM metadataOutbox";
+				try (ResultSet rs1 = con.prepare(sql1).executeQuery()) {
+					while (rs1.next()) {
+						result.add(new PendingUpdate(rs1.getString(1), rs1.getString(2), rs1.getLong(3), rs1.getInt(4),
+								rs1.getLong(5), rs1.getLong(6)));
+					}
+				}
+				return result;
+			});
+
+			synchronized (this) {
+				for (PendingUpdate update : updates) {
+					pending.put(update.mediaUid, update);
+					lastRevision = Math.max(lastRevision, update.revision);
+				}
+			}
+
+			if (!updates.isEmpty()) {
+				log.info("Loaded " + updates.size() + " undelivered technical meta data updates");
+			}
+		} catch (SQLException ex) {
+			throw new RuntimeException(
+					"During loading the technical meta data outbox the following error occurred: " + ex.getMessage());
+		}
+	}
+
+	/**
+	 * This method starts the delivery of the pending updates to the given
+	 * recipient.
+	 * 
+	 * @param sender
+	 *            The recipient the updates shall be delivered to
+	 */
+	public synchronized void start(AbstractMetadataSender sender) {
+		if (thread != null || isClosed) {
+			return;
+		}
+
+		this.sender = sender;
+		this.thread = new Thread(this::run, "Metadata outbox");
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	/**
+	 * This method stores the given technical meta data in the outbox, from where
+	 * they will be delivered as soon as possible. A pending update of the same
+	 * media file is replaced.
+	 * 
+	 * @param mediaUid
+	 *            The media UID of the media file the technical meta data refer to
+	 * @param json
+	 *            The JSON-serialization of the technical meta data
+	 * @throws SQLException
+	 *             if the update could not be stored in the database
+	 */
+	public synchronized void enqueue(String mediaUid, String json) throws SQLException {
+		long now = System.currentTimeMillis();
+		PendingUpdate previous = pending.get(mediaUid);
+		// the lag refers to the oldest update, which hasn't reached the meta database
+		PendingUpdate update = new PendingUpdate(mediaUid, json, previous == null ? now : previous.enqueuedOn, 0,
+				now, lastRevision + 1);
+
+		db.write(con -> {
+			final PreparedStatement s1 = con.prepare(
+					"INSERT OR REPLACE INTO metadataOutbox (mediaUid, json, enqueuedOn, attempts, nextAttempt, revision, lastError) "
+							+ "VALUES (?, ?, ?, ?, ?, ?, NULL)");
+			s1.setString(1, update.mediaUid);
+			s1.setString(2, update.json);
+			s1.setLong(3, update.enqueuedOn);
+			s1.setInt(4, update.attempts);
+			s1.setLong(5, update.nextAttempt);
+			s1.setLong(6, update.revision);
+			return s1.executeUpdate();
+		});
+
+		lastRevision = update.revision;
+		pending.put(mediaUid, update);
+		notifyAll();
+	}
+
+	/**
+	 * This method returns the technical meta data of the given media file, which
+	 * haven't been delivered to the meta database yet. They have to be preferred
+	 * to the technical meta data retrieved from the meta database, since the
+	 * latter are outdated.
+	 * 
+	 * @param mediaUid
+	 *            The media UID of the media file
+	 * @return Returns the JSON-serialization of the pending technical meta data or
+	 *         null, if there is no pending update for the media file
+	 */
+	public synchronized String getPending(String mediaUid) {
+		PendingUpdate update = pending.get(mediaUid);
+		return update == null ? null : update.json;
+	}
+
+	/**
+	 * This method returns the count of updates, which haven't been delivered yet.
+	 * 
+	 * @return Returns the count of pending updates
+	 */
+	public synchronized int getDepth() {
+		return pending.size();
+	}
+
+	/**
+	 * This method returns the age of the oldest update, which hasn't been
+	 * delivered yet.
+	 * 
+	 * @return Returns the age of the oldest pending update in seconds or 0, if
+	 *         there are no pending updates
+	 */
+	public synchronized double getLagSeconds() {
+		long oldest = Long.MAX_VALUE;
+		for (PendingUpdate update : pending.values()) {
+			oldest = Math.min(oldest, update.enqueuedOn);
+		}
+		return oldest == Long.MAX_VALUE ? 0 : Math.max(0, System.currentTimeMillis() - oldest) / 1000.0;
+	}
+
+	/**
+	 * This method stops the delivery. All updates being due are attempted to be
+	 * delivered a last time, unless the meta database fails. Updates remaining
+	 * afterwards will be delivered on the next start.
+	 */
+	public void close() {
+		Thread deliveryThread;
+		synchronized (this) {
+			isClosed = true;
+			deliveryThread = thread;
+			notifyAll();
+		}
+
+		if (deliveryThread != null) {
+			try {
+				deliveryThread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private void run() {
+		boolean stopped = false;
+
+		while (!stopped) {
+			List<PendingUpdate> batch;
+			synchronized (this) {
+				batch = getDueUpdates();
+				while (batch.isEmpty() && !isClosed) {
+					try {
+						wait(getWaitTime());
+					} catch (InterruptedException e) {
+						// check for due updates again
+					}
+					batch = getDueUpdates();
+				}
+				stopped = isClosed;
+			}
+
+			if (!batch.isEmpty()) {
+				deliver(batch);
+			}
+		}
+	}
+
+	/**
+	 * This method returns the pending updates, whose delivery is due, in the
+	 * order of their next attempt. Updates failing repeatedly are thus attempted
+	 * after all others.
+	 * 
+	 * @return Returns the due updates, at most as many as configured per pass
+	 */
+	private List<PendingUpdate> getDueUpdates() {
+		long now = System.currentTimeMillis();
+		List<PendingUpdate> due = new ArrayList<>();
+		if (now < pausedUntil) {
+			return due;
+		}
+
+		for (PendingUpdate update : pending.values()) {
+			if (update.nextAttempt <= now) {
+				due.add(update);
+			}
+		}
+		due.sort(Comparator.comparingLong((PendingUpdate update) -> update.nextAttempt)
+				.thenComparingLong(update -> update.enqueuedOn));
+		return due.size() > config.getMetadataOutboxBatchSize()
+				? new ArrayList<>(due.subList(0, config.getMetadataOutboxBatchSize()))
+				: due;
+	}
+
+	/**
+	 * This method returns the time until the next pending update becomes due.
+	 * 
+	 * @return Returns the time to wait in milliseconds or 0, if the thread shall
+	 *         wait until it gets notified
+	 */
+	private long getWaitTime() {
+		if (pending.isEmpty()) {
+			return 0;
+		}
+
+		long next = Long.MAX_VALUE;
+		for (PendingUpdate update : pending.values()) {
+			next = Math.min(next, update.nextAttempt);
+		}
+		return Math.max(1, Math.max(next, pausedUntil) - System.currentTimeMillis());
+	}
+
+	/**
+	 * This method sends the given updates and records the results. The pass is
+	 * stopped at the first failure, since the remaining updates would most likely
+	 * fail as well.
+	 * 
+	 * @param batch
+	 *            The updates that shall be delivered
+	 */
+	private void deliver(List<PendingUpdate> batch) {
+		List<PendingUpdate> delivered = new ArrayList<>();
+		PendingUpdate failed = null;
+		String error = null;
+
+		for (PendingUpdate update : batch) {
+			try {
+				sender.send(update.mediaUid, update.json);
+				delivered.add(update);
+			} catch (IOException | URISyntaxException ex) {
+				error = ex.getMessage() == null ? ex.getClass().getSimpleName() : ex.getMessage();
+				failed = update;
+				break;
+			}
+		}
+
+		PendingUpdate retry = null;
+		if (failed != null) {
+			int attempts = failed.attempts + 1;
+			retry = new PendingUpdate(failed.mediaUid, failed.json, failed.enqueuedOn, attempts,
+					System.currentTimeMillis() + getRetryDelay(attempts), failed.revision);
+			log.warn("Could not deliver technical meta data of media " + failed.mediaUid + " (attempt " + attempts
+					+ "): " + error);
+		}
+
+		write(delivered, retry, error);
+
+		synchronized (this) {
+			// updates replaced in the meantime are kept, since they haven't been delivered
+			for (PendingUpdate update : delivered) {
+				pending.remove(update.mediaUid, update);
+			}
+
+			if (retry != null) {
+				pending.replace(failed.mediaUid, failed, retry);
+				pausedUntil = System.currentTimeMillis() + getRetryDelay(++consecutiveFailures);
+			} else {
+				consecutiveFailures = 0;
+			}
+		}
+	}
+
+	private void write(List<PendingUpdate> delivered, PendingUpdate retry, String error) {
+		try {
+			db.writeTransaction(con -> {
+				final PreparedStatement s1 = con
+						.prepare("DELETE FROM metadataOutbox WHERE mediaUid = ? AND revision = ?");
+				for (PendingUpdate update : delivered) {
+					s1.setString(1, update.mediaUid);
+					s1.setLong(2, update.revision);
+					s1.addBatch();
+				}
+				if (!delivered.isEmpty()) {
+					s1.executeBatch();
+				}
+
+				if (retry != null) {
+					final PreparedStatement s2 = con.prepare(
+							"UPDATE metadataOutbox SET attempts = ?, nextAttempt = ?, lastError = ? WHERE mediaUid = ? AND revision = ?");
+					s2.setInt(1, retry.attempts);
+					s2.setLong(2, retry.nextAttempt);
+					s2.setString(3, error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error);
+					s2.setString(4, retry.mediaUid);
+					s2.setLong(5, retry.revision);
+					s2.executeUpdate();
+				}
+				return null;
+			});
+		} catch (SQLException ex) {
+			// delivered updates remaining in the database are delivered once more after a
+			// restart, which is harmless
+			log.error("Could not record the delivery of " + delivered.size() + " technical meta data updates: "
+					+ ex.getMessage());
+		}
+	}
+
+	private long getRetryDelay(int attempts) {
+		return RetryBackoff.getDelay(attempts, config.getMetadataOutboxRetryDelay(),
+				config.getMetadataOutboxMaxRetryDelay());
+	}
+
+	private static class PendingUpdate {
+		private final String mediaUid;
+		private final String json;
+		private final long enqueuedOn;
+		private final int attempts;
+		private final long nextAttempt;
+		private final long revision;
+
+		private PendingUpdate(String mediaUid, String json, long enqueuedOn, int attempts, long nextAttempt,
+				long revision) {
+			this.mediaUid = mediaUid;
+			this.json = json;
+			this.enqueuedOn = enqueuedOn;
+			this.attempts = attempts;
+			this.nextAttempt = nextAttempt;
+			this.revision = revision;
+		}
+	}
+}
@@ -0,0 +1,284 @@
+package de.uni_passau.visit.compression.models;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import de.uni_passau.visit.compression.exceptions.DatabaseException;
+
+/**
+ * This class manages the connections to the SQLite database storing the job
+ * queue. The database is operated in WAL journal mode, so readers never block
+ * the writer and vice versa. All write operations are serialized on a single
+ * writer connection, whereas read operations borrow one of several read-only
+ * connections. Each connection caches its prepared statements, so statements
+ * are prepared only once per connection and closed together with it.
+ * 
+ * @author agent
+ *
+ */
+public class QueueDatabase {
+
+	private static final Logger log = LogManager.getLogger(QueueDatabase.class);
+
+	private static final int READ_CONNECTION_COUNT = 3;
+	private static final int BUSY_TIMEOUT_MILLIS = 5000;
+	private static final String SQLITE_OPEN_MODE_PROPERTY = "open_mode";
+	private static final String SQLITE_OPEN_READONLY = "1";
+
+	private final String dbPath;
+	private final CachedConnection writer;
+	private final BlockingQueue<CachedConnection> readers;
+	private volatile boolean readersOpened = false;
+	// guarded by readers
+	private boolean isClosed = false;
+
+	/**
+	 * This constructor opens the writer connection to the database file at the
+	 * given path and switches the database to WAL journal mode. The read-only
+	 * connections are opened by @see openReaders(), which has to be called after
+	 * the database structure has been set up.
+	 * 
+	 * @param dbPath
+	 *            The path of the SQLite database file
+	 */
+	public QueueDatabase(String dbPath) {
+		this.dbPath = dbPath;
+		this.readers = new ArrayBlockingQueue<>(READ_CONNECTION_COUNT);
+		this.writer = new CachedConnection(openConnection(new Properties()));
+
+		try (Statement s = writer.getConnection().createStatement()) {
+			s.execute("PRAGMA journal_mode = WAL");
+			// in WAL mode a crash of the application can't corrupt the database, only a power
+			// loss might lose the last transactions
+			s.execute("PRAGMA synchronous = NORMAL");
+		} catch (SQLException ex) {
+			throw new DatabaseException("Could not configure database journal: " + ex.getMessage());
+		}
+	}
+
+	/**
+	 * This method opens the read-only connections. Read operations executed before
+	 * calling this method will use the writer connection.
+	 */
+	public void openReaders() {
+		Properties props = new Properties();
+		props.setProperty(SQLITE_OPEN_MODE_PROPERTY, SQLITE_OPEN_READONLY);
+
+		for (int i = 0; i < READ_CONNECTION_COUNT; ++i) {
+			readers.add(new CachedConnection(openConnection(props)));
+		}
+
+		readersOpened = true;
+	}
+
+	private Connection openConnection(Properties props) {
+		final String url = "jdbc:sqlite:" + dbPath;
+		try {
+			Connection con = DriverManager.getConnection(url, props);
+			try (Statement s = con.createStatement()) {
+				s.execute("PRAGMA busy_timeout = " + BUSY_TIMEOUT_MILLIS);
+			}
+			return con;
+		} catch (SQLException e) {
+			throw new DatabaseException("Database connection could not be established. Please check access to file '"
+					+ dbPath + "': " + e.getMessage());
+		}
+	}
+
+	/**
+	 * This method executes the given operation on the writer connection. Write
+	 * operations are executed one after another, so the operation has exclusive
+	 * access to the writer connection.
+	 * 
+	 * @param operation
+	 *            The operation that shall be executed
+	 * @return Returns the operation's result
+	 * @throws SQLException
+	 *             if a database error occurred
+	 */
+	public <T> T write(AbstractDatabaseOperation<T> operation) throws SQLException {
+		synchronized (writer) {
+			return operation.execute(writer);
+		}
+	}
+
+	/**
+	 * This method executes the given operation on the writer connection within a
+	 * transaction. The transaction is committed if the operation returns normally,
+	 * otherwise it is rolled back.
+	 * 
+	 * @param operation
+	 *            The operation that shall be executed
+	 * @return Returns the operation's result
+	 * @throws SQLException
+	 *             if a database error occurred
+	 */
+	public <T> T writeTransaction(AbstractDatabaseOperation<T> operation) throws SQLException {
+		synchronized (writer) {
+			Connection con = writer.getConnection();
+			con.setAutoCommit(false);
+			try {
+				T result = operation.execute(writer);
+				con.commit();
+				return result;
+			} catch (SQLException | RuntimeException ex) {
+				// statements are reused, so batches not executed yet mustn't survive the
+				// transaction
+				writer.clearBatches();
+				con.rollback();
+				throw ex;
+			} finally {
+				con.setAutoCommit(true);
+			}
+		}
+	}
+
+	/**
+	 * This method executes the given read operation on one of the read-only
+	 * connections. If all of them are in use, the calling thread waits until one
+	 * gets available. If the database is closed meanwhile, the connection is
+	 * closed once the operation has finished.
+	 * 
+	 * @param operation
+	 *            The operation that shall be executed
+	 * @return Returns the operation's result
+	 * @throws SQLException
+	 *             if a database error occurred
+	 */
+	public <T> T read(AbstractDatabaseOperation<T> operation) throws SQLException {
+		if (!readersOpened) {
+			return write(operation);
+		}
+
+		CachedConnection reader;
+		try {
+			reader = readers.take();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for a database connection.");
+		}
+
+		try {
+			return operation.execute(reader);
+		} finally {
+			release(reader);
+		}
+	}
+
+	private void release(CachedConnection reader) {
+		synchronized (readers) {
+			if (!isClosed) {
+				readers.add(reader);
+				return;
+			}
+		}
+		reader.close();
+	}
+
+	/**
+	 * This method closes all cached statements and all connections. Connections
+	 * borrowed by read operations at this point are closed as soon as these
+	 * operations have finished. The database must not be used afterwards.
+	 */
+	public void close() {
+		synchronized (writer) {
+			writer.close();
+		}
+
+		List<CachedConnection> idleReaders = new ArrayList<>();
+		synchronized (readers) {
+			isClosed = true;
+			readers.drainTo(idleReaders);
+		}
+		for (CachedConnection reader : idleReaders) {
+			reader.close();
+		}
+	}
+
+	/**
+	 * This class wraps a database connection and caches the statements prepared on
+	 * it by their SQL string.
+	 */
+	public static class CachedConnection {
+		private final Connection con;
+		private final Map<String, PreparedStatement> statements;
+
+		private CachedConnection(Connection con) {
+			this.con = con;
+			this.statements = new HashMap<>();
+		}
+
+		/**
+		 * This method returns the prepared statement for the given SQL string. The
+		 * statement is prepared on first use and reused afterwards, so it must not be
+		 * closed by the caller.
+		 * 
+		 * @param sql
+		 *            The SQL string of the statement
+		 * @return Returns the cached prepared statement
+		 * @throws SQLException
+		 *             if the statement could not be prepared
+		 */
+		public PreparedStatement prepare(String sql) throws SQLException {
+			PreparedStatement s = statements.get(sql);
+			if (s == null) {
+				s = con.prepareStatement(sql);
+				statements.put(sql, s);
+			}
+			return s;
+		}
+
+		/**
+		 * This method discards the pending batches of all cached statements.
+		 */
+		private void clearBatches() {
+			for (PreparedStatement s : statements.values()) {
+				try {
+					s.clearBatch();
+				} catch (SQLException ex) {
+					log.warn("Could not clear batch of prepared statement: " + ex.getMessage());
+				}
+			}
+		}
+
+		/**
+		 * This method returns the wrapped connection, e.g. for executing statements
+		 * that shall not be cached.
+		 * 
+		 * @return Returns the wrapped connection
+		 */
+		public Connection getConnection() {
+			return con;
+		}
+
+		private void close() {
+			for (PreparedStatement s : statements.values()) {
+				try {
+					s.close();
+				} catch (SQLException ex) {
+					log.warn("Could not close prepared statement: " + ex.getMessage());
+				}
+			}
+			statements.clear();
+
+			try {
+				con.close();
+			} catch (SQLException ex) {
+				log.warn("Could not close database connection: " + ex.getMessage());
+			}
+		}
+	}
+}
@@ -0,0 +1,391 @@
+package de.uni_passau.visit.compression.models;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.uni_passau.visit.compression.data.JobProgress;
+import de.uni_passau.visit.compression.data.JobState;
+import de.uni_passau.visit.compression.data.QueueEntry;
+
+/**
+ * This class holds the authoritative in-memory state of all unfinished
+ * compression jobs as well as the most recently finished ones. It allows the
+ * @see QueueModel to answer all frequent queries without accessing the
+ * database, which is only updated afterwards.
+ * 
+ * Pending jobs are kept in sets per MIME-type ordered by their scheduling key
+ * (see @see QueueScheduler), so the next job for a worker can be determined by
+ * comparing the heads of the matching sets. A pending job for a media file,
+ * which is being processed by another job, isn't claimed until that job has
+ * finished, since both jobs would write the same files. All modifications are
+ * synchronized on the index, whereas queries are answered from concurrent
+ * collections without locking.
+ * 
+ * @author agent
+ *
+ */
+public class QueueIndex {
+
+	private static final Comparator<QueueEntry> RECEIPT_ORDER = Comparator.comparingLong(QueueEntry::getReceivedOn)
+			.thenComparingInt(QueueEntry::getId);
+	private static final Comparator<QueueEntry> SCHEDULING_ORDER = Comparator
+			.comparingDouble(QueueEntry::getSchedulingKey).thenComparingInt(QueueEntry::getId);
+	private static final Comparator<QueueEntry> ARCHIVE_ORDER = Comparator
+			.comparingLong(QueueEntry::getLastStateChange).thenComparingInt(QueueEntry::getId).reversed();
+
+	private final Map<Integer, QueueEntry> unfinished = new ConcurrentHashMap<>();
+	private final ConcurrentSkipListSet<QueueEntry> unfinishedByReceipt = new ConcurrentSkipListSet<>(RECEIPT_ORDER);
+	private final Map<String, ConcurrentSkipListSet<QueueEntry>> enqueuedByMimeType = new ConcurrentHashMap<>();
+	private final Map<String, QueueEntry> enqueuedByMediaUid = new ConcurrentHashMap<>();
+	private final Map<Integer, QueueEntry> processing = new ConcurrentHashMap<>();
+	private final Set<String> processingMediaUids = ConcurrentHashMap.newKeySet();
+	private final ConcurrentSkipListSet<QueueEntry> recentlyProcessed = new ConcurrentSkipListSet<>(ARCHIVE_ORDER);
+	private final AtomicInteger enqueuedCount = new AtomicInteger();
+	private final AtomicInteger processedCount = new AtomicInteger();
+	private final int recentlyProcessedCapacity;
+
+	/**
+	 * This constructor creates a new empty index.
+	 * 
+	 * @param recentlyProcessedCapacity
+	 *            The count of finished jobs that shall be kept in memory for the
+	 *            archive view
+	 */
+	public QueueIndex(int recentlyProcessedCapacity) {
+		this.recentlyProcessedCapacity = recentlyProcessedCapacity;
+	}
+
+	/**
+	 * This method adds the given queue entry to the index. Entries of finished
+	 * jobs are added to the recently processed jobs without changing the count of
+	 * processed jobs.
+	 * 
+	 * @param entry
+	 *            The queue entry that shall be added
+	 */
+	public synchronized void add(QueueEntry entry) {
+		if (entry.getState() == JobState.ENQUEUED || entry.getState() == JobState.PROCESSING) {
+			unfinished.put(entry.getId(), entry);
+			unfinishedByReceipt.add(entry);
+
+			if (entry.getState() == JobState.ENQUEUED) {
+				enqueuedByMimeType
+						.computeIfAbsent(getMimeTypeKey(entry), key -> new ConcurrentSkipListSet<>(SCHEDULING_ORDER))
+						.add(entry);
+				enqueuedByMediaUid.put(entry.getJob().getMediaUid(), entry);
+				enqueuedCount.incrementAndGet();
+			} else {
+				processing.put(entry.getId(), entry);
+				processingMediaUids.add(entry.getJob().getMediaUid());
+			}
+		} else {
+			addRecentlyProcessed(entry);
+		}
+	}
+
+	/**
+	 * This method sets the count of finished jobs, e.g. after rebuilding the index
+	 * from the database.
+	 * 
+	 * @param count
+	 *            The count of finished jobs
+	 */
+	public void setProcessedJobCount(int count) {
+		processedCount.set(count);
+	}
+
+	/**
+	 * This method removes the pending job with the lowest scheduling key, whose
+	 * MIME-type matches the given filter and whose media file isn't being
+	 * processed by another job, from the pending jobs and marks it as being
+	 * processed.
+	 * 
+	 * @param mimeTypes
+	 *            The (lower case) MIME-types used to filter the pending jobs
+	 * @param includeMimeTypes
+	 *            If true, only jobs with one of the given MIME-types will be
+	 *            claimed, otherwise only jobs with none of them
+	 * @param timestamp
+	 *            The UNIX-timestamp of the state change
+	 * @return Returns the claimed queue entry in its new state or null, if no
+	 *         matching job is pending
+	 */
+	public synchronized QueueEntry claim(String[] mimeTypes, boolean includeMimeTypes, long timestamp) {
+		QueueEntry next = getNextEnqueuedJob(mimeTypes, includeMimeTypes);
+		return next == null ? null : transition(next.getId(), JobState.PROCESSING, timestamp);
+	}
+
+	private QueueEntry getNextEnqueuedJob(String[] mimeTypes, boolean includeMimeTypes) {
+		QueueEntry next = null;
+
+		for (Map.Entry<String, ConcurrentSkipListSet<QueueEntry>> e : enqueuedByMimeType.entrySet()) {
+			if (mimeTypes == null || matches(e.getKey(), mimeTypes) == includeMimeTypes) {
+				QueueEntry head = firstClaimable(e.getValue());
+				if (head != null && (next == null || SCHEDULING_ORDER.compare(head, next) < 0)) {
+					next = head;
+				}
+			}
+		}
+
+		return next;
+	}
+
+	// unlike first() this doesn't fail, if the set has been emptied concurrently
+	private QueueEntry firstClaimable(ConcurrentSkipListSet<QueueEntry> set) {
+		for (QueueEntry entry : set) {
+			if (!processingMediaUids.contains(entry.getJob().getMediaUid())) {
+				return entry;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * This method changes the state of the unfinished job with the given id. If the
+	 * new state is a final one, the job is moved to the recently processed jobs.
+	 * 
+	 * @param id
+	 *            The id of the job, whose state shall be changed
+	 * @param state
+	 *            The new state of the job
+	 * @param timestamp
+	 *            The UNIX-timestamp of the state change
+	 * @return Returns the queue entry in its new state or null, if no unfinished
+	 *         job with the given id exists
+	 */
+	public synchronized QueueEntry transition(int id, JobState state, long timestamp) {
+		QueueEntry old = unfinished.get(id);
+		if (old == null) {
+			return null;
+		}
+
+		removeUnfinished(old);
+		QueueEntry updated = new QueueEntry(old.getJob(), old.getReceivedOn(), id, state, timestamp,
+				old.getEstimatedCost(), old.getSchedulingKey(),
+				state == JobState.PROCESSING ? new JobProgress() : null);
+
+		if (state == JobState.ERROR || state == JobState.COMPLETED) {
+			processedCount.incrementAndGet();
+		}
+
+		add(updated);
+		return updated;
+	}
+
+	/**
+	 * This method removes the job with the given id from the index, if it is still
+	 * pending.
+	 * 
+	 * @param id
+	 *            The id of the job that shall be removed
+	 * @return Returns true, if a pending job has been removed, otherwise false
+	 */
+	public synchronized boolean removeEnqueued(int id) {
+		QueueEntry entry = unfinished.get(id);
+		if (entry == null || entry.getState() != JobState.ENQUEUED) {
+			return false;
+		}
+
+		removeUnfinished(entry);
+		return true;
+	}
+
+	/**
+	 * This method removes the job with the given id from the index, if it is
+	 * being processed.
+	 * 
+	 * @param id
+	 *            The id of the job that shall be removed
+	 * @return Returns true, if a job being processed has been removed, otherwise
+	 *         false
+	 */
+	public synchronized boolean removeProcessing(int id) {
+		QueueEntry entry = unfinished.get(id);
+		if (entry == null || entry.getState() != JobState.PROCESSING) {
+			return false;
+		}
+
+		removeUnfinished(entry);
+		return true;
+	}
+
+	/**
+	 * This method returns the unfinished job with the given id.
+	 * 
+	 * @param id
+	 *            The id of the job
+	 * @return Returns the queue entry of the job or null, if no unfinished job
+	 *         with the given id exists
+	 */
+	public QueueEntry getUnfinishedJob(int id) {
+		return unfinished.get(id);
+	}
+
+	/**
+	 * This method replaces the given pending queue entry by the given new entry,
+	 * e.g. to coalesce another compression job for the same media file with it.
+	 * 
+	 * @param pending
+	 *            The queue entry that shall be replaced
+	 * @param replacement
+	 *            The new queue entry, which has to be pending and to have the same
+	 *            id and media-UID
+	 * @return Returns true, if the entry has been replaced, or false, if the given
+	 *         entry isn't pending anymore
+	 */
+	public synchronized boolean replaceEnqueued(QueueEntry pending, QueueEntry replacement) {
+		if (unfinished.get(pending.getId()) != pending || pending.getState() != JobState.ENQUEUED) {
+			return false;
+		}
+
+		removeUnfinished(pending);
+		add(replacement);
+		return true;
+	}
+
+	private void removeUnfinished(QueueEntry entry) {
+		unfinished.remove(entry.getId());
+		unfinishedByReceipt.remove(entry);
+
+		if (entry.getState() == JobState.ENQUEUED) {
+			ConcurrentSkipListSet<QueueEntry> set = enqueuedByMimeType.get(getMimeTypeKey(entry));
+			if (set != null && set.remove(entry)) {
+				enqueuedCount.decrementAndGet();
+			}
+			enqueuedByMediaUid.remove(entry.getJob().getMediaUid(), entry);
+		} else if (processing.remove(entry.getId()) != null) {
+			processingMediaUids.remove(entry.getJob().getMediaUid());
+		}
+	}
+
+	private void addRecentlyProcessed(QueueEntry entry) {
+		recentlyProcessed.add(entry);
+		while (recentlyProcessed.size() > recentlyProcessedCapacity) {
+			recentlyProcessed.pollLast();
+		}
+	}
+
+	/**
+	 * This method returns all unfinished jobs ordered by the time of their
+	 * receipt.
+	 * 
+	 * @return Returns a snapshot of all unfinished jobs
+	 */
+	public Collection<QueueEntry> getUnfinishedJobs() {
+		return new ArrayList<>(unfinishedByReceipt);
+	}
+
+	/**
+	 * This method returns all jobs being processed.
+	 * 
+	 * @return Returns a snapshot of all jobs being processed
+	 */
+	public Collection<QueueEntry> getProcessingJobs() {
+		return new ArrayList<>(processing.values());
+	}
+
+	/**
+	 * This method returns the pending job with the lowest scheduling key, whose
+	 * media file isn't being processed, without changing its state.
+	 * 
+	 * @return Returns the next pending job or null, if no such job is pending
+	 */
+	public QueueEntry getNextEnqueuedJob() {
+		return getNextEnqueuedJob(null, true);
+	}
+
+	/**
+	 * This method returns the pending jobs with the lowest scheduling keys in the
+	 * order they will be claimed, if no further jobs are dispatched.
+	 * 
+	 * @param limit
+	 *            The maximum count of returned jobs
+	 * @return Returns the next pending jobs
+	 */
+	public List<QueueEntry> getNextEnqueuedJobs(int limit) {
+		List<QueueEntry> entries = new ArrayList<>();
+		for (ConcurrentSkipListSet<QueueEntry> set : enqueuedByMimeType.values()) {
+			Iterator<QueueEntry> it = set.iterator();
+			for (int i = 0; i < limit && it.hasNext(); ++i) {
+				entries.add(it.next());
+			}
+		}
+
+		entries.sort(SCHEDULING_ORDER);
+		return entries.size() > limit ? new ArrayList<>(entries.subList(0, limit)) : entries;
+	}
+
+	/**
+	 * This method returns the pending job for the media file with the given
+	 * media-UID.
+	 * 
+	 * @param mediaUid
+	 *            The media-UID of the media file
+	 * @return Returns the pending job or null, if no job for the media file is
+	 *         pending
+	 */
+	public QueueEntry getEnqueuedJob(String mediaUid) {
+		return enqueuedByMediaUid.get(mediaUid);
+	}
+
+	/**
+	 * This method returns the most recently finished jobs beginning with the
+	 * latest one, if the index holds enough of them.
+	 * 
+	 * @param limit
+	 *            The maximum count of returned jobs
+	 * @return Returns the most recently finished jobs or null, if the requested
+	 *         count exceeds the count of finished jobs kept in memory
+	 */
+	public List<QueueEntry> getRecentlyProcessedJobs(int limit) {
+		if (limit > recentlyProcessedCapacity) {
+			return null;
+		}
+
+		List<QueueEntry> entries = new ArrayList<>(limit);
+		Iterator<QueueEntry> it = recentlyProcessed.iterator();
+		while (it.hasNext() && entries.size() < limit) {
+			entries.add(it.next());
+		}
+		return entries;
+	}
+
+	/**
+	 * This method returns the count of pending jobs.
+	 * 
+	 * @return Returns the count of pending jobs
+	 */
+	public int getEnqueuedJobCount() {
+		return enqueuedCount.get();
+	}
+
+	/**
+	 * This method returns the count of finished jobs.
+	 * 
+	 * @return Returns the count of finished jobs
+	 */
+	public int getProcessedJobCount() {
+		return processedCount.get();
+	}
+
+	private static String getMimeTypeKey(QueueEntry entry) {
+		return entry.getJob().getMimeType().toLowerCase();
+	}
+
+	private static boolean matches(String mimeType, String[] mimeTypes) {
+		for (String m : mimeTypes) {
+			if (m.equals(mimeType)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
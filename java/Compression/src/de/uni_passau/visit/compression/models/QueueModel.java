@@ -1,14 +1,19 @@
 package de.uni_passau.visit.compression.models;
 
-import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -16,6 +21,7 @@ import org.apache.logging.log4j.Logger;
 import de.uni_passau.visit.compression.data.CompressionJob;
 import de.uni_passau.visit.compression.data.JobState;
 import de.uni_passau.visit.compression.data.QueueEntry;
+import de.uni_passau.visit.compression.data.QueueWaitStatistics;
 import de.uni_passau.visit.compression.exceptions.DatabaseException;
 import de.uni_passau.visit.compression.exceptions.QueueCapacityException;
 import de.uni_passau.visit.compression.exceptions.QueueClosedException;
@@ -26,7 +32,20 @@ import de.uni_passau.visit.compression.exceptions.QueueClosedException;
  * monitoring.
  * 
  * The queue management uses a SQLite database storing all remaining and
- * finished compression jobs.
+ * finished compression jobs. Write operations are serialized on a single
+ * connection, whereas read operations like the dashboard listings use separate
+ * read-only connections (see @see QueueDatabase).
+ * 
+ * All unfinished and the most recently finished jobs are additionally held in
+ * memory (see @see QueueIndex), which serves the frequent queries and the
+ * claims of the workers. The index is rebuilt from the database on startup.
+ * Dispatched and cancelled jobs are written to the database immediately,
+ * whereas state transitions are written in the background (see @see
+ * QueueStateWriter).
+ * 
+ * Pending jobs aren't processed in the order of their receipt, but in the
+ * order determined by the @see QueueScheduler from their priority, their
+ * object-UID and their estimated processing time.
  * 
  * @author Florian Schlenker
  *
@@ -35,64 +54,250 @@ public class QueueModel {
 
 	private static final String SQL_CURRENT_TIMESTAMP = "strftime('%s', 'now')";
 	private static final String DB_PATH = RootModel.DATA_ROOT + "/jobQueue.db";
+	private static final int SCHEMA_VERSION = 5;
+
+	// the compression levels of each job are aggregated by the same query, since
+	// loading them separately would cost one additional query per job
+	private static final String LEVEL_SEPARATOR = "\u001F";
+	private static final String SQL_SELECT_JOB_COLUMNS = "SELECT id, state, receivedOn, lastStateChange, basePath, objectUid, mediaUid, fileTitle, mimeType, "
+			+ "priority, estimatedCost, schedulingKey, "
+			+ "(SELECT group_concat(compressionLevel, char(31)) FROM jobCompressionLevels WHERE jobId = jobs.id) AS compressionLevels FROM jobs";
 
 	private static final Logger log = LogManager.getLogger(QueueModel.class);
 
-	private final Connection con;
+	private final QueueDatabase db;
+	private final QueueIndex index;
+	private final QueueStateWriter stateWriter;
+	private final MetadataOutbox metadataOutbox;
+	private final QueueScheduler scheduler;
+	private final QueueWaitTracker waitTracker = new QueueWaitTracker();
+	private final AvoidedWorkCounter avoidedWork = new AvoidedWorkCounter();
 	private final ConfigModel config;
-	private boolean isShutDown = false;
+	private final Object dispatchLock = new Object();
+	private final List<AbstractQueueListener> listeners = new CopyOnWriteArrayList<>();
+	private final List<AbstractQueueChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+	private volatile boolean isShutDown = false;
+	private boolean isClosed = false;
 
 	/**
 	 * This constructor creates a new queue model using the given configuration
-	 * model. The database structure will be set up and the state of all unfinished
-	 * jobs created by a former instance of this model will be set to "error".
+	 * model. The database structure will be set up and all jobs, which have been
+	 * interrupted while being processed by a former instance of this model, will
+	 * be enqueued again to resume from their last checkpoint. Only jobs, which
+	 * have been interrupted more often than the configured maximum count of
+	 * resumes, will be set to "error".
 	 * 
 	 * @param config
 	 *            The configuration model determining parameters for the new queue
 	 *            model
 	 */
 	public QueueModel(ConfigModel config) {
+		this(config, DB_PATH);
+	}
+
+	/**
+	 * This constructor creates a new queue model using the given configuration
+	 * model and the database file at the given path. The database structure will
+	 * be set up and all jobs, which have been interrupted while being processed by
+	 * a former instance of this model, will be enqueued again to resume from their
+	 * last checkpoint. Only jobs, which have been interrupted more often than the
+	 * configured maximum count of resumes, will be set to "error".
+	 * 
+	 * @param config
+	 *            The configuration model determining parameters for the new queue
+	 *            model
+	 * @param dbPath
+	 *            The path of the SQLite database file storing the queue
+	 */
+	public QueueModel(ConfigModel config, String dbPath) {
 		this.config = config;
-		this.con = getDatabaseConnection();
+		this.db = new QueueDatabase(dbPath);
+		this.index = new QueueIndex(config.getArchiveDisplayLength());
+		this.scheduler = new QueueScheduler(config);
 		initDatabase();
+		db.openReaders();
+		loadIndex();
+		this.stateWriter = new QueueStateWriter(db);
+		this.metadataOutbox = new MetadataOutbox(db, config);
 	}
 
-	private Connection getDatabaseConnection() {
-		final String url = "jdbc:sqlite:" + DB_PATH;
+	private void initDatabase() {
 		try {
-			return DriverManager.getConnection(url);
-		} catch (SQLException e) {
-			throw new DatabaseException(
-					"Database connection could not be established. Please check access to file '" + DB_PATH + "'");
+			// DDL statements and the schema version are transactional in SQLite, so an
+			// interrupted migration leaves the database in its former version
+			db.writeTransaction(con -> {
+				try (Statement s = con.getConnection().createStatement()) {
+					// setup tables
+					final String sql1 = "CREATE TABLE IF NOT EXISTS jobs (id INTEGER PRIMARY KEY, state INTEGER NOT NULL, "
+							+ "receivedOn INTEGER NOT NULL, lastStateChange INTEGER NOT NULL, "
+							+ "basePath TEXT NOT NULL, objectUid TEXT NOT NULL, mediaUid TEXT NOT NULL, fileTitle TEXT, "
+							+ "mimeType TEXT NOT NULL)";
+					s.execute(sql1);
+
+					final String sql2 = "CREATE TABLE IF NOT EXISTS jobCompressionLevels (jobId INTEGER NOT NULL, compressionLevel STRING NOT NULL)";
+					s.execute(sql2);
+
+					migrateDatabase(s);
+
+					// if jobs with state "processing" remain from a forced stop enqueue them again,
+					// so they resume from their last checkpoint, unless they have been interrupted
+					// too often already, which indicates that they caused the stop themselves
+					final String sql3 = "UPDATE jobs SET state = 0, resumeCount = resumeCount + 1, lastStateChange = "
+							+ SQL_CURRENT_TIMESTAMP + " WHERE state = 1 AND resumeCount < " + config.getMaxJobResumes();
+					int resumed = s.executeUpdate(sql3);
+					if (resumed > 0) {
+						log.info("Enqueued " + resumed + " interrupted jobs again");
+					}
+
+					// set the state of the jobs, which have exceeded the maximum count of resumes,
+					// to "error"
+					final String sql4 = "UPDATE jobs SET state = 2, lastStateChange = " + SQL_CURRENT_TIMESTAMP
+							+ " WHERE state = 1";
+					s.execute(sql4);
+				}
+				return null;
+			});
+		} catch (SQLException ex) {
+			throw new RuntimeException(
+					"During database initialization the following error occurred: " + ex.getMessage());
 		}
 	}
 
-	private void initDatabase() {
+	/**
+	 * This method fills the in-memory index with all unfinished jobs, the count of
+	 * finished jobs and the most recently finished jobs stored in the database.
+	 */
+	private void loadIndex() {
+		long start = System.nanoTime();
+
 		try {
-			// setup tables
-			final String sql1 = "CREATE TABLE IF NOT EXISTS jobs (id INTEGER PRIMARY KEY, state INTEGER NOT NULL, "
-					+ "receivedOn INTEGER NOT NULL, lastStateChange INTEGER NOT NULL, "
-					+ "basePath TEXT NOT NULL, objectUid TEXT NOT NULL, mediaUid TEXT NOT NULL, fileTitle TEXT, "
-					+ "mimeType TEXT NOT NULL)";
-			con.createStatement().execute(sql1);
-
-			final String sql2 = "CREATE TABLE IF NOT EXISTS jobCompressionLevels (jobId INTEGER NOT NULL, compressionLevel STRING NOT NULL)";
-			con.createStatement().execute(sql2);
-
-			// if jobs with state "processing" remain from a forced stop set their state to
-			// "error"
-			final String sql3 = "UPDATE jobs SET state = 2, lastStateChange = " + SQL_CURRENT_TIMESTAMP
-					+ " WHERE state = 1";
-			con.createStatement().execute(sql3);
+			int processedCount = db.read(con -> {
+				final String sql1 = SQL_SELECT_JOB_COLUMNS + " WHERE state < 2";
+				try (ResultSet rs1 = con.prepare(sql1).executeQuery()) {
+					while (rs1.next()) {
+						QueueEntry entry = readQueueEntry(rs1);
+						index.add(entry);
+						scheduler.restore(entry.getJob(), entry.getSchedulingKey());
+					}
+				}
 
+				try (ResultSet rs2 = con.prepare("SELECT COUNT(*) FROM jobs WHERE state >= 2").executeQuery()) {
+					return rs2.next() ? rs2.getInt(1) : 0;
+				}
+			});
+			index.setProcessedJobCount(processedCount);
 		} catch (SQLException ex) {
-			throw new RuntimeException(
-					"During database initialization the following error occurred: " + ex.getMessage());
+			throw new RuntimeException("During loading the job queue the following error occurred: " + ex.getMessage());
 		}
+
+		for (QueueEntry entry : getProcessedJobsBefore(config.getArchiveDisplayLength(), Long.MAX_VALUE,
+				Integer.MAX_VALUE)) {
+			index.add(entry);
+		}
+
+		log.info("Loaded " + index.getUnfinishedJobs().size() + " unfinished jobs in "
+				+ (System.nanoTime() - start) / 1000000L + " ms");
 	}
 
 	/**
-	 * This method dispatches the given compression job to the queue.
+	 * This method migrates the database structure step by step from the version
+	 * stored in the database file to the current schema version. The steps are
+	 * executed within the transaction, which sets the new version, so either all
+	 * of them are applied or none. Steps creating tables or indexes have to
+	 * tolerate existing ones, since a database might have been set up by a
+	 * version of this class without version information.
+	 * 
+	 * @param s
+	 *            The statement used to execute the migration steps
+	 * @throws SQLException
+	 *             if a migration step failed
+	 */
+	private void migrateDatabase(Statement s) throws SQLException {
+		int version = 0;
+		try (ResultSet rs1 = s.executeQuery("PRAGMA user_version")) {
+			if (rs1.next()) {
+				version = rs1.getInt(1);
+			}
+		}
+
+		if (version < 1) {
+			// indexes for claiming the next job, loading its levels and listing the archive
+			s.execute("CREATE INDEX IF NOT EXISTS jobsStateReceivedOn ON jobs (state, receivedOn)");
+			s.execute("CREATE INDEX IF NOT EXISTS jobsStateLastStateChange ON jobs (state, lastStateChange)");
+			s.execute("CREATE INDEX IF NOT EXISTS jobCompressionLevelsJobId ON jobCompressionLevels (jobId)");
+		}
+
+		if (version < 2) {
+			// the archive is listed across both final states, so it needs an index ordered
+			// by the time of the last state change only
+			s.execute("DROP INDEX IF EXISTS jobsStateLastStateChange");
+			s.execute("CREATE INDEX IF NOT EXISTS jobsArchive ON jobs (lastStateChange, id) WHERE state >= 2");
+		}
+
+		if (version < 3) {
+			// scheduling of pending jobs by priority, fairness and estimated cost; jobs of
+			// former versions are scheduled in the order of their receipt
+			s.execute("ALTER TABLE jobs ADD COLUMN priority INTEGER NOT NULL DEFAULT 0");
+			s.execute("ALTER TABLE jobs ADD COLUMN estimatedCost REAL NOT NULL DEFAULT 0");
+			s.execute("ALTER TABLE jobs ADD COLUMN schedulingKey REAL NOT NULL DEFAULT 0");
+			s.execute("UPDATE jobs SET schedulingKey = receivedOn");
+		}
+
+		if (version < 4) {
+			// count of resumes after a forced stop
+			s.execute("ALTER TABLE jobs ADD COLUMN resumeCount INTEGER NOT NULL DEFAULT 0");
+		}
+
+		if (version < 5) {
+			// technical meta data updates, which haven't been delivered to the meta database
+			s.execute("CREATE TABLE IF NOT EXISTS metadataOutbox (mediaUid TEXT PRIMARY KEY, json TEXT NOT NULL, "
+					+ "enqueuedOn INTEGER NOT NULL, attempts INTEGER NOT NULL DEFAULT 0, "
+					+ "nextAttempt INTEGER NOT NULL DEFAULT 0, revision INTEGER NOT NULL, lastError TEXT)");
+		}
+
+		if (version < SCHEMA_VERSION) {
+			s.execute("PRAGMA user_version = " + SCHEMA_VERSION);
+			log.info("Migrated job queue database from schema version " + version + " to " + SCHEMA_VERSION);
+		}
+	}
+
+	/**
+	 * This method registers the given listener, which will be notified about all
+	 * compression jobs dispatched to the queue from now on.
+	 * 
+	 * @param listener
+	 *            The listener that shall be registered
+	 */
+	public void addQueueListener(AbstractQueueListener listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * This method registers the given listener, which will be notified about all
+	 * changes of unfinished queue entries from now on.
+	 * 
+	 * @param listener
+	 *            The listener that shall be registered
+	 */
+	public void addQueueChangeListener(AbstractQueueChangeListener listener) {
+		changeListeners.add(listener);
+	}
+
+	private void notifyJobChanged(QueueEntry entry) {
+		for (AbstractQueueChangeListener listener : changeListeners) {
+			listener.jobChanged(entry);
+		}
+	}
+
+	private void notifyJobRemoved(int id) {
+		for (AbstractQueueChangeListener listener : changeListeners) {
+			listener.jobRemoved(id);
+		}
+	}
+
+	/**
+	 * This method dispatches the given compression job to the queue. If a job for
+	 * the same media file is pending already, the job will be coalesced with it.
 	 * 
 	 * @param job
 	 *            The compression job that shall be added to the queue
@@ -104,107 +309,377 @@ public class QueueModel {
 	 *             system shut down
 	 */
 	public void dispatchJob(CompressionJob job) throws QueueCapacityException, QueueClosedException {
+		dispatchJobs(Collections.singletonList(job));
+		log.info("Dispatched compression job: " + job.getTitle());
+	}
+
+	/**
+	 * This method dispatches all given compression jobs to the queue within a
+	 * single transaction. The queue capacity is checked once for the whole batch,
+	 * so either all jobs or none of them will be added. Each job is scheduled by
+	 * the @see QueueScheduler in the order of the given list.
+	 * 
+	 * A job for a media file, for which a job is pending already, isn't added to
+	 * the queue, but coalesced with the pending job by merging their compression
+	 * levels. Jobs of the batch for the same media file are coalesced as well.
+	 * 
+	 * @param jobs
+	 *            The compression jobs that shall be added to the queue
+	 * @return Returns the ids of the queue entries in the order of the given jobs.
+	 *         A coalesced job has the id of the job it has been coalesced with.
+	 * @throws QueueCapacityException
+	 *             if the queue contains too many unfinished entries to take all
+	 *             given jobs, so that the batch has been rejected
+	 * @throws QueueClosedException
+	 *             if the queue has been closed due to a scheduled compression
+	 *             system shut down
+	 */
+	public int[] dispatchJobs(List<CompressionJob> jobs) throws QueueCapacityException, QueueClosedException {
 		if (isShutDown) {
 			throw new QueueClosedException();
-		} else {
-			if (config.getQueueMaxLength() > 0 && getEnqueuedJobCount() >= config.getQueueMaxLength()) {
-				throw new QueueCapacityException();
+		}
+
+		final long receivedOn = System.currentTimeMillis() / 1000L;
+
+		// jobs of the batch for the same media file are merged first
+		final List<CompressionJob> distinctJobs = new ArrayList<>();
+		final int[] distinctIndexes = new int[jobs.size()];
+		final Map<String, Integer> indexByMediaUid = new HashMap<>();
+		for (int i = 0; i < distinctIndexes.length; ++i) {
+			CompressionJob job = jobs.get(i);
+			Integer j = indexByMediaUid.get(job.getMediaUid());
+			if (j == null) {
+				j = distinctJobs.size();
+				indexByMediaUid.put(job.getMediaUid(), j);
+				distinctJobs.add(job);
 			} else {
-				try {
-					final String sql1 = "INSERT INTO jobs (state, receivedOn, lastStateChange, basePath, objectUid, mediaUid, fileTitle, mimeType) VALUES (?, "
-							+ SQL_CURRENT_TIMESTAMP + ", " + SQL_CURRENT_TIMESTAMP + ", ?, ?, ?, ?, ?)";
-					final PreparedStatement s1 = con.prepareStatement(sql1, Statement.RETURN_GENERATED_KEYS);
-					s1.setInt(1, JobState.ENQUEUED.value());
-					s1.setString(2, job.getBasePath());
-					s1.setString(3, job.getObjectUid());
-					s1.setString(4, job.getMediaUid());
-					s1.setString(5, job.getTitle());
-					s1.setString(6, job.getMimeType());
-					s1.execute();
-
-					ResultSet jobIdSet = s1.getGeneratedKeys();
-					if (jobIdSet.next()) {
-						int jobId = jobIdSet.getInt(1);
-
-						final String sql2 = "INSERT INTO jobCompressionLevels (jobId, compressionLevel) VALUES (?, ?)";
-						final PreparedStatement s2 = con.prepareStatement(sql2);
-
-						for (String level : job.getLevels()) {
-							s2.setInt(1, jobId);
-							s2.setString(2, level);
-							s2.execute();
-						}
+				distinctJobs.set(j, mergeJobs(distinctJobs.get(j), job));
+			}
+			distinctIndexes[i] = j;
+		}
+
+		// the estimation may access the file system, so it's done before locking
+		final double[] distinctCosts = new double[distinctJobs.size()];
+		for (int j = 0; j < distinctCosts.length; ++j) {
+			distinctCosts[j] = scheduler.estimateCost(distinctJobs.get(j));
+		}
+
+		final int[] distinctIds = new int[distinctJobs.size()];
+		final List<Integer> newIndexes = new ArrayList<>();
+		final List<CompressionJob> newJobs = new ArrayList<>();
+		final List<Integer> coalescedIndexes = new ArrayList<>();
+		final List<QueueEntry> pendingEntries = new ArrayList<>();
+		final List<QueueEntry> coalescedEntries = new ArrayList<>();
+		final List<QueueEntry> newEntries = new ArrayList<>();
+
+		// the capacity check, the insertion and the update of the index must not
+		// interleave with another dispatch
+		synchronized (dispatchLock) {
+			int newJobCount = 0;
+			for (CompressionJob job : distinctJobs) {
+				if (index.getEnqueuedJob(job.getMediaUid()) == null) {
+					newJobCount++;
+				}
+			}
+
+			if (config.getQueueMaxLength() > 0
+					&& index.getEnqueuedJobCount() + newJobCount > config.getQueueMaxLength()) {
+				throw new QueueCapacityException();
+			}
+
+			Runnable insertion = () -> {
+				// jobs for media files with a pending job are coalesced with it
+				for (int j = 0; j < distinctIds.length; ++j) {
+					CompressionJob job = distinctJobs.get(j);
+					QueueEntry pending = index.getEnqueuedJob(job.getMediaUid());
+					if (pending != null) {
+						coalescedIndexes.add(j);
+						pendingEntries.add(pending);
+						coalescedEntries.add(coalesce(pending, job));
 					} else {
-						throw new DatabaseException("Could not retrieve job id of current job.");
+						newIndexes.add(j);
+						newJobs.add(job);
 					}
+				}
 
-					log.info("Dispatched compression job: " + job.getTitle());
-				} catch (SQLException ex) {
-					throw new DatabaseException(
-							"During a job dispatch the following database error occurred: " + ex.getMessage());
+				final double[] costs = new double[newJobs.size()];
+				final double[] keys = new double[newJobs.size()];
+				for (int n = 0; n < keys.length; ++n) {
+					costs[n] = distinctCosts[newIndexes.get(n)];
+					keys[n] = scheduler.schedule(newJobs.get(n), costs[n], receivedOn);
 				}
+
+				int[] newIds = insertJobs(newJobs, receivedOn, costs, keys, coalescedEntries);
+
+				// the index is modified only after the transaction has been committed, so it
+				// stays consistent with the database if the transaction fails
+				for (int c = 0; c < coalescedEntries.size(); ++c) {
+					index.replaceEnqueued(pendingEntries.get(c), coalescedEntries.get(c));
+					distinctIds[coalescedIndexes.get(c)] = coalescedEntries.get(c).getId();
+				}
+
+				for (int n = 0; n < newIds.length; ++n) {
+					distinctIds[newIndexes.get(n)] = newIds[n];
+					QueueEntry entry = new QueueEntry(newJobs.get(n), receivedOn, newIds[n], JobState.ENQUEUED,
+							receivedOn, costs[n], keys[n]);
+					index.add(entry);
+					newEntries.add(entry);
+				}
+			};
+
+			// a pending job must not be claimed or cancelled between writing its merged
+			// compression levels and replacing it in the index, so all modifications of the
+			// index wait for the transaction in this case. Since dispatches don't interleave,
+			// no pending job can show up otherwise.
+			if (newJobCount < distinctJobs.size()) {
+				synchronized (index) {
+					insertion.run();
+				}
+			} else {
+				insertion.run();
 			}
 		}
+
+		avoidedWork.countCoalescedJobs(jobs.size() - newJobs.size());
+		for (QueueEntry entry : coalescedEntries) {
+			log.info("Coalesced compression job for media " + entry.getJob().getMediaUid() + " with pending job "
+					+ entry.getId());
+			notifyJobChanged(entry);
+		}
+
+		int[] jobIds = new int[jobs.size()];
+		for (int i = 0; i < jobIds.length; ++i) {
+			jobIds[i] = distinctIds[distinctIndexes[i]];
+		}
+
+		for (int n = 0; n < newJobs.size(); ++n) {
+			for (AbstractQueueListener listener : listeners) {
+				listener.jobDispatched(distinctIds[newIndexes.get(n)], newJobs.get(n));
+			}
+			notifyJobChanged(newEntries.get(n));
+		}
+
+		return jobIds;
+	}
+
+	/**
+	 * This method merges two compression jobs for the same media file. The merged
+	 * job requests the compression levels of both jobs and has the higher priority
+	 * of both. All other properties are taken from the first job.
+	 * 
+	 * @param job
+	 *            The first job
+	 * @param other
+	 *            The job that shall be merged into the first one
+	 * @return Returns the merged compression job
+	 */
+	private static CompressionJob mergeJobs(CompressionJob job, CompressionJob other) {
+		Set<String> levels = new LinkedHashSet<>(Arrays.asList(job.getLevels()));
+		levels.addAll(Arrays.asList(other.getLevels()));
+
+		return new CompressionJob(job.getBasePath(), job.getObjectUid(), job.getMediaUid(), job.getTitle(),
+				job.getMimeType(), levels.toArray(new String[levels.size()]),
+				Math.max(job.getPriority(), other.getPriority()));
+	}
+
+	private static QueueEntry coalesce(QueueEntry pending, CompressionJob job) {
+		CompressionJob merged = mergeJobs(pending.getJob(), job);
+		double schedulingKey = QueueScheduler.reschedule(pending.getSchedulingKey(), pending.getJob(), merged);
+
+		return new QueueEntry(merged, pending.getReceivedOn(), pending.getId(), JobState.ENQUEUED,
+				pending.getLastStateChange(), pending.getEstimatedCost(), schedulingKey);
+	}
+
+	private int[] insertJobs(List<CompressionJob> jobs, long receivedOn, double[] costs, double[] keys,
+			List<QueueEntry> coalescedEntries) {
+		try {
+			return db.writeTransaction(con -> {
+
+				// ids are assigned explicitly, since batched inserts don't return generated keys
+				int nextId = 1;
+				try (ResultSet rs1 = con.prepare("SELECT COALESCE(MAX(id), 0) + 1 FROM jobs").executeQuery()) {
+					if (rs1.next()) {
+						nextId = rs1.getInt(1);
+					}
+				}
+
+				final PreparedStatement s1 = con.prepare(
+						"INSERT INTO jobs (id, state, receivedOn, lastStateChange, basePath, objectUid, mediaUid, fileTitle, mimeType, priority, estimatedCost, schedulingKey) "
+								+ "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+				final PreparedStatement s2 = con
+						.prepare("INSERT INTO jobCompressionLevels (jobId, compressionLevel) VALUES (?, ?)");
+
+				int[] ids = new int[jobs.size()];
+				int index = 0;
+				for (CompressionJob job : jobs) {
+					int jobId = nextId + index;
+
+					s1.setInt(1, jobId);
+					s1.setInt(2, JobState.ENQUEUED.value());
+					s1.setLong(3, receivedOn);
+					s1.setLong(4, receivedOn);
+					s1.setString(5, job.getBasePath());
+					s1.setString(6, job.getObjectUid());
+					s1.setString(7, job.getMediaUid());
+					s1.setString(8, job.getTitle());
+					s1.setString(9, job.getMimeType());
+					s1.setInt(10, job.getPriority());
+					s1.setDouble(11, costs[index]);
+					s1.setDouble(12, keys[index]);
+					s1.addBatch();
+					ids[index++] = jobId;
+
+					for (String level : job.getLevels()) {
+						s2.setInt(1, jobId);
+						s2.setString(2, level);
+						s2.addBatch();
+					}
+				}
+
+				final PreparedStatement s3 = con.prepare("DELETE FROM jobCompressionLevels WHERE jobId = ?");
+				// the job is known to be pending from the index, whereas its state in the
+				// database may still be outdated
+				final PreparedStatement s4 = con
+						.prepare("UPDATE jobs SET priority = ?, schedulingKey = ? WHERE id = ?");
+				for (QueueEntry entry : coalescedEntries) {
+					s3.setInt(1, entry.getId());
+					s3.executeUpdate();
+
+					for (String level : entry.getJob().getLevels()) {
+						s2.setInt(1, entry.getId());
+						s2.setString(2, level);
+						s2.addBatch();
+					}
+
+					s4.setInt(1, entry.getJob().getPriority());
+					s4.setDouble(2, entry.getSchedulingKey());
+					s4.setInt(3, entry.getId());
+					s4.addBatch();
+				}
+
+				s1.executeBatch();
+				s2.executeBatch();
+				s4.executeBatch();
+				return ids;
+			});
+		} catch (SQLException ex) {
+			throw new DatabaseException(
+					"During a job dispatch the following database error occurred: " + ex.getMessage());
+		}
 	}
 
 	/**
 	 * This method cancels the queue entry with the given id if existing. All
-	 * information regarding this job will be deleted.
+	 * information regarding this job will be deleted. If the job is being
+	 * processed, the registered listeners are requested to stop its processing
+	 * and the job will be deleted, as soon as the processing has been stopped.
 	 * 
 	 * @param id
 	 *            The id of the queue entry that shall be deleted
+	 * @return Returns true, if the job has been deleted or its processing is
+	 *         being stopped, or false, if no unfinished job with the given id
+	 *         exists
 	 */
-	public void cancelJob(int id) {
-		try {
-			final String sql1 = "DELETE FROM jobCompressionLevels WHERE jobId = ? AND jobId IN (SELECT id FROM jobs WHERE state = 0)";
-			final String sql2 = "DELETE FROM jobs WHERE id = ? AND state = 0";
+	public boolean cancelJob(int id) {
+		// removing the job from the index first guarantees that it can't be claimed
+		// anymore, while it is deleted from the database
+		if (index.removeEnqueued(id)) {
+			stateWriter.appendDeletion(id);
+			log.info("Cancelled compression job with id " + id);
+			notifyJobRemoved(id);
+			return true;
+		}
 
-			final PreparedStatement s1 = con.prepareStatement(sql1);
-			s1.setInt(1, id);
-			s1.executeUpdate();
+		QueueEntry entry = index.getUnfinishedJob(id);
+		if (entry != null && entry.getState() == JobState.PROCESSING) {
+			log.info("Stopping compression job with id " + id);
+			for (AbstractQueueListener listener : listeners) {
+				listener.jobCancelled(id);
+			}
+			return true;
+		}
 
-			final PreparedStatement s2 = con.prepareStatement(sql2);
-			s2.setInt(1, id);
-			s2.executeUpdate();
+		return false;
+	}
 
+	/**
+	 * This method deletes the cancelled job with the given id, whose processing
+	 * has been stopped.
+	 * 
+	 * @param id
+	 *            The id of the queue entry that shall be deleted
+	 */
+	public void removeCancelledJob(int id) {
+		if (index.removeProcessing(id)) {
+			stateWriter.appendDeletion(id);
 			log.info("Cancelled compression job with id " + id);
-		} catch (SQLException ex) {
-			throw new DatabaseException(
-					"During job deletion the following database error occurred: " + ex.getMessage());
+			notifyJobRemoved(id);
 		}
 	}
 
+
 	/**
-	 * This method returns next pending compression job of the queue or null, if no
-	 * such job exists.
+	 * This method returns the pending compression job of the queue, which will be
+	 * processed next according to its scheduling key, or null, if no such job
+	 * exists.
 	 * 
 	 * @return Returns the next pending compression job of the queue of null, if no
 	 *         such job exists
 	 */
 	public QueueEntry getNextEnqueuedJob() {
-		try {
-			final String sql1 = "SELECT id, state, receivedOn, lastStateChange, basePath, objectUid, mediaUid, fileTitle, mimeType FROM jobs WHERE state = 0 ORDER BY receivedOn ASC LIMIT 1";
-			final Statement s1 = con.createStatement();
-			ResultSet rs1 = s1.executeQuery(sql1);
-
-			if (rs1.next()) {
-				int id = rs1.getInt("id");
-				String[] compressionLevels = getJobCompressionLevels(id);
+		return index.getNextEnqueuedJob();
+	}
 
-				CompressionJob job = new CompressionJob(rs1.getString("basePath"), rs1.getString("objectUid"),
-						rs1.getString("mediaUid"), rs1.getString("fileTitle"), rs1.getString("mimeType"),
-						compressionLevels);
+	/**
+	 * This method returns the pending compression jobs with the lowest scheduling
+	 * keys in the order they will be claimed, if no further jobs are dispatched.
+	 * Since image and 3D-model jobs are claimed by separate workers, the actual
+	 * order may differ slightly.
+	 * 
+	 * @param limit
+	 *            The maximum count of returned jobs
+	 * @return Returns the next pending compression jobs
+	 */
+	public List<QueueEntry> getNextEnqueuedJobs(int limit) {
+		return index.getNextEnqueuedJobs(limit);
+	}
 
-				return new QueueEntry(job, rs1.getLong("receivedOn"), rs1.getInt("id"),
-						JobState.values()[rs1.getInt("state")], rs1.getLong("lastStateChange"));
-			} else {
-				return null;
-			}
-		} catch (SQLException ex) {
-			throw new DatabaseException(
-					"During a job query (getNextEnqueuedJob) the following database error occurred: "
-							+ ex.getMessage());
+	/**
+	 * This method claims the pending compression job with the lowest scheduling
+	 * key, whose MIME-type matches the given filter, by setting its state to
+	 * "processing" and returns it. The job is claimed atomically within the in-memory index, so concurrent
+	 * workers will never claim the same job. The state change is written to the
+	 * database in the background.
+	 * 
+	 * @param mimeTypes
+	 *            The (lower case) MIME-types used to filter the pending jobs
+	 * @param includeMimeTypes
+	 *            If true, only jobs with one of the given MIME-types will be
+	 *            claimed, otherwise only jobs with none of them
+	 * @return Returns the claimed queue entry or null, if no matching job is
+	 *         pending
+	 */
+	public QueueEntry claimNextEnqueuedJob(String[] mimeTypes, boolean includeMimeTypes) {
+		QueueEntry entry = index.claim(mimeTypes, includeMimeTypes, System.currentTimeMillis() / 1000L);
+		if (entry != null) {
+			stateWriter.append(entry.getId(), entry.getState(), entry.getLastStateChange());
+			waitTracker.record(QueueScheduler.getPriorityClass(entry.getJob()),
+					entry.getLastStateChange() - entry.getReceivedOn());
+			notifyJobChanged(entry);
 		}
+		return entry;
+	}
+
+	/**
+	 * This method returns the statistics of the time the most recently started
+	 * compression jobs have been waiting in the queue, separately for each
+	 * priority class.
+	 * 
+	 * @return Returns a list containing the waiting time statistics of each
+	 *         priority class
+	 */
+	public List<QueueWaitStatistics> getWaitStatistics() {
+		return waitTracker.getStatistics();
 	}
 
 	/**
@@ -213,44 +688,41 @@ public class QueueModel {
 	 * @return Returns a collection containing all unfinished queue entries
 	 */
 	public Collection<QueueEntry> getAllUnfinishedJobs() {
-		try {
-			final String sql1 = "SELECT id, state, receivedOn, lastStateChange, basePath, objectUid, mediaUid, fileTitle, mimeType FROM jobs WHERE state < 2 ORDER BY receivedOn ASC";
-			final Statement s1 = con.createStatement();
-			ResultSet rs1 = s1.executeQuery(sql1);
-
-			ArrayList<QueueEntry> entries = new ArrayList<QueueEntry>();
-			JobState[] jobStateValue = JobState.values();
-			while (rs1.next()) {
-				int id = rs1.getInt("id");
-				String[] compressionLevels = getJobCompressionLevels(id);
-
-				CompressionJob job = new CompressionJob(rs1.getString("basePath"), rs1.getString("objectUid"),
-						rs1.getString("mediaUid"), rs1.getString("fileTitle"), rs1.getString("mimeType"),
-						compressionLevels);
-
-				entries.add(new QueueEntry(job, rs1.getLong("receivedOn"), rs1.getInt("id"),
-						jobStateValue[rs1.getInt("state")], rs1.getLong("lastStateChange")));
-			}
+		return index.getUnfinishedJobs();
+	}
 
-			return entries;
-		} catch (SQLException ex) {
-			throw new DatabaseException(
-					"During a job query (getAllUnfinishedJobs) the following database error occurred: "
-							+ ex.getMessage());
-		}
+	/**
+	 * This method returns a collection containing all queue entries, whose jobs
+	 * are being processed. Their progress is available via @see
+	 * QueueEntry#getProgress().
+	 * 
+	 * @return Returns a collection containing all queue entries being processed
+	 */
+	public Collection<QueueEntry> getProcessingJobs() {
+		return index.getProcessingJobs();
 	}
 
-	private String[] getJobCompressionLevels(int id) throws SQLException {
-		final String sql2 = "SELECT compressionLevel FROM jobCompressionLevels WHERE jobId = ?";
-		final PreparedStatement s2 = con.prepareStatement(sql2);
-		s2.setInt(1, id);
+	/**
+	 * This method creates a queue entry from the current row of the given result
+	 * set, which has to contain all columns selected by
+	 * {@code SQL_SELECT_JOB_COLUMNS}.
+	 * 
+	 * @param rs
+	 *            The result set positioned on the job's row
+	 * @return Returns the queue entry of the current row
+	 * @throws SQLException
+	 *             if a database error occurred
+	 */
+	private QueueEntry readQueueEntry(ResultSet rs) throws SQLException {
+		String levels = rs.getString("compressionLevels");
+		String[] compressionLevels = levels == null ? new String[] {} : levels.split(LEVEL_SEPARATOR);
 
-		List<String> compressionLevels = new ArrayList<String>();
-		ResultSet rs2 = s2.executeQuery();
-		while (rs2.next()) {
-			compressionLevels.add(rs2.getString("compressionLevel"));
-		}
-		return compressionLevels.toArray(new String[] {});
+		CompressionJob job = new CompressionJob(rs.getString("basePath"), rs.getString("objectUid"),
+				rs.getString("mediaUid"), rs.getString("fileTitle"), rs.getString("mimeType"), compressionLevels,
+				rs.getInt("priority"));
+
+		return new QueueEntry(job, rs.getLong("receivedOn"), rs.getInt("id"), JobState.values()[rs.getInt("state")],
+				rs.getLong("lastStateChange"), rs.getDouble("estimatedCost"), rs.getDouble("schedulingKey"));
 	}
 
 	/**
@@ -259,59 +731,62 @@ public class QueueModel {
 	 * @return Returns the count of pending compression jobs in the queue.
 	 */
 	public int getEnqueuedJobCount() {
-		try {
-			final String sql1 = "SELECT COUNT(*) FROM jobs WHERE state = 0";
-			final Statement s1 = con.createStatement();
-			ResultSet rs1 = s1.executeQuery(sql1);
+		return index.getEnqueuedJobCount();
+	}
 
-			if (rs1.next()) {
-				return rs1.getInt(1);
-			} else {
-				throw new RuntimeException(
-						"During a job query (getEnqueuedJobCount) an invalid empty result set was returned.");
-			}
-		} catch (SQLException ex) {
-			throw new DatabaseException(
-					"During a job query (getEnqueuedJobCount) the following database error occurred: "
-							+ ex.getMessage());
-		}
+	/**
+	 * This method returns a collection containing the most recently finished
+	 * compression jobs (successfully or defectively), beginning with the latest
+	 * one. The list's length is limited to at most {@code limit} elements. The
+	 * first page of the archive is served from memory.
+	 * 
+	 * @param limit
+	 *            The limit for the returned collection's length
+	 * @return Returns a list containing successfully of defectively finished
+	 *         compression jobs
+	 */
+	public Collection<QueueEntry> getProcessedJobs(int limit) {
+		Collection<QueueEntry> entries = index.getRecentlyProcessedJobs(limit);
+		return entries != null ? entries : getProcessedJobsBefore(limit, Long.MAX_VALUE, Integer.MAX_VALUE);
 	}
 
 	/**
 	 * This method returns a collection containing successfully of defectively
-	 * finished compression jobs. The list's length is limited to at most
-	 * {@code limit} elements with an offset of {@see offset}.
+	 * finished compression jobs, which have been finished before the job with the
+	 * given last state change and id. Hence the archive can be paged through by
+	 * passing the values of the last entry of the previous page (keyset
+	 * pagination), which is independent of the page's position in the archive.
 	 * 
 	 * @param limit
 	 *            The limit for the returned collection's length
-	 * @param offset
-	 *            The offset for the elements in the returned collection
+	 * @param lastStateChange
+	 *            The time of the last state change of the last entry of the
+	 *            previous page
+	 * @param id
+	 *            The id of the last entry of the previous page
 	 * @return Returns a list containing successfully of defectively finished
 	 *         compression jobs
 	 */
-	public Collection<QueueEntry> getProcessedJobs(int limit, int offset) {
+	public Collection<QueueEntry> getProcessedJobsBefore(int limit, long lastStateChange, int id) {
 		try {
-			final String sql1 = "SELECT id, state, receivedOn, lastStateChange, basePath, objectUid, mediaUid, fileTitle, mimeType FROM jobs WHERE state >= 2 ORDER BY lastStateChange DESC LIMIT ? OFFSET ?";
-			final PreparedStatement s1 = con.prepareStatement(sql1);
-			s1.setInt(1, limit);
-			s1.setInt(2, offset);
-			ResultSet rs1 = s1.executeQuery();
-
-			ArrayList<QueueEntry> entries = new ArrayList<QueueEntry>();
-			JobState[] jobStateValue = JobState.values();
-			while (rs1.next()) {
-				int id = rs1.getInt("id");
-				String[] compressionLevels = getJobCompressionLevels(id);
-
-				CompressionJob job = new CompressionJob(rs1.getString("basePath"), rs1.getString("objectUid"),
-						rs1.getString("mediaUid"), rs1.getString("fileTitle"), rs1.getString("mimeType"),
-						compressionLevels);
-
-				entries.add(new QueueEntry(job, rs1.getLong("receivedOn"), rs1.getInt("id"),
-						jobStateValue[rs1.getInt("state")], rs1.getLong("lastStateChange")));
-			}
-
-			return entries;
+			return db.read(con -> {
+				// SQLite uses the archive index as a range only for the row value comparison,
+				// whereas the equivalent disjunction scans the index from its end
+				final String sql1 = SQL_SELECT_JOB_COLUMNS + " WHERE state >= 2 AND (lastStateChange, id) < (?, ?)"
+						+ " ORDER BY lastStateChange DESC, id DESC LIMIT ?";
+				final PreparedStatement s1 = con.prepare(sql1);
+				s1.setLong(1, lastStateChange);
+				s1.setInt(2, id);
+				s1.setInt(3, limit);
+
+				try (ResultSet rs1 = s1.executeQuery()) {
+					ArrayList<QueueEntry> entries = new ArrayList<QueueEntry>();
+					while (rs1.next()) {
+						entries.add(readQueueEntry(rs1));
+					}
+					return entries;
+				}
+			});
 		} catch (SQLException ex) {
 			throw new DatabaseException(
 					"During a job query (getProcessedJobs) the following database error occurred: " + ex.getMessage());
@@ -326,27 +801,12 @@ public class QueueModel {
 	 *         jobs
 	 */
 	public int getProcessedJobCount() {
-		try {
-			final String sql1 = "SELECT COUNT(*) FROM jobs WHERE state >= 2";
-			final Statement s1 = con.createStatement();
-			ResultSet rs1 = s1.executeQuery(sql1);
-
-			if (rs1.next()) {
-				return rs1.getInt(1);
-			} else {
-				throw new RuntimeException(
-						"During a job query (getProcessedJobCount) an invalid empty result set was returned.");
-			}
-		} catch (SQLException ex) {
-			throw new DatabaseException(
-					"During a job query (getProcessedJobCount) the following database error occurred: "
-							+ ex.getMessage());
-		}
+		return index.getProcessedJobCount();
 	}
 
 	/**
 	 * This method updates the state of the job referred by the queue entry with the
-	 * given id.
+	 * given id. The state change is written to the database in the background.
 	 * 
 	 * @param id
 	 *            The id of the queue entry whose job's state shall be updated
@@ -354,20 +814,34 @@ public class QueueModel {
 	 *            The new state of the queue entry's compression job
 	 */
 	public void setJobState(int id, JobState state) {
-		try {
-			final String sql1 = "UPDATE jobs SET state = ?, lastStateChange = " + SQL_CURRENT_TIMESTAMP
-					+ " WHERE id = ?";
-
-			final PreparedStatement s1 = con.prepareStatement(sql1);
-			s1.setInt(1, state.value());
-			s1.setInt(2, id);
-			s1.executeUpdate();
-		} catch (SQLException ex) {
-			throw new DatabaseException(
-					"During job state update the following database error occurred: " + ex.getMessage());
+		long timestamp = System.currentTimeMillis() / 1000L;
+		QueueEntry entry = index.transition(id, state, timestamp);
+		stateWriter.append(id, state, timestamp);
+		if (entry != null) {
+			notifyJobChanged(entry);
 		}
 	}
 
+	/**
+	 * This method returns the counter of the compression work, which has been
+	 * avoided by coalescing jobs or skipping existing compression levels.
+	 * 
+	 * @return Returns the counter of avoided compression work
+	 */
+	public AvoidedWorkCounter getAvoidedWorkCounter() {
+		return avoidedWork;
+	}
+
+	/**
+	 * This method returns the outbox storing the technical meta data updates,
+	 * which haven't been delivered to the meta database yet.
+	 * 
+	 * @return Returns the technical meta data outbox
+	 */
+	public MetadataOutbox getMetadataOutbox() {
+		return metadataOutbox;
+	}
+
 	/**
 	 * This method shuts down the queue model and in particular closes the queue, so
 	 * that all incoming jobs will be rejected.
@@ -376,4 +850,21 @@ public class QueueModel {
 		this.isShutDown = true;
 	}
 
+	/**
+	 * This method writes all remaining state changes, stops the delivery of
+	 * technical meta data updates and closes all database connections of this
+	 * queue model. It should only be called after all workers have finished, since
+	 * the queue model can't be used afterwards. Further calls have no effect.
+	 */
+	public synchronized void close() {
+		if (isClosed) {
+			return;
+		}
+		isClosed = true;
+
+		metadataOutbox.close();
+		stateWriter.close();
+		db.close();
+	}
+
 }
@@ -0,0 +1,159 @@
+package de.uni_passau.visit.compression.models;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import de.uni_passau.visit.compression.data.CompressionJob;
+
+/**
+ * This class determines the order in which pending compression jobs are
+ * processed. Each job is assigned a scheduling key on dispatch and the pending
+ * job with the lowest key is processed next. Since the key never changes
+ * afterwards, the pending jobs can be kept in ordered sets and the next job is
+ * found in logarithmic time even for very long queues.
+ * 
+ * The key combines three criteria:
+ * 
+ * Fairness: The jobs of each object-UID are scheduled as a separate flow (start
+ * time fair queuing). A job's virtual finish time is the virtual finish time of
+ * the previous job of the same object, but not earlier than the time of
+ * receipt, plus the job's estimated processing time. Hence a batch of many jobs
+ * for one object doesn't block the jobs of other objects, which are interleaved
+ * with it.
+ * 
+ * Cost: Since the estimated processing time is part of the virtual finish time,
+ * short jobs are preferred over long ones received at the same time (shortest
+ * expected job first). A long job isn't starved by short jobs though, because
+ * the virtual finish time of jobs received later grows with the time of their
+ * receipt (aging).
+ * 
+ * Priority: Each priority level advances the key by a fixed time, so jobs of a
+ * higher priority are preferred over jobs of a lower priority, which have been
+ * waiting for less than this time per level.
+ * 
+ * @author agent
+ *
+ */
+public class QueueScheduler {
+
+	private static final double PRIORITY_ADVANCE_SECONDS = 3600;
+	private static final int MIN_PRIORITY = -3;
+	private static final int MAX_PRIORITY = 3;
+	private static final double IMAGE_COST_SECONDS = 5;
+	private static final double MODEL_BASE_COST_SECONDS = 10;
+	private static final double MODEL_BYTES_PER_SECOND = 1 << 20;
+	private static final int FLOW_PRUNE_THRESHOLD = 4096;
+
+	private final ConfigModel config;
+	private final Map<String, Double> flowFinishTimes = new HashMap<>();
+
+	/**
+	 * This constructor creates a new scheduler using the given configuration model.
+	 * 
+	 * @param config
+	 *            The configuration model specifying the media file root directory
+	 */
+	public QueueScheduler(ConfigModel config) {
+		this.config = config;
+	}
+
+	/**
+	 * This method estimates the processing time of the given compression job from
+	 * its MIME-type and in case of 3D-models from the size of the OBJ-file.
+	 * 
+	 * @param job
+	 *            The compression job whose processing time shall be estimated
+	 * @return Returns the estimated processing time in seconds
+	 */
+	public double estimateCost(CompressionJob job) {
+		if (!job.getMimeType().equalsIgnoreCase(CompressionModel.MIME_TYPE_OBJ)) {
+			return IMAGE_COST_SECONDS;
+		}
+
+		FilenameGenerator3D filenameGen = new FilenameGenerator3D(config.getMediaFileRoot(), job.getBasePath(),
+				job.getObjectUid(), job.getMediaUid(), CompressionModel.ORIGINAL_FILE_INDICATOR);
+		return MODEL_BASE_COST_SECONDS + filenameGen.getObjFilePath().length() / MODEL_BYTES_PER_SECOND;
+	}
+
+	/**
+	 * This method schedules the given compression job and returns its scheduling
+	 * key.
+	 * 
+	 * @param job
+	 *            The compression job that shall be scheduled
+	 * @param estimatedCost
+	 *            The estimated processing time of the job in seconds
+	 * @param receivedOn
+	 *            The UNIX-timestamp of the job's receipt
+	 * @return Returns the scheduling key of the job
+	 */
+	public synchronized double schedule(CompressionJob job, double estimatedCost, long receivedOn) {
+		Double previousFinish = flowFinishTimes.get(job.getObjectUid());
+		double start = previousFinish == null ? receivedOn : Math.max(receivedOn, previousFinish);
+		double finish = start + estimatedCost;
+		flowFinishTimes.put(job.getObjectUid(), finish);
+
+		if (flowFinishTimes.size() > FLOW_PRUNE_THRESHOLD) {
+			pruneFlows(receivedOn);
+		}
+
+		return finish - getPriorityAdvance(job);
+	}
+
+	/**
+	 * This method restores the state of the flow of the given pending job, e.g.
+	 * after the queue has been loaded from the database.
+	 * 
+	 * @param job
+	 *            The pending compression job
+	 * @param schedulingKey
+	 *            The scheduling key of the job
+	 */
+	public synchronized void restore(CompressionJob job, double schedulingKey) {
+		double finish = schedulingKey + getPriorityAdvance(job);
+		flowFinishTimes.merge(job.getObjectUid(), finish, Math::max);
+	}
+
+	/**
+	 * This method returns the scheduling key of a pending job, whose priority has
+	 * been changed, e.g. by coalescing it with another job.
+	 * 
+	 * @param schedulingKey
+	 *            The scheduling key of the job with its former priority
+	 * @param former
+	 *            The compression job with its former priority
+	 * @param changed
+	 *            The compression job with its new priority
+	 * @return Returns the scheduling key of the job with its new priority
+	 */
+	public static double reschedule(double schedulingKey, CompressionJob former, CompressionJob changed) {
+		return schedulingKey + getPriorityAdvance(former) - getPriorityAdvance(changed);
+	}
+
+	/**
+	 * This method returns the priority class of the given compression job, which
+	 * is its priority limited to the supported range.
+	 * 
+	 * @param job
+	 *            The compression job
+	 * @return Returns the priority class of the job
+	 */
+	public static int getPriorityClass(CompressionJob job) {
+		return Math.max(MIN_PRIORITY, Math.min(MAX_PRIORITY, job.getPriority()));
+	}
+
+	private static double getPriorityAdvance(CompressionJob job) {
+		return getPriorityClass(job) * PRIORITY_ADVANCE_SECONDS;
+	}
+
+	// flows finishing before the given time don't influence the scheduling anymore
+	private void pruneFlows(long now) {
+		Iterator<Double> it = flowFinishTimes.values().iterator();
+		while (it.hasNext()) {
+			if (it.next() <= now) {
+				it.remove();
+			}
+		}
+	}
+}
@@ -0,0 +1,195 @@
+package de.uni_passau.visit.compression.models;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import de.uni_passau.visit.compression.data.JobState;
+
+/**
+ * This class persists the state transitions and deletions of compression jobs
+ * in the background (write-behind). Changes are appended to a queue by the
+ * workers, which therefore never wait for the database. A separate thread
+ * writes all changes appended in the meantime within a single transaction, so
+ * the count of transactions decreases with a growing load.
+ * 
+ * Changes are written in the order they have been appended, so a deletion
+ * can't be overtaken by an earlier state transition of the same job. If a
+ * transaction fails, its changes are written again after a delay together with
+ * the changes appended meanwhile. On a forced stop the changes of the last few
+ * milliseconds might be lost, which is equivalent to a stop slightly earlier,
+ * since the state of unfinished jobs is reset on the next start anyway.
+ * 
+ * @author agent
+ *
+ */
+public class QueueStateWriter {
+
+	private static final Logger log = LogManager.getLogger(QueueStateWriter.class);
+
+	private static final int MAX_BATCH_SIZE = 1000;
+	private static final long RETRY_DELAY_MILLIS = 1000;
+	private static final int MAX_ATTEMPTS_ON_CLOSE = 3;
+	private static final StateTransition STOP = new StateTransition(-1, null, 0);
+
+	private final QueueDatabase db;
+	private final BlockingQueue<StateTransition> transitions = new LinkedBlockingQueue<>();
+	private final Thread thread;
+
+	/**
+	 * This constructor creates a new writer for the given database and starts its
+	 * thread.
+	 * 
+	 * @param db
+	 *            The database the state transitions shall be written to
+	 */
+	public QueueStateWriter(QueueDatabase db) {
+		this.db = db;
+		this.thread = new Thread(this::run, "Queue state writer");
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	/**
+	 * This method appends the given state transition to the queue of transitions,
+	 * which will be written to the database as soon as possible.
+	 * 
+	 * @param id
+	 *            The id of the job, whose state has changed
+	 * @param state
+	 *            The new state of the job
+	 * @param timestamp
+	 *            The UNIX-timestamp of the state change
+	 */
+	public void append(int id, JobState state, long timestamp) {
+		transitions.add(new StateTransition(id, state, timestamp));
+	}
+
+	/**
+	 * This method appends the deletion of the given job including its compression
+	 * levels to the queue of changes, so it is written after all state transitions
+	 * appended before.
+	 * 
+	 * @param id
+	 *            The id of the job, which shall be deleted
+	 */
+	public void appendDeletion(int id) {
+		transitions.add(new StateTransition(id, null, 0));
+	}
+
+	/**
+	 * This method writes all remaining changes and stops the writer thread. Changes
+	 * appended afterwards won't be written. If the database keeps failing, the
+	 * remaining changes are given up after a few attempts.
+	 */
+	public void close() {
+		transitions.add(STOP);
+
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void run() {
+		List<StateTransition> batch = new ArrayList<>();
+		boolean stopped = false;
+		int failedAttempts = 0;
+
+		while (!stopped || !batch.isEmpty()) {
+			if (!stopped) {
+				try {
+					// changes of a failed transaction are retried after a delay
+					StateTransition next = failedAttempts > 0
+							? transitions.poll(RETRY_DELAY_MILLIS, TimeUnit.MILLISECONDS)
+							: transitions.take();
+					if (next != null) {
+						batch.add(next);
+					}
+				} catch (InterruptedException e) {
+					continue;
+				}
+				transitions.drainTo(batch, Math.max(0, MAX_BATCH_SIZE - batch.size()));
+				stopped = batch.remove(STOP);
+			}
+
+			if (batch.isEmpty()) {
+				continue;
+			}
+
+			try {
+				write(batch);
+				batch.clear();
+				failedAttempts = 0;
+			} catch (SQLException ex) {
+				failedAttempts++;
+				if (stopped && failedAttempts >= MAX_ATTEMPTS_ON_CLOSE) {
+					log.error("Gave up writing " + batch.size() + " job changes: " + ex.getMessage());
+					batch.clear();
+				} else {
+					log.error("Could not write " + batch.size() + " job changes, retrying: " + ex.getMessage());
+					if (stopped) {
+						sleepBeforeRetry();
+					}
+				}
+			}
+		}
+	}
+
+	private void sleepBeforeRetry() {
+		try {
+			Thread.sleep(RETRY_DELAY_MILLIS);
+		} catch (InterruptedException e) {
+			// retry right away
+		}
+	}
+
+	private void write(List<StateTransition> batch) throws SQLException {
+		db.writeTransaction(con -> {
+			final PreparedStatement s1 = con.prepare("UPDATE jobs SET state = ?, lastStateChange = ? WHERE id = ?");
+			final PreparedStatement s2 = con.prepare("DELETE FROM jobCompressionLevels WHERE jobId = ?");
+			final PreparedStatement s3 = con.prepare("DELETE FROM jobs WHERE id = ?");
+
+			// the changes are executed one by one, since batching them per statement
+			// would change their order
+			for (StateTransition t : batch) {
+				if (t.isDeletion()) {
+					s2.setInt(1, t.id);
+					s2.executeUpdate();
+					s3.setInt(1, t.id);
+					s3.executeUpdate();
+				} else {
+					s1.setInt(1, t.state.value());
+					s1.setLong(2, t.timestamp);
+					s1.setInt(3, t.id);
+					s1.executeUpdate();
+				}
+			}
+			return null;
+		});
+	}
+
+	private static class StateTransition {
+		private final int id;
+		private final JobState state;
+		private final long timestamp;
+
+		private StateTransition(int id, JobState state, long timestamp) {
+			this.id = id;
+			this.state = state;
+			this.timestamp = timestamp;
+		}
+
+		private boolean isDeletion() {
+			return state == null;
+		}
+	}
+}
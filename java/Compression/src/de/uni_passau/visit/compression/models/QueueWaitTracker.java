@@ -0,0 +1,82 @@
+package de.uni_passau.visit.compression.models;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import de.uni_passau.visit.compression.data.QueueWaitStatistics;
+
+/**
+ * This class records the time compression jobs have been waiting in the queue
+ * until their processing started. The waiting times are kept per priority
+ * class in ring buffers of a fixed size, so recording a waiting time never
+ * allocates memory and the statistics refer to the most recently started jobs.
+ * 
+ * @author agent
+ *
+ */
+public class QueueWaitTracker {
+
+	private static final int SAMPLE_COUNT = 1024;
+
+	private final Map<Integer, Samples> samplesByPriority = new TreeMap<>();
+
+	/**
+	 * This method records the waiting time of a compression job, whose processing
+	 * has just been started.
+	 * 
+	 * @param priority
+	 *            The priority class of the job
+	 * @param waitSeconds
+	 *            The time the job has been waiting in seconds
+	 */
+	public synchronized void record(int priority, long waitSeconds) {
+		samplesByPriority.computeIfAbsent(priority, p -> new Samples()).add(waitSeconds);
+	}
+
+	/**
+	 * This method returns the waiting time statistics of all priority classes,
+	 * which have been recorded so far, ordered by priority.
+	 * 
+	 * @return Returns a list containing the statistics of each priority class
+	 */
+	public List<QueueWaitStatistics> getStatistics() {
+		List<QueueWaitStatistics> statistics = new ArrayList<>();
+		long[] sorted;
+		long count;
+
+		for (int priority : getPriorities()) {
+			synchronized (this) {
+				Samples samples = samplesByPriority.get(priority);
+				sorted = Arrays.copyOf(samples.values, (int) Math.min(samples.count, SAMPLE_COUNT));
+				count = samples.count;
+			}
+
+			Arrays.sort(sorted);
+			statistics.add(new QueueWaitStatistics(priority, count, percentile(sorted, 0.5), percentile(sorted, 0.9),
+					percentile(sorted, 0.99), sorted[sorted.length - 1]));
+		}
+
+		return statistics;
+	}
+
+	private synchronized List<Integer> getPriorities() {
+		return new ArrayList<>(samplesByPriority.keySet());
+	}
+
+	private static long percentile(long[] sorted, double fraction) {
+		return sorted[(int) Math.min(sorted.length - 1, Math.floor(fraction * sorted.length))];
+	}
+
+	private static class Samples {
+		private final long[] values = new long[SAMPLE_COUNT];
+		private long count = 0;
+
+		private void add(long value) {
+			values[(int) (count % SAMPLE_COUNT)] = value;
+			count++;
+		}
+	}
+}
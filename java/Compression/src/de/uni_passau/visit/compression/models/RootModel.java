@@ -21,6 +21,7 @@ public class RootModel {
 	private final QueueModel queueModel;
 	private final CompressionModel compressionModel;
 	private final ControlModel controlModel;
+	private final CompressionMetrics metrics;
 	private Server server;
 
 	private static final Logger log = LogManager.getLogger(RootModel.class);
@@ -32,18 +33,25 @@ public class RootModel {
 	 */
 	private RootModel() {
 		configModel = new ConfigModel();
+		metrics = new CompressionMetrics();
+		metrics.monitorGarbageCollection();
 		queueModel = new QueueModel(configModel);
-		compressionModel = new CompressionModel(queueModel, configModel);
+		// write the remaining state changes, if the process is stopped before all
+		// workers have finished
+		Runtime.getRuntime().addShutdownHook(new Thread(queueModel::close, "Queue shutdown"));
+		compressionModel = new CompressionModel(queueModel, configModel, metrics);
 
 		try {
 			this.server = new Server(this);
 			this.server.start(configModel.getApiPort());
+			queueModel.addQueueChangeListener(server.getEventStream());
 		} catch (IOException e) {
 			log.fatal("Could not startup web server: " + e.getMessage() + ". Server shut down.");
 			System.exit(0);
 		}
 
 		controlModel = new ControlModel(configModel, compressionModel, queueModel, server);
+		controlModel.addSystemStateListener(server.getEventStream());
 
 		log.info("Server startup finished.");
 
@@ -77,6 +85,16 @@ public class RootModel {
 		return controlModel;
 	}
 
+	/**
+	 * This method returns the metrics collected by the models created by this root
+	 * model.
+	 * 
+	 * @return Returns the metrics of the compression system
+	 */
+	public CompressionMetrics getMetrics() {
+		return metrics;
+	}
+
 	/**
 	 * This method returns the server component created by this root model.
 	 * 
@@ -36,7 +36,7 @@ public class ArchiveHandler implements AbstractHandler {
 			throws JsonParseException, JsonMappingException, IOException {
 		if (function.size() > 0 && function.get(0).equals("jobs")) {
 			if (method.equals("GET")) {
-				return new QueueItemResponse(root.getQueueModel().getProcessedJobs(root.getConfigModel().getArchiveDisplayLength(), 0));
+				return handleArchiveJobs(function);
 			} else {
 				return new DefaultResponse(false, "Invalid method.");
 			}
@@ -45,4 +45,30 @@ public class ArchiveHandler implements AbstractHandler {
 		}
 	}
 
+	/**
+	 * This method returns a page of the archive. Without further arguments the
+	 * latest finished jobs are returned. The following pages can be requested by
+	 * appending the last state change and the id of the last entry of the previous
+	 * page to the URL (e.g. {@code archive/jobs/1546300800/42}).
+	 * 
+	 * @param function
+	 *            The tokens of the requested URL
+	 * @return Returns the response containing the requested archive page
+	 */
+	private DefaultResponse handleArchiveJobs(List<String> function) {
+		int limit = root.getConfigModel().getArchiveDisplayLength();
+
+		if (function.size() > 2) {
+			try {
+				long lastStateChange = Long.parseLong(function.get(1));
+				int id = Integer.parseInt(function.get(2));
+				return new QueueItemResponse(root.getQueueModel().getProcessedJobsBefore(limit, lastStateChange, id));
+			} catch (NumberFormatException ex) {
+				return new DefaultResponse(false, "Non-integer archive position specified.");
+			}
+		} else {
+			return new QueueItemResponse(root.getQueueModel().getProcessedJobs(limit));
+		}
+	}
+
 }
@@ -5,7 +5,6 @@ import java.util.List;
 
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.databind.JsonMappingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 import de.uni_passau.visit.compression.data.ControlStateUpdate;
 import de.uni_passau.visit.compression.exceptions.IllegalStateModificationException;
@@ -58,7 +57,7 @@ public class ControlHandler implements AbstractHandler {
 
 	private DefaultResponse handleStateUpdate(String postData)
 			throws JsonParseException, JsonMappingException, IOException {
-		ControlStateUpdate update = new ObjectMapper().readValue(postData, ControlStateUpdate.class);
+		ControlStateUpdate update = JsonMapper.getMapper().readValue(postData, ControlStateUpdate.class);
 		try {
 			switch (update.getState()) {
 			case KILL:
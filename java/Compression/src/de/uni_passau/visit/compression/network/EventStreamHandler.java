@@ -0,0 +1,419 @@
+package de.uni_passau.visit.compression.network;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import de.uni_passau.visit.compression.data.QueueEntry;
+import de.uni_passau.visit.compression.data.QueueEntryId;
+import de.uni_passau.visit.compression.data.SystemState;
+import de.uni_passau.visit.compression.models.AbstractQueueChangeListener;
+import de.uni_passau.visit.compression.models.AbstractSystemStateListener;
+import de.uni_passau.visit.compression.models.ControlModel;
+import de.uni_passau.visit.compression.models.RootModel;
+import de.uni_passau.visit.compression.network.transaction.ControlStateResponse;
+import de.uni_passau.visit.compression.network.transaction.QueueItemResponse;
+
+/**
+ * This class handles requests to the event stream of the compression system,
+ * which pushes changes of the job queue and the system state to connected
+ * clients as server-sent events. Thereby clients like the web interface don't
+ * have to poll the API for changes.
+ * 
+ * When a client connects, it first receives the current system state (event
+ * "state") and all unfinished jobs (event "queue"). Afterwards each change of
+ * an unfinished job is sent (event "job" carrying the changed queue entry or
+ * event "jobRemoved" carrying the id of a cancelled job) as well as each change
+ * of the system state. Additionally the entries of all jobs being processed
+ * are sent periodically as "job" events, so clients can display their
+ * progress.
+ * 
+ * The connections are held open without occupying a request handling thread.
+ * All events are serialized by a single thread, which serializes each event
+ * only once regardless of the count of connected clients. Changes occurring in
+ * quick succession are coalesced, so only the latest change of each job and of
+ * the system state is sent. If more jobs change than can be held pending, the
+ * pending changes are replaced by a new "queue" event. While no clients are
+ * connected, changes are discarded immediately. While nothing changes, only a
+ * comment is sent periodically to detect closed connections.
+ * 
+ * Each client is written to by its own thread from a bounded backlog, so a
+ * client which doesn't read its events can't delay the other clients. If the
+ * backlog of a client is full, its connection is closed and the client has to
+ * reconnect, whereupon it receives the current state again.
+ * 
+ * @author agent
+ *
+ */
+public class EventStreamHandler implements HttpHandler, AbstractQueueChangeListener, AbstractSystemStateListener {
+
+	private static final Logger log = LogManager.getLogger(EventStreamHandler.class);
+
+	private static final long HEARTBEAT_INTERVAL = 20000;
+	private static final long PROGRESS_INTERVAL = 2000;
+	private static final int RECONNECTION_DELAY = 5000;
+	private static final int MAX_PENDING_EVENTS = 10000;
+	private static final int MAX_CLIENT_BACKLOG = 100;
+	private static final byte[] HEARTBEAT = ":\n\n".getBytes(StandardCharsets.UTF_8);
+	private static final byte[] END = new byte[0];
+
+	private final RootModel root;
+	private final Set<Client> clients = ConcurrentHashMap.newKeySet();
+	private final AtomicInteger connectingClients = new AtomicInteger();
+
+	// guarded by pendingEvents
+	private final Map<String, Object[]> pendingEvents = new LinkedHashMap<>();
+	private final List<HttpExchange> pendingClients = new ArrayList<>();
+	private boolean isResyncPending = false;
+	private boolean isClosing = false;
+
+	private final Thread writer;
+	private volatile boolean isClosed = false;
+
+	/**
+	 * This constructor creates a new event stream handler based on the given root
+	 * model and starts the thread writing the events.
+	 * 
+	 * @param root
+	 *            The root model used as base for the new event stream handler
+	 */
+	public EventStreamHandler(RootModel root) {
+		this.root = root;
+		this.writer = new Thread(this::writeEvents, "event-stream");
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+
+	@Override
+	public void handle(HttpExchange he) {
+		try {
+			if (!RestHandler.isAccessAllowed(root, he)) {
+				he.sendResponseHeaders(403, -1);
+				he.close();
+				log.info("Access from host " + he.getRemoteAddress().getAddress().toString() + " has been denied.");
+				return;
+			}
+
+			if (!"GET".equals(he.getRequestMethod().toUpperCase()) || isClosed) {
+				he.getResponseHeaders().set("Allow", "GET");
+				he.sendResponseHeaders(405, -1);
+				he.close();
+				return;
+			}
+
+			he.getResponseHeaders().set("Content-Type", "text/event-stream; charset=UTF-8");
+			he.getResponseHeaders().set("Cache-Control", "no-cache");
+			he.sendResponseHeaders(200, 0);
+
+			// the client is connected by the writer thread, so its initial state can't
+			// interleave with other events
+			connectingClients.incrementAndGet();
+			synchronized (pendingEvents) {
+				pendingClients.add(he);
+				pendingEvents.notifyAll();
+			}
+		} catch (IOException ex) {
+			he.close();
+		}
+	}
+
+	@Override
+	public void jobChanged(QueueEntry entry) {
+		publish("job" + entry.getId(), "job", entry);
+	}
+
+	@Override
+	public void jobRemoved(int jobId) {
+		publish("job" + jobId, "jobRemoved", new QueueEntryId(jobId));
+	}
+
+	@Override
+	public void systemStateChanged(SystemState state) {
+		publish("state", "state", new ControlStateResponse(state));
+	}
+
+	/**
+	 * This method closes the connections of all clients after the pending events
+	 * have been passed to their threads and stops the thread serializing the
+	 * events. It returns after at most one second.
+	 */
+	public void close() {
+		isClosed = true;
+		synchronized (pendingEvents) {
+			isClosing = true;
+			pendingEvents.notifyAll();
+		}
+		try {
+			writer.join(1000);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * This method adds an event to the pending events, replacing a pending event
+	 * with the same key. Thereby only the latest change of each job and of the
+	 * system state is sent.
+	 * 
+	 * @param key
+	 *            The key identifying the changed object
+	 * @param name
+	 *            The name of the event
+	 * @param data
+	 *            The data of the event
+	 */
+	private void publish(String key, String name, Object data) {
+		if (clients.isEmpty() && connectingClients.get() == 0) {
+			return;
+		}
+
+		synchronized (pendingEvents) {
+			// the event is moved to the end, so the order of the events is kept
+			pendingEvents.remove(key);
+			if (pendingEvents.size() >= MAX_PENDING_EVENTS) {
+				// the complete queue is sent instead, which replaces the jobs of the clients
+				Object[] state = pendingEvents.get("state");
+				pendingEvents.clear();
+				if (state != null) {
+					pendingEvents.put("state", state);
+				}
+				isResyncPending = true;
+			}
+			if (!isResyncPending || !key.startsWith("job")) {
+				pendingEvents.put(key, new Object[] { name, data });
+			}
+			pendingEvents.notifyAll();
+		}
+	}
+
+	private void writeEvents() {
+		List<Object[]> events = new ArrayList<>();
+		List<HttpExchange> newClients = new ArrayList<>();
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+		long lastWrite = System.currentTimeMillis();
+		long lastProgress = lastWrite;
+		boolean closing = false;
+		while (!closing) {
+			boolean resync;
+			try {
+				synchronized (pendingEvents) {
+					long timeout = lastProgress + PROGRESS_INTERVAL - System.currentTimeMillis();
+					if (pendingEvents.isEmpty() && pendingClients.isEmpty() && !isResyncPending && !isClosing
+							&& timeout > 0) {
+						pendingEvents.wait(timeout);
+					}
+					events.addAll(pendingEvents.values());
+					pendingEvents.clear();
+					newClients.addAll(pendingClients);
+					pendingClients.clear();
+					resync = isResyncPending;
+					isResyncPending = false;
+					closing = isClosing;
+				}
+			} catch (InterruptedException ex) {
+				break;
+			}
+
+			if (resync) {
+				try {
+					writeEvent(buffer, "queue", new QueueItemResponse(root.getQueueModel().getAllUnfinishedJobs()));
+				} catch (JsonProcessingException | RuntimeException ex) {
+					log.error("Could not send the unfinished jobs: " + ex.getMessage());
+				}
+			}
+			for (Object[] event : events) {
+				try {
+					writeEvent(buffer, (String) event[0], event[1]);
+				} catch (JsonProcessingException ex) {
+					log.error("Could not serialize event " + event[0] + ": " + ex.getMessage());
+				}
+			}
+			events.clear();
+
+			long now = System.currentTimeMillis();
+			if (now - lastProgress >= PROGRESS_INTERVAL) {
+				lastProgress = now;
+				writeProgress(buffer);
+			}
+			if (buffer.size() == 0 && now - lastWrite >= HEARTBEAT_INTERVAL) {
+				buffer.write(HEARTBEAT, 0, HEARTBEAT.length);
+			}
+
+			if (buffer.size() > 0) {
+				broadcast(buffer.toByteArray());
+				buffer.reset();
+				lastWrite = now;
+			}
+
+			// the events published before have to be sent to the other clients first,
+			// since they are already contained in the initial state of the new clients
+			for (HttpExchange client : newClients) {
+				if (closing) {
+					connectingClients.decrementAndGet();
+					client.close();
+				} else {
+					connect(client);
+				}
+			}
+			newClients.clear();
+		}
+
+		for (Client client : clients) {
+			client.send(END);
+		}
+		clients.clear();
+	}
+
+	/**
+	 * This method passes the initial state to a new client and adds it to the
+	 * connected clients. Changes occurring while the initial state is read may be
+	 * sent to the client again afterwards. Since each event carries the complete
+	 * new state of a job or the system, this is harmless.
+	 * 
+	 * @param exchange
+	 *            The exchange of the new client
+	 */
+	private void connect(HttpExchange exchange) {
+		ByteArrayOutputStream initialState = new ByteArrayOutputStream();
+		try {
+			initialState.write(("retry: " + RECONNECTION_DELAY + "\n\n").getBytes(StandardCharsets.UTF_8));
+			ControlModel control = root.getControlModel();
+			if (control != null) {
+				writeEvent(initialState, "state", new ControlStateResponse(control.getCurrentSystemState()));
+			}
+			writeEvent(initialState, "queue", new QueueItemResponse(root.getQueueModel().getAllUnfinishedJobs()));
+
+			Client client = new Client(exchange);
+			client.send(initialState.toByteArray());
+			clients.add(client);
+			client.start();
+		} catch (IOException | RuntimeException ex) {
+			log.error("Could not send the initial state of the event stream: " + ex.getMessage());
+			exchange.close();
+		} finally {
+			connectingClients.decrementAndGet();
+		}
+	}
+
+	/**
+	 * This method writes the current entries of all jobs being processed, which
+	 * carry their progress, to the given buffer, if any clients are connected.
+	 * 
+	 * @param buffer
+	 *            The buffer the events shall be written to
+	 */
+	private void writeProgress(ByteArrayOutputStream buffer) {
+		if (clients.isEmpty()) {
+			return;
+		}
+
+		try {
+			for (QueueEntry entry : root.getQueueModel().getProcessingJobs()) {
+				writeEvent(buffer, "job", entry);
+			}
+		} catch (JsonProcessingException | RuntimeException ex) {
+			log.error("Could not send the progress of the jobs being processed: " + ex.getMessage());
+		}
+	}
+
+	private void broadcast(byte[] data) {
+		for (Client client : clients) {
+			if (!client.send(data)) {
+				clients.remove(client);
+			}
+		}
+	}
+
+	private static void writeEvent(ByteArrayOutputStream buffer, String name, Object data)
+			throws JsonProcessingException {
+		byte[] json = JsonMapper.getResponseWriter().writeValueAsBytes(data);
+		byte[] header = ("event: " + name + "\ndata: ").getBytes(StandardCharsets.UTF_8);
+		buffer.write(header, 0, header.length);
+		buffer.write(json, 0, json.length);
+		buffer.write('\n');
+		buffer.write('\n');
+	}
+
+	/**
+	 * This class represents a connected client of the event stream. The events
+	 * passed to a client are written to its connection by a thread of its own.
+	 * 
+	 */
+	private class Client {
+
+		private final HttpExchange exchange;
+		private final BlockingQueue<byte[]> backlog = new ArrayBlockingQueue<>(MAX_CLIENT_BACKLOG);
+		private final Thread sender;
+
+		private Client(HttpExchange exchange) {
+			this.exchange = exchange;
+			this.sender = new Thread(this::writeEvents, "event-stream-client");
+			this.sender.setDaemon(true);
+		}
+
+		private void start() {
+			sender.start();
+		}
+
+		/**
+		 * This method passes the given events to the thread writing to the client
+		 * without blocking. If the client has disconnected or doesn't keep up with the
+		 * events, its connection is closed instead.
+		 * 
+		 * @param data
+		 *            The serialized events or END to close the connection after the
+		 *            events passed before
+		 * @return true, if the events will be written, otherwise false
+		 */
+		private boolean send(byte[] data) {
+			if (!sender.isAlive() && sender.getState() != Thread.State.NEW) {
+				return false;
+			}
+			if (!backlog.offer(data)) {
+				log.info("Closing the event stream of host " + exchange.getRemoteAddress().getAddress().toString()
+						+ ", since it doesn't read its events.");
+				// a blocked write is aborted by closing the interruptible channel
+				sender.interrupt();
+				return false;
+			}
+			return true;
+		}
+
+		private void writeEvents() {
+			try {
+				OutputStream out = exchange.getResponseBody();
+				while (true) {
+					byte[] data = backlog.take();
+					if (data == END) {
+						break;
+					}
+					out.write(data);
+					out.flush();
+				}
+			} catch (IOException | InterruptedException ex) {
+				// the client has disconnected or has been dropped
+			} finally {
+				clients.remove(this);
+				exchange.close();
+			}
+		}
+	}
+}
@@ -1,18 +1,26 @@
 package de.uni_passau.visit.compression.network;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.databind.JsonMappingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 import de.uni_passau.visit.compression.data.CompressionJob;
 import de.uni_passau.visit.compression.data.QueueEntryId;
 import de.uni_passau.visit.compression.exceptions.QueueException;
+import de.uni_passau.visit.compression.models.AvoidedWorkCounter;
 import de.uni_passau.visit.compression.models.RootModel;
+import de.uni_passau.visit.compression.network.transaction.AvoidedWorkResponse;
+import de.uni_passau.visit.compression.network.transaction.BatchDispatchResponse;
 import de.uni_passau.visit.compression.network.transaction.DefaultResponse;
 import de.uni_passau.visit.compression.network.transaction.QueueItemResponse;
+import de.uni_passau.visit.compression.network.transaction.WaitStatisticsResponse;
 
 /**
  * This class represents a handler for API-requests regarding the job module.
@@ -23,6 +31,7 @@ import de.uni_passau.visit.compression.network.transaction.QueueItemResponse;
  *
  */
 public class JobHandler implements AbstractHandler {
+	private static final Logger log = LogManager.getLogger(JobHandler.class);
 	private final RootModel root;
 
 	/**
@@ -46,12 +55,30 @@ public class JobHandler implements AbstractHandler {
 				} else {
 					return new DefaultResponse(false, "Invalid method");
 				}
+			case "dispatch-batch":
+				if (method.equals("POST")) {
+					return handleJobBatchDispatch(postData);
+				} else {
+					return new DefaultResponse(false, "Invalid method");
+				}
 			case "queue":
 				if (method.equals("GET")) {
 					return handleJobQueue(postData);
 				} else {
 					return new DefaultResponse(false, "Invalid method");
 				}
+			case "wait-statistics":
+				if (method.equals("GET")) {
+					return new WaitStatisticsResponse(root.getQueueModel().getWaitStatistics());
+				} else {
+					return new DefaultResponse(false, "Invalid method");
+				}
+			case "avoided-work":
+				if (method.equals("GET")) {
+					return handleAvoidedWork();
+				} else {
+					return new DefaultResponse(false, "Invalid method");
+				}
 			case "cancel":
 				if (method.equals("DELETE")) {
 					return handleJobCancel(function);
@@ -68,7 +95,7 @@ public class JobHandler implements AbstractHandler {
 
 	private DefaultResponse handleJobDispatch(String postData)
 			throws JsonParseException, JsonMappingException, IOException {
-		CompressionJob job = new ObjectMapper().readValue(postData, CompressionJob.class);
+		CompressionJob job = JsonMapper.getMapper().readValue(postData, CompressionJob.class);
 		try {
 			root.getQueueModel().dispatchJob(job);
 		} catch (QueueException e) {
@@ -78,19 +105,49 @@ public class JobHandler implements AbstractHandler {
 		return new DefaultResponse(true, "Job dispatched.");
 	}
 
+	private DefaultResponse handleJobBatchDispatch(String postData)
+			throws JsonParseException, JsonMappingException, IOException {
+		List<CompressionJob> jobs = Arrays.asList(JsonMapper.getMapper().readValue(postData, CompressionJob[].class));
+		if (jobs.isEmpty()) {
+			return new DefaultResponse(false, "No jobs specified for dispatch.");
+		}
+
+		long start = System.nanoTime();
+		int[] jobIds;
+		try {
+			jobIds = root.getQueueModel().dispatchJobs(jobs);
+		} catch (QueueException e) {
+			return new DefaultResponse(false, e.getMessage());
+		}
+
+		BatchDispatchResponse response = new BatchDispatchResponse(jobIds, System.nanoTime() - start);
+		log.info(String.format(Locale.US, "Dispatched %d compression jobs in %d ms (%.1f jobs/s).", jobIds.length,
+				response.getDurationMillis(), response.getJobsPerSecond()));
+		return response;
+	}
+
 	private DefaultResponse handleJobQueue(String postData)
 			throws JsonParseException, JsonMappingException, IOException {
 		return new QueueItemResponse(root.getQueueModel().getAllUnfinishedJobs());
 	}
 
+	private DefaultResponse handleAvoidedWork() {
+		AvoidedWorkCounter counter = root.getQueueModel().getAvoidedWorkCounter();
+		return new AvoidedWorkResponse(counter.getCoalescedJobs(), counter.getSkippedJobs(),
+				counter.getSkippedLevels());
+	}
+
 	private DefaultResponse handleJobCancel(List<String> function)
 			throws JsonParseException, JsonMappingException, IOException {
 		QueueEntryId deletionEntry = null;
 		if (function.size() > 1) {
 			try {
 				deletionEntry = new QueueEntryId(Integer.parseInt(function.get(1)));
-				root.getQueueModel().cancelJob(deletionEntry.getId());
-				return new DefaultResponse(true, "Job cancelled.");
+				if (root.getQueueModel().cancelJob(deletionEntry.getId())) {
+					return new DefaultResponse(true, "Job cancelled.");
+				} else {
+					return new DefaultResponse(false, "No unfinished job with the specified id.");
+				}
 			} catch (NumberFormatException ex) {
 				return new DefaultResponse(false, "Non-integer id specified for deletion.");
 			}
@@ -0,0 +1,43 @@
+package de.uni_passau.visit.compression.network;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * This class holds the Jackson object mapper shared by all API-handlers.
+ * Creating an object mapper is expensive, since it has to introspect the
+ * classes it maps on first use and caches the result. Once configured, object
+ * mappers and object writers are thread-safe, so a single instance can serve
+ * all requests handled in parallel.
+ * 
+ * @author agent
+ *
+ */
+public final class JsonMapper {
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+	private static final ObjectWriter RESPONSE_WRITER = MAPPER.writer();
+
+	private JsonMapper() {
+	}
+
+	/**
+	 * This method returns the shared object mapper, which shall be used to parse
+	 * the data sent along with API-requests.
+	 * 
+	 * @return Returns the shared object mapper
+	 */
+	public static ObjectMapper getMapper() {
+		return MAPPER;
+	}
+
+	/**
+	 * This method returns the shared object writer, which shall be used to
+	 * serialize the responses to API-requests.
+	 * 
+	 * @return Returns the shared object writer
+	 */
+	public static ObjectWriter getResponseWriter() {
+		return RESPONSE_WRITER;
+	}
+}
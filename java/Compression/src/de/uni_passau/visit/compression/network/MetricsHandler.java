@@ -0,0 +1,217 @@
+package de.uni_passau.visit.compression.network;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import de.uni_passau.visit.compression.data.JobProgress;
+import de.uni_passau.visit.compression.data.ProcessingStep;
+import de.uni_passau.visit.compression.data.QueueEntry;
+import de.uni_passau.visit.compression.logic.util.Histogram;
+import de.uni_passau.visit.compression.models.CompressionMetrics;
+import de.uni_passau.visit.compression.models.MetadataOutbox;
+import de.uni_passau.visit.compression.models.QueueModel;
+import de.uni_passau.visit.compression.models.RootModel;
+
+/**
+ * This class handles requests to the metrics endpoint of the compression
+ * system, which exports the metrics collected by the @see CompressionMetrics
+ * as well as the state of the queue, the heap and the garbage collectors in
+ * the text format of Prometheus. Unlike the other API-endpoints it doesn't
+ * answer in JSON, so monitoring systems can scrape it directly.
+ * 
+ * @author agent
+ *
+ */
+public class MetricsHandler implements HttpHandler {
+
+	private static final Logger log = LogManager.getLogger(MetricsHandler.class);
+
+	private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+	private final RootModel root;
+
+	/**
+	 * This constructor creates a new metrics handler based on the given root
+	 * model.
+	 * 
+	 * @param root
+	 *            The root model used as base for the new metrics handler
+	 */
+	public MetricsHandler(RootModel root) {
+		this.root = root;
+	}
+
+	@Override
+	public void handle(HttpExchange he) {
+		try {
+			if (!RestHandler.isAccessAllowed(root, he)) {
+				he.sendResponseHeaders(403, -1);
+				log.info("Access from host " + he.getRemoteAddress().getAddress().toString() + " has been denied.");
+				return;
+			}
+
+			if (!"GET".equals(he.getRequestMethod().toUpperCase())) {
+				he.getResponseHeaders().set("Allow", "GET");
+				he.sendResponseHeaders(405, -1);
+				return;
+			}
+
+			byte[] body = export().getBytes(StandardCharsets.UTF_8);
+			he.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+			he.sendResponseHeaders(200, body.length);
+			he.getResponseBody().write(body);
+		} catch (IOException ex) {
+			// assume the client to have disconnected
+		} catch (Throwable ex) {
+			log.error("Error while exporting metrics: " + ex.getMessage());
+		} finally {
+			he.close();
+		}
+	}
+
+	/**
+	 * This method exports all metrics in the text format of Prometheus.
+	 * 
+	 * @return Returns the exported metrics
+	 */
+	private String export() {
+		StringBuilder out = new StringBuilder(8192);
+		CompressionMetrics metrics = root.getMetrics();
+		QueueModel queue = root.getQueueModel();
+
+		writeHeader(out, "compression_step_duration_seconds", "histogram",
+				"Duration of the processing steps of compression jobs.");
+		for (ProcessingStep step : ProcessingStep.values()) {
+			writeHistogram(out, "compression_step_duration_seconds", "step", step.getLabel(),
+					metrics.getStepDurations(step));
+		}
+
+		writeHeader(out, "compression_queue_claim_duration_seconds", "histogram",
+				"Latency of claiming the next job from the queue.");
+		writeHistogram(out, "compression_queue_claim_duration_seconds", null, null, metrics.getClaimLatency());
+
+		Collection<QueueEntry> processing = queue.getProcessingJobs();
+		writeHeader(out, "compression_queue_jobs", "gauge", "Count of unfinished jobs per state.");
+		writeSample(out, "compression_queue_jobs", "state", "enqueued", queue.getEnqueuedJobCount());
+		writeSample(out, "compression_queue_jobs", "state", "processing", processing.size());
+
+		writeHeader(out, "compression_queue_finished_jobs", "gauge", "Count of finished jobs kept in the archive.");
+		writeSample(out, "compression_queue_finished_jobs", null, null, queue.getProcessedJobCount());
+
+		writeHeader(out, "compression_edge_collapses_total", "counter",
+				"Count of edge collapses performed by all decimations.");
+		writeSample(out, "compression_edge_collapses_total", null, null, metrics.getEdgeCollapses());
+
+		double collapsesPerSecond = 0;
+		for (QueueEntry entry : processing) {
+			JobProgress progress = entry.getProgress();
+			if (progress != null) {
+				collapsesPerSecond += progress.getCollapsesPerSecond();
+			}
+		}
+		writeHeader(out, "compression_edge_collapses_per_second", "gauge",
+				"Average decimation rate of all jobs being decimated.");
+		writeSample(out, "compression_edge_collapses_per_second", null, null, collapsesPerSecond);
+
+		writeHeader(out, "compression_metadb_request_duration_seconds", "histogram",
+				"Duration of the single requests to the meta database.");
+		writeHistogram(out, "compression_metadb_request_duration_seconds", null, null, metrics.getMetadbRequests());
+
+		writeHeader(out, "compression_metadb_retries_total", "counter",
+				"Count of requests to the meta database, which have been retried.");
+		writeSample(out, "compression_metadb_retries_total", null, null, metrics.getMetadbRetries());
+
+		writeHeader(out, "compression_metadb_failures_total", "counter",
+				"Count of requests to the meta database, which have failed despite all retries.");
+		writeSample(out, "compression_metadb_failures_total", null, null, metrics.getMetadbFailures());
+
+		writeHeader(out, "compression_prefetch_total", "counter",
+				"Count of started jobs, whose technical meta data have been prefetched or not.");
+		writeSample(out, "compression_prefetch_total", "result", "hit", metrics.getPrefetchHits());
+		writeSample(out, "compression_prefetch_total", "result", "miss", metrics.getPrefetchMisses());
+
+		MetadataOutbox outbox = queue.getMetadataOutbox();
+		writeHeader(out, "compression_metadata_outbox_depth", "gauge",
+				"Count of technical meta data updates, which haven't been delivered to the meta database.");
+		writeSample(out, "compression_metadata_outbox_depth", null, null, outbox.getDepth());
+
+		writeHeader(out, "compression_metadata_outbox_lag_seconds", "gauge",
+				"Age of the oldest technical meta data update, which hasn't been delivered.");
+		writeSample(out, "compression_metadata_outbox_lag_seconds", null, null, outbox.getLagSeconds());
+
+		MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+		writeHeader(out, "jvm_memory_heap_bytes", "gauge", "Heap memory of the Java runtime.");
+		writeSample(out, "jvm_memory_heap_bytes", "area", "used", heap.getUsed());
+		writeSample(out, "jvm_memory_heap_bytes", "area", "committed", heap.getCommitted());
+		writeSample(out, "jvm_memory_heap_bytes", "area", "max", heap.getMax());
+
+		writeHeader(out, "jvm_gc_collections_total", "counter", "Count of collections per garbage collector.");
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			writeSample(out, "jvm_gc_collections_total", "gc", collector.getName(), collector.getCollectionCount());
+		}
+
+		writeHeader(out, "jvm_gc_collection_seconds_total", "counter",
+				"Accumulated collection time per garbage collector.");
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			writeSample(out, "jvm_gc_collection_seconds_total", "gc", collector.getName(),
+					collector.getCollectionTime() / 1000.0);
+		}
+
+		writeHeader(out, "jvm_gc_pause_seconds", "histogram", "Duration of the pauses of the garbage collectors.");
+		writeHistogram(out, "jvm_gc_pause_seconds", null, null, metrics.getGcPauses());
+
+		return out.toString();
+	}
+
+	private static void writeHeader(StringBuilder out, String name, String type, String help) {
+		out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+		out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+	}
+
+	private static void writeSample(StringBuilder out, String name, String label, String value, double sample) {
+		out.append(name);
+		if (label != null) {
+			out.append('{').append(label).append("=\"").append(escape(value)).append("\"}");
+		}
+		out.append(' ').append(formatNumber(sample)).append('\n');
+	}
+
+	private static void writeHistogram(StringBuilder out, String name, String label, String value,
+			Histogram histogram) {
+		String labels = label == null ? "" : label + "=\"" + escape(value) + "\",";
+		double[] bounds = histogram.getBounds();
+		long[] counts = histogram.getCounts();
+
+		long cumulative = 0;
+		for (int i = 0; i < counts.length; ++i) {
+			cumulative += counts[i];
+			String bound = i < bounds.length ? formatNumber(bounds[i]) : "+Inf";
+			out.append(name).append("_bucket{").append(labels).append("le=\"").append(bound).append("\"} ")
+					.append(cumulative).append('\n');
+		}
+
+		String suffix = label == null ? "" : "{" + labels.substring(0, labels.length() - 1) + "}";
+		out.append(name).append("_sum").append(suffix).append(' ').append(formatNumber(histogram.getSumSeconds()))
+				.append('\n');
+		out.append(name).append("_count").append(suffix).append(' ').append(cumulative).append('\n');
+	}
+
+	private static String formatNumber(double number) {
+		return number == Math.rint(number) && Math.abs(number) < 1E15 ? Long.toString((long) number)
+				: Double.toString(number);
+	}
+
+	private static String escape(String value) {
+		return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+}
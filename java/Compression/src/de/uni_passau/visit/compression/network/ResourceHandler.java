@@ -1,11 +1,14 @@
 package de.uni_passau.visit.compression.network;
 
-import java.io.ByteArrayOutputStream;
-import java.io.InputStream;
+import java.io.File;
+import java.io.IOException;
 import java.io.OutputStream;
+import java.net.URISyntaxException;
 import java.net.URL;
-import java.net.URLConnection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+import com.sun.net.httpserver.Headers;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 
@@ -13,61 +16,148 @@ import com.sun.net.httpserver.HttpHandler;
  * This class can be used to handle and answer incoming resource requests. It
  * delivers all kinds of static content, in particular HTML-, CSS-, and
  * JS-files. API-requests however are handled by the @see RestHandler class.
- *
+ * 
+ * Each resource is loaded from the classpath only once on its first request
+ * and kept in memory afterwards (@see StaticResource), since the resources
+ * can't change while the compression system is running. Compressible resources
+ * are delivered gzip-compressed to clients accepting it. Clients can revalidate
+ * their cached copies using the ETag- or Last-Modified-header and receive an
+ * empty response, if the resource hasn't changed. The versioned third-party
+ * libraries may be cached by clients without revalidation for a week.
+ * 
  * @author Kris Raich, Florian Schlenker
  */
 public class ResourceHandler implements HttpHandler {
 
 	private static final int RESPONSE_STATUS_OK = 200;
+	private static final int RESPONSE_STATUS_NOT_MODIFIED = 304;
 	private static final int RESPONSE_STATUS_NOT_FOUND = 404;
 	private static final int RESPONSE_STATUS_FORBIDDEN_METHOD = 405;
 	private static final String SUPPORTED_METHOD = "GET";
 	private static final String RESOURCE_ROOT = "de/uni_passau/visit/compression/website";
+	private static final String NOT_FOUND_PAGE = "/404.html";
+
+	private static final String CACHE_CONTROL_REVALIDATE = "no-cache";
+	private static final String CACHE_CONTROL_LIBRARIES = "public, max-age=604800";
+
+	private final Map<String, StaticResource> cache = new ConcurrentHashMap<>();
 
 	@Override
 	public void handle(HttpExchange he) {
 		try {
 			if (he.getRequestMethod().toUpperCase().equals(SUPPORTED_METHOD)) {
-				String reqURI = he.getRequestURI().toString();
-				if ("/".equals(reqURI)) {
-					reqURI = "/index.html";
+				String reqPath = he.getRequestURI().getPath();
+				if ("/".equals(reqPath)) {
+					reqPath = "/index.html";
 				}
 
-				int httpStatus;
-				URL url = this.getClass().getClassLoader().getResource(RESOURCE_ROOT + reqURI);
+				int httpStatus = RESPONSE_STATUS_OK;
+				StaticResource resource = getResource(reqPath);
 
-				if (url == null) {
-					url = this.getClass().getClassLoader().getResource(RESOURCE_ROOT + "/404.html");
+				if (resource == null) {
+					reqPath = NOT_FOUND_PAGE;
+					resource = getResource(reqPath);
 					httpStatus = RESPONSE_STATUS_NOT_FOUND;
-				} else {
-					httpStatus = RESPONSE_STATUS_OK;
 				}
 
-				URLConnection urlCon = url.openConnection();
-				InputStream is = urlCon.getInputStream();
+				Headers requestHeaders = he.getRequestHeaders();
+				Headers responseHeaders = he.getResponseHeaders();
+				String acceptEncoding = requestHeaders.getFirst("Accept-Encoding");
+				boolean gzip = resource.getGzipContent() != null && acceptEncoding != null
+						&& acceptEncoding.contains("gzip");
+				String etag = gzip ? resource.getGzipEtag() : resource.getEtag();
+
+				responseHeaders.set("Content-Type", resource.getContentType());
+				if (resource.getGzipContent() != null) {
+					responseHeaders.set("Vary", "Accept-Encoding");
+				}
 
-				ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+				if (httpStatus == RESPONSE_STATUS_OK) {
+					responseHeaders.set("ETag", etag);
+					if (resource.getLastModified() != null) {
+						responseHeaders.set("Last-Modified", resource.getLastModified());
+					}
+					responseHeaders.set("Cache-Control",
+							isLibrary(reqPath) ? CACHE_CONTROL_LIBRARIES : CACHE_CONTROL_REVALIDATE);
 
-				int nRead;
-				byte[] data = new byte[1024];
+					if (isNotModified(requestHeaders, resource, etag)) {
+						he.sendResponseHeaders(RESPONSE_STATUS_NOT_MODIFIED, -1);
+						return;
+					}
+				}
 
-				while ((nRead = is.read(data, 0, data.length)) != -1) {
-					buffer.write(data, 0, nRead);
+				byte[] content = gzip ? resource.getGzipContent() : resource.getContent();
+				if (gzip) {
+					responseHeaders.set("Content-Encoding", "gzip");
 				}
 
-				he.sendResponseHeaders(httpStatus, buffer.size());
+				he.sendResponseHeaders(httpStatus, content.length);
 				OutputStream os = he.getResponseBody();
-				is.close();
-				os.write(buffer.toByteArray());
+				os.write(content);
 				os.close();
 			} else {
 				he.getResponseHeaders().set("Allow", SUPPORTED_METHOD);
-				he.getResponseHeaders().set("Connection", "close");
-				he.sendResponseHeaders(RESPONSE_STATUS_FORBIDDEN_METHOD, 0);
+				he.sendResponseHeaders(RESPONSE_STATUS_FORBIDDEN_METHOD, -1);
 			}
 		} catch (Throwable t) {
 			t.printStackTrace();
+		} finally {
+			he.close();
+		}
+	}
+
+	/**
+	 * This method returns the resource at the given path, which is loaded from
+	 * the classpath on the first request. Missing resources aren't cached, since
+	 * arbitrary paths may be requested.
+	 * 
+	 * @param path
+	 *            The requested path
+	 * @return Returns the resource or null, if no resource exists at the path
+	 * @throws IOException
+	 *             if the resource could not be read
+	 */
+	private StaticResource getResource(String path) throws IOException {
+		StaticResource resource = cache.get(path);
+		if (resource != null) {
+			return resource;
+		}
+
+		if (path.contains("..")) {
+			return null;
+		}
+
+		URL url = this.getClass().getClassLoader().getResource(RESOURCE_ROOT + path);
+		if (url == null || path.endsWith("/") || isDirectory(url)) {
+			return null;
 		}
+
+		// concurrent first requests may load a resource twice, which is harmless
+		resource = StaticResource.load(url);
+		cache.put(path, resource);
+		return resource;
+	}
+
+	private static boolean isDirectory(URL url) {
+		try {
+			return "file".equals(url.getProtocol()) && new File(url.toURI()).isDirectory();
+		} catch (URISyntaxException ex) {
+			return false;
+		}
+	}
+
+	private static boolean isNotModified(Headers requestHeaders, StaticResource resource, String etag) {
+		String ifNoneMatch = requestHeaders.getFirst("If-None-Match");
+		if (ifNoneMatch != null) {
+			return ifNoneMatch.trim().equals("*") || ifNoneMatch.contains(etag);
+		}
+
+		String ifModifiedSince = requestHeaders.getFirst("If-Modified-Since");
+		return ifModifiedSince != null && ifModifiedSince.equals(resource.getLastModified());
+	}
+
+	private static boolean isLibrary(String path) {
+		return path.startsWith("/vendors/") || path.startsWith("/3rdparty/");
 	}
 
 }
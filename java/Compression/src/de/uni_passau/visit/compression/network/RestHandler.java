@@ -4,6 +4,7 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -13,8 +14,6 @@ import org.apache.logging.log4j.Logger;
 
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.databind.JsonMappingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ObjectWriter;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 
@@ -27,7 +26,11 @@ import de.uni_passau.visit.compression.network.transaction.DefaultResponse;
  * the addressed path) the request will be dispatched to a corresponding
  * handler. For handling static web resource requests use @see ResourceHandler
  * instead.
- *
+ * 
+ * Requests may be handled in parallel by multiple threads. Responses are sent
+ * with a known content length and the exchange is always closed, so clients can
+ * keep the connection alive and reuse it for further requests.
+ * 
  * @author Kris Raich, Florian Schlenker
  */
 public class RestHandler implements HttpHandler {
@@ -50,13 +53,11 @@ public class RestHandler implements HttpHandler {
 	public void handle(HttpExchange he) {
 		try {
 			// OutputStream os = he.getResponseBody();
-			List<String> whitelist = Arrays.asList(root.getConfigModel().getApiAccessWhitelist());
-
-			if (whitelist.contains(he.getRemoteAddress().getAddress().toString()) || whitelist.contains("*")) {
+			if (isAccessAllowed(root, he)) {
 				// read post data
 				InputStream input = he.getRequestBody();
 				StringBuilder putPostDataBuilder = new StringBuilder();
-				new BufferedReader(new InputStreamReader(input)).lines()
+				new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8)).lines()
 						.forEach((String s) -> putPostDataBuilder.append(s + "\n"));
 
 				String putPostData = putPostDataBuilder.toString();
@@ -75,28 +76,12 @@ public class RestHandler implements HttpHandler {
 				DefaultResponse response = handleAction(method, function, putPostData);
 
 				// translate response to json
-				ObjectWriter ow = new ObjectMapper().writer().withDefaultPrettyPrinter();
-				String json = ow.writeValueAsString(response);
-				he.getResponseHeaders().set("Content-Type", "application/json");
-				he.getResponseHeaders().set("Connection", "close");
-				he.sendResponseHeaders(200, json.getBytes().length);
-				he.getResponseBody().write(json.getBytes());
-				he.getResponseBody().flush();
-
-				/*
-				 * the following code could fix encoding problems, but doesn't seem to be
-				 * necessary
-				 */
-				/*
-				 * final String encoding = "UTF-8"; he.getResponseHeaders().set("Content-Type",
-				 * "application/json; charset=" + encoding); ByteOutputStream byteStream = new
-				 * ByteOutputStream(1); Writer streamWriter = new OutputStreamWriter(byteStream,
-				 * encoding); streamWriter.write(json); streamWriter.flush(); byte[] bytes =
-				 * byteStream.getBytes(); he.sendResponseHeaders(200, bytes.length);
-				 * he.getResponseBody().write(bytes); streamWriter.close();
-				 */
+				byte[] json = JsonMapper.getResponseWriter().writeValueAsBytes(response);
+				he.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+				he.sendResponseHeaders(200, json.length);
+				he.getResponseBody().write(json);
 			} else {
-				he.sendResponseHeaders(403, 0);
+				he.sendResponseHeaders(403, -1);
 				log.info("Access from host " + he.getRemoteAddress().getAddress().toString() + " has been denied.");
 			}
 
@@ -106,9 +91,27 @@ public class RestHandler implements HttpHandler {
 			// assume web server to be shut down
 		} catch (Throwable ex) {
 			ex.printStackTrace();
+		} finally {
+			he.close();
 		}
 	}
 
+	/**
+	 * This method returns whether the client of the given exchange is allowed to
+	 * access the API according to the configured whitelist.
+	 * 
+	 * @param root
+	 *            The root model providing the configuration
+	 * @param he
+	 *            The exchange of the request
+	 * @return Returns true, if the client is allowed to access the API, otherwise
+	 *         false
+	 */
+	static boolean isAccessAllowed(RootModel root, HttpExchange he) {
+		List<String> whitelist = Arrays.asList(root.getConfigModel().getApiAccessWhitelist());
+		return whitelist.contains(he.getRemoteAddress().getAddress().toString()) || whitelist.contains("*");
+	}
+
 	private DefaultResponse handleAction(String method, List<String> function, String postData) {
 		if (function.size() > 0) {
 			String module = function.get(0);
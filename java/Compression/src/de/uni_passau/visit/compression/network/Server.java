@@ -1,13 +1,19 @@
 package de.uni_passau.visit.compression.network;
 
 import java.io.IOException;
+import java.lang.reflect.Method;
 import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import com.sun.net.httpserver.HttpServer;
 
+import de.uni_passau.visit.compression.models.ConfigModel;
 import de.uni_passau.visit.compression.models.RootModel;
 
 /**
@@ -15,16 +21,27 @@ import de.uni_passau.visit.compression.models.RootModel;
  * is responsible for the whole network communication. Depending on the type of
  * incoming requests (api calls vs. static resources) the treatment of these
  * requests will be delegated to different handlers ( @see RestHandler, @see
- * ResourceHandler ).
- *
+ * ResourceHandler ). Changes of the job queue and the system state are pushed
+ * to clients subscribed to the event stream ( @see EventStreamHandler ).
+ * Monitoring systems can scrape the metrics of the compression system ( @see
+ * MetricsHandler ).
+ * 
+ * Requests are handled in parallel, so a slow request does not delay the
+ * others. Depending on the configuration and the Java runtime each request is
+ * either handled by its own virtual thread or by one of a fixed count of worker
+ * threads.
+ * 
  * @author Kris Raich, Florian Schlenkers
  */
 public class Server {
 
 	private static final Logger log = LogManager.getLogger(RootModel.class);
+	private static final String NO_DELAY_PROPERTY = "sun.net.httpserver.nodelay";
 
 	private final RootModel root;
+	private final EventStreamHandler eventStream;
 	private HttpServer server;
+	private ExecutorService executor;
 
 	/**
 	 * This constructor creates a new server instance, which won't be started
@@ -35,6 +52,7 @@ public class Server {
 	 */
 	public Server(RootModel root) {
 		this.root = root;
+		this.eventStream = new EventStreamHandler(root);
 	}
 
 	/**
@@ -46,16 +64,27 @@ public class Server {
 	 *             when there occurs an error during the server startup
 	 */
 	public void start(final int port) throws IOException {
+		if (System.getProperty(NO_DELAY_PROPERTY) == null) {
+			// without TCP_NODELAY each response on a kept-alive connection is delayed by
+			// the interaction of Nagle's algorithm and delayed acknowledgements
+			System.setProperty(NO_DELAY_PROPERTY, "true");
+		}
+
 		server = HttpServer.create(new InetSocketAddress(port), 0);
 		server.createContext("/", new ResourceHandler());
 		server.createContext("/api/", new RestHandler(root));
-		server.setExecutor(null); // creates a default executor
+		server.createContext("/api/events", eventStream);
+		server.createContext("/api/metrics", new MetricsHandler(root));
+		executor = createExecutor(root.getConfigModel());
+		server.setExecutor(executor);
 		server.start();
 
 		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
 			try {
 				log.info("Web server shutting down.");
+				eventStream.close();
 				server.stop(0);
+				executor.shutdownNow();
 			} catch (Throwable e) {
 				log.error("Error during web server shutdown: " + e.getMessage());
 			}
@@ -71,7 +100,43 @@ public class Server {
 	 */
 	public void stop() {
 		if (server != null) {
+			eventStream.close();
 			server.stop(5);
+			executor.shutdown();
 		}
 	}
+
+	/**
+	 * This method returns the handler of the event stream, which has to be
+	 * notified about all changes that shall be pushed to the clients.
+	 * 
+	 * @return Returns the handler of the event stream
+	 */
+	public EventStreamHandler getEventStream() {
+		return eventStream;
+	}
+
+	private ExecutorService createExecutor(ConfigModel config) {
+		if (config.getHttpVirtualThreads()) {
+			try {
+				// virtual threads are only available since Java 21
+				Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+				ExecutorService virtualThreadExecutor = (ExecutorService) factory.invoke(null);
+				log.info("Web server handles requests using virtual threads.");
+				return virtualThreadExecutor;
+			} catch (ReflectiveOperationException ex) {
+				log.info("Virtual threads are not supported by the Java runtime. Using worker threads instead.");
+			}
+		}
+
+		int threads = config.getHttpWorkerThreads();
+		AtomicInteger threadNumber = new AtomicInteger();
+		ThreadFactory threadFactory = (Runnable r) -> {
+			Thread thread = new Thread(r, "http-worker-" + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+		log.info("Web server handles requests using " + threads + " worker threads.");
+		return Executors.newFixedThreadPool(threads, threadFactory);
+	}
 }
@@ -5,7 +5,6 @@ import java.util.List;
 
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.databind.JsonMappingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 import de.uni_passau.visit.compression.data.ConfigTransfer;
 import de.uni_passau.visit.compression.exceptions.InvalidConfigurationException;
@@ -59,7 +58,7 @@ public class SettingsHandler implements AbstractHandler {
 
 	private DefaultResponse handleConfigUpdate(String postData)
 			throws JsonParseException, JsonMappingException, IOException {
-		ConfigTransfer update = new ObjectMapper().readValue(postData, ConfigTransfer.class);
+		ConfigTransfer update = JsonMapper.getMapper().readValue(postData, ConfigTransfer.class);
 		try {
 			root.getConfigModel().updateConfiguration(update);
 			return new DefaultResponse(true, "Configuration updated.");
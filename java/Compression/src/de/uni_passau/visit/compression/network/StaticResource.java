@@ -0,0 +1,209 @@
+package de.uni_passau.visit.compression.network;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * This class represents a static web resource, which has been loaded into
+ * memory once, so it can be delivered by the @see ResourceHandler without
+ * accessing the classpath again. Besides the content itself it holds a
+ * gzip-compressed variant of the content, if the resource is compressible, and
+ * the validators used for conditional requests. All properties are read-only.
+ * 
+ * @author agent
+ *
+ */
+public class StaticResource {
+
+	private static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+	private static final Map<String, String> CONTENT_TYPES = new HashMap<>();
+	private static final DateTimeFormatter HTTP_DATE_FORMAT = DateTimeFormatter.RFC_1123_DATE_TIME
+			.withZone(ZoneOffset.UTC);
+
+	// compressing very small resources doesn't pay off due to the gzip overhead
+	private static final int MIN_COMPRESSIBLE_SIZE = 256;
+
+	static {
+		CONTENT_TYPES.put("html", "text/html; charset=UTF-8");
+		CONTENT_TYPES.put("css", "text/css; charset=UTF-8");
+		CONTENT_TYPES.put("js", "application/javascript; charset=UTF-8");
+		CONTENT_TYPES.put("json", "application/json; charset=UTF-8");
+		CONTENT_TYPES.put("map", "application/json; charset=UTF-8");
+		CONTENT_TYPES.put("txt", "text/plain; charset=UTF-8");
+		CONTENT_TYPES.put("svg", "image/svg+xml");
+		CONTENT_TYPES.put("png", "image/png");
+		CONTENT_TYPES.put("jpg", "image/jpeg");
+		CONTENT_TYPES.put("jpeg", "image/jpeg");
+		CONTENT_TYPES.put("gif", "image/gif");
+		CONTENT_TYPES.put("ico", "image/x-icon");
+		CONTENT_TYPES.put("woff", "font/woff");
+		CONTENT_TYPES.put("woff2", "font/woff2");
+		CONTENT_TYPES.put("ttf", "font/ttf");
+		CONTENT_TYPES.put("otf", "font/otf");
+		CONTENT_TYPES.put("eot", "application/vnd.ms-fontobject");
+	}
+
+	private final byte[] content;
+	private final byte[] gzipContent;
+	private final String contentType;
+	private final String etag;
+	private final String lastModified;
+
+	private StaticResource(byte[] content, byte[] gzipContent, String contentType, String etag,
+			String lastModified) {
+		this.content = content;
+		this.gzipContent = gzipContent;
+		this.contentType = contentType;
+		this.etag = etag;
+		this.lastModified = lastModified;
+	}
+
+	/**
+	 * This method loads the resource at the given URL into memory. If its content
+	 * type is compressible, the gzip-compressed variant is computed as well and
+	 * kept, if it is smaller than the content.
+	 * 
+	 * @param url
+	 *            The URL of the resource on the classpath
+	 * @return Returns the loaded resource
+	 * @throws IOException
+	 *             if the resource could not be read
+	 */
+	public static StaticResource load(URL url) throws IOException {
+		URLConnection connection = url.openConnection();
+		byte[] content;
+		try (InputStream in = connection.getInputStream()) {
+			ByteArrayOutputStream buffer = new ByteArrayOutputStream(Math.max(connection.getContentLength(), 1024));
+			byte[] data = new byte[65536];
+			int read;
+			while ((read = in.read(data)) != -1) {
+				buffer.write(data, 0, read);
+			}
+			content = buffer.toByteArray();
+		}
+
+		String path = url.getPath();
+		String extension = path.substring(path.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+		String contentType = CONTENT_TYPES.getOrDefault(extension, DEFAULT_CONTENT_TYPE);
+
+		byte[] gzipContent = null;
+		if (content.length >= MIN_COMPRESSIBLE_SIZE && isCompressible(contentType)) {
+			byte[] compressed = gzip(content);
+			if (compressed.length < content.length) {
+				gzipContent = compressed;
+			}
+		}
+
+		long modified = connection.getLastModified();
+		String lastModified = modified > 0 ? HTTP_DATE_FORMAT.format(Instant.ofEpochMilli(modified / 1000L * 1000L))
+				: null;
+
+		return new StaticResource(content, gzipContent, contentType, computeEtag(content), lastModified);
+	}
+
+	private static boolean isCompressible(String contentType) {
+		return contentType.startsWith("text/") || contentType.startsWith("application/javascript")
+				|| contentType.startsWith("application/json") || contentType.equals("image/svg+xml")
+				|| contentType.equals("image/x-icon") || contentType.equals("font/ttf")
+				|| contentType.equals("font/otf") || contentType.equals("application/vnd.ms-fontobject");
+	}
+
+	private static byte[] gzip(byte[] content) throws IOException {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream(content.length / 3);
+		try (GZIPOutputStream out = new GZIPOutputStream(buffer, 65536) {
+			{
+				def.setLevel(Deflater.BEST_COMPRESSION);
+			}
+		}) {
+			out.write(content);
+		}
+		return buffer.toByteArray();
+	}
+
+	private static String computeEtag(byte[] content) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-1").digest(content);
+			StringBuilder etag = new StringBuilder("\"");
+			for (int i = 0; i < 10; ++i) {
+				etag.append(String.format("%02x", digest[i]));
+			}
+			return etag.append('"').toString();
+		} catch (NoSuchAlgorithmException ex) {
+			// every Java runtime has to support SHA-1
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	/**
+	 * This method returns the content of the resource.
+	 * 
+	 * @return Returns the uncompressed content
+	 */
+	public byte[] getContent() {
+		return content;
+	}
+
+	/**
+	 * This method returns the gzip-compressed content of the resource.
+	 * 
+	 * @return Returns the compressed content or null, if the resource isn't
+	 *         compressible
+	 */
+	public byte[] getGzipContent() {
+		return gzipContent;
+	}
+
+	/**
+	 * This method returns the value of the Content-Type header of the resource.
+	 * 
+	 * @return Returns the content type
+	 */
+	public String getContentType() {
+		return contentType;
+	}
+
+	/**
+	 * This method returns the entity tag of the uncompressed content. The entity
+	 * tag of the compressed content is derived from it by @see
+	 * #getGzipEtag().
+	 * 
+	 * @return Returns the quoted entity tag
+	 */
+	public String getEtag() {
+		return etag;
+	}
+
+	/**
+	 * This method returns the entity tag of the gzip-compressed content, which
+	 * has to differ from the one of the uncompressed content.
+	 * 
+	 * @return Returns the quoted entity tag of the compressed content
+	 */
+	public String getGzipEtag() {
+		return etag.substring(0, etag.length() - 1) + "-gz\"";
+	}
+
+	/**
+	 * This method returns the time of the last modification of the resource
+	 * formatted as HTTP-date.
+	 * 
+	 * @return Returns the time of the last modification or null, if it is
+	 *         unknown
+	 */
+	public String getLastModified() {
+		return lastModified;
+	}
+}
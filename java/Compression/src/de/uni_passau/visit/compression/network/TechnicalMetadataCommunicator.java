@@ -1,33 +1,50 @@
 package de.uni_passau.visit.compression.network;
 
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.concurrent.TimeUnit;
 
-import org.apache.commons.io.IOUtils;
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpHeaders;
 import org.apache.http.HttpStatus;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPut;
+import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.utils.URIBuilder;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import de.uni_passau.visit.compression.data.TechnicalMetadata;
 import de.uni_passau.visit.compression.exceptions.InvalidTechnicalMetaDataException;
+import de.uni_passau.visit.compression.exceptions.JobCancelledException;
 import de.uni_passau.visit.compression.exceptions.TechnicalMetadataNotFoundException;
+import de.uni_passau.visit.compression.logic.util.CancellationToken;
+import de.uni_passau.visit.compression.logic.util.RetryBackoff;
+import de.uni_passau.visit.compression.models.CompressionMetrics;
 import de.uni_passau.visit.compression.models.ConfigModel;
 
 /**
  * This class provides methods to retrieve or to store technical meta data in
  * the ViSIT meta database.
  * 
+ * All requests are sent by a single HTTP-client, whose connections are pooled
+ * and kept alive, so subsequent requests of all workers reuse the established
+ * (TLS-)connections. Requests failing due to a network error or an error of the
+ * server (status 5xx) are repeated after an exponentially growing, randomized
+ * delay, so that multiple workers don't retry in lockstep. The response of
+ * each request is consumed completely, otherwise its connection couldn't be
+ * reused.
+ * 
  * @author Florian Schlenker
  *
  */
@@ -38,11 +55,17 @@ public class TechnicalMetadataCommunicator {
 	private static final String DEFAULT_ENCODING = "UTF-8";
 	private static final String DEFAULT_PAYLOAD_CONTENT_TYPE = "text/json";
 	private static final String API_ENDPOINT_MEDIAID_PARAM = "id";
+	private static final int VALIDATE_AFTER_INACTIVITY_MILLIS = 2000;
+	private static final long MAX_IDLE_SECONDS = 60;
+	private static final long MAX_RETRY_DELAY_MILLIS = 30000;
+	private static final long RETRY_WAIT_SLICE_MILLIS = 200;
 
 	// object uid: http://visit.de/data/5c8929297f307
 	// media uid: http://visit.de/metadb/7764408c-1f7e-4269-8153-05d4a6129b4c
 
 	private final ConfigModel config;
+	private final CompressionMetrics metrics;
+	private final CloseableHttpClient httpClient;
 
 	/**
 	 * This constructor creates a new TechnicalMetadataCommunicator using the
@@ -51,9 +74,29 @@ public class TechnicalMetadataCommunicator {
 	 * @param config
 	 *            The configuration model specifying the settings used for the new
 	 *            instance
+	 * @param metrics
+	 *            The metrics in which the requests to the meta database shall be
+	 *            recorded
 	 */
-	public TechnicalMetadataCommunicator(ConfigModel config) {
+	public TechnicalMetadataCommunicator(ConfigModel config, CompressionMetrics metrics) {
 		this.config = config;
+		this.metrics = metrics;
+
+		PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+		connectionManager.setMaxTotal(config.getMetadbApiMaxConnections());
+		connectionManager.setDefaultMaxPerRoute(config.getMetadbApiMaxConnections());
+		// connections closed by the server while being idle are detected before reuse
+		connectionManager.setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY_MILLIS);
+
+		RequestConfig requestConfig = RequestConfig.custom().setConnectTimeout(config.getMetadbApiConnectTimeout())
+				.setConnectionRequestTimeout(config.getMetadbApiConnectTimeout())
+				.setSocketTimeout(config.getMetadbApiSocketTimeout()).build();
+
+		// retries are handled by this class, since the client's own retries neither
+		// cover errors of the server nor wait between the attempts
+		this.httpClient = HttpClients.custom().setConnectionManager(connectionManager)
+				.setDefaultRequestConfig(requestConfig).disableAutomaticRetries()
+				.evictIdleConnections(MAX_IDLE_SECONDS, TimeUnit.SECONDS).build();
 	}
 
 	/**
@@ -75,42 +118,61 @@ public class TechnicalMetadataCommunicator {
 	 */
 	public TechnicalMetadata getTechnicalMetadata(String mediaUid)
 			throws InvalidTechnicalMetaDataException, TechnicalMetadataNotFoundException, IOException, URISyntaxException {
-		String json = fetchJsonStringFromMetaDb(mediaUid);
+		return getTechnicalMetadata(mediaUid, new CancellationToken());
+	}
+
+	/**
+	 * This method retrieves, parses and returns the technical meta data attached to
+	 * the media file with the given media UID on behalf of a compression job. The
+	 * retries of failed requests are abandoned as soon as the job is cancelled or
+	 * preempted.
+	 * 
+	 * @param mediaUid
+	 *            The media UID of the media file, whose technical meta data shall
+	 *            be retrieved
+	 * @param cancellationToken
+	 *            The token of the compression job requiring the technical meta data
+	 * @return Returns the technical meta data that have been retrieved from the
+	 *         ViSIT meta database
+	 * @throws InvalidTechnicalMetaDataException
+	 *             if the technical meta data that have been retrieved are invalid
+	 * @throws IOException
+	 *             if there occurs an error in the network communication
+	 * @throws URISyntaxException
+	 *             if the URI combined by the API end point and the given media UID
+	 *             is invalid
+	 * @throws JobCancelledException
+	 *             if the job has been cancelled or preempted while waiting for a
+	 *             retry
+	 */
+	public TechnicalMetadata getTechnicalMetadata(String mediaUid, CancellationToken cancellationToken)
+			throws InvalidTechnicalMetaDataException, TechnicalMetadataNotFoundException, IOException, URISyntaxException {
+		String json = fetchJsonStringFromMetaDb(mediaUid, cancellationToken);
 		return new TechnicalMetadata(json);
 	}
 
-	private String fetchJsonStringFromMetaDb(String mediaUid) throws IOException, URISyntaxException, TechnicalMetadataNotFoundException {
-		CloseableHttpClient httpclient = HttpClients.createDefault();
+	private String fetchJsonStringFromMetaDb(String mediaUid, CancellationToken cancellationToken) throws IOException, URISyntaxException, TechnicalMetadataNotFoundException {
 		String fullMediaUid = config.getMetadbApiMediaUidPrefix() + mediaUid;
 		URI uri = new URIBuilder(config.getMetadbApiEndpointFetchUrl())
 				.setParameter(API_ENDPOINT_MEDIAID_PARAM, fullMediaUid).build();
 		HttpGet httpget = new HttpGet(uri);
 		httpget.setHeader(HttpHeaders.AUTHORIZATION, config.getMetadbApiAuthString());
-		String responseString;
-		try {
-			CloseableHttpResponse response = httpclient.execute(httpget);
-
-			InputStream in = response.getEntity().getContent();
-			String encoding = response.getEntity().getContentEncoding() == null ? DEFAULT_ENCODING
-					: response.getEntity().getContentEncoding().getValue();
-
-			if (response.getStatusLine().getStatusCode() == 200) {
-				responseString = IOUtils.toString(in, encoding);
-			} else if (response.getStatusLine().getStatusCode() == 404) {
-				throw new TechnicalMetadataNotFoundException("Could not retrieve technical meta data json. Specified entity doesn't exist.");
-			} else {
-				throw new TechnicalMetadataNotFoundException("Could not retrieve technical meta data json. HTTP error code: "
-						+ response.getStatusLine().getStatusCode());
-			}
 
-			response.close();
-			httpclient.close();
+		Response response;
+		try {
+			response = execute(httpget, cancellationToken);
 		} catch (IOException ex) {
-			httpclient.close();
 			throw new IOException("Could not retrieve technical meta data json. " + ex.getMessage() + " Get request was: " + uri.toString(), ex);
 		}
 
-		return responseString;
+		if (response.status == HttpStatus.SC_OK) {
+			return response.payload;
+		} else if (response.status == HttpStatus.SC_NOT_FOUND) {
+			throw new TechnicalMetadataNotFoundException("Could not retrieve technical meta data json. Specified entity doesn't exist.");
+		} else {
+			throw new TechnicalMetadataNotFoundException("Could not retrieve technical meta data json. HTTP error code: "
+					+ response.status);
+		}
 	}
 
 	/**
@@ -135,31 +197,135 @@ public class TechnicalMetadataCommunicator {
 	 */
 	public void putTechnicalMetadata(String mediaUid, TechnicalMetadata technicalMetadata)
 			throws URISyntaxException, InvalidTechnicalMetaDataException, IOException {
+		putTechnicalMetadata(mediaUid, technicalMetadata.getJson());
+	}
+
+	/**
+	 * This method stores the given JSON-serialization of technical meta data in
+	 * the ViSIT meta database along with the given media UID.
+	 * 
+	 * @param mediaUid
+	 *            The media UID of the media file the given technical meta data
+	 *            refer to
+	 * @param json
+	 *            The JSON-serialization of the technical meta data that shall be
+	 *            stored in the ViSIT meta database
+	 * @throws URISyntaxException
+	 *             if the URI combined by the API end point and the given media UID
+	 *             is invalid
+	 * @throws IOException
+	 *             if there occurs an error in the network communication or the
+	 *             meta database rejected the technical meta data
+	 */
+	public void putTechnicalMetadata(String mediaUid, String json) throws URISyntaxException, IOException {
 		String fullMediaUid = config.getMetadbApiMediaUidPrefix() + mediaUid;
 		URI uri = new URIBuilder(config.getMetadbApiEndpointSendUrl())
 				.setParameter(API_ENDPOINT_MEDIAID_PARAM, fullMediaUid).build();
 		HttpPut httpput = new HttpPut(uri);
 		httpput.setHeader(HttpHeaders.AUTHORIZATION, config.getMetadbApiAuthString());
-		String json = technicalMetadata.getJson();
 		log.debug("Technical meta data update json: " + json);
 		httpput.setEntity(new StringEntity(json, ContentType.create(DEFAULT_PAYLOAD_CONTENT_TYPE, DEFAULT_ENCODING)));
 
-		CloseableHttpClient httpclient = HttpClients.createDefault();
-		CloseableHttpResponse response = httpclient.execute(httpput);
-		if (response.getStatusLine().getStatusCode() != HttpStatus.SC_OK) {
-			String encoding = response.getEntity().getContentEncoding() == null ? DEFAULT_ENCODING
-					: response.getEntity().getContentEncoding().getValue();
-			String payload = response.getEntity().getContentLength() > 0
-					? IOUtils.toString(response.getEntity().getContent(), encoding)
-					: "none";
-			response.close();
-			httpclient.close();
-			throw new IOException("Could not update technical meta data json. Response status: "
-					+ response.getStatusLine().getStatusCode() + "; Payload: " + payload);
+		Response response = execute(httpput, new CancellationToken());
+		if (response.status != HttpStatus.SC_OK) {
+			String payload = response.payload.isEmpty() ? "none" : response.payload;
+			throw new IOException("Could not update technical meta data json. Response status: " + response.status
+					+ "; Payload: " + payload);
+		}
+	}
+
+	/**
+	 * This method closes all pooled connections to the meta database. The
+	 * communicator can't be used afterwards.
+	 */
+	public void close() {
+		try {
+			httpClient.close();
+		} catch (IOException ex) {
+			log.error("Could not close the connections to the meta database: " + ex.getMessage());
+		}
+	}
+
+	/**
+	 * This method sends the given request to the meta database and reads its
+	 * response completely. If the request fails due to a network error or an
+	 * error of the server, it is repeated up to the configured count of retries.
+	 * Since the technical meta data are only retrieved or replaced as a whole,
+	 * all requests are idempotent and can be repeated safely.
+	 * 
+	 * @param request
+	 *            The request, whose entity has to be repeatable
+	 * @param cancellationToken
+	 *            The token, whose cancellation abandons the retries
+	 * @return Returns the response of the last attempt, whose status may still
+	 *         indicate an error of the server
+	 * @throws IOException
+	 *             if the last attempt failed due to a network error or the
+	 *             current thread has been interrupted while waiting for a retry
+	 * @throws JobCancelledException
+	 *             if the given token has been cancelled while waiting for a retry
+	 */
+	private Response execute(HttpRequestBase request, CancellationToken cancellationToken) throws IOException {
+		int maxRetries = config.getMetadbApiMaxRetries();
+
+		for (int attempt = 0;; ++attempt) {
+			long start = System.nanoTime();
+			String failure;
+
+			try (CloseableHttpResponse httpResponse = httpClient.execute(request)) {
+				HttpEntity entity = httpResponse.getEntity();
+				Response response = new Response(httpResponse.getStatusLine().getStatusCode(),
+						entity == null ? "" : EntityUtils.toString(entity, DEFAULT_ENCODING));
+				metrics.recordMetadbRequest(System.nanoTime() - start);
+
+				if (response.status < HttpStatus.SC_INTERNAL_SERVER_ERROR) {
+					return response;
+				} else if (attempt >= maxRetries) {
+					metrics.countMetadbFailure();
+					return response;
+				}
+				failure = "HTTP error code " + response.status;
+			} catch (IOException ex) {
+				metrics.recordMetadbRequest(System.nanoTime() - start);
+				if (attempt >= maxRetries) {
+					metrics.countMetadbFailure();
+					throw ex;
+				}
+				failure = ex.getMessage();
+			}
+
+			long delay = RetryBackoff.getDelay(attempt + 1, config.getMetadbApiRetryBackoff(), MAX_RETRY_DELAY_MILLIS);
+			log.warn("Request to the meta database failed (" + failure + "), retrying in " + delay + " ms: "
+					+ request.getURI());
+			metrics.countMetadbRetry();
+
+			try {
+				// the delay is waited in slices, so a cancelled job doesn't wait for the
+				// complete delay
+				long deadline = System.currentTimeMillis() + delay;
+				for (long remaining = delay; remaining > 0; remaining = deadline - System.currentTimeMillis()) {
+					cancellationToken.throwIfCancelled();
+					Thread.sleep(Math.min(remaining, RETRY_WAIT_SLICE_MILLIS));
+				}
+				cancellationToken.throwIfCancelled();
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting to retry the request.");
+			}
 		}
+	}
 
-		response.close();
-		httpclient.close();
+	/**
+	 * This class represents a completely read response of the meta database.
+	 */
+	private static class Response {
+		private final int status;
+		private final String payload;
+
+		private Response(int status, String payload) {
+			this.status = status;
+			this.payload = payload;
+		}
 	}
 
 }
@@ -0,0 +1,65 @@
+package de.uni_passau.visit.compression.network.transaction;
+
+/**
+ * This class extends the @see DefaultResponse class and represents a network
+ * response on a request for the compression work, which has been avoided by
+ * coalescing jobs and skipping existing compression levels. It holds the
+ * corresponding counts additionally to the success flag and the message
+ * defined by the base class. The latter two will be set to reasonable values
+ * automatically by this class' constructor.
+ * 
+ * @author agent
+ *
+ */
+public class AvoidedWorkResponse extends DefaultResponse {
+
+	private final long coalescedJobs, skippedJobs, skippedLevels;
+
+	/**
+	 * This constructor creates a new response as a successful reaction on a
+	 * request by a client.
+	 * 
+	 * @param coalescedJobs
+	 *            The count of dispatched jobs coalesced with a pending job
+	 * @param skippedJobs
+	 *            The count of jobs finished without any compression
+	 * @param skippedLevels
+	 *            The count of skipped existing compression levels
+	 */
+	public AvoidedWorkResponse(long coalescedJobs, long skippedJobs, long skippedLevels) {
+		super(true, "Data retrieval successful.");
+		this.coalescedJobs = coalescedJobs;
+		this.skippedJobs = skippedJobs;
+		this.skippedLevels = skippedLevels;
+	}
+
+	/**
+	 * This method returns the count of dispatched jobs, which have been coalesced
+	 * with a pending job for the same media file.
+	 * 
+	 * @return Returns the count of coalesced jobs
+	 */
+	public long getCoalescedJobs() {
+		return coalescedJobs;
+	}
+
+	/**
+	 * This method returns the count of jobs, which have been finished without any
+	 * compression, since all their compression levels existed already.
+	 * 
+	 * @return Returns the count of skipped jobs
+	 */
+	public long getSkippedJobs() {
+		return skippedJobs;
+	}
+
+	/**
+	 * This method returns the count of compression levels, which have been skipped
+	 * since they existed already.
+	 * 
+	 * @return Returns the count of skipped compression levels
+	 */
+	public long getSkippedLevels() {
+		return skippedLevels;
+	}
+}
@@ -0,0 +1,65 @@
+package de.uni_passau.visit.compression.network.transaction;
+
+/**
+ * This class extends the @see DefaultResponse class and represents a network
+ * response on a batch dispatch request. Additionally to the success flag and
+ * the message defined by the base class it holds the ids of the new queue
+ * entries and the achieved dispatch throughput. The latter two will be set to
+ * reasonable values automatically by this class' constructor.
+ * 
+ * @author agent
+ *
+ */
+public class BatchDispatchResponse extends DefaultResponse {
+
+	private final int[] jobIds;
+	private final long durationMillis;
+	private final double jobsPerSecond;
+
+	/**
+	 * This constructor creates a new batch dispatch response as a successful
+	 * reaction on a batch dispatch request by a client.
+	 * 
+	 * @param jobIds
+	 *            The ids of the new queue entries in the order of the dispatched
+	 *            jobs
+	 * @param durationNanos
+	 *            The time needed for dispatching the batch in nanoseconds
+	 */
+	public BatchDispatchResponse(int[] jobIds, long durationNanos) {
+		super(true, jobIds.length + " jobs dispatched.");
+		this.jobIds = jobIds;
+		this.durationMillis = durationNanos / 1000000L;
+		this.jobsPerSecond = durationNanos > 0 ? jobIds.length * 1E9 / durationNanos : 0.0;
+	}
+
+	/**
+	 * This method returns the ids of the new queue entries in the order of the
+	 * dispatched jobs.
+	 * 
+	 * @return Returns the ids of the new queue entries
+	 */
+	public int[] getJobIds() {
+		return jobIds;
+	}
+
+	/**
+	 * This method returns the time needed for dispatching the batch in
+	 * milliseconds.
+	 * 
+	 * @return Returns the time needed for dispatching the batch
+	 */
+	public long getDurationMillis() {
+		return durationMillis;
+	}
+
+	/**
+	 * This method returns the count of jobs dispatched per second.
+	 * 
+	 * @return Returns the dispatch throughput in jobs per second
+	 */
+	public double getJobsPerSecond() {
+		return jobsPerSecond;
+	}
+
+}
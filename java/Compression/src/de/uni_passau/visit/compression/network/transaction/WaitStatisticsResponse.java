@@ -0,0 +1,42 @@
+package de.uni_passau.visit.compression.network.transaction;
+
+import java.util.List;
+
+import de.uni_passau.visit.compression.data.QueueWaitStatistics;
+
+/**
+ * This class extends the @see DefaultResponse class and represents a network
+ * response on a request for the waiting time statistics of the compression job
+ * queue. It holds the statistics of each priority class additionally to the
+ * success flag and the message defined by the base class. The latter two will
+ * be set to reasonable values automatically by this class' constructor.
+ *
+ * @author agent
+ *
+ */
+public class WaitStatisticsResponse extends DefaultResponse {
+
+	private final List<QueueWaitStatistics> classes;
+
+	/**
+	 * This constructor creates a new waiting time statistics response as a
+	 * successful reaction on a request by a client.
+	 *
+	 * @param classes
+	 *            The waiting time statistics of each priority class
+	 */
+	public WaitStatisticsResponse(List<QueueWaitStatistics> classes) {
+		super(true, "Data retrieval successful.");
+		this.classes = classes;
+	}
+
+	/**
+	 * This method returns the waiting time statistics of each priority class
+	 * ordered by priority.
+	 *
+	 * @return Returns the waiting time statistics of each priority class
+	 */
+	public List<QueueWaitStatistics> getClasses() {
+		return classes;
+	}
+}
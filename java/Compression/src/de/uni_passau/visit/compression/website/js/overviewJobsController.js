@@ -1,7 +1,7 @@
 (function() {
     var app = angular.module("compression");
 
-    app.controller("overviewJobsController", function($scope, ajax, $interval) {
+    app.controller("overviewJobsController", function($scope, ajax, $interval, eventStream) {
         $scope.queueItems = [];
 		var intervalPromise;
 
@@ -11,6 +11,29 @@
             });
         }
 		
+		$scope.updateJob = function(entry) {
+			var finished = entry.state == "COMPLETED" || entry.state == "ERROR";
+			for(var i = 0; i < $scope.queueItems.length; i++) {
+				if($scope.queueItems[i].id == entry.id) {
+					if(finished) {
+						$scope.queueItems.splice(i, 1);
+					} else {
+						$scope.queueItems[i] = entry;
+					}
+					return;
+				}
+			}
+			if(!finished) {
+				$scope.queueItems.push(entry);
+			}
+		}
+		
+		$scope.removeJob = function(jobId) {
+			$scope.queueItems = $scope.queueItems.filter(function(item) {
+				return item.id != jobId;
+			});
+		}
+		
 		$scope.cancelJob = function(jobId, jobTitle) {
 			if(confirm("Möchten Sie den gewählten Auftrag '"+jobTitle+"' wirklich abbrechen?")) {
 				ajax("DELETE", "jobs", "cancel/"+jobId, null, $scope.reloadJobs);
@@ -19,11 +42,23 @@
 		
 		$scope.init = function() {
 			$scope.reloadJobs();
-			intervalPromise = $interval($scope.reloadJobs, 5000);
-			$scope.$on('$destroy',function(){
-				if(intervalPromise)
-					$interval.cancel(intervalPromise);   
-			});
+			if(eventStream.isSupported()) {
+				// changes are pushed by the server, so no polling is necessary
+				var unsubscribers = [
+					eventStream.on("queue", function(data) { $scope.queueItems = data.items; }),
+					eventStream.on("job", $scope.updateJob),
+					eventStream.on("jobRemoved", function(data) { $scope.removeJob(data.id); })
+				];
+				$scope.$on('$destroy',function(){
+					unsubscribers.forEach(function(unsubscribe) { unsubscribe(); });
+				});
+			} else {
+				intervalPromise = $interval($scope.reloadJobs, 5000);
+				$scope.$on('$destroy',function(){
+					if(intervalPromise)
+						$interval.cancel(intervalPromise);   
+				});
+			}
 		}
         
         $scope.init();
@@ -1,7 +1,7 @@
 (function() {
     var app = angular.module("compression");
 
-    app.controller("overviewStateController", function($scope, ajax, $interval) {
+    app.controller("overviewStateController", function($scope, ajax, $interval, eventStream) {
         $scope.currentStateStr = "Wird geladen...";
         $scope.currentState = "UNDEFINED";
 
@@ -31,6 +31,13 @@
 		
 		$scope.init = function() {
 			$scope.reloadState();
+			if(eventStream.isSupported()) {
+				var unsubscribe = eventStream.on("state", function(data) {
+					$scope.currentState = data.state;
+					$scope.currentStateStr = $scope.translateState(data.state);
+				});
+				$scope.$on('$destroy', unsubscribe);
+			}
 		}
         
         $scope.init();